@@ -25,8 +25,17 @@ dependencies {
     // This dependency is used by the application.
     implementation(libs.guava)
 
+    // Serveur web embarqué (Main, BibliothequeServlet)
+    implementation(libs.jetty.server)
+    implementation(libs.jetty.servlet)
+    implementation(libs.jetty.http2.server)
+
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.10.0")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.10.0")
+
+    // Benchmarks (gradle jmh)
+    "jmhImplementation"(libs.jmh.core)
+    "jmhAnnotationProcessor"(libs.jmh.generator.annprocess)
 }
 
 // Apply a specific Java toolchain to ease working on different environments.
@@ -36,6 +45,25 @@ java {
     }
 }
 
+// Les sources suivent l'arborescence des packages directement sous src/main et src/test
+sourceSets {
+    main {
+        java.setSrcDirs(listOf("src/main"))
+    }
+    test {
+        java.setSrcDirs(listOf("src/test"))
+    }
+    // Benchmarks JMH, compilés contre le code principal mais hors des tests unitaires
+    create("jmh") {
+        java.setSrcDirs(listOf("src/jmh"))
+        compileClasspath += sourceSets["main"].output
+        runtimeClasspath += sourceSets["main"].output
+    }
+}
+
+configurations["jmhImplementation"].extendsFrom(configurations["implementation"])
+configurations["jmhRuntimeOnly"].extendsFrom(configurations["runtimeOnly"])
+
 application {
     // Define the main class for the application.
     mainClass = "com.isitech.bibliotheque.App"
@@ -44,3 +72,70 @@ application {
 tasks.test {
     useJUnitPlatform()
 }
+
+// Temps de démarrage du stockage sur un grand catalogue (hors tests unitaires)
+tasks.register<JavaExec>("benchRecuperation") {
+    group = "verification"
+    description = "Mesure la récupération instantané + journal d'un grand catalogue"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass = "com.isitech.bibliotheque.persistence.BenchmarkRecuperation"
+    maxHeapSize = "8g"
+    args(
+        (project.findProperty("livres") ?: "10000000").toString(),
+        (project.findProperty("queue") ?: "100000").toString(),
+        (project.findProperty("base") ?: "instantane").toString()
+    )
+}
+
+// Benchmarks JMH des chemins chauds du service, résultats en JSON pour comparer les exécutions :
+// gradle jmh [-Pfiltre=Recherche] [-Ptailles=1000,100000] [-Presultats=fichier.json] [-Ptas=8g]
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Lance les benchmarks JMH du service"
+    dependsOn("jmhClasses")
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+    val resultats = layout.buildDirectory.file(
+        (project.findProperty("resultats") ?: "reports/jmh/resultats.json").toString()).get().asFile
+    doFirst { resultats.parentFile.mkdirs() }
+    args(
+        "-rf", "json",
+        "-rff", resultats.absolutePath,
+        // Le catalogue de 10M livres doit tenir dans le tas de chaque fork
+        "-jvmArgsAppend", "-Xmx" + (project.findProperty("tas") ?: "8g").toString()
+    )
+    project.findProperty("tailles")?.let { args("-p", "tailleCatalogue=$it") }
+    project.findProperty("filtre")?.let { args(it.toString()) }
+}
+
+// Serveur web : gradle serveur [-Pconfig=serveur.properties] [-Pport=8080] [-Pvirtuels]
+// [-Paccepteurs=N] [-Pselecteurs=N] ; les autres réglages passent par le fichier de configuration
+tasks.register<JavaExec>("serveur") {
+    group = "application"
+    description = "Démarre le serveur web embarqué"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "com.isitech.Main"
+    project.findProperty("config")?.let { args(it.toString()) }
+    listOf("port", "accepteurs", "selecteurs").forEach { cle ->
+        project.findProperty(cle)?.let { systemProperty("bibliotheque.serveur.$cle", it.toString()) }
+    }
+    if (project.hasProperty("virtuels")) {
+        systemProperty("bibliotheque.serveur.threads.virtuels", "true")
+    }
+}
+
+// Import en masse : gradle importerCatalogue -Pfichier=catalogue.csv -Pdonnees=donnees [-Pbase]
+tasks.register<JavaExec>("importerCatalogue") {
+    group = "application"
+    description = "Importe un catalogue CSV dans un dossier de données"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "com.isitech.bibliotheque.importation.ImportCatalogue"
+    maxHeapSize = "4g"
+    args(
+        (project.findProperty("fichier") ?: "catalogue.csv").toString(),
+        (project.findProperty("donnees") ?: "donnees").toString()
+    )
+    if (project.hasProperty("base")) {
+        args("--base")
+    }
+}
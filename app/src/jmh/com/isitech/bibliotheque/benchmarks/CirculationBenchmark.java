@@ -0,0 +1,53 @@
+package com.isitech.bibliotheque.benchmarks;
+
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emprunt suivi du retour, par plusieurs threads sur le même catalogue.
+ * Chaque thread a son propre lecteur ; deux threads qui tirent le même livre
+ * se disputent son verrou, et le perdant voit un refus d'emprunt.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CirculationBenchmark {
+    private static final AtomicInteger LECTEURS = new AtomicInteger();
+
+    private Utilisateur lecteur;
+    private int suivant;
+
+    @Setup(Level.Trial)
+    public void inscrire(EtatCatalogue etat) throws Exception {
+        int numero = LECTEURS.incrementAndGet();
+        lecteur = new Professeur("Lecteur " + numero, "lecteur" + numero + "@bench.fr", "Bench");
+        etat.service.ajouterUtilisateur(lecteur);
+        // Décale les threads dans l'échantillon pour ne pas tirer les mêmes livres en phase
+        suivant = numero * 97;
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void emprunterPuisRetourner(EtatCatalogue etat, Blackhole trou) {
+        String isbn = etat.isbns[suivant++ & (EtatCatalogue.ECHANTILLONS - 1)];
+        try {
+            etat.service.emprunterLivre(isbn, lecteur.getId());
+            etat.service.retournerLivre(isbn);
+        } catch (Exception refus) {
+            trou.consume(refus);
+        }
+    }
+}
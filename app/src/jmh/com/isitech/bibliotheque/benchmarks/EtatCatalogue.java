@@ -0,0 +1,76 @@
+package com.isitech.bibliotheque.benchmarks;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Catalogue partagé par les benchmarks, construit une fois par taille.
+ * Les clés recherchées sont tirées à l'avance pour ne mesurer que le service.
+ */
+@State(Scope.Benchmark)
+public class EtatCatalogue {
+    static final int ECHANTILLONS = 4096; // Puissance de 2 : indice par masque
+    private static final int AUTEURS = 50_000;
+    private static final String[] MOTS = {
+        "jardin", "rivière", "horloge", "château", "océan", "forêt", "étoile", "voyage"
+    };
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int tailleCatalogue;
+
+    BibliothequeService service;
+    String[] isbns;
+    String[] auteurs;
+    String[] textes;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        service = new BibliothequeService("Benchmark");
+        List<Livre> lot = new ArrayList<>(Math.min(tailleCatalogue, 1_000_000));
+        for (int i = 0; i < tailleCatalogue; i++) {
+            lot.add(livre(i));
+            if (lot.size() == 1_000_000) {
+                service.ajouterLivres(lot);
+                lot.clear();
+            }
+        }
+        service.ajouterLivres(lot);
+
+        SplittableRandom aleatoire = new SplittableRandom(42);
+        isbns = new String[ECHANTILLONS];
+        auteurs = new String[ECHANTILLONS];
+        textes = new String[ECHANTILLONS];
+        for (int i = 0; i < ECHANTILLONS; i++) {
+            int numero = aleatoire.nextInt(tailleCatalogue);
+            isbns[i] = isbn(numero);
+            auteurs[i] = auteur(numero);
+            // Titre complet en minuscules : requête sélective passant par les trigrammes
+            textes[i] = titre(numero).toLowerCase();
+        }
+    }
+
+    static String isbn(int i) {
+        return String.format("978%010d", i);
+    }
+
+    private static String auteur(int i) {
+        return "Auteur " + (i % AUTEURS);
+    }
+
+    private static String titre(int i) {
+        return MOTS[i % MOTS.length] + " " + i;
+    }
+
+    private static Livre livre(int i) {
+        return new Livre(isbn(i), titre(i), auteur(i));
+    }
+}
@@ -0,0 +1,39 @@
+package com.isitech.bibliotheque.benchmarks;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inscription d'utilisateurs (contrôle d'unicité de l'email compris).
+ * Le service est recréé à chaque itération pour que l'annuaire ne grossisse
+ * pas sans fin ; la taille du catalogue n'intervient pas ici.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InscriptionBenchmark {
+    private BibliothequeService service;
+    private int suivant;
+
+    @Setup(Level.Iteration)
+    public void preparer() {
+        service = new BibliothequeService("Benchmark");
+    }
+
+    @Benchmark
+    public void ajouterUtilisateur() throws Exception {
+        int numero = suivant++;
+        service.ajouterUtilisateur(
+            new Etudiant("Etudiant " + numero, "etudiant" + numero + "@bench.fr", "E" + numero, 1, "Info"));
+    }
+}
@@ -0,0 +1,47 @@
+package com.isitech.bibliotheque.benchmarks;
+
+import com.isitech.bibliotheque.models.Livre;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherches en lecture seule sur un catalogue de taille paramétrée
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RechercheBenchmark {
+    private int suivant;
+
+    private int indice() {
+        return suivant++ & (EtatCatalogue.ECHANTILLONS - 1);
+    }
+
+    @Benchmark
+    public Livre rechercherParIsbn(EtatCatalogue etat) {
+        return etat.service.rechercherParIsbn(etat.isbns[indice()]);
+    }
+
+    @Benchmark
+    public List<Livre> rechercherTexte(EtatCatalogue etat) {
+        return etat.service.rechercherTexte(etat.textes[indice()]);
+    }
+
+    @Benchmark
+    public List<Livre> rechercherParAuteur(EtatCatalogue etat) {
+        return etat.service.rechercherParAuteur(etat.auteurs[indice()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Livre> obtenirTousLesLivres(EtatCatalogue etat) {
+        return etat.service.obtenirTousLesLivres();
+    }
+}
@@ -1,26 +1,22 @@
 package com.isitech;
 
-import com.isitech.bibliotheque.web.BibliothequeServlet;
-import org.eclipse.jetty.server.Server;
-import org.eclipse.jetty.servlet.ServletContextHandler;
-import org.eclipse.jetty.servlet.ServletHolder;
+import com.isitech.bibliotheque.serveur.ConfigurationServeur;
+import com.isitech.bibliotheque.serveur.ServeurJetty;
+import java.nio.file.Path;
 
+/**
+ * Démarre le serveur web. Usage : Main [serveur.properties] ;
+ * les propriétés système bibliotheque.serveur.* complètent ou remplacent le fichier.
+ */
 public class Main {
     public static void main(String[] args) throws Exception {
-        // Jetty démarre sur le port 8080
-        Server server = new Server(8080);
+        ConfigurationServeur configuration = ConfigurationServeur.charger(args.length > 0 ? Path.of(args[0]) : null);
+        ServeurJetty serveur = new ServeurJetty(configuration);
+        serveur.demarrer();
 
-        // Contexte racine "/"
-        ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
-        context.setContextPath("/");
-        server.setHandler(context);
-
-        // Ajout de ta servlet
-        context.addServlet(new ServletHolder(new BibliothequeServlet()), "/");
-
-        System.out.println("Serveur démarré : http://localhost:8080");
-
-        server.start();
-        server.join();
+        System.out.println("Serveur démarré : http://" + (configuration.hote() != null ? configuration.hote() : "localhost")
+            + ":" + serveur.getPort() + " (threads " + (configuration.threadsVirtuels() ? "virtuels" : "de plateforme")
+            + (configuration.h2c() ? ", HTTP/2 en clair" : "") + ")");
+        serveur.attendre();
     }
-}
\ No newline at end of file
+}
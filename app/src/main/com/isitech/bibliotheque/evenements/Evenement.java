@@ -0,0 +1,25 @@
+package com.isitech.bibliotheque.evenements;
+
+/**
+ * Événement structuré : les valeurs sont conservées telles quelles, la mise
+ * en forme est faite par le puits (hors du chemin de la requête)
+ * @param type le type d'événement
+ * @param horodatage l'instant de l'événement (millisecondes depuis l'époque)
+ * @param isbn l'ISBN du livre concerné, ou null
+ * @param titre le titre du livre concerné, ou null
+ * @param idUtilisateur l'ID de l'utilisateur concerné, ou null
+ * @param nomUtilisateur le nom de l'utilisateur concerné, ou null
+ * @param joursRetard le retard en jours d'un retour ou d'un emprunt en retard (0 si à l'heure)
+ */
+public record Evenement(TypeEvenement type, long horodatage, String isbn, String titre,
+                        String idUtilisateur, String nomUtilisateur, long joursRetard) {
+
+    /**
+     * Crée un événement horodaté maintenant
+     * @return l'événement
+     */
+    public static Evenement maintenant(TypeEvenement type, String isbn, String titre,
+                                       String idUtilisateur, String nomUtilisateur, long joursRetard) {
+        return new Evenement(type, System.currentTimeMillis(), isbn, titre, idUtilisateur, nomUtilisateur, joursRetard);
+    }
+}
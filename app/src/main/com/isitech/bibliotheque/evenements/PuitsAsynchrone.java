@@ -0,0 +1,202 @@
+package com.isitech.bibliotheque.evenements;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puits asynchrone : les événements sont déposés sans verrou dans un tampon
+ * circulaire borné, puis écrits en JSON (un par ligne) par un thread dédié.
+ * Si le tampon est plein, l'événement est perdu et compté plutôt que de
+ * ralentir la requête.
+ */
+public final class PuitsAsynchrone implements PuitsEvenements, Closeable {
+    private static final long ATTENTE_MAX = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // Tampon circulaire à producteurs multiples et consommateur unique :
+    // chaque case porte un numéro de séquence qui indique à qui elle appartient
+    private final Evenement[] cases;
+    private final AtomicLongArray sequences;
+    private final int masque;
+    private final AtomicLong queue;
+    private long tete; // Lue et écrite par le seul thread d'écriture
+
+    private final Writer sortie;
+    private final Thread ecrivain;
+    private final LongAdder perdus;
+    private volatile long ecrits;
+    private volatile boolean enAttente;
+    private volatile boolean ouvert;
+
+    /**
+     * Constructeur du puits
+     * @param sortie le flux de destination (non fermé par {@link #close})
+     * @param capacite le nombre d'événements en attente au maximum (arrondi à la puissance de 2 supérieure)
+     */
+    public PuitsAsynchrone(OutputStream sortie, int capacite) {
+        int taille = Integer.highestOneBit(Math.max(2, capacite) - 1) << 1;
+        this.cases = new Evenement[taille];
+        this.sequences = new AtomicLongArray(taille);
+        for (int i = 0; i < taille; i++) {
+            sequences.set(i, i);
+        }
+        this.masque = taille - 1;
+        this.queue = new AtomicLong();
+        this.sortie = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8), 1 << 16);
+        this.perdus = new LongAdder();
+        this.ouvert = true;
+        this.ecrivain = new Thread(this::ecrire, "evenements");
+        this.ecrivain.setDaemon(true);
+        this.ecrivain.start();
+    }
+
+    @Override
+    public void publier(Evenement evenement) {
+        if (!ouvert || !deposer(evenement)) {
+            perdus.increment();
+            return;
+        }
+        if (enAttente) {
+            LockSupport.unpark(ecrivain);
+        }
+    }
+
+    @Override
+    public long getNombrePerdus() {
+        return perdus.sum();
+    }
+
+    /**
+     * Obtient le nombre d'événements écrits
+     * @return le nombre d'événements écrits
+     */
+    public long getNombreEcrits() {
+        return ecrits;
+    }
+
+    /**
+     * Écrit les événements en attente puis arrête le thread d'écriture
+     */
+    @Override
+    public void close() throws IOException {
+        ouvert = false;
+        LockSupport.unpark(ecrivain);
+        try {
+            ecrivain.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Fermeture du puits interrompue");
+        }
+    }
+
+    // Tampon circulaire
+
+    private boolean deposer(Evenement evenement) {
+        long position = queue.get();
+        while (true) {
+            int indice = (int) position & masque;
+            long ecart = sequences.get(indice) - position;
+            if (ecart == 0) {
+                if (queue.compareAndSet(position, position + 1)) {
+                    cases[indice] = evenement;
+                    sequences.set(indice, position + 1); // Publie la case au consommateur
+                    return true;
+                }
+                position = queue.get();
+            } else if (ecart < 0) {
+                return false; // Plein : la case n'a pas encore été consommée
+            } else {
+                position = queue.get(); // Un autre producteur a pris cette case
+            }
+        }
+    }
+
+    private Evenement retirer() {
+        int indice = (int) tete & masque;
+        if (sequences.get(indice) != tete + 1) {
+            return null;
+        }
+        Evenement evenement = cases[indice];
+        cases[indice] = null;
+        sequences.set(indice, tete + cases.length); // Rend la case aux producteurs
+        tete++;
+        return evenement;
+    }
+
+    // Thread d'écriture
+
+    private void ecrire() {
+        StringBuilder ligne = new StringBuilder(256);
+        while (true) {
+            Evenement evenement = retirer();
+            if (evenement != null) {
+                ligne.setLength(0);
+                formater(evenement, ligne);
+                try {
+                    sortie.append(ligne);
+                    ecrits++;
+                } catch (IOException e) {
+                    perdus.increment();
+                }
+                continue;
+            }
+            vider();
+            if (!ouvert && queue.get() == tete) {
+                return;
+            }
+            enAttente = true;
+            // Nouvelle vérification après avoir signalé l'attente : un dépôt concurrent nous réveillera
+            if (queue.get() == tete && ouvert) {
+                LockSupport.parkNanos(this, ATTENTE_MAX);
+            }
+            enAttente = false;
+        }
+    }
+
+    private void vider() {
+        try {
+            sortie.flush();
+        } catch (IOException e) {
+            // La sortie est indisponible : les événements suivants seront comptés perdus
+        }
+    }
+
+    /**
+     * Met un événement en forme sur une ligne JSON
+     */
+    static void formater(Evenement evenement, StringBuilder ligne) {
+        ligne.append("{\"horodatage\":\"").append(Instant.ofEpochMilli(evenement.horodatage()))
+            .append("\",\"type\":\"").append(evenement.type()).append('"');
+        champ(ligne, "isbn", evenement.isbn());
+        champ(ligne, "titre", evenement.titre());
+        champ(ligne, "utilisateur", evenement.idUtilisateur());
+        champ(ligne, "nom", evenement.nomUtilisateur());
+        if (evenement.joursRetard() > 0) {
+            ligne.append(",\"joursRetard\":").append(evenement.joursRetard());
+        }
+        ligne.append("}\n");
+    }
+
+    private static void champ(StringBuilder ligne, String nom, String valeur) {
+        if (valeur == null) {
+            return;
+        }
+        ligne.append(",\"").append(nom).append("\":\"");
+        for (int i = 0; i < valeur.length(); i++) {
+            char c = valeur.charAt(i);
+            if (c == '"' || c == '\\') {
+                ligne.append('\\').append(c);
+            } else if (c < 0x20) {
+                ligne.append(String.format("\\u%04x", (int) c));
+            } else {
+                ligne.append(c);
+            }
+        }
+        ligne.append('"');
+    }
+}
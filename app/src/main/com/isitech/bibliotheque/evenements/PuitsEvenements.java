@@ -0,0 +1,44 @@
+package com.isitech.bibliotheque.evenements;
+
+/**
+ * Destination des événements du service. La publication est appelée sur le
+ * chemin des requêtes : elle ne doit ni bloquer ni lever d'exception.
+ */
+public interface PuitsEvenements {
+
+    /**
+     * Puits qui ignore tous les événements
+     */
+    PuitsEvenements AUCUN = new PuitsEvenements() {
+        @Override
+        public void publier(Evenement evenement) {
+        }
+
+        @Override
+        public boolean estActif() {
+            return false;
+        }
+    };
+
+    /**
+     * Publie un événement
+     * @param evenement l'événement
+     */
+    void publier(Evenement evenement);
+
+    /**
+     * Indique si les événements sont exploités (sinon inutile de les construire)
+     * @return true si le puits est actif
+     */
+    default boolean estActif() {
+        return true;
+    }
+
+    /**
+     * Obtient le nombre d'événements perdus faute de place
+     * @return le nombre d'événements perdus
+     */
+    default long getNombrePerdus() {
+        return 0;
+    }
+}
@@ -0,0 +1,14 @@
+package com.isitech.bibliotheque.evenements;
+
+/**
+ * Types d'événements publiés par le service
+ */
+public enum TypeEvenement {
+    LIVRE_AJOUTE,
+    LIVRE_SUPPRIME,
+    UTILISATEUR_AJOUTE,
+    EMPRUNT,
+    RETOUR,
+    RETARD,
+    RESERVATION
+}
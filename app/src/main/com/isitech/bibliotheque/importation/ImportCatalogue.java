@@ -0,0 +1,84 @@
+package com.isitech.bibliotheque.importation;
+
+import com.isitech.bibliotheque.persistence.MoteurStockage;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Point d'entrée en ligne de commande de l'import en masse.
+ * Usage : ImportCatalogue fichier.csv dossier-donnees [--base] [--separateur C]
+ * Par défaut les livres sont ajoutés (et journalisés) dans les données existantes ;
+ * avec --base, un catalogue projeté est construit dans un dossier de données vide.
+ */
+public class ImportCatalogue {
+    private static final int REJETS_AFFICHES = 20;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : ImportCatalogue fichier.csv dossier-donnees [--base] [--separateur C]");
+            System.exit(2);
+        }
+        Path fichier = Path.of(args[0]);
+        Path dossier = Path.of(args[1]);
+        boolean base = false;
+        char separateur = ',';
+        for (int i = 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--base" -> base = true;
+                case "--separateur" -> {
+                    if (i + 1 >= args.length || args[i + 1].length() != 1) {
+                        System.err.println("--separateur attend un caractère");
+                        System.exit(2);
+                    }
+                    separateur = args[++i].charAt(0);
+                }
+                default -> {
+                    System.err.println("Option inconnue : " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        ImportateurCatalogue importateur = new ImportateurCatalogue(separateur, 4 << 20,
+            Runtime.getRuntime().availableProcessors());
+        RapportImport rapport;
+        if (base) {
+            Files.createDirectories(dossier);
+            if (!estVide(dossier)) {
+                System.err.println("Le dossier de données doit être vide pour construire un catalogue de base : " + dossier);
+                System.exit(1);
+            }
+            rapport = importateur.construireCatalogue(fichier, dossier.resolve(MoteurStockage.FICHIER_CATALOGUE));
+        } else {
+            try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+                BibliothequeService service = new BibliothequeService("Import");
+                stockage.recuperer(service);
+                rapport = importateur.importer(fichier, service);
+                stockage.prendreInstantane();
+            }
+        }
+        afficher(rapport);
+    }
+
+    private static boolean estVide(Path dossier) throws IOException {
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            return fichiers.findAny().isEmpty();
+        }
+    }
+
+    private static void afficher(RapportImport rapport) {
+        System.out.printf("Lignes lues : %d%n", rapport.lignes());
+        System.out.printf("Livres importés : %d%n", rapport.importes());
+        System.out.printf("Lignes rejetées : %d%n", rapport.rejetes());
+        System.out.printf("Durée : %d ms (%d lignes/s)%n", rapport.duree().toMillis(), rapport.lignesParSeconde());
+        rapport.rejets().stream().limit(REJETS_AFFICHES).forEach(rejet ->
+            System.out.printf("  ligne %d : %s%s%n", rejet.ligne(), rejet.motif(),
+                rejet.contenu() != null ? " [" + rejet.contenu() + "]" : ""));
+        if (rapport.rejetes() > REJETS_AFFICHES) {
+            System.out.printf("  ... et %d autres%n", rapport.rejetes() - REJETS_AFFICHES);
+        }
+    }
+}
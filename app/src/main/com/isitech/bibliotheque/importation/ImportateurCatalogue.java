@@ -0,0 +1,221 @@
+package com.isitech.bibliotheque.importation;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.persistence.CatalogueMappe;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Import en masse d'un catalogue CSV. Le fichier est lu par blocs coupés sur des
+ * fins de ligne ; les blocs sont analysés en parallèle puis intégrés dans l'ordre
+ * du fichier, de sorte qu'en cas d'ISBN en double la première ligne l'emporte.
+ */
+public class ImportateurCatalogue {
+    private static final int TAILLE_BLOC_DEFAUT = 4 << 20;
+    private static final int REJETS_DETAILLES = 1000;
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final LecteurCsv lecteur;
+    private final int tailleBloc;
+    private final int paralleles;
+
+    /**
+     * Constructeur avec séparateur virgule, blocs de 4 Mo et un analyseur par cœur
+     */
+    public ImportateurCatalogue() {
+        this(',', TAILLE_BLOC_DEFAUT, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructeur complet
+     * @param separateur le séparateur de colonnes
+     * @param tailleBloc la taille des blocs lus (en octets)
+     * @param paralleles le nombre de blocs analysés en parallèle
+     */
+    public ImportateurCatalogue(char separateur, int tailleBloc, int paralleles) {
+        if (tailleBloc <= 0 || paralleles <= 0) {
+            throw new IllegalArgumentException("Taille de bloc et parallélisme doivent être positifs");
+        }
+        this.lecteur = new LecteurCsv(separateur);
+        this.tailleBloc = tailleBloc;
+        this.paralleles = paralleles;
+    }
+
+    /**
+     * Importe un fichier dans le service (journalisé si le service est persistant)
+     * @param fichier le fichier CSV
+     * @param service le service cible
+     * @return le bilan de l'import
+     * @throws IOException si le fichier ne peut pas être lu
+     */
+    public RapportImport importer(Path fichier, BibliothequeService service) throws IOException {
+        Bilan bilan = new Bilan();
+        parcourir(fichier, bilan, (bloc, debut) -> {
+            List<Livre> refuses = service.ajouterLivres(bloc.livres);
+            bilan.importes += bloc.livres.size() - refuses.size();
+            if (!refuses.isEmpty()) {
+                Map<Livre, Integer> lignes = new IdentityHashMap<>();
+                for (int i = 0; i < bloc.livres.size(); i++) {
+                    lignes.put(bloc.livres.get(i), bloc.lignesLivres.get(i));
+                }
+                for (Livre livre : refuses) {
+                    bilan.rejeter(debut + lignes.get(livre), "ISBN en double", livre.getIsbn());
+                }
+            }
+        });
+        return bilan.rapport();
+    }
+
+    /**
+     * Construit un catalogue projeté (voir {@link CatalogueMappe}) à partir d'un fichier,
+     * sans passer par le service : démarrage à froid le plus rapide pour un gros catalogue
+     * @param fichier le fichier CSV
+     * @param catalogue le fichier catalogue à écrire
+     * @return le bilan de l'import
+     * @throws IOException si le fichier ne peut pas être lu ou le catalogue écrit
+     */
+    public RapportImport construireCatalogue(Path fichier, Path catalogue) throws IOException {
+        Bilan bilan = new Bilan();
+        List<Livre> livres = new ArrayList<>();
+        Set<String> isbns = new HashSet<>();
+        parcourir(fichier, bilan, (bloc, debut) -> {
+            for (int i = 0; i < bloc.livres.size(); i++) {
+                Livre livre = bloc.livres.get(i);
+                if (isbns.add(livre.getIsbn())) {
+                    livres.add(livre);
+                } else {
+                    bilan.rejeter(debut + bloc.lignesLivres.get(i), "ISBN en double", livre.getIsbn());
+                }
+            }
+        });
+        CatalogueMappe.ecrire(catalogue, livres);
+        bilan.importes = livres.size();
+        return bilan.rapport();
+    }
+
+    /**
+     * Intégration d'un bloc analysé, dans l'ordre du fichier
+     */
+    private interface Integration {
+        /**
+         * @param bloc le bloc analysé
+         * @param debut le numéro (à partir de 1) de la première ligne du bloc
+         */
+        void integrer(LecteurCsv.Bloc bloc, long debut) throws IOException;
+    }
+
+    /**
+     * Lit le fichier par blocs, les fait analyser en parallèle et les intègre dans l'ordre
+     */
+    private void parcourir(Path fichier, Bilan bilan, Integration integration) throws IOException {
+        ExecutorService analyseurs = Executors.newFixedThreadPool(paralleles, r -> {
+            Thread thread = new Thread(r, "import-csv");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Deque<Future<LecteurCsv.Bloc>> enCours = new ArrayDeque<>();
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            byte[] reste = new byte[0];
+            boolean premier = true;
+            boolean finFichier = false;
+            long ligne = 1;
+            while (!finFichier || !enCours.isEmpty()) {
+                // Les lectures gardent au plus deux blocs d'avance par analyseur
+                while (!finFichier && enCours.size() < paralleles * 2) {
+                    byte[] tampon = Arrays.copyOf(reste, reste.length + tailleBloc);
+                    ByteBuffer cible = ByteBuffer.wrap(tampon, reste.length, tailleBloc);
+                    while (cible.hasRemaining() && !finFichier) {
+                        finFichier = canal.read(cible) < 0;
+                    }
+                    int taille = cible.position();
+                    int coupure = finFichier ? taille : derniereFinDeLigne(tampon, taille);
+                    if (coupure < 0) {
+                        reste = Arrays.copyOf(tampon, taille); // Ligne plus longue qu'un bloc
+                        continue;
+                    }
+                    reste = Arrays.copyOfRange(tampon, coupure, taille);
+                    int debut = premier && commencePar(tampon, taille, BOM) ? BOM.length : 0;
+                    boolean entete = premier;
+                    premier = false;
+                    enCours.add(analyseurs.submit(() -> lecteur.analyser(tampon, debut, coupure, entete)));
+                }
+                if (!enCours.isEmpty()) {
+                    LecteurCsv.Bloc bloc = attendre(enCours.poll());
+                    for (RapportImport.Rejet rejet : bloc.rejets) {
+                        bilan.rejeter(ligne + rejet.ligne(), rejet.motif(), rejet.contenu());
+                    }
+                    integration.integrer(bloc, ligne);
+                    ligne += bloc.lignes;
+                    bilan.lignes += bloc.lignes;
+                }
+            }
+        } finally {
+            analyseurs.shutdownNow();
+        }
+    }
+
+    private static LecteurCsv.Bloc attendre(Future<LecteurCsv.Bloc> bloc) throws IOException {
+        try {
+            return bloc.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrompu");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw new IOException("Échec de l'analyse d'un bloc", e.getCause());
+        }
+    }
+
+    /**
+     * @return la position suivant le dernier saut de ligne, ou -1 s'il n'y en a pas
+     */
+    private static int derniereFinDeLigne(byte[] tampon, int taille) {
+        for (int i = taille - 1; i >= 0; i--) {
+            if (tampon[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean commencePar(byte[] tampon, int taille, byte[] prefixe) {
+        return taille >= prefixe.length && Arrays.equals(tampon, 0, prefixe.length, prefixe, 0, prefixe.length);
+    }
+
+    /**
+     * Compteurs d'un import en cours (utilisés par le seul thread d'intégration)
+     */
+    private static final class Bilan {
+        private final long debut = System.nanoTime();
+        private final List<RapportImport.Rejet> rejets = new ArrayList<>();
+        private long lignes;
+        private long importes;
+        private long rejetes;
+
+        void rejeter(long ligne, String motif, String contenu) {
+            rejetes++;
+            if (rejets.size() < REJETS_DETAILLES) {
+                rejets.add(new RapportImport.Rejet(ligne, motif, contenu));
+            }
+        }
+
+        RapportImport rapport() {
+            return new RapportImport(lignes, importes, rejetes, List.copyOf(rejets),
+                Duration.ofNanos(System.nanoTime() - debut));
+        }
+    }
+}
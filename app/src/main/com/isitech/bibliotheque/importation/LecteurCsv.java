@@ -0,0 +1,232 @@
+package com.isitech.bibliotheque.importation;
+
+import com.isitech.bibliotheque.models.Livre;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Analyse d'un bloc de lignes CSV (octets UTF-8) en livres.
+ * Colonnes : isbn, titre, auteur, puis optionnellement nbPages, editeur et
+ * datePublication (AAAA-MM-JJ ou AAAA). Les champs peuvent être entre guillemets
+ * ("" pour un guillemet) mais ne peuvent pas contenir de saut de ligne.
+ */
+final class LecteurCsv {
+    private static final int COLONNES_MIN = 3;
+    private static final int COLONNES_MAX = 6;
+    private static final int TAILLE_MAX_CHAMP = 0xFFFF; // Octets d'un champ du journal (UTF-8 modifié)
+
+    private final byte separateur;
+
+    /**
+     * Constructeur du lecteur
+     * @param separateur le séparateur de colonnes (ASCII)
+     */
+    LecteurCsv(char separateur) {
+        if (separateur > 0x7F || separateur == '"') {
+            throw new IllegalArgumentException("Séparateur invalide : " + separateur);
+        }
+        this.separateur = (byte) separateur;
+    }
+
+    /**
+     * Résultat de l'analyse d'un bloc : livres acceptés et lignes rejetées,
+     * numérotés relativement au début du bloc (à partir de 0)
+     */
+    static final class Bloc {
+        final List<Livre> livres = new ArrayList<>();
+        final List<Integer> lignesLivres = new ArrayList<>();
+        final List<RapportImport.Rejet> rejets = new ArrayList<>();
+        int lignes;
+    }
+
+    /**
+     * Analyse des lignes complètes
+     * @param octets le tampon
+     * @param debut le début du bloc
+     * @param fin la fin du bloc (exclue), juste après un saut de ligne ou en fin de fichier
+     * @param ignorerEntete true si une ligne d'en-tête "isbn,..." peut ouvrir le bloc
+     * @return les livres et rejets du bloc
+     */
+    Bloc analyser(byte[] octets, int debut, int fin, boolean ignorerEntete) {
+        Bloc bloc = new Bloc();
+        String[] champs = new String[COLONNES_MAX + 1];
+        int position = debut;
+        while (position < fin) {
+            int finLigne = position;
+            while (finLigne < fin && octets[finLigne] != '\n') {
+                finLigne++;
+            }
+            int ligne = bloc.lignes++;
+            int finContenu = finLigne > position && octets[finLigne - 1] == '\r' ? finLigne - 1 : finLigne;
+            if (finContenu > position) {
+                int nombre = decouper(octets, position, finContenu, champs);
+                boolean entete = ligne == 0 && ignorerEntete && nombre > 0 && "isbn".equalsIgnoreCase(champs[0]);
+                if (!entete) {
+                    String motif = nombre < 0 ? "guillemet non fermé" : verifier(champs, nombre);
+                    if (motif == null) {
+                        bloc.livres.add(creer(champs, nombre));
+                        bloc.lignesLivres.add(ligne);
+                    } else {
+                        bloc.rejets.add(new RapportImport.Rejet(ligne, motif, texte(octets, position, finContenu)));
+                    }
+                }
+            }
+            position = finLigne + 1;
+        }
+        return bloc;
+    }
+
+    /**
+     * Découpe une ligne en champs (au plus COLONNES_MAX + 1 pour détecter l'excès)
+     * @return le nombre de champs, ou -1 si un guillemet n'est pas fermé
+     */
+    private int decouper(byte[] octets, int debut, int fin, String[] champs) {
+        int nombre = 0;
+        int position = debut;
+        while (true) {
+            String champ;
+            if (position < fin && octets[position] == '"') {
+                StringBuilder valeur = null;
+                int morceau = ++position;
+                while (true) {
+                    if (position >= fin) {
+                        return -1;
+                    }
+                    if (octets[position] == '"') {
+                        if (position + 1 < fin && octets[position + 1] == '"') {
+                            valeur = (valeur != null ? valeur : new StringBuilder())
+                                .append(texte(octets, morceau, position + 1));
+                            position += 2;
+                            morceau = position;
+                            continue;
+                        }
+                        break;
+                    }
+                    position++;
+                }
+                String dernier = texte(octets, morceau, position);
+                champ = valeur != null ? valeur.append(dernier).toString() : dernier;
+                position++; // Guillemet fermant
+                while (position < fin && octets[position] != separateur) {
+                    position++; // Ignore ce qui suit le guillemet fermant
+                }
+            } else {
+                int debutChamp = position;
+                while (position < fin && octets[position] != separateur) {
+                    position++;
+                }
+                champ = texte(octets, debutChamp, position).strip();
+            }
+            if (nombre < champs.length) {
+                champs[nombre] = champ;
+            }
+            nombre++;
+            if (position >= fin) {
+                return Math.min(nombre, champs.length);
+            }
+            position++; // Séparateur
+        }
+    }
+
+    private static String verifier(String[] champs, int nombre) {
+        if (nombre < COLONNES_MIN) {
+            return "colonnes manquantes (" + nombre + ")";
+        }
+        if (nombre > COLONNES_MAX) {
+            return "colonnes en trop";
+        }
+        for (int i = 0; i < nombre; i++) {
+            if (tailleEncodee(champs[i]) > TAILLE_MAX_CHAMP) {
+                return "champ trop long (colonne " + (i + 1) + ")";
+            }
+        }
+        if (champs[0].isEmpty()) {
+            return "ISBN manquant";
+        }
+        if (champs[1].isEmpty()) {
+            return "titre manquant";
+        }
+        if (champs[2].isEmpty()) {
+            return "auteur manquant";
+        }
+        if (nombre > 3 && !champs[3].isEmpty() && lireNbPages(champs[3]) < 0) {
+            return "nombre de pages invalide";
+        }
+        if (nombre > 5 && !champs[5].isEmpty() && lireDate(champs[5]) == null) {
+            return "date invalide";
+        }
+        return null;
+    }
+
+    /**
+     * Taille d'un champ une fois encodé dans le journal : une ligne acceptée ici
+     * ne peut pas être refusée par le journal à l'ajout
+     */
+    private static int tailleEncodee(String champ) {
+        int taille = 0;
+        for (int i = 0; i < champ.length(); i++) {
+            char c = champ.charAt(i);
+            taille += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        return taille;
+    }
+
+    /**
+     * Crée le livre d'une ligne validée par {@link #verifier}
+     */
+    private static Livre creer(String[] champs, int nombre) {
+        int nbPages = nombre > 3 && !champs[3].isEmpty() ? lireNbPages(champs[3]) : 0;
+        String editeur = nombre > 4 && !champs[4].isEmpty() ? champs[4] : null;
+        LocalDate date = nombre > 5 && !champs[5].isEmpty() ? lireDate(champs[5]) : null;
+        return new Livre(champs[0], champs[1], champs[2], nbPages, editeur, date);
+    }
+
+    private static int lireNbPages(String valeur) {
+        try {
+            return Integer.parseInt(valeur);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Lit une date AAAA-MM-JJ ou AAAA sans passer par DateTimeFormatter
+     * @return la date, ou null si elle est invalide
+     */
+    private static LocalDate lireDate(String valeur) {
+        boolean complete = valeur.length() == 10 && valeur.charAt(4) == '-' && valeur.charAt(7) == '-';
+        if (!complete && valeur.length() != 4) {
+            return null;
+        }
+        int annee = chiffres(valeur, 0, 4);
+        int mois = complete ? chiffres(valeur, 5, 7) : 1;
+        int jour = complete ? chiffres(valeur, 8, 10) : 1;
+        if (annee < 0 || mois < 0 || jour < 0) {
+            return null;
+        }
+        try {
+            return LocalDate.of(annee, mois, jour);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int chiffres(String valeur, int debut, int fin) {
+        int nombre = 0;
+        for (int i = debut; i < fin; i++) {
+            char c = valeur.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            nombre = nombre * 10 + (c - '0');
+        }
+        return nombre;
+    }
+
+    private static String texte(byte[] octets, int debut, int fin) {
+        return new String(octets, debut, fin - debut, StandardCharsets.UTF_8);
+    }
+}
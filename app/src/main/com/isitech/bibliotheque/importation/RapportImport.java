@@ -0,0 +1,33 @@
+package com.isitech.bibliotheque.importation;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Bilan d'un import en masse
+ * @param lignes le nombre de lignes lues
+ * @param importes le nombre de livres importés
+ * @param rejetes le nombre de lignes rejetées (invalides ou ISBN en double)
+ * @param rejets le détail des premières lignes rejetées
+ * @param duree la durée de l'import
+ */
+public record RapportImport(long lignes, long importes, long rejetes, List<Rejet> rejets, Duration duree) {
+
+    /**
+     * Ligne rejetée
+     * @param ligne le numéro de ligne dans le fichier (à partir de 1)
+     * @param motif la raison du rejet
+     * @param contenu le contenu de la ligne
+     */
+    public record Rejet(long ligne, String motif, String contenu) {
+    }
+
+    /**
+     * Obtient le débit de l'import
+     * @return le nombre de lignes lues par seconde
+     */
+    public long lignesParSeconde() {
+        long nanos = Math.max(1, duree.toNanos());
+        return lignes * 1_000_000_000L / nanos;
+    }
+}
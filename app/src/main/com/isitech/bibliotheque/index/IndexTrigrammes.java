@@ -0,0 +1,251 @@
+package com.isitech.bibliotheque.index;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.util.Normalisation;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé de trigrammes sur les titres et auteurs du catalogue.
+ * Chaque livre reçoit un identifiant de document croissant : les listes de
+ * postings restent donc triées par simple ajout en fin de tableau. Une
+ * suppression marque le document comme supprimé, les postings sont
+ * compactés lorsque les documents supprimés deviennent majoritaires.
+ */
+public class IndexTrigrammes {
+    private static final int TAILLE_INITIALE = 1024;
+    private static final int SEUIL_COMPACTAGE = 4096;
+
+    private final Map<Long, Postings> postings;
+    private final Map<String, Integer> idParIsbn;
+    private final BitSet supprimes;
+    private final ReentrantReadWriteLock verrou;
+    private Livre[] documents;
+    private String[] titres; // Clés normalisées des titres au moment de l'indexation
+    private String[] auteurs; // Clés normalisées des auteurs au moment de l'indexation
+    private int nbDocuments;
+    private int nbSupprimes;
+
+    /**
+     * Constructeur d'un index vide
+     */
+    public IndexTrigrammes() {
+        this.postings = new HashMap<>();
+        this.idParIsbn = new HashMap<>();
+        this.supprimes = new BitSet();
+        this.verrou = new ReentrantReadWriteLock();
+        this.documents = new Livre[TAILLE_INITIALE];
+        this.titres = new String[TAILLE_INITIALE];
+        this.auteurs = new String[TAILLE_INITIALE];
+    }
+
+    /**
+     * Indexe un livre (ou le réindexe s'il l'était déjà)
+     * @param livre le livre à indexer
+     */
+    public void ajouter(Livre livre) {
+        verrou.writeLock().lock();
+        try {
+            retirerSansVerrou(livre.getIsbn());
+            indexerSansVerrou(livre);
+            compacterSiNecessaire();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retire un livre de l'index
+     * @param livre le livre à retirer
+     */
+    public void retirer(Livre livre) {
+        verrou.writeLock().lock();
+        try {
+            retirerSansVerrou(livre.getIsbn());
+            compacterSiNecessaire();
+        } finally {
+            verrou.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recherche les livres dont le titre ou l'auteur contient le texte,
+     * à la casse et aux accents près
+     * @param texte le texte à rechercher
+     * @return les livres correspondants, sans ordre particulier
+     */
+    public List<Livre> rechercher(String texte) {
+        String requete = Normalisation.plier(texte);
+        verrou.readLock().lock();
+        try {
+            // Trop court pour former un trigramme : parcours des textes indexés
+            if (requete.length() < 3) {
+                return parcourir(requete);
+            }
+
+            long[] cles = trigrammes(requete);
+            Postings[] listes = new Postings[cles.length];
+            for (int i = 0; i < cles.length; i++) {
+                listes[i] = postings.get(cles[i]);
+                if (listes[i] == null) {
+                    return new ArrayList<>();
+                }
+            }
+            // Intersection en partant de la liste la plus courte
+            Arrays.sort(listes, Comparator.comparingInt(p -> p.taille));
+
+            List<Livre> resultats = new ArrayList<>();
+            Postings plusCourte = listes[0];
+            candidats:
+            for (int i = 0; i < plusCourte.taille; i++) {
+                int id = plusCourte.ids[i];
+                if (supprimes.get(id)) {
+                    continue;
+                }
+                for (int j = 1; j < listes.length; j++) {
+                    if (!listes[j].contient(id)) {
+                        continue candidats;
+                    }
+                }
+                // Les trigrammes peuvent provenir de positions différentes : vérification finale
+                if (titres[id].contains(requete) || auteurs[id].contains(requete)) {
+                    resultats.add(documents[id]);
+                }
+            }
+            return resultats;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtient le nombre de livres indexés
+     * @return le nombre de documents actifs
+     */
+    public int taille() {
+        verrou.readLock().lock();
+        try {
+            return nbDocuments - nbSupprimes;
+        } finally {
+            verrou.readLock().unlock();
+        }
+    }
+
+    // Méthodes internes (appelées sous le verrou d'écriture)
+
+    private void indexerSansVerrou(Livre livre) {
+        if (nbDocuments == documents.length) {
+            int capacite = documents.length * 2;
+            documents = Arrays.copyOf(documents, capacite);
+            titres = Arrays.copyOf(titres, capacite);
+            auteurs = Arrays.copyOf(auteurs, capacite);
+        }
+        int id = nbDocuments++;
+        documents[id] = livre;
+        titres[id] = livre.getTitreNormalise();
+        auteurs[id] = livre.getAuteurNormalise();
+        idParIsbn.put(livre.getIsbn(), id);
+
+        for (long cle : trigrammes(titres[id], auteurs[id])) {
+            postings.computeIfAbsent(cle, k -> new Postings()).ajouter(id);
+        }
+    }
+
+    private void retirerSansVerrou(String isbn) {
+        Integer id = idParIsbn.remove(isbn);
+        if (id != null) {
+            supprimes.set(id);
+            documents[id] = null;
+            titres[id] = null;
+            auteurs[id] = null;
+            nbSupprimes++;
+        }
+    }
+
+    private void compacterSiNecessaire() {
+        if (nbSupprimes > SEUIL_COMPACTAGE && nbSupprimes * 2 > nbDocuments) {
+            compacter();
+        }
+    }
+
+    private void compacter() {
+        Livre[] actifs = new Livre[nbDocuments - nbSupprimes];
+        int n = 0;
+        for (int id = 0; id < nbDocuments; id++) {
+            if (!supprimes.get(id)) {
+                actifs[n++] = documents[id];
+            }
+        }
+        postings.clear();
+        idParIsbn.clear();
+        supprimes.clear();
+        int capacite = Math.max(TAILLE_INITIALE, n * 2);
+        documents = new Livre[capacite];
+        titres = new String[capacite];
+        auteurs = new String[capacite];
+        nbDocuments = 0;
+        nbSupprimes = 0;
+        for (Livre livre : actifs) {
+            indexerSansVerrou(livre);
+        }
+    }
+
+    private List<Livre> parcourir(String requete) {
+        List<Livre> resultats = new ArrayList<>();
+        for (int id = 0; id < nbDocuments; id++) {
+            if (!supprimes.get(id) && (titres[id].contains(requete) || auteurs[id].contains(requete))) {
+                resultats.add(documents[id]);
+            }
+        }
+        return resultats;
+    }
+
+    /**
+     * Extrait les trigrammes distincts des textes, chacun codé sur un long
+     * (partagé avec les postings du catalogue projeté)
+     * @param textes les textes normalisés
+     * @return les clés des trigrammes, triées et sans doublon
+     */
+    public static long[] trigrammes(String... textes) {
+        int total = 0;
+        for (String texte : textes) {
+            total += Math.max(0, texte.length() - 2);
+        }
+        long[] cles = new long[total];
+        int n = 0;
+        for (String texte : textes) {
+            for (int i = 0; i + 2 < texte.length(); i++) {
+                cles[n++] = ((long) texte.charAt(i) << 32)
+                    | ((long) texte.charAt(i + 1) << 16)
+                    | texte.charAt(i + 2);
+            }
+        }
+        Arrays.sort(cles);
+        int distincts = 0;
+        for (int i = 0; i < n; i++) {
+            if (distincts == 0 || cles[distincts - 1] != cles[i]) {
+                cles[distincts++] = cles[i];
+            }
+        }
+        return Arrays.copyOf(cles, distincts);
+    }
+
+    /**
+     * Liste de postings : identifiants de documents triés par ordre croissant
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int taille;
+
+        void ajouter(int id) {
+            if (taille == ids.length) {
+                ids = Arrays.copyOf(ids, taille * 2);
+            }
+            ids[taille++] = id;
+        }
+
+        boolean contient(int id) {
+            return Arrays.binarySearch(ids, 0, taille, id) >= 0;
+        }
+    }
+}
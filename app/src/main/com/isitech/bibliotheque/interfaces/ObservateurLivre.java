@@ -0,0 +1,25 @@
+package com.isitech.bibliotheque.interfaces;
+
+import com.isitech.bibliotheque.models.Livre;
+
+/**
+ * Interface permettant aux index d'être prévenus des modifications d'un livre
+ */
+public interface ObservateurLivre {
+
+    /**
+     * Appelé juste avant la modification d'un champ indexé (titre, auteur) ;
+     * peut refuser la modification
+     * @param livre le livre dans son état courant
+     * @param titre le titre après la modification
+     * @param auteur l'auteur après la modification
+     * @throws IllegalArgumentException si la modification ne peut pas être enregistrée
+     */
+    void avantModification(Livre livre, String titre, String auteur);
+
+    /**
+     * Appelé juste après la modification d'un champ indexé
+     * @param livre le livre dans son nouvel état
+     */
+    void apresModification(Livre livre);
+}
@@ -0,0 +1,24 @@
+package com.isitech.bibliotheque.interfaces;
+
+import com.isitech.bibliotheque.models.Utilisateur;
+
+/**
+ * Interface permettant aux index d'être prévenus d'un changement d'email
+ */
+public interface ObservateurUtilisateur {
+
+    /**
+     * Appelé juste avant le changement d'email ; peut refuser le changement
+     * @param utilisateur l'utilisateur dans son état courant
+     * @param nouvelEmail l'email demandé
+     * @throws IllegalArgumentException si l'email est déjà utilisé
+     */
+    void avantChangementEmail(Utilisateur utilisateur, String nouvelEmail);
+
+    /**
+     * Appelé juste après le changement d'email
+     * @param utilisateur l'utilisateur dans son nouvel état
+     * @param ancienEmail l'email précédent
+     */
+    void apresChangementEmail(Utilisateur utilisateur, String ancienEmail);
+}
@@ -0,0 +1,109 @@
+package com.isitech.bibliotheque.metriques;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de latences à seaux log-linéaires (à la manière de HdrHistogram) :
+ * chaque puissance de 2 est découpée en 32 seaux égaux, soit une erreur relative
+ * d'au plus 3 % sur les quantiles, de la nanoseconde à environ 18 minutes.
+ * L'enregistrement est un simple incrément atomique, sans verrou ni allocation ;
+ * les lectures ne figent pas l'histogramme et peuvent voir un enregistrement en cours.
+ */
+public final class HistogrammeLatences {
+    private static final int BITS_SOUS_SEAUX = 5;
+    private static final int SOUS_SEAUX = 1 << BITS_SOUS_SEAUX;
+    private static final int MAGNITUDE_MAX = 40; // Valeurs bornées à 2^40 ns
+    private static final long VALEUR_MAX = (1L << MAGNITUDE_MAX) - 1;
+    private static final int NOMBRE_SEAUX = SOUS_SEAUX * (MAGNITUDE_MAX - BITS_SOUS_SEAUX + 1);
+
+    private final AtomicLongArray seaux;
+    private final LongAdder somme;
+
+    public HistogrammeLatences() {
+        this.seaux = new AtomicLongArray(NOMBRE_SEAUX);
+        this.somme = new LongAdder();
+    }
+
+    /**
+     * Enregistre une durée
+     * @param nanos la durée en nanosecondes (les valeurs négatives comptent pour 0)
+     */
+    public void enregistrer(long nanos) {
+        long valeur = Math.min(Math.max(nanos, 0), VALEUR_MAX);
+        seaux.getAndIncrement(seau(valeur));
+        somme.add(valeur);
+    }
+
+    /**
+     * @return le nombre de durées enregistrées
+     */
+    public long nombre() {
+        long total = 0;
+        for (int i = 0; i < NOMBRE_SEAUX; i++) {
+            total += seaux.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @return la somme des durées enregistrées, en nanosecondes
+     */
+    public long somme() {
+        return somme.sum();
+    }
+
+    /**
+     * Calcule plusieurs quantiles en une seule passe sur les seaux
+     * @param quantiles les quantiles demandés, croissants, entre 0 et 1
+     * @return la borne haute du seau de chaque quantile en nanosecondes (0 si vide)
+     */
+    public long[] quantiles(double... quantiles) {
+        long[] copie = new long[NOMBRE_SEAUX];
+        long total = 0;
+        for (int i = 0; i < NOMBRE_SEAUX; i++) {
+            copie[i] = seaux.get(i);
+            total += copie[i];
+        }
+        long[] resultats = new long[quantiles.length];
+        if (total == 0) {
+            return resultats;
+        }
+        int seau = 0;
+        long cumul = copie[0];
+        for (int q = 0; q < quantiles.length; q++) {
+            long rang = Math.max(1, (long) Math.ceil(quantiles[q] * total));
+            while (cumul < rang && seau < NOMBRE_SEAUX - 1) {
+                cumul += copie[++seau];
+            }
+            resultats[q] = borneHaute(seau);
+        }
+        return resultats;
+    }
+
+    /**
+     * @return le quantile demandé en nanosecondes (0 si vide)
+     */
+    public long quantile(double quantile) {
+        return quantiles(quantile)[0];
+    }
+
+    static int seau(long valeur) {
+        if (valeur < SOUS_SEAUX) {
+            return (int) valeur;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(valeur);
+        int decalage = magnitude - BITS_SOUS_SEAUX;
+        // valeur >>> decalage est entre SOUS_SEAUX et 2 * SOUS_SEAUX - 1
+        return (decalage + 1) * SOUS_SEAUX + (int) ((valeur >>> decalage) - SOUS_SEAUX);
+    }
+
+    static long borneHaute(int seau) {
+        if (seau < SOUS_SEAUX) {
+            return seau;
+        }
+        int decalage = seau / SOUS_SEAUX - 1;
+        long sousSeau = seau % SOUS_SEAUX;
+        return ((SOUS_SEAUX + sousSeau + 1) << decalage) - 1;
+    }
+}
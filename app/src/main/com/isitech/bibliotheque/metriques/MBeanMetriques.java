@@ -0,0 +1,112 @@
+package com.isitech.bibliotheque.metriques;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Vue JMX en lecture seule du registre : un attribut par jauge et par compteur, et pour chaque
+ * opération son nombre d'appels, d'échecs et ses latences p50/p99 en microsecondes
+ * (par exemple "emprunter_livre.p99Micros"). Les attributs suivent les opérations,
+ * jauges et compteurs déclarés après l'enregistrement.
+ */
+final class MBeanMetriques implements DynamicMBean {
+    private static final String NOMBRE = ".nombre";
+    private static final String ECHECS = ".echecs";
+    private static final String P50 = ".p50Micros";
+    private static final String P99 = ".p99Micros";
+
+    private final Metriques metriques;
+
+    MBeanMetriques(Metriques metriques) {
+        this.metriques = metriques;
+    }
+
+    @Override
+    public Object getAttribute(String attribut) throws AttributeNotFoundException {
+        for (Metriques.Jauge jauge : metriques.getJauges()) {
+            if (jauge.nom().equals(attribut)) {
+                return jauge.valeur().getAsDouble();
+            }
+        }
+        for (Metriques.Compteur compteur : metriques.getCompteurs()) {
+            if (compteur.nom().equals(attribut)) {
+                return compteur.valeur().getAsLong();
+            }
+        }
+        int point = attribut.lastIndexOf('.');
+        if (point > 0) {
+            for (Operation operation : metriques.getOperations()) {
+                if (operation.getNom().equals(attribut.substring(0, point))) {
+                    switch (attribut.substring(point)) {
+                        case NOMBRE:
+                            return operation.getLatences().nombre();
+                        case ECHECS:
+                            return operation.getEchecs();
+                        case P50:
+                            return operation.getLatences().quantile(0.5) / 1000.0;
+                        case P99:
+                            return operation.getLatences().quantile(0.99) / 1000.0;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+        throw new AttributeNotFoundException(attribut);
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributs) {
+        AttributeList liste = new AttributeList();
+        for (String attribut : attributs) {
+            try {
+                liste.add(new Attribute(attribut, getAttribute(attribut)));
+            } catch (AttributeNotFoundException e) {
+                // Ignoré, comme le veut le contrat de getAttributes
+            }
+        }
+        return liste;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribut) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Attribut en lecture seule : " + attribut.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributs) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String action, Object[] parametres, String[] signature) {
+        throw new UnsupportedOperationException(action);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributs = new ArrayList<>();
+        for (Metriques.Jauge jauge : metriques.getJauges()) {
+            attributs.add(new MBeanAttributeInfo(jauge.nom(), "double", jauge.aide(), true, false, false));
+        }
+        for (Metriques.Compteur compteur : metriques.getCompteurs()) {
+            attributs.add(new MBeanAttributeInfo(compteur.nom(), "long", compteur.aide(), true, false, false));
+        }
+        for (Operation operation : metriques.getOperations()) {
+            String nom = operation.getNom();
+            attributs.add(new MBeanAttributeInfo(nom + NOMBRE, "long", "Nombre d'appels", true, false, false));
+            attributs.add(new MBeanAttributeInfo(nom + ECHECS, "long", "Nombre d'échecs", true, false, false));
+            attributs.add(new MBeanAttributeInfo(nom + P50, "double", "Latence médiane (µs)", true, false, false));
+            attributs.add(new MBeanAttributeInfo(nom + P99, "double", "Latence p99 (µs)", true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Métriques de la bibliothèque",
+            attributs.toArray(new MBeanAttributeInfo[0]), null, new MBeanOperationInfo[0], null);
+    }
+}
@@ -0,0 +1,165 @@
+package com.isitech.bibliotheque.metriques;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Registre des métriques de l'application : opérations chronométrées, jauges et
+ * compteurs. Les opérations sont créées une fois puis gardées par l'appelant, le
+ * chemin chaud ne consulte donc jamais le registre. Les jauges (valeur qui monte
+ * et descend) et les compteurs (valeur qui ne fait que croître) sont évalués à la lecture.
+ * Exposition au format texte Prometheus ({@link #ecrirePrometheus}) et via JMX.
+ */
+public class Metriques {
+    private static final String PREFIXE = "bibliotheque_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final Map<String, Jauge> jauges = new ConcurrentHashMap<>();
+    private final Map<String, Compteur> compteurs = new ConcurrentHashMap<>();
+
+    /**
+     * Jauge évaluée à la lecture
+     */
+    record Jauge(String nom, String aide, DoubleSupplier valeur) {
+    }
+
+    /**
+     * Compteur croissant évalué à la lecture
+     */
+    record Compteur(String nom, String aide, LongSupplier valeur) {
+    }
+
+    /**
+     * Obtient (ou crée) une opération chronométrée
+     * @param nom le nom de l'opération (minuscules et soulignés)
+     * @return l'opération, la même pour un même nom
+     */
+    public Operation operation(String nom) {
+        return operations.computeIfAbsent(nom, Operation::new);
+    }
+
+    /**
+     * Déclare une jauge, remplaçant celle de même nom
+     * @param nom le nom de la métrique, sans préfixe (minuscules et soulignés)
+     * @param aide la description
+     * @param valeur la fonction évaluée à chaque lecture
+     */
+    public void jauge(String nom, String aide, DoubleSupplier valeur) {
+        jauges.put(nom, new Jauge(nom, aide, valeur));
+    }
+
+    /**
+     * Déclare un compteur, remplaçant celui de même nom. Exporté en type
+     * « counter » sous le nom suffixé par _total : la valeur ne doit jamais
+     * décroître (hors redémarrage), sans quoi rate() la prendrait pour une remise à zéro.
+     * @param nom le nom de la métrique, sans préfixe ni suffixe (minuscules et soulignés)
+     * @param aide la description
+     * @param valeur la fonction évaluée à chaque lecture
+     */
+    public void compteur(String nom, String aide, LongSupplier valeur) {
+        compteurs.put(nom, new Compteur(nom, aide, valeur));
+    }
+
+    Collection<Operation> getOperations() {
+        return operations.values();
+    }
+
+    Collection<Jauge> getJauges() {
+        return jauges.values();
+    }
+
+    Collection<Compteur> getCompteurs() {
+        return compteurs.values();
+    }
+
+    /**
+     * Écrit toutes les métriques au format texte d'exposition Prometheus
+     * @param sortie la destination
+     */
+    public void ecrirePrometheus(Appendable sortie) throws IOException {
+        for (Jauge jauge : jauges.values()) {
+            String nom = PREFIXE + jauge.nom();
+            entete(sortie, nom, jauge.aide(), "gauge");
+            sortie.append(nom).append(' ').append(nombre(jauge.valeur().getAsDouble())).append('\n');
+        }
+        for (Compteur compteur : compteurs.values()) {
+            String nom = PREFIXE + compteur.nom() + "_total";
+            entete(sortie, nom, compteur.aide(), "counter");
+            sortie.append(nom).append(' ').append(Long.toString(compteur.valeur().getAsLong())).append('\n');
+        }
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        String duree = PREFIXE + "operation_duree_secondes";
+        entete(sortie, duree, "Durée des opérations", "summary");
+        for (Operation operation : operations.values()) {
+            HistogrammeLatences latences = operation.getLatences();
+            long[] valeurs = latences.quantiles(QUANTILES);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                sortie.append(duree).append("{operation=\"").append(operation.getNom())
+                    .append("\",quantile=\"").append(nombre(QUANTILES[i])).append("\"} ")
+                    .append(nombre(valeurs[i] / 1e9)).append('\n');
+            }
+            sortie.append(duree).append("_sum{operation=\"").append(operation.getNom()).append("\"} ")
+                .append(nombre(latences.somme() / 1e9)).append('\n');
+            sortie.append(duree).append("_count{operation=\"").append(operation.getNom()).append("\"} ")
+                .append(Long.toString(latences.nombre())).append('\n');
+        }
+
+        String echecs = PREFIXE + "operation_echecs_total";
+        entete(sortie, echecs, "Appels en échec (exception ou refus)", "counter");
+        for (Operation operation : operations.values()) {
+            sortie.append(echecs).append("{operation=\"").append(operation.getNom()).append("\"} ")
+                .append(Long.toString(operation.getEchecs())).append('\n');
+        }
+    }
+
+    /**
+     * Enregistre les métriques auprès du serveur JMX de la plateforme
+     * @param nom le nom de l'objet, par exemple "com.isitech.bibliotheque:type=Metriques"
+     * @return le nom enregistré, à passer à {@link #retirerJmx}
+     */
+    public ObjectName exposerJmx(String nom) throws JMException {
+        ObjectName objet = new ObjectName(nom);
+        MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+        if (serveur.isRegistered(objet)) {
+            serveur.unregisterMBean(objet);
+        }
+        serveur.registerMBean(new MBeanMetriques(this), objet);
+        return objet;
+    }
+
+    /**
+     * Retire les métriques du serveur JMX de la plateforme
+     * @param objet le nom rendu par {@link #exposerJmx}
+     */
+    public static void retirerJmx(ObjectName objet) throws JMException {
+        MBeanServer serveur = ManagementFactory.getPlatformMBeanServer();
+        if (serveur.isRegistered(objet)) {
+            serveur.unregisterMBean(objet);
+        }
+    }
+
+    private static void entete(Appendable sortie, String nom, String aide, String type) throws IOException {
+        sortie.append("# HELP ").append(nom).append(' ').append(aide).append('\n');
+        sortie.append("# TYPE ").append(nom).append(' ').append(type).append('\n');
+    }
+
+    private static String nombre(double valeur) {
+        if (valeur == Math.rint(valeur) && Math.abs(valeur) < 1e15) {
+            return Long.toString((long) valeur);
+        }
+        // Double.toString donne "NaN" et la notation 1.2E-5, acceptés par Prometheus
+        return Double.toString(valeur);
+    }
+}
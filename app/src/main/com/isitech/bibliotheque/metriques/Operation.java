@@ -0,0 +1,51 @@
+package com.isitech.bibliotheque.metriques;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mesures d'une opération : latences (dont le nombre d'appels) et nombre d'échecs.
+ * Usage : {@code long debut = System.nanoTime(); ... operation.enregistrer(debut, reussi);}
+ */
+public final class Operation {
+    private final String nom;
+    private final HistogrammeLatences latences;
+    private final LongAdder echecs;
+
+    Operation(String nom) {
+        this.nom = nom;
+        this.latences = new HistogrammeLatences();
+        this.echecs = new LongAdder();
+    }
+
+    /**
+     * Enregistre un appel réussi
+     * @param debutNanos la valeur de System.nanoTime() au début de l'appel
+     */
+    public void enregistrer(long debutNanos) {
+        latences.enregistrer(System.nanoTime() - debutNanos);
+    }
+
+    /**
+     * Enregistre un appel, compté en échec s'il n'a pas abouti
+     * @param debutNanos la valeur de System.nanoTime() au début de l'appel
+     * @param reussi false si l'appel a échoué (exception, refus)
+     */
+    public void enregistrer(long debutNanos, boolean reussi) {
+        latences.enregistrer(System.nanoTime() - debutNanos);
+        if (!reussi) {
+            echecs.increment();
+        }
+    }
+
+    public String getNom() {
+        return nom;
+    }
+
+    public HistogrammeLatences getLatences() {
+        return latences;
+    }
+
+    public long getEchecs() {
+        return echecs.sum();
+    }
+}
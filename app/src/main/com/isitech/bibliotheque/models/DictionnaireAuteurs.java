@@ -0,0 +1,79 @@
+package com.isitech.bibliotheque.models;
+
+import com.isitech.bibliotheque.util.Normalisation;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionnaire des auteurs d'un service : chaque nom distinct (tel qu'écrit)
+ * n'est gardé qu'une fois en mémoire, partagé par tous les livres indexés.
+ * Les noms qui ont la même forme normalisée (casse, accents, espaces) partagent
+ * un identifiant canonique, qui sert de clé à l'index par auteur.
+ * Chaque service a le sien : les identifiants n'ont de sens que pour ses livres.
+ * Les identifiants ne sont jamais réattribués : le dictionnaire grandit d'une
+ * entrée par graphie d'auteur rencontrée par le service, y compris celles qu'un
+ * renommage ou une suppression a rendues inutiles, et disparaît avec lui.
+ * Lectures sans verrou ; les ajouts sont sérialisés et publiés par la table de hachage.
+ */
+public final class DictionnaireAuteurs {
+    private final Map<String, NomAuteur> parNom;
+    private final Map<String, NomAuteur> parCle; // Première graphie de chaque forme normalisée
+    private int nombreCles; // Sous le moniteur du dictionnaire
+
+    public DictionnaireAuteurs() {
+        this.parNom = new ConcurrentHashMap<>();
+        this.parCle = new ConcurrentHashMap<>();
+        parCle.put(NomAuteur.AUCUN.getCle(), NomAuteur.AUCUN);
+        this.nombreCles = 1; // L'identifiant 0 est l'auteur absent
+    }
+
+    /**
+     * Obtient l'instance partagée d'un nom d'auteur, en l'ajoutant au besoin
+     * @param auteur le nom, interné ou non
+     * @return l'instance du dictionnaire, la même pour deux noms égaux
+     */
+    public NomAuteur interner(NomAuteur auteur) {
+        if (auteur.getNom() == null) {
+            return NomAuteur.AUCUN;
+        }
+        NomAuteur interne = parNom.get(auteur.getNom());
+        return interne != null ? interne : ajouter(auteur);
+    }
+
+    private synchronized NomAuteur ajouter(NomAuteur auteur) {
+        NomAuteur existant = parNom.get(auteur.getNom());
+        if (existant != null) {
+            return existant;
+        }
+        NomAuteur premier = parCle.get(auteur.getCle());
+        NomAuteur interne = premier != null
+            ? new NomAuteur(auteur.getNom(), premier.getCle(), premier.getCanonique())
+            : new NomAuteur(auteur.getNom(), auteur.getCle(), nombreCles++);
+        if (premier == null) {
+            parCle.put(interne.getCle(), interne);
+        }
+        parNom.put(interne.getNom(), interne);
+        return interne;
+    }
+
+    /**
+     * Cherche l'identifiant canonique d'un auteur, sans rien ajouter au dictionnaire
+     * @param nom le nom recherché (casse, accents et espaces indifférents)
+     * @return l'identifiant canonique, ou -1 si aucun livre du service n'a jamais eu cet auteur
+     */
+    public int chercherCanonique(String nom) {
+        NomAuteur auteur = nom == null ? null : parNom.get(nom);
+        if (auteur == null) {
+            auteur = parCle.get(Normalisation.plier(nom));
+        }
+        return auteur != null ? auteur.getCanonique() : -1;
+    }
+
+    /**
+     * @return le nombre de graphies d'auteur enregistrées
+     */
+    public int taille() {
+        return parNom.size();
+    }
+}
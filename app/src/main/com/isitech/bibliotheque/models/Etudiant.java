@@ -17,7 +17,15 @@ public class Etudiant extends Utilisateur {
      * @param filiere la filière d'étude
      */
     public Etudiant(String nom, String email, String numeroEtudiant, int niveau, String filiere) {
-        super(nom, email);
+        this(null, nom, email, numeroEtudiant, niveau, filiere);
+    }
+
+    /**
+     * Constructeur pour un étudiant dont l'ID est déjà connu (restauration)
+     * @param id l'ID de l'utilisateur, ou null pour en générer un
+     */
+    public Etudiant(String id, String nom, String email, String numeroEtudiant, int niveau, String filiere) {
+        super(id != null ? id : genererId(), nom, email);
         this.numeroEtudiant = numeroEtudiant;
         this.niveau = niveau;
         this.filiere = filiere;
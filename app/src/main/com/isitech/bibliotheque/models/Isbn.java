@@ -0,0 +1,120 @@
+package com.isitech.bibliotheque.models;
+
+/**
+ * ISBN normalisé en ISBN-13, stocké dans un long (13 chiffres).
+ * Accepte les ISBN-10 et ISBN-13, avec ou sans tirets ni espaces,
+ * et vérifie la clé de contrôle. L'analyse ne crée aucun objet intermédiaire.
+ * @param valeur les 13 chiffres de l'ISBN-13
+ */
+public record Isbn(long valeur) {
+    private static final long MIN = 978_000_000_000_0L;
+    private static final long MAX = 979_999_999_999_9L;
+
+    public Isbn {
+        if (valeur < MIN || valeur > MAX || cleIsbn13(valeur / 10) != valeur % 10) {
+            throw new IllegalArgumentException("ISBN-13 invalide : " + valeur);
+        }
+    }
+
+    /**
+     * Analyse un ISBN-10 ou ISBN-13
+     * @param texte l'ISBN, tirets et espaces ignorés
+     * @return l'ISBN normalisé
+     * @throws IllegalArgumentException si le texte n'est pas un ISBN valide
+     */
+    public static Isbn analyser(CharSequence texte) {
+        long valeur = versIsbn13(texte);
+        if (valeur < 0) {
+            throw new IllegalArgumentException("ISBN invalide : " + texte);
+        }
+        return new Isbn(valeur);
+    }
+
+    /**
+     * Donne la forme canonique (13 chiffres sans séparateur) d'un ISBN
+     * @param texte l'ISBN-10 ou ISBN-13
+     * @return l'ISBN-13, ou null si le texte n'est pas un ISBN valide
+     */
+    public static String normaliser(CharSequence texte) {
+        long valeur = versIsbn13(texte);
+        return valeur < 0 ? null : Long.toString(valeur);
+    }
+
+    /**
+     * Convertit un ISBN-10 ou ISBN-13 en ISBN-13 numérique, sans allocation
+     * @param texte l'ISBN, tirets et espaces ignorés
+     * @return les 13 chiffres de l'ISBN-13, ou -1 si le texte n'est pas un ISBN valide
+     */
+    public static long versIsbn13(CharSequence texte) {
+        if (texte == null) {
+            return -1;
+        }
+        long chiffres = 0;
+        int nombre = 0;
+        boolean x = false; // Clé "X" d'un ISBN-10
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            if (x || nombre >= 13) {
+                return -1;
+            }
+            if (c >= '0' && c <= '9') {
+                chiffres = chiffres * 10 + (c - '0');
+            } else if ((c == 'X' || c == 'x') && nombre == 9) {
+                x = true;
+            } else {
+                return -1;
+            }
+            nombre++;
+        }
+        if (nombre == 13) {
+            boolean valide = chiffres >= MIN && chiffres <= MAX && cleIsbn13(chiffres / 10) == chiffres % 10;
+            return valide ? chiffres : -1;
+        }
+        if (nombre == 10) {
+            long corps = x ? chiffres : chiffres / 10;
+            long cle = x ? 10 : chiffres % 10;
+            if (cleIsbn10(corps) != cle) {
+                return -1;
+            }
+            long prefixe = 978_000_000_000L + corps;
+            return prefixe * 10 + cleIsbn13(prefixe);
+        }
+        return -1;
+    }
+
+    /**
+     * @return la clé de contrôle ISBN-13 des 12 premiers chiffres
+     */
+    private static long cleIsbn13(long douze) {
+        int somme = 0;
+        for (int i = 0; i < 12; i++) {
+            int chiffre = (int) (douze % 10);
+            somme += (i % 2 == 0) ? 3 * chiffre : chiffre; // Poids 3 sur les rangs pairs depuis la droite
+            douze /= 10;
+        }
+        return (10 - somme % 10) % 10;
+    }
+
+    /**
+     * @return la clé de contrôle ISBN-10 des 9 premiers chiffres (10 pour "X")
+     */
+    private static long cleIsbn10(long neuf) {
+        int somme = 0;
+        for (int poids = 2; poids <= 10; poids++) {
+            somme += poids * (int) (neuf % 10);
+            neuf /= 10;
+        }
+        return (11 - somme % 11) % 11;
+    }
+
+    /**
+     * @return les 13 chiffres de l'ISBN
+     */
+    @Override
+    public String toString() {
+        return Long.toString(valeur);
+    }
+}
@@ -1,24 +1,43 @@
 package com.isitech.bibliotheque.models;
 
 import com.isitech.bibliotheque.interfaces.Empruntable;
+import com.isitech.bibliotheque.interfaces.ObservateurLivre;
+import com.isitech.bibliotheque.util.Normalisation;
 import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.Objects;
 
 /**
- * Classe représentant un livre de la bibliothèque
+ * Classe représentant un titre de la bibliothèque et ses exemplaires physiques
+ * (un seul par défaut). Le titre est disponible tant qu'un exemplaire est libre ;
+ * les méthodes sans numéro d'exemplaire portent sur le premier exemplaire emprunté.
  */
 public class Livre implements Empruntable, Comparable<Livre> {
+    // Échecs de tenterEmprunter, négatifs pour ne pas se confondre avec un numéro d'exemplaire
+    public static final int INDISPONIBLE = -1;
+    public static final int DEJA_DETENU = -2;
+    public static final int QUOTA_ATTEINT = -3;
+
+    // Ordre des auteurs dans le tri : sans casse, un auteur absent en premier
+    private static final Comparator<String> ORDRE_AUTEURS = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+
     private final String isbn;
     private String titre;
-    private String auteur;
+    private NomAuteur auteur; // Partagé par les livres du même auteur une fois indexé par le service
     private int nbPages;
     private String editeur;
     private LocalDate datePublication;
+
+    // Clé de recherche pliée (minuscules, sans accents), calculée une seule fois ;
+    // celle de l'auteur est portée par son NomAuteur
+    private String titreNormalise;
     
-    // État d'emprunt
-    private boolean disponible;
-    private Utilisateur emprunteur;
-    private LocalDate dateEmprunt;
+    // État d'emprunt des exemplaires : lisible sans verrou, les écritures sont
+    // sérialisées par le verrou de l'ISBN dans BibliothequeService
+    private volatile TableExemplaires exemplaires;
+
+    // Index à prévenir lors d'un changement de titre ou d'auteur
+    private volatile ObservateurLivre observateur;
 
     /**
      * Constructeur minimal pour un livre
@@ -29,8 +48,9 @@ public class Livre implements Empruntable, Comparable<Livre> {
     public Livre(String isbn, String titre, String auteur) {
         this.isbn = isbn;
         this.titre = titre;
-        this.auteur = auteur;
-        this.disponible = true;
+        this.auteur = NomAuteur.de(auteur);
+        this.titreNormalise = Normalisation.plier(titre);
+        this.exemplaires = new TableExemplaires(1);
         this.nbPages = 0;
     }
 
@@ -46,66 +66,220 @@ public class Livre implements Empruntable, Comparable<Livre> {
 
     // Implémentation de l'interface Empruntable
 
+    /**
+     * Vérifie si un exemplaire au moins est libre (sans parcours des exemplaires)
+     * @return true si disponible, false sinon
+     */
     @Override
     public boolean estDisponible() {
-        return disponible && emprunteur == null;
+        return exemplaires.nombreLibres() > 0;
     }
 
     @Override
     public void emprunter(Utilisateur utilisateur) throws Exception {
-        if (!estDisponible()) {
-            throw new Exception("Livre déjà emprunté");
+        emprunter(utilisateur, LocalDate.now());
+    }
+
+    /**
+     * Emprunte un exemplaire libre à une date donnée (horloge du service)
+     * @param utilisateur l'utilisateur qui emprunte
+     * @param date la date d'emprunt
+     * @return le numéro de l'exemplaire prêté
+     * @throws Exception si aucun exemplaire n'est libre, si l'utilisateur détient
+     *         déjà ce titre ou si son quota est atteint
+     */
+    public int emprunter(Utilisateur utilisateur, LocalDate date) throws Exception {
+        int numero = tenterEmprunter(utilisateur, date);
+        return switch (numero) {
+            case INDISPONIBLE -> throw new Exception(exemplaires.taille() == 1 ? "Livre déjà emprunté" : "Aucun exemplaire disponible");
+            case DEJA_DETENU -> throw new Exception(utilisateur.getNom() + " a déjà emprunté ce livre");
+            case QUOTA_ATTEINT -> throw new Exception("Quota d'emprunts dépassé pour " + utilisateur.getNom());
+            default -> numero;
+        };
+    }
+
+    /**
+     * Emprunte un exemplaire libre sans exception : un échec courant (titre
+     * épuisé, déjà détenu, quota) ne coûte pas de trace de pile
+     * @param utilisateur l'utilisateur qui emprunte
+     * @param date la date d'emprunt
+     * @return le numéro de l'exemplaire prêté, ou INDISPONIBLE, DEJA_DETENU, QUOTA_ATTEINT
+     */
+    public int tenterEmprunter(Utilisateur utilisateur, LocalDate date) {
+        TableExemplaires table = exemplaires;
+        if (table.nombreLibres() == 0) {
+            return INDISPONIBLE;
+        }
+        if (utilisateur.detientLivre(this)) {
+            return DEJA_DETENU;
         }
-        if (!utilisateur.peutEmprunter()) {
-            throw new Exception("Quota d'emprunts dépassé pour " + utilisateur.getNom());
+        // Réservation atomique du quota avant de modifier l'état du livre
+        if (!utilisateur.tenterIncrementerEmprunts()) {
+            return QUOTA_ATTEINT;
         }
 
-        this.emprunteur = utilisateur;
-        this.dateEmprunt = LocalDate.now();
-        this.disponible = false;
-        utilisateur.incrementerEmprunts();
+        int numero = table.prendre(utilisateur, date);
+        utilisateur.ajouterLivreEmprunte(this);
+        return numero;
     }
 
+    /**
+     * Retourne l'unique exemplaire emprunté
+     * @throws IllegalStateException si aucun ou plusieurs exemplaires sont empruntés
+     */
     @Override
     public void retourner() {
-        if (estDisponible()) {
+        int empruntes = getNombreEmpruntes();
+        if (empruntes == 0) {
             throw new IllegalStateException("Livre déjà disponible");
         }
+        if (empruntes > 1) {
+            throw new IllegalStateException("Plusieurs exemplaires empruntés : préciser l'exemplaire");
+        }
+        retourner(exemplaires.premierEmprunte());
+    }
+
+    /**
+     * Retourne un exemplaire emprunté
+     * @param numero le numéro de l'exemplaire
+     * @throws IllegalStateException si l'exemplaire n'est pas emprunté
+     */
+    public void retourner(int numero) {
+        TableExemplaires table = exemplaires;
+        Utilisateur ancienEmprunteur = numero >= 0 && numero < table.taille() ? table.emprunteur(numero) : null;
+        if (ancienEmprunteur == null) {
+            throw new IllegalStateException("Exemplaire " + numero + " non emprunté");
+        }
+        table.liberer(numero);
+        ancienEmprunteur.retirerLivreEmprunte(this);
+        ancienEmprunteur.decrementerEmprunts();
+    }
 
-        emprunteur.decrementerEmprunts();
-        this.emprunteur = null;
-        this.dateEmprunt = null;
-        this.disponible = true;
+    /**
+     * Remet un exemplaire dans un état d'emprunt donné, sans contrôle de disponibilité
+     * ni de quota (relecture du journal et des instantanés). Le compteur et
+     * les livres détenus de l'ancien et du nouvel emprunteur sont ajustés.
+     * @param numero le numéro de l'exemplaire (la table est agrandie au besoin)
+     * @param utilisateur le nouvel emprunteur, ou null pour libérer l'exemplaire
+     * @param date la date d'emprunt (ignorée si utilisateur est null)
+     */
+    public void restaurerEmprunt(int numero, Utilisateur utilisateur, LocalDate date) {
+        if (numero >= exemplaires.taille()) {
+            ajouterExemplaires(numero + 1 - exemplaires.taille());
+        }
+        TableExemplaires table = exemplaires;
+        Utilisateur ancienEmprunteur = table.emprunteur(numero);
+        if (ancienEmprunteur != null) {
+            table.liberer(numero);
+            ancienEmprunteur.retirerLivreEmprunte(this);
+            ancienEmprunteur.decrementerEmprunts();
+        }
+        if (utilisateur != null) {
+            table.occuper(numero, utilisateur, date);
+            utilisateur.restaurerEmprunt();
+            utilisateur.ajouterLivreEmprunte(this);
+        }
+    }
+
+    /**
+     * Libère tous les exemplaires (relecture d'une suppression)
+     */
+    public void restaurerDisponible() {
+        for (int numero = exemplaires.premierEmprunte(); numero >= 0; numero = exemplaires.premierEmprunte()) {
+            restaurerEmprunt(numero, null, null);
+        }
+    }
+
+    /**
+     * Ajoute des exemplaires libres au titre
+     * @param nombre le nombre d'exemplaires à ajouter
+     */
+    public void ajouterExemplaires(int nombre) {
+        if (nombre <= 0) {
+            throw new IllegalArgumentException("Le nombre d'exemplaires à ajouter doit être positif");
+        }
+        exemplaires = exemplaires.agrandir(nombre);
+    }
+
+    public int getNombreExemplaires() {
+        return exemplaires.taille();
+    }
+
+    public int getNombreDisponibles() {
+        return exemplaires.nombreLibres();
+    }
+
+    public int getNombreEmpruntes() {
+        TableExemplaires table = exemplaires;
+        return table.taille() - table.nombreLibres();
+    }
+
+    /**
+     * Trouve l'exemplaire détenu par un utilisateur
+     * @param utilisateur l'utilisateur
+     * @return le numéro de l'exemplaire, ou -1 s'il ne détient pas ce titre
+     */
+    public int exemplaireDe(Utilisateur utilisateur) {
+        return utilisateur == null ? -1 : exemplaires.exemplaireDe(utilisateur);
     }
 
     @Override
     public Utilisateur getEmprunteur() {
-        return emprunteur;
+        int numero = exemplaires.premierEmprunte();
+        return numero < 0 ? null : getEmprunteur(numero);
     }
 
     @Override
     public LocalDate getDateEmprunt() {
-        return dateEmprunt;
+        int numero = exemplaires.premierEmprunte();
+        return numero < 0 ? null : getDateEmprunt(numero);
     }
 
     @Override
     public LocalDate getDateRetourPrevue() {
-        if (dateEmprunt == null || emprunteur == null) {
+        int numero = exemplaires.premierEmprunte();
+        return numero < 0 ? null : getDateRetourPrevue(numero);
+    }
+
+    public Utilisateur getEmprunteur(int numero) {
+        return exemplaires.emprunteur(numero);
+    }
+
+    public LocalDate getDateEmprunt(int numero) {
+        return exemplaires.dateEmprunt(numero);
+    }
+
+    /**
+     * Calcule la date de retour prévue d'un exemplaire
+     * @param numero le numéro de l'exemplaire
+     * @return la date de retour prévue ou null s'il est libre
+     */
+    public LocalDate getDateRetourPrevue(int numero) {
+        TableExemplaires table = exemplaires;
+        LocalDate date = table.dateEmprunt(numero);
+        Utilisateur utilisateur = table.emprunteur(numero);
+        if (date == null || utilisateur == null) {
             return null;
         }
-        return dateEmprunt.plusDays(emprunteur.getDureeEmpruntMax());
+        return date.plusDays(utilisateur.getDureeEmpruntMax());
     }
 
     // Implémentation de Comparable pour le tri
 
     @Override
     public int compareTo(Livre autre) {
-        // Tri par titre, puis par auteur
+        // Tri par titre, puis par auteur, puis par ISBN (cohérent avec equals)
         int comparaisonTitre = this.titre.compareToIgnoreCase(autre.titre);
         if (comparaisonTitre != 0) {
             return comparaisonTitre;
         }
-        return this.auteur.compareToIgnoreCase(autre.auteur);
+        if (this.auteur != autre.auteur) {
+            int comparaisonAuteur = ORDRE_AUTEURS.compare(getAuteur(), autre.getAuteur());
+            if (comparaisonAuteur != 0) {
+                return comparaisonAuteur;
+            }
+        }
+        return this.isbn.compareTo(autre.isbn);
     }
 
     // Méthodes utilitaires
@@ -115,8 +289,16 @@ public class Livre implements Empruntable, Comparable<Livre> {
      * @return true si en retard, false sinon
      */
     public boolean estEnRetard() {
-        LocalDate dateRetourPrevue = getDateRetourPrevue();
-        return dateRetourPrevue != null && LocalDate.now().isAfter(dateRetourPrevue);
+        return estEnRetard(LocalDate.now());
+    }
+
+    /**
+     * Vérifie si le livre est en retard à une date donnée
+     * @param aujourdhui la date de référence
+     * @return true si en retard, false sinon
+     */
+    public boolean estEnRetard(LocalDate aujourdhui) {
+        return joursRetard(aujourdhui) > 0;
     }
 
     /**
@@ -124,10 +306,36 @@ public class Livre implements Empruntable, Comparable<Livre> {
      * @return le nombre de jours de retard (0 si pas en retard)
      */
     public long joursRetard() {
-        if (!estEnRetard()) {
+        return joursRetard(LocalDate.now());
+    }
+
+    /**
+     * Calcule le plus grand retard des exemplaires empruntés à une date donnée
+     * @param aujourdhui la date de référence
+     * @return le nombre de jours de retard (0 si pas en retard)
+     */
+    public long joursRetard(LocalDate aujourdhui) {
+        long retard = 0;
+        if (getNombreEmpruntes() > 0) {
+            for (int numero = 0; numero < exemplaires.taille(); numero++) {
+                retard = Math.max(retard, joursRetard(numero, aujourdhui));
+            }
+        }
+        return retard;
+    }
+
+    /**
+     * Calcule le retard d'un exemplaire à une date donnée
+     * @param numero le numéro de l'exemplaire
+     * @param aujourdhui la date de référence
+     * @return le nombre de jours de retard (0 si pas en retard ou libre)
+     */
+    public long joursRetard(int numero, LocalDate aujourdhui) {
+        LocalDate dateRetourPrevue = getDateRetourPrevue(numero);
+        if (dateRetourPrevue == null || !aujourdhui.isAfter(dateRetourPrevue)) {
             return 0;
         }
-        return java.time.temporal.ChronoUnit.DAYS.between(getDateRetourPrevue(), LocalDate.now());
+        return java.time.temporal.ChronoUnit.DAYS.between(dateRetourPrevue, aujourdhui);
     }
 
     // Getters et Setters
@@ -141,15 +349,64 @@ public class Livre implements Empruntable, Comparable<Livre> {
     }
 
     public void setTitre(String titre) {
+        ObservateurLivre obs = observateur;
+        if (obs != null) {
+            obs.avantModification(this, titre, getAuteur());
+        }
         this.titre = titre;
+        this.titreNormalise = Normalisation.plier(titre);
+        if (obs != null) {
+            obs.apresModification(this);
+        }
     }
 
     public String getAuteur() {
-        return auteur;
+        return auteur.getNom();
+    }
+
+    /**
+     * @return l'identifiant canonique de l'auteur dans le dictionnaire du service
+     *         (commun aux graphies de même forme normalisée), ou NomAuteur.NON_INTERNE
+     */
+    public int getIdAuteurCanonique() {
+        return auteur.getCanonique();
+    }
+
+    /**
+     * Remplace le nom de l'auteur par l'instance partagée d'un dictionnaire.
+     * Le nom ne change pas, ni donc l'ordre du livre : appelé par le service
+     * lorsqu'il indexe le livre, sans prévenir l'observateur.
+     * @param dictionnaire le dictionnaire des auteurs du service
+     */
+    public void internerAuteur(DictionnaireAuteurs dictionnaire) {
+        this.auteur = dictionnaire.interner(auteur);
     }
 
     public void setAuteur(String auteur) {
-        this.auteur = auteur;
+        ObservateurLivre obs = observateur;
+        if (obs != null) {
+            obs.avantModification(this, getTitre(), auteur);
+        }
+        this.auteur = NomAuteur.de(auteur);
+        if (obs != null) {
+            obs.apresModification(this);
+        }
+    }
+
+    /**
+     * Obtient la clé de recherche du titre
+     * @return le titre en minuscules, sans accents ni espaces superflus
+     */
+    public String getTitreNormalise() {
+        return titreNormalise;
+    }
+
+    /**
+     * Obtient la clé de recherche de l'auteur
+     * @return l'auteur en minuscules, sans accents ni espaces superflus
+     */
+    public String getAuteurNormalise() {
+        return auteur.getCle();
     }
 
     public int getNbPages() {
@@ -176,6 +433,14 @@ public class Livre implements Empruntable, Comparable<Livre> {
         this.datePublication = datePublication;
     }
 
+    /**
+     * Définit l'observateur prévenu des modifications de titre et d'auteur
+     * @param observateur l'observateur, ou null pour le détacher
+     */
+    public void setObservateur(ObservateurLivre observateur) {
+        this.observateur = observateur;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -186,12 +451,18 @@ public class Livre implements Empruntable, Comparable<Livre> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(isbn);
+        return Objects.hashCode(isbn); // Sans tableau varargs : le hash de la chaîne est mis en cache
     }
 
     @Override
     public String toString() {
-        String statut = disponible ? "Disponible" : "Emprunté par " + emprunteur.getNom();
-        return String.format("'%s' par %s (ISBN: %s) - %s", titre, auteur, isbn, statut);
+        String statut;
+        if (getNombreExemplaires() > 1) {
+            statut = getNombreDisponibles() + "/" + getNombreExemplaires() + " exemplaires disponibles";
+        } else {
+            Utilisateur utilisateur = getEmprunteur();
+            statut = utilisateur == null ? "Disponible" : "Emprunté par " + utilisateur.getNom();
+        }
+        return String.format("'%s' par %s (ISBN: %s) - %s", titre, getAuteur(), isbn, statut);
     }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.isitech.bibliotheque.models;
+
+import com.isitech.bibliotheque.util.Normalisation;
+
+/**
+ * Nom d'auteur tel qu'écrit, avec sa forme normalisée (casse, accents, espaces)
+ * et son identifiant canonique dans le {@link DictionnaireAuteurs} d'un service.
+ * Immuable : un livre change d'instance lorsqu'il change d'auteur, et reçoit
+ * l'instance partagée du dictionnaire lorsque le service l'indexe.
+ */
+public final class NomAuteur {
+    /** Identifiant d'un nom qui n'a pas encore été interné */
+    public static final int NON_INTERNE = -1;
+
+    /** Auteur absent (null) : clé vide, identifiant canonique 0 dans tout dictionnaire */
+    public static final NomAuteur AUCUN = new NomAuteur(null, "", 0);
+
+    private final String nom;
+    private final String cle;
+    private final int canonique;
+
+    NomAuteur(String nom, String cle, int canonique) {
+        this.nom = nom;
+        this.cle = cle;
+        this.canonique = canonique;
+    }
+
+    /**
+     * Crée le nom d'un auteur, hors de tout dictionnaire
+     * @param nom le nom tel qu'écrit, ou null
+     * @return le nom, non interné ({@link #AUCUN} pour null)
+     */
+    public static NomAuteur de(String nom) {
+        return nom == null ? AUCUN : new NomAuteur(nom, Normalisation.plier(nom), NON_INTERNE);
+    }
+
+    /**
+     * @return le nom tel qu'écrit (null pour {@link #AUCUN})
+     */
+    public String getNom() {
+        return nom;
+    }
+
+    /**
+     * @return la forme normalisée du nom
+     */
+    public String getCle() {
+        return cle;
+    }
+
+    /**
+     * @return l'identifiant canonique (partagé par les graphies de même forme
+     *         normalisée), ou {@link #NON_INTERNE}
+     */
+    public int getCanonique() {
+        return canonique;
+    }
+}
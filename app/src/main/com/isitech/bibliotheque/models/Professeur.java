@@ -14,7 +14,15 @@ public class Professeur extends Utilisateur {
      * @param departement le département d'enseignement
      */
     public Professeur(String nom, String email, String departement) {
-        super(nom, email);
+        this(null, nom, email, departement);
+    }
+
+    /**
+     * Constructeur pour un professeur dont l'ID est déjà connu (restauration)
+     * @param id l'ID de l'utilisateur, ou null pour en générer un
+     */
+    public Professeur(String id, String nom, String email, String departement) {
+        super(id != null ? id : genererId(), nom, email);
         this.departement = departement;
         this.accesRessourcesSpeciales = true;
         this.maxEmprunts = 10; // Plus d'emprunts pour les professeurs
@@ -0,0 +1,156 @@
+package com.isitech.bibliotheque.models;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * État des exemplaires physiques d'un titre, en tableaux compacts indexés par
+ * numéro d'exemplaire. Les exemplaires libres forment une pile : un emprunt
+ * prend un exemplaire en O(1) et la disponibilité se lit sans parcours.
+ * Les écritures sont sérialisées par l'appelant (verrou de l'ISBN) ; chaque
+ * modification se termine par l'écriture volatile du nombre de libres, que
+ * les lectures sans verrou relisent en premier.
+ */
+final class TableExemplaires {
+    private static final long JOUR_ABSENT = Long.MIN_VALUE;
+
+    private final Utilisateur[] emprunteurs;
+    private final long[] joursEmprunt; // Date d'emprunt en jours depuis l'époque
+    private final int[] libres; // Pile des exemplaires libres
+    private final int[] positions; // Position de chaque exemplaire dans la pile, -1 si emprunté
+    private volatile int nombreLibres;
+
+    /**
+     * Crée une table d'exemplaires tous libres
+     * @param nombre le nombre d'exemplaires
+     */
+    TableExemplaires(int nombre) {
+        this.emprunteurs = new Utilisateur[nombre];
+        this.joursEmprunt = new long[nombre];
+        this.libres = new int[nombre];
+        this.positions = new int[nombre];
+        Arrays.fill(joursEmprunt, JOUR_ABSENT);
+        // L'exemplaire 0 au sommet : il est prêté en premier
+        for (int i = 0; i < nombre; i++) {
+            libres[i] = nombre - 1 - i;
+            positions[nombre - 1 - i] = i;
+        }
+        this.nombreLibres = nombre;
+    }
+
+    /**
+     * Copie la table en ajoutant des exemplaires libres
+     * @param ajout le nombre d'exemplaires à ajouter
+     * @return la nouvelle table
+     */
+    TableExemplaires agrandir(int ajout) {
+        int ancienne = taille();
+        TableExemplaires table = new TableExemplaires(ancienne + ajout);
+        for (int i = 0; i < ancienne; i++) {
+            Utilisateur utilisateur = emprunteur(i);
+            if (utilisateur != null) {
+                table.occuper(i, utilisateur, joursEmprunt[i]);
+            }
+        }
+        return table;
+    }
+
+    int taille() {
+        return emprunteurs.length;
+    }
+
+    int nombreLibres() {
+        return nombreLibres;
+    }
+
+    /**
+     * Prête l'exemplaire au sommet de la pile des libres
+     * @return le numéro de l'exemplaire, ou -1 si aucun n'est libre
+     */
+    int prendre(Utilisateur utilisateur, LocalDate date) {
+        int sommet = nombreLibres;
+        if (sommet == 0) {
+            return -1;
+        }
+        int numero = libres[sommet - 1];
+        positions[numero] = -1;
+        emprunteurs[numero] = utilisateur;
+        joursEmprunt[numero] = date.toEpochDay();
+        nombreLibres = sommet - 1;
+        return numero;
+    }
+
+    /**
+     * Prête un exemplaire donné (restauration), en le retirant de la pile en O(1)
+     */
+    void occuper(int numero, Utilisateur utilisateur, LocalDate date) {
+        occuper(numero, utilisateur, date != null ? date.toEpochDay() : JOUR_ABSENT);
+    }
+
+    private void occuper(int numero, Utilisateur utilisateur, long jour) {
+        int position = positions[numero];
+        int sommet = nombreLibres;
+        if (position >= 0) {
+            // L'exemplaire du sommet prend la place de celui qui est prêté
+            int dernier = libres[sommet - 1];
+            libres[position] = dernier;
+            positions[dernier] = position;
+            positions[numero] = -1;
+            sommet--;
+        }
+        emprunteurs[numero] = utilisateur;
+        joursEmprunt[numero] = jour;
+        nombreLibres = sommet;
+    }
+
+    /**
+     * Remet un exemplaire emprunté sur la pile des libres
+     */
+    void liberer(int numero) {
+        int sommet = nombreLibres;
+        emprunteurs[numero] = null;
+        joursEmprunt[numero] = JOUR_ABSENT;
+        libres[sommet] = numero;
+        positions[numero] = sommet;
+        nombreLibres = sommet + 1;
+    }
+
+    Utilisateur emprunteur(int numero) {
+        int ignore = nombreLibres; // Lecture volatile : voit la dernière modification publiée
+        return emprunteurs[numero];
+    }
+
+    LocalDate dateEmprunt(int numero) {
+        int ignore = nombreLibres;
+        long jour = joursEmprunt[numero];
+        return jour == JOUR_ABSENT ? null : LocalDate.ofEpochDay(jour);
+    }
+
+    /**
+     * @return le numéro du premier exemplaire emprunté, ou -1
+     */
+    int premierEmprunte() {
+        if (nombreLibres == emprunteurs.length) {
+            return -1;
+        }
+        for (int i = 0; i < emprunteurs.length; i++) {
+            if (emprunteurs[i] != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return le numéro de l'exemplaire détenu par l'utilisateur, ou -1
+     */
+    int exemplaireDe(Utilisateur utilisateur) {
+        int ignore = nombreLibres;
+        for (int i = 0; i < emprunteurs.length; i++) {
+            if (emprunteurs[i] == utilisateur) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,17 +1,32 @@
 package com.isitech.bibliotheque.models;
 
+import com.isitech.bibliotheque.interfaces.ObservateurUtilisateur;
+import com.isitech.bibliotheque.util.Normalisation;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Classe abstraite représentant un utilisateur de la bibliothèque
  */
 public abstract class Utilisateur {
+    private static final Livre[] AUCUN_LIVRE = new Livre[0];
+
     protected final String id;
     protected String nom;
+    private String nomNormalise; // Clé de recherche pliée du nom
     protected String email;
     protected int maxEmprunts;
-    protected int empruntsActuels;
+    // Compteur atomique : le quota est réservé par CAS, sans verrou par utilisateur
+    private final AtomicInteger empruntsActuels;
+    // Livres détenus : tableau copié à chaque changement (quelques éléments), lu sans verrou
+    private final AtomicReference<Livre[]> livresEmpruntes;
+    // Index à prévenir lors d'un changement d'email
+    private volatile ObservateurUtilisateur observateur;
 
     /**
      * Constructeur pour un utilisateur
@@ -19,10 +34,39 @@ public abstract class Utilisateur {
      * @param email l'email de l'utilisateur
      */
     protected Utilisateur(String nom, String email) {
-        this.id = UUID.randomUUID().toString().substring(0, 8);
+        this(genererId(), nom, email);
+    }
+
+    /**
+     * Constructeur pour un utilisateur dont l'ID est déjà connu (restauration)
+     * @param id l'ID de l'utilisateur
+     * @param nom le nom de l'utilisateur
+     * @param email l'email de l'utilisateur
+     */
+    protected Utilisateur(String id, String nom, String email) {
+        this.id = id;
         this.nom = nom;
+        this.nomNormalise = Normalisation.plier(nom);
         this.email = email;
-        this.empruntsActuels = 0;
+        this.empruntsActuels = new AtomicInteger();
+        this.livresEmpruntes = new AtomicReference<>(AUCUN_LIVRE);
+    }
+
+    /**
+     * Génère un nouvel ID court
+     * @return l'ID généré
+     */
+    protected static String genererId() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Calcule la clé d'unicité d'un email (comparaison insensible à la casse)
+     * @param email l'email (peut être null)
+     * @return l'email sans espaces autour et en minuscules, ou null
+     */
+    public static String normaliserEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
     }
 
     // Méthodes abstraites à implémenter par les sous-classes
@@ -46,7 +90,22 @@ public abstract class Utilisateur {
      * @return true si possible, false sinon
      */
     public boolean peutEmprunter() {
-        return empruntsActuels < maxEmprunts;
+        return empruntsActuels.get() < maxEmprunts;
+    }
+
+    /**
+     * Tente de réserver un emprunt de manière atomique
+     * @return true si le quota le permettait, false sinon
+     */
+    public boolean tenterIncrementerEmprunts() {
+        int actuels;
+        do {
+            actuels = empruntsActuels.get();
+            if (actuels >= maxEmprunts) {
+                return false;
+            }
+        } while (!empruntsActuels.compareAndSet(actuels, actuels + 1));
+        return true;
     }
 
     /**
@@ -54,19 +113,75 @@ public abstract class Utilisateur {
      * @throws IllegalStateException si le quota est déjà atteint
      */
     public void incrementerEmprunts() {
-        if (empruntsActuels >= maxEmprunts) {
+        if (!tenterIncrementerEmprunts()) {
             throw new IllegalStateException("Quota d'emprunts atteint");
         }
-        empruntsActuels++;
+    }
+
+    /**
+     * Incrémente le nombre d'emprunts sans vérifier le quota : lors de la relecture
+     * du journal, les emprunts de livres différents peuvent être rejoués dans un
+     * ordre où le quota est momentanément dépassé
+     */
+    public void restaurerEmprunt() {
+        empruntsActuels.incrementAndGet();
     }
 
     /**
      * Décrémente le nombre d'emprunts actuels
      */
     public void decrementerEmprunts() {
-        if (empruntsActuels > 0) {
-            empruntsActuels--;
+        empruntsActuels.getAndUpdate(actuels -> actuels > 0 ? actuels - 1 : 0);
+    }
+
+    /**
+     * Enregistre un livre détenu (appelé par {@link Livre} lors d'un emprunt)
+     * @param livre le livre emprunté
+     */
+    void ajouterLivreEmprunte(Livre livre) {
+        livresEmpruntes.getAndUpdate(livres -> {
+            Livre[] copie = Arrays.copyOf(livres, livres.length + 1);
+            copie[livres.length] = livre;
+            return copie;
+        });
+    }
+
+    /**
+     * Oublie un livre détenu (appelé par {@link Livre} lors d'un retour)
+     * @param livre le livre rendu
+     */
+    void retirerLivreEmprunte(Livre livre) {
+        livresEmpruntes.getAndUpdate(livres -> {
+            for (int i = 0; i < livres.length; i++) {
+                if (livres[i] == livre) {
+                    Livre[] copie = Arrays.copyOf(livres, livres.length - 1);
+                    System.arraycopy(livres, i + 1, copie, i, livres.length - i - 1);
+                    return copie;
+                }
+            }
+            return livres;
+        });
+    }
+
+    /**
+     * Vérifie si l'utilisateur détient un exemplaire d'un titre
+     * @param livre le titre
+     */
+    boolean detientLivre(Livre livre) {
+        for (Livre detenu : livresEmpruntes.get()) {
+            if (detenu == livre) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Obtient les livres actuellement détenus, dans l'ordre des emprunts
+     * @return la liste (non modifiable) des livres empruntés
+     */
+    public List<Livre> getLivresEmpruntes() {
+        return List.of(livresEmpruntes.get());
     }
 
     // Getters et Setters
@@ -81,14 +196,52 @@ public abstract class Utilisateur {
 
     public void setNom(String nom) {
         this.nom = nom;
+        this.nomNormalise = Normalisation.plier(nom);
+    }
+
+    /**
+     * Obtient la clé de recherche du nom
+     * @return le nom en minuscules, sans accents ni espaces superflus
+     */
+    public String getNomNormalise() {
+        return nomNormalise;
     }
 
     public String getEmail() {
         return email;
     }
 
+    /**
+     * Modifie l'email, sous réserve d'acceptation par l'index des emails
+     * @param email le nouvel email
+     * @throws IllegalArgumentException si l'email est déjà utilisé par un autre utilisateur
+     */
     public void setEmail(String email) {
+        ObservateurUtilisateur obs = observateur;
+        if (obs != null) {
+            obs.avantChangementEmail(this, email);
+        }
+        String ancienEmail = this.email;
         this.email = email;
+        if (obs != null) {
+            obs.apresChangementEmail(this, ancienEmail);
+        }
+    }
+
+    /**
+     * Obtient la clé d'unicité de l'email
+     * @return l'email normalisé, ou null
+     */
+    public String getEmailNormalise() {
+        return normaliserEmail(email);
+    }
+
+    /**
+     * Définit l'index à prévenir lors d'un changement d'email
+     * @param observateur l'observateur, ou null
+     */
+    public void setObservateur(ObservateurUtilisateur observateur) {
+        this.observateur = observateur;
     }
 
     public int getMaxEmprunts() {
@@ -96,7 +249,7 @@ public abstract class Utilisateur {
     }
 
     public int getEmpruntsActuels() {
-        return empruntsActuels;
+        return empruntsActuels.get();
     }
 
     @Override
@@ -109,12 +262,12 @@ public abstract class Utilisateur {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Objects.hashCode(id);
     }
 
     @Override
     public String toString() {
         return String.format("%s: %s (%s) - %d/%d emprunts",
-                getTypeUtilisateur(), nom, email, empruntsActuels, maxEmprunts);
+                getTypeUtilisateur(), nom, email, empruntsActuels.get(), maxEmprunts);
     }
 }
\ No newline at end of file
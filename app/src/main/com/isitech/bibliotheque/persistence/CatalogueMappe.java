@@ -0,0 +1,561 @@
+package com.isitech.bibliotheque.persistence;
+
+import com.isitech.bibliotheque.index.IndexTrigrammes;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.util.Normalisation;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Catalogue en lecture seule projeté en mémoire : aucun objet n'est créé à
+ * l'ouverture, les livres sont lus directement dans le fichier à la demande.
+ *
+ * Format : en-tête, table d'enregistrements de taille fixe triée dans l'ordre
+ * naturel des livres, index des ISBN (indices d'enregistrements triés par ISBN),
+ * index des auteurs pliés, table des trigrammes des titres et auteurs pliés
+ * (clé, début de ses postings) triée par clé, postings (indices croissants), puis
+ * la réserve de chaînes UTF-8 dédupliquées. Le format 1, sans trigrammes, reste lisible.
+ * Une chaîne est désignée par son décalage (int) et sa longueur (short non signé).
+ */
+public final class CatalogueMappe {
+    private static final int MAGIQUE = 0x42434154; // "BCAT"
+    private static final int VERSION_FORMAT = 2;
+    private static final int VERSION_SANS_TRIGRAMMES = 1;
+    private static final int TAILLE_ENTETE = 64;
+    private static final int TAILLE_ENREGISTREMENT = 48;
+    private static final int TAILLE_TRIGRAMME = 12; // Clé (long) et début des postings (int)
+    private static final int LONGUEUR_MAX = 0xFFFF;
+    private static final long DATE_ABSENTE = Long.MIN_VALUE;
+
+    // Décalages dans un enregistrement (chaque référence occupe 6 octets)
+    private static final int ISBN = 0;
+    private static final int TITRE = 6;
+    private static final int AUTEUR = 12;
+    private static final int EDITEUR = 18;
+    private static final int TITRE_PLIE = 24;
+    private static final int AUTEUR_PLIE = 30;
+    private static final int NB_PAGES = 36;
+    private static final int DATE = 40;
+
+    private final Path fichier;
+    private final int taille;
+    private final ByteBuffer enregistrements;
+    private final ByteBuffer indexIsbn;
+    private final ByteBuffer indexAuteurs;
+    private final ByteBuffer trigrammes; // null au format 1
+    private final ByteBuffer postings;
+    private final int nbTrigrammes;
+    private final int nbPostings;
+    private final ByteBuffer chaines;
+
+    private CatalogueMappe(Path fichier, int taille, ByteBuffer enregistrements, ByteBuffer indexIsbn,
+                           ByteBuffer indexAuteurs, ByteBuffer trigrammes, ByteBuffer postings,
+                           ByteBuffer chaines) {
+        this.fichier = fichier;
+        this.taille = taille;
+        this.enregistrements = enregistrements;
+        this.indexIsbn = indexIsbn;
+        this.indexAuteurs = indexAuteurs;
+        this.trigrammes = trigrammes;
+        this.postings = postings;
+        this.nbTrigrammes = trigrammes == null ? 0 : trigrammes.capacity() / TAILLE_TRIGRAMME;
+        this.nbPostings = postings == null ? 0 : postings.capacity() / Integer.BYTES;
+        this.chaines = chaines;
+    }
+
+    /**
+     * Projette un catalogue en mémoire
+     * @param fichier le fichier écrit par {@link #ecrire}
+     * @return le catalogue
+     * @throws IOException si le fichier est illisible ou d'un format inconnu
+     */
+    public static CatalogueMappe ouvrir(Path fichier) throws IOException {
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.READ)) {
+            if (canal.size() < TAILLE_ENTETE) {
+                throw new IOException("Catalogue tronqué : " + fichier);
+            }
+            ByteBuffer entete = canal.map(FileChannel.MapMode.READ_ONLY, 0, TAILLE_ENTETE);
+            int version = entete.getInt(4);
+            if (entete.getInt(0) != MAGIQUE || (version != VERSION_FORMAT && version != VERSION_SANS_TRIGRAMMES)) {
+                throw new IOException("Format de catalogue inconnu : " + fichier);
+            }
+            int taille = entete.getInt(8);
+            long tailleChaines = entete.getLong(12);
+            boolean avecTrigrammes = version == VERSION_FORMAT;
+            long nbTrigrammes = avecTrigrammes ? entete.getInt(20) : 0;
+            long nbPostings = avecTrigrammes ? entete.getLong(24) : 0;
+            long debutEnregistrements = TAILLE_ENTETE;
+            long debutIndexIsbn = debutEnregistrements + (long) taille * TAILLE_ENREGISTREMENT;
+            long debutIndexAuteurs = debutIndexIsbn + (long) taille * Integer.BYTES;
+            long debutTrigrammes = debutIndexAuteurs + (long) taille * Integer.BYTES;
+            long debutPostings = debutTrigrammes + nbTrigrammes * TAILLE_TRIGRAMME;
+            long debutChaines = debutPostings + nbPostings * Integer.BYTES;
+            if (taille < 0 || nbTrigrammes < 0 || nbPostings < 0 || canal.size() != debutChaines + tailleChaines) {
+                throw new IOException("Catalogue tronqué : " + fichier);
+            }
+            // Les projections restent valides après la fermeture du canal
+            return new CatalogueMappe(fichier, taille,
+                canal.map(FileChannel.MapMode.READ_ONLY, debutEnregistrements, debutIndexIsbn - debutEnregistrements),
+                canal.map(FileChannel.MapMode.READ_ONLY, debutIndexIsbn, debutIndexAuteurs - debutIndexIsbn),
+                canal.map(FileChannel.MapMode.READ_ONLY, debutIndexAuteurs, debutTrigrammes - debutIndexAuteurs),
+                avecTrigrammes ? canal.map(FileChannel.MapMode.READ_ONLY, debutTrigrammes, debutPostings - debutTrigrammes) : null,
+                avecTrigrammes ? canal.map(FileChannel.MapMode.READ_ONLY, debutPostings, debutChaines - debutPostings) : null,
+                canal.map(FileChannel.MapMode.READ_ONLY, debutChaines, tailleChaines));
+        }
+    }
+
+    /**
+     * Écrit un catalogue (sans état d'emprunt) dans le format projetable.
+     * Le fichier est écrit à côté de la cible puis renommé atomiquement.
+     * @param fichier le fichier cible
+     * @param livres les livres, d'ISBN distincts
+     * @throws IOException si l'écriture échoue ou si le catalogue dépasse les limites du format
+     */
+    public static void ecrire(Path fichier, Collection<Livre> livres) throws IOException {
+        Livre[] tries = livres.toArray(new Livre[0]);
+        Arrays.sort(tries);
+        int taille = tries.length;
+
+        // Réserve de chaînes dédupliquées et table des enregistrements
+        ReserveChaines reserve = new ReserveChaines();
+        ByteBuffer table = ByteBuffer.allocate(Math.multiplyExact(taille, TAILLE_ENREGISTREMENT));
+        int[] refIsbn = new int[taille];
+        int[] refAuteur = new int[taille];
+        Set<String> isbns = new HashSet<>(taille * 2);
+        Map<Long, Indices> postingsParCle = new HashMap<>();
+        for (int i = 0; i < taille; i++) {
+            Livre livre = tries[i];
+            if (livre.getIsbn() == null) {
+                throw new IOException("Livre sans ISBN : " + livre.getTitre());
+            }
+            if (!isbns.add(livre.getIsbn())) {
+                throw new IOException("ISBN en double : " + livre.getIsbn());
+            }
+            int base = i * TAILLE_ENREGISTREMENT;
+            // Seuls auteurs et éditeurs se répètent assez pour mériter la déduplication
+            refIsbn[i] = reserve.ecrire(table, base + ISBN, livre.getIsbn(), false);
+            reserve.ecrire(table, base + TITRE, livre.getTitre(), false);
+            reserve.ecrire(table, base + AUTEUR, livre.getAuteur(), true);
+            reserve.ecrire(table, base + EDITEUR, livre.getEditeur(), true);
+            reserve.ecrire(table, base + TITRE_PLIE, livre.getTitreNormalise(), false);
+            refAuteur[i] = reserve.ecrire(table, base + AUTEUR_PLIE, livre.getAuteurNormalise(), true);
+            table.putInt(base + NB_PAGES, livre.getNbPages());
+            LocalDate date = livre.getDatePublication();
+            table.putLong(base + DATE, date != null ? date.toEpochDay() : DATE_ABSENTE);
+            // Indices ajoutés dans l'ordre : chaque liste de postings est croissante
+            for (long cle : IndexTrigrammes.trigrammes(nonNul(livre.getTitreNormalise()), nonNul(livre.getAuteurNormalise()))) {
+                postingsParCle.computeIfAbsent(cle, k -> new Indices()).ajouter(i);
+            }
+        }
+        byte[] octets = reserve.octets();
+        long[] cles = new long[postingsParCle.size()];
+        int n = 0;
+        for (Long cle : postingsParCle.keySet()) {
+            cles[n++] = cle;
+        }
+        Arrays.sort(cles);
+        long nbPostings = 0;
+        for (Indices indices : postingsParCle.values()) {
+            nbPostings += indices.taille;
+        }
+
+        Integer[] parIsbn = indicesTries(taille, (a, b) -> comparerOctets(octets,
+            refIsbn[a], longueur(table, a, ISBN), refIsbn[b], longueur(table, b, ISBN)));
+        Integer[] parAuteur = indicesTries(taille, (a, b) -> comparerOctets(octets,
+            refAuteur[a], longueur(table, a, AUTEUR_PLIE), refAuteur[b], longueur(table, b, AUTEUR_PLIE)));
+
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try (DataOutputStream sortie = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporaire), 1 << 16))) {
+            sortie.writeInt(MAGIQUE);
+            sortie.writeInt(VERSION_FORMAT);
+            sortie.writeInt(taille);
+            sortie.writeLong(octets.length);
+            sortie.writeInt(cles.length);
+            sortie.writeLong(nbPostings);
+            sortie.write(new byte[TAILLE_ENTETE - 32]);
+            sortie.write(table.array());
+            for (Integer indice : parIsbn) {
+                sortie.writeInt(indice);
+            }
+            for (Integer indice : parAuteur) {
+                sortie.writeInt(indice);
+            }
+            int debut = 0;
+            for (long cle : cles) {
+                sortie.writeLong(cle);
+                sortie.writeInt(debut);
+                debut += postingsParCle.get(cle).taille;
+            }
+            for (long cle : cles) {
+                Indices indices = postingsParCle.get(cle);
+                for (int i = 0; i < indices.taille; i++) {
+                    sortie.writeInt(indices.valeurs[i]);
+                }
+            }
+            sortie.write(octets);
+        }
+        try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporaire, fichier, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // === LECTURE ===
+
+    /**
+     * Obtient le nombre de livres du catalogue
+     * @return le nombre d'enregistrements
+     */
+    public int taille() {
+        return taille;
+    }
+
+    /**
+     * Obtient le fichier projeté
+     * @return le chemin du fichier
+     */
+    public Path getFichier() {
+        return fichier;
+    }
+
+    /**
+     * Recherche un enregistrement par ISBN (recherche dichotomique dans l'index)
+     * @param isbn l'ISBN recherché
+     * @return l'indice de l'enregistrement, ou -1 s'il est absent
+     */
+    public int indice(String isbn) {
+        if (isbn == null) {
+            return -1;
+        }
+        byte[] cle = isbn.getBytes(StandardCharsets.UTF_8);
+        int bas = 0;
+        int haut = taille - 1;
+        while (bas <= haut) {
+            int milieu = (bas + haut) >>> 1;
+            int indice = indexIsbn.getInt(milieu * Integer.BYTES);
+            int comparaison = comparerChaine(indice, ISBN, cle);
+            if (comparaison < 0) {
+                bas = milieu + 1;
+            } else if (comparaison > 0) {
+                haut = milieu - 1;
+            } else {
+                return indice;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Obtient l'ISBN d'un enregistrement, sans créer le livre
+     * @param indice l'indice de l'enregistrement
+     * @return l'ISBN
+     */
+    public String isbn(int indice) {
+        return lireChaine(indice, ISBN);
+    }
+
+    /**
+     * Crée le livre (disponible) décrit par un enregistrement
+     * @param indice l'indice de l'enregistrement
+     * @return un nouveau livre
+     */
+    public Livre lire(int indice) {
+        int base = indice * TAILLE_ENREGISTREMENT;
+        long date = enregistrements.getLong(base + DATE);
+        return new Livre(lireChaine(indice, ISBN), lireChaine(indice, TITRE), lireChaine(indice, AUTEUR),
+            enregistrements.getInt(base + NB_PAGES), lireChaine(indice, EDITEUR),
+            date == DATE_ABSENTE ? null : LocalDate.ofEpochDay(date));
+    }
+
+    /**
+     * Trouve le premier enregistrement strictement après une borne dans l'ordre naturel des livres
+     * @param borne la borne (null pour le début)
+     * @return l'indice du premier enregistrement suivant la borne (taille() si aucun)
+     */
+    public int premierApres(Livre borne) {
+        if (borne == null) {
+            return 0;
+        }
+        int bas = 0;
+        int haut = taille;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            Livre livre = new Livre(lireChaine(milieu, ISBN), lireChaine(milieu, TITRE), lireChaine(milieu, AUTEUR));
+            if (livre.compareTo(borne) <= 0) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        return bas;
+    }
+
+    /**
+     * Parcourt les enregistrements d'un auteur (clé déjà pliée), via l'index des auteurs
+     * @param auteurPlie l'auteur normalisé par {@link Normalisation#plier}
+     * @param action l'action appliquée à l'indice de chaque enregistrement
+     */
+    public void parAuteur(String auteurPlie, IntConsumer action) {
+        byte[] cle = auteurPlie.getBytes(StandardCharsets.UTF_8);
+        int bas = 0;
+        int haut = taille;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (comparerChaine(indexAuteurs.getInt(milieu * Integer.BYTES), AUTEUR_PLIE, cle) < 0) {
+                bas = milieu + 1;
+            } else {
+                haut = milieu;
+            }
+        }
+        for (int i = bas; i < taille; i++) {
+            int indice = indexAuteurs.getInt(i * Integer.BYTES);
+            if (comparerChaine(indice, AUTEUR_PLIE, cle) != 0) {
+                break;
+            }
+            action.accept(indice);
+        }
+    }
+
+    /**
+     * Parcourt, dans l'ordre des enregistrements, ceux dont le titre ou l'auteur plié
+     * contient un texte. Les candidats sont l'intersection des postings des trigrammes
+     * du texte ; la vérification porte directement sur les octets UTF-8, sans décoder
+     * les chaînes.
+     * @param textePlie le texte normalisé par {@link Normalisation#plier}
+     * @param action l'action appliquée à l'indice de chaque enregistrement
+     */
+    public void rechercherTexte(String textePlie, IntConsumer action) {
+        byte[] motif = textePlie.getBytes(StandardCharsets.UTF_8);
+        // Trop court pour former un trigramme, ou format 1 : parcours des enregistrements
+        if (trigrammes == null || textePlie.length() < 3) {
+            for (int i = 0; i < taille; i++) {
+                if (contient(i, TITRE_PLIE, motif) || contient(i, AUTEUR_PLIE, motif)) {
+                    action.accept(i);
+                }
+            }
+            return;
+        }
+
+        long[] cles = IndexTrigrammes.trigrammes(textePlie);
+        int[] debuts = new int[cles.length];
+        int[] fins = new int[cles.length];
+        int plusCourte = 0;
+        for (int k = 0; k < cles.length; k++) {
+            int entree = chercherTrigramme(cles[k]);
+            if (entree < 0) {
+                return;
+            }
+            debuts[k] = trigrammes.getInt(entree * TAILLE_TRIGRAMME + Long.BYTES);
+            fins[k] = entree + 1 < nbTrigrammes
+                ? trigrammes.getInt((entree + 1) * TAILLE_TRIGRAMME + Long.BYTES) : nbPostings;
+            if (fins[k] - debuts[k] < fins[plusCourte] - debuts[plusCourte]) {
+                plusCourte = k;
+            }
+        }
+        candidats:
+        for (int p = debuts[plusCourte]; p < fins[plusCourte]; p++) {
+            int indice = postings.getInt(p * Integer.BYTES);
+            for (int k = 0; k < cles.length; k++) {
+                if (k != plusCourte && !contientPosting(debuts[k], fins[k], indice)) {
+                    continue candidats;
+                }
+            }
+            // Les trigrammes peuvent provenir de positions différentes : vérification finale
+            if (contient(indice, TITRE_PLIE, motif) || contient(indice, AUTEUR_PLIE, motif)) {
+                action.accept(indice);
+            }
+        }
+    }
+
+    // === TRIGRAMMES ===
+
+    /**
+     * Recherche dichotomique d'une clé dans la table des trigrammes
+     * @return le rang de la clé, ou -1 si aucun enregistrement ne la contient
+     */
+    private int chercherTrigramme(long cle) {
+        int bas = 0;
+        int haut = nbTrigrammes - 1;
+        while (bas <= haut) {
+            int milieu = (bas + haut) >>> 1;
+            long lue = trigrammes.getLong(milieu * TAILLE_TRIGRAMME);
+            if (lue < cle) {
+                bas = milieu + 1;
+            } else if (lue > cle) {
+                haut = milieu - 1;
+            } else {
+                return milieu;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Recherche dichotomique d'un indice dans une liste de postings croissante
+     */
+    private boolean contientPosting(int debut, int fin, int indice) {
+        int bas = debut;
+        int haut = fin - 1;
+        while (bas <= haut) {
+            int milieu = (bas + haut) >>> 1;
+            int lu = postings.getInt(milieu * Integer.BYTES);
+            if (lu < indice) {
+                bas = milieu + 1;
+            } else if (lu > indice) {
+                haut = milieu - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // === CHAÎNES ===
+
+    private String lireChaine(int indice, int champ) {
+        int base = indice * TAILLE_ENREGISTREMENT + champ;
+        int decalage = enregistrements.getInt(base);
+        if (decalage < 0) {
+            return null;
+        }
+        byte[] octets = new byte[Short.toUnsignedInt(enregistrements.getShort(base + 4))];
+        chaines.get(decalage, octets);
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compare (octets non signés) la chaîne d'un champ à une clé
+     */
+    private int comparerChaine(int indice, int champ, byte[] cle) {
+        int base = indice * TAILLE_ENREGISTREMENT + champ;
+        int decalage = enregistrements.getInt(base);
+        int longueur = Short.toUnsignedInt(enregistrements.getShort(base + 4));
+        int n = Math.min(longueur, cle.length);
+        for (int i = 0; i < n; i++) {
+            int difference = Byte.toUnsignedInt(chaines.get(decalage + i)) - Byte.toUnsignedInt(cle[i]);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return longueur - cle.length;
+    }
+
+    private boolean contient(int indice, int champ, byte[] motif) {
+        int base = indice * TAILLE_ENREGISTREMENT + champ;
+        int decalage = enregistrements.getInt(base);
+        int longueur = Short.toUnsignedInt(enregistrements.getShort(base + 4));
+        if (decalage < 0) {
+            return false;
+        }
+        if (motif.length == 0) {
+            return true;
+        }
+        byte premier = motif[0];
+        int fin = decalage + longueur - motif.length;
+        for (int i = decalage; i <= fin; i++) {
+            if (chaines.get(i) != premier) {
+                continue;
+            }
+            int j = 1;
+            while (j < motif.length && chaines.get(i + j) == motif[j]) {
+                j++;
+            }
+            if (j == motif.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String nonNul(String texte) {
+        return texte != null ? texte : "";
+    }
+
+    private static int longueur(ByteBuffer table, int indice, int champ) {
+        return Short.toUnsignedInt(table.getShort(indice * TAILLE_ENREGISTREMENT + champ + 4));
+    }
+
+    private static int comparerOctets(byte[] octets, int decalageA, int longueurA, int decalageB, int longueurB) {
+        return Arrays.compareUnsigned(octets, decalageA, decalageA + longueurA, octets, decalageB, decalageB + longueurB);
+    }
+
+    private static Integer[] indicesTries(int taille, Comparator<Integer> ordre) {
+        Integer[] indices = new Integer[taille];
+        for (int i = 0; i < taille; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, ordre);
+        return indices;
+    }
+
+    /**
+     * Liste croissante d'indices d'enregistrements en cours d'écriture
+     */
+    private static final class Indices {
+        private int[] valeurs = new int[4];
+        private int taille;
+
+        void ajouter(int indice) {
+            if (taille == valeurs.length) {
+                valeurs = Arrays.copyOf(valeurs, taille * 2);
+            }
+            valeurs[taille++] = indice;
+        }
+    }
+
+    /**
+     * Réserve de chaînes en cours d'écriture, avec déduplication des chaînes répétées
+     */
+    private static final class ReserveChaines {
+        private final ByteArrayOutputStream octets = new ByteArrayOutputStream(1 << 16);
+        private final Map<String, Integer> decalages = new HashMap<>();
+
+        /**
+         * Stocke une chaîne et écrit sa référence dans la table
+         * @param dedupliquer true pour réutiliser une chaîne identique déjà stockée
+         * @return le décalage de la chaîne (-1 pour null)
+         */
+        int ecrire(ByteBuffer table, int position, String texte, boolean dedupliquer) throws IOException {
+            if (texte == null) {
+                table.putInt(position, -1);
+                table.putShort(position + 4, (short) 0);
+                return -1;
+            }
+            byte[] encode = texte.getBytes(StandardCharsets.UTF_8);
+            if (encode.length > LONGUEUR_MAX) {
+                throw new IOException("Chaîne trop longue pour le catalogue : " + texte.substring(0, 40) + "...");
+            }
+            Integer decalage = dedupliquer ? decalages.get(texte) : null;
+            if (decalage == null) {
+                if (octets.size() > Integer.MAX_VALUE - encode.length) {
+                    throw new IOException("Réserve de chaînes du catalogue pleine (2 Go)");
+                }
+                decalage = octets.size();
+                octets.write(encode);
+                if (dedupliquer) {
+                    decalages.put(texte, decalage);
+                }
+            }
+            table.putInt(position, decalage);
+            table.putShort(position + 4, (short) encode.length);
+            return decalage;
+        }
+
+        byte[] octets() {
+            return octets.toByteArray();
+        }
+    }
+}
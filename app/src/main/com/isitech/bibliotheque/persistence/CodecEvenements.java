@@ -0,0 +1,193 @@
+package com.isitech.bibliotheque.persistence;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.persistence.EvenementJournal.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Encodage binaire des événements du journal et des utilisateurs
+ */
+final class CodecEvenements {
+    static final byte LIVRE_AJOUTE = 1;
+    static final byte LIVRE_MODIFIE = 2;
+    static final byte LIVRE_SUPPRIME = 3;
+    static final byte UTILISATEUR_AJOUTE = 4;
+    static final byte EMPRUNT = 5;
+    static final byte RETOUR = 6;
+    static final byte EMAIL_MODIFIE = 7;
+    static final byte UTILISATEUR_SUPPRIME = 8;
+    // Emprunts et retours d'un exemplaire autre que le premier (les autres gardent le format court)
+    static final byte EMPRUNT_EXEMPLAIRE = 9;
+    static final byte RETOUR_EXEMPLAIRE = 10;
+    static final byte EXEMPLAIRES_AJOUTES = 11;
+    static final byte RESERVATION_AJOUTEE = 12;
+    static final byte RESERVATION_ANNULEE = 13;
+
+    private static final byte ETUDIANT = 'E';
+    private static final byte PROFESSEUR = 'P';
+    private static final long DATE_ABSENTE = Long.MIN_VALUE;
+
+    private CodecEvenements() {
+    }
+
+    /**
+     * Obtient le type d'un événement
+     */
+    static byte type(EvenementJournal evenement) {
+        if (evenement instanceof LivreAjoute) return LIVRE_AJOUTE;
+        if (evenement instanceof LivreModifie) return LIVRE_MODIFIE;
+        if (evenement instanceof LivreSupprime) return LIVRE_SUPPRIME;
+        if (evenement instanceof UtilisateurAjoute) return UTILISATEUR_AJOUTE;
+        if (evenement instanceof EmailModifie) return EMAIL_MODIFIE;
+        if (evenement instanceof UtilisateurSupprime) return UTILISATEUR_SUPPRIME;
+        if (evenement instanceof ExemplairesAjoutes) return EXEMPLAIRES_AJOUTES;
+        if (evenement instanceof ReservationAjoutee) return RESERVATION_AJOUTEE;
+        if (evenement instanceof ReservationAnnulee) return RESERVATION_ANNULEE;
+        if (evenement instanceof Emprunt e) return e.exemplaire() == 0 ? EMPRUNT : EMPRUNT_EXEMPLAIRE;
+        return ((Retour) evenement).exemplaire() == 0 ? RETOUR : RETOUR_EXEMPLAIRE;
+    }
+
+    /**
+     * Écrit le contenu d'un événement (sans son type)
+     */
+    static void encoder(EvenementJournal evenement, DataOutput sortie) throws IOException {
+        if (evenement instanceof LivreAjoute e) {
+            sortie.writeUTF(e.isbn());
+            ecrireTexte(sortie, e.titre());
+            ecrireTexte(sortie, e.auteur());
+            sortie.writeInt(e.nbPages());
+            ecrireTexte(sortie, e.editeur());
+            ecrireDate(sortie, e.datePublication());
+        } else if (evenement instanceof LivreModifie e) {
+            sortie.writeUTF(e.isbn());
+            ecrireTexte(sortie, e.titre());
+            ecrireTexte(sortie, e.auteur());
+        } else if (evenement instanceof LivreSupprime e) {
+            sortie.writeUTF(e.isbn());
+        } else if (evenement instanceof UtilisateurAjoute e) {
+            encoderUtilisateur(e.utilisateur(), sortie);
+        } else if (evenement instanceof EmailModifie e) {
+            sortie.writeUTF(e.idUtilisateur());
+            ecrireTexte(sortie, e.email());
+        } else if (evenement instanceof UtilisateurSupprime e) {
+            sortie.writeUTF(e.idUtilisateur());
+        } else if (evenement instanceof ExemplairesAjoutes e) {
+            sortie.writeUTF(e.isbn());
+            sortie.writeInt(e.nombre());
+        } else if (evenement instanceof ReservationAjoutee e) {
+            sortie.writeUTF(e.isbn());
+            sortie.writeUTF(e.idUtilisateur());
+        } else if (evenement instanceof ReservationAnnulee e) {
+            sortie.writeUTF(e.isbn());
+            sortie.writeUTF(e.idUtilisateur());
+        } else if (evenement instanceof Emprunt e) {
+            sortie.writeUTF(e.isbn());
+            sortie.writeUTF(e.idUtilisateur());
+            ecrireDate(sortie, e.dateEmprunt());
+            if (e.exemplaire() != 0) {
+                sortie.writeInt(e.exemplaire());
+            }
+        } else if (evenement instanceof Retour e) {
+            sortie.writeUTF(e.isbn());
+            if (e.exemplaire() != 0) {
+                sortie.writeInt(e.exemplaire());
+            }
+        }
+    }
+
+    /**
+     * Lit le contenu d'un événement de type donné
+     * @throws IOException si le type est inconnu
+     */
+    static EvenementJournal decoder(byte type, DataInput entree) throws IOException {
+        return switch (type) {
+            case LIVRE_AJOUTE -> new LivreAjoute(entree.readUTF(), lireTexte(entree), lireTexte(entree),
+                entree.readInt(), lireTexte(entree), lireDate(entree));
+            case LIVRE_MODIFIE -> new LivreModifie(entree.readUTF(), lireTexte(entree), lireTexte(entree));
+            case LIVRE_SUPPRIME -> new LivreSupprime(entree.readUTF());
+            case UTILISATEUR_AJOUTE -> new UtilisateurAjoute(decoderUtilisateur(entree));
+            case EMAIL_MODIFIE -> new EmailModifie(entree.readUTF(), lireTexte(entree));
+            case UTILISATEUR_SUPPRIME -> new UtilisateurSupprime(entree.readUTF());
+            case EXEMPLAIRES_AJOUTES -> new ExemplairesAjoutes(entree.readUTF(), entree.readInt());
+            case RESERVATION_AJOUTEE -> new ReservationAjoutee(entree.readUTF(), entree.readUTF());
+            case RESERVATION_ANNULEE -> new ReservationAnnulee(entree.readUTF(), entree.readUTF());
+            case EMPRUNT -> new Emprunt(entree.readUTF(), entree.readUTF(), lireDate(entree), 0);
+            case EMPRUNT_EXEMPLAIRE -> new Emprunt(entree.readUTF(), entree.readUTF(), lireDate(entree), entree.readInt());
+            case RETOUR -> new Retour(entree.readUTF(), 0);
+            case RETOUR_EXEMPLAIRE -> new Retour(entree.readUTF(), entree.readInt());
+            default -> throw new IOException("Type d'événement inconnu : " + type);
+        };
+    }
+
+    /**
+     * Écrit un utilisateur avec les champs propres à son type
+     */
+    static void encoderUtilisateur(Utilisateur utilisateur, DataOutput sortie) throws IOException {
+        if (utilisateur instanceof Etudiant etudiant) {
+            sortie.writeByte(ETUDIANT);
+            ecrireCommun(utilisateur, sortie);
+            ecrireTexte(sortie, etudiant.getNumeroEtudiant());
+            sortie.writeInt(etudiant.getNiveau());
+            ecrireTexte(sortie, etudiant.getFiliere());
+        } else if (utilisateur instanceof Professeur professeur) {
+            sortie.writeByte(PROFESSEUR);
+            ecrireCommun(utilisateur, sortie);
+            ecrireTexte(sortie, professeur.getDepartement());
+            sortie.writeBoolean(professeur.hasAccesRessourcesSpeciales());
+        } else {
+            throw new IOException("Type d'utilisateur non persistable : " + utilisateur.getClass().getName());
+        }
+    }
+
+    /**
+     * Lit un utilisateur écrit par {@link #encoderUtilisateur}
+     */
+    static Utilisateur decoderUtilisateur(DataInput entree) throws IOException {
+        byte type = entree.readByte();
+        String id = entree.readUTF();
+        String nom = lireTexte(entree);
+        String email = lireTexte(entree);
+        if (type == ETUDIANT) {
+            return new Etudiant(id, nom, email, lireTexte(entree), entree.readInt(), lireTexte(entree));
+        }
+        if (type == PROFESSEUR) {
+            Professeur professeur = new Professeur(id, nom, email, lireTexte(entree));
+            professeur.setAccesRessourcesSpeciales(entree.readBoolean());
+            return professeur;
+        }
+        throw new IOException("Type d'utilisateur inconnu : " + type);
+    }
+
+    // Champs élémentaires
+
+    private static void ecrireCommun(Utilisateur utilisateur, DataOutput sortie) throws IOException {
+        sortie.writeUTF(utilisateur.getId());
+        ecrireTexte(sortie, utilisateur.getNom());
+        ecrireTexte(sortie, utilisateur.getEmail());
+    }
+
+    static void ecrireTexte(DataOutput sortie, String texte) throws IOException {
+        sortie.writeBoolean(texte != null);
+        if (texte != null) {
+            sortie.writeUTF(texte);
+        }
+    }
+
+    static String lireTexte(DataInput entree) throws IOException {
+        return entree.readBoolean() ? entree.readUTF() : null;
+    }
+
+    static void ecrireDate(DataOutput sortie, LocalDate date) throws IOException {
+        sortie.writeLong(date != null ? date.toEpochDay() : DATE_ABSENTE);
+    }
+
+    static LocalDate lireDate(DataInput entree) throws IOException {
+        long jour = entree.readLong();
+        return jour == DATE_ABSENTE ? null : LocalDate.ofEpochDay(jour);
+    }
+}
@@ -0,0 +1,15 @@
+package com.isitech.bibliotheque.persistence;
+
+/**
+ * Événement déjà encodé par {@link Journal#preparer}, prêt à être ajouté au
+ * journal sans nouvel encodage ni possibilité d'échec
+ */
+public final class EnregistrementJournal {
+    final byte type;
+    final byte[] contenu;
+
+    EnregistrementJournal(byte type, byte[] contenu) {
+        this.type = type;
+        this.contenu = contenu;
+    }
+}
@@ -0,0 +1,97 @@
+package com.isitech.bibliotheque.persistence;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+import java.time.LocalDate;
+
+/**
+ * Mutations du service enregistrées dans le journal d'écriture anticipée
+ */
+public sealed interface EvenementJournal {
+
+    /**
+     * Ajout d'un livre au catalogue
+     */
+    record LivreAjoute(String isbn, String titre, String auteur, int nbPages,
+                       String editeur, LocalDate datePublication) implements EvenementJournal {
+
+        /**
+         * Crée l'événement décrivant un livre
+         * @param livre le livre ajouté
+         * @return l'événement
+         */
+        public static LivreAjoute de(Livre livre) {
+            return new LivreAjoute(livre.getIsbn(), livre.getTitre(), livre.getAuteur(),
+                livre.getNbPages(), livre.getEditeur(), livre.getDatePublication());
+        }
+
+        /**
+         * Recrée le livre décrit par l'événement (disponible)
+         * @return le livre
+         */
+        public Livre versLivre() {
+            return new Livre(isbn, titre, auteur, nbPages, editeur, datePublication);
+        }
+    }
+
+    /**
+     * Changement de titre ou d'auteur d'un livre
+     */
+    record LivreModifie(String isbn, String titre, String auteur) implements EvenementJournal {
+    }
+
+    /**
+     * Suppression d'un livre du catalogue
+     */
+    record LivreSupprime(String isbn) implements EvenementJournal {
+    }
+
+    /**
+     * Inscription d'un utilisateur
+     */
+    record UtilisateurAjoute(Utilisateur utilisateur) implements EvenementJournal {
+    }
+
+    /**
+     * Changement d'email d'un utilisateur
+     */
+    record EmailModifie(String idUtilisateur, String email) implements EvenementJournal {
+    }
+
+    /**
+     * Désinscription d'un utilisateur
+     */
+    record UtilisateurSupprime(String idUtilisateur) implements EvenementJournal {
+    }
+
+    /**
+     * Ajout d'exemplaires d'un titre
+     * @param nombre le nombre total d'exemplaires après l'ajout (relecture idempotente)
+     */
+    record ExemplairesAjoutes(String isbn, int nombre) implements EvenementJournal {
+    }
+
+    /**
+     * Emprunt d'un exemplaire d'un livre
+     */
+    record Emprunt(String isbn, String idUtilisateur, LocalDate dateEmprunt, int exemplaire) implements EvenementJournal {
+    }
+
+    /**
+     * Retour d'un exemplaire d'un livre
+     */
+    record Retour(String isbn, int exemplaire) implements EvenementJournal {
+    }
+
+    /**
+     * Réservation d'un livre (ajout en fin de file d'attente)
+     */
+    record ReservationAjoutee(String isbn, String idUtilisateur) implements EvenementJournal {
+    }
+
+    /**
+     * Annulation d'une réservation
+     */
+    record ReservationAnnulee(String isbn, String idUtilisateur) implements EvenementJournal {
+    }
+}
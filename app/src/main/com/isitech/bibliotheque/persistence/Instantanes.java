@@ -0,0 +1,253 @@
+package com.isitech.bibliotheque.persistence;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.persistence.EvenementJournal.*;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Instantanés binaires compacts de l'état du service.
+ * Format : en-tête, ISBN supprimés du catalogue projeté, section livres (avec nombre
+ * d'exemplaires et état d'emprunt de chacun), section utilisateurs, files de réservation, puis le CRC32C de tout ce qui précède. Un instantané est écrit dans un fichier
+ * temporaire puis renommé atomiquement.
+ */
+final class Instantanes {
+    private static final long MAGIQUE = 0x4249424C494E5354L; // "BIBLINST"
+    private static final int VERSION_FORMAT = 4;
+    private static final int VERSION_SANS_RESERVATIONS = 3; // Relue : pas de files de réservation
+    private static final int VERSION_UN_EXEMPLAIRE = 2; // Relue : un exemplaire par livre
+    private static final String PREFIXE = "instantane-";
+    private static final String SUFFIXE = ".bin";
+    private static final int TAILLE_TAMPON = 1 << 16;
+
+    private Instantanes() {
+    }
+
+    /**
+     * Écrit l'instantané du service, couvrant au moins les événements jusqu'à la séquence
+     * @param dossier le dossier de stockage
+     * @param sequence la séquence couverte
+     * @param service le service à sauvegarder
+     * @return le chemin de l'instantané
+     */
+    static Path ecrire(Path dossier, long sequence, BibliothequeService service) throws IOException {
+        Path cible = dossier.resolve(String.format("%s%020d%s", PREFIXE, sequence, SUFFIXE));
+        Path temporaire = dossier.resolve(cible.getFileName() + ".tmp");
+        CheckedOutputStream controle = new CheckedOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(temporaire), TAILLE_TAMPON), new CRC32C());
+        try (DataOutputStream sortie = new DataOutputStream(controle)) {
+            sortie.writeLong(MAGIQUE);
+            sortie.writeInt(VERSION_FORMAT);
+            sortie.writeLong(sequence);
+
+            // Suppressions de la base avant les livres : un ISBN supprimé puis réajouté
+            // doit être relu comme un nouveau livre
+            try {
+                service.parcourirSuppressionsBase(isbn -> {
+                    try {
+                        sortie.writeBoolean(true);
+                        sortie.writeUTF(isbn);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            sortie.writeBoolean(false);
+
+            // Livres ensuite : tout emprunteur rencontré est déjà inscrit lorsqu'on lira les utilisateurs
+            try {
+                service.parcourirCatalogue(livre -> {
+                    try {
+                        ecrireLivre(sortie, livre);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            sortie.writeBoolean(false);
+
+            for (Utilisateur utilisateur : service.obtenirTousUtilisateurs()) {
+                sortie.writeBoolean(true);
+                CodecEvenements.encoderUtilisateur(utilisateur, sortie);
+            }
+            sortie.writeBoolean(false);
+
+            try {
+                service.parcourirReservations((isbn, file) -> {
+                    try {
+                        sortie.writeBoolean(true);
+                        sortie.writeUTF(isbn);
+                        sortie.writeInt(file.size());
+                        for (String idUtilisateur : file) {
+                            sortie.writeUTF(idUtilisateur);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            sortie.writeBoolean(false);
+
+            sortie.flush();
+            sortie.writeInt((int) controle.getChecksum().getValue());
+        }
+        try (FileChannel canal = FileChannel.open(temporaire, StandardOpenOption.WRITE)) {
+            canal.force(true);
+        }
+        Files.move(temporaire, cible, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return cible;
+    }
+
+    /**
+     * Charge un instantané dans un service vide
+     * @param instantane le fichier à charger
+     * @param service le service à remplir
+     * @return la séquence couverte par l'instantané
+     * @throws IOException si le fichier est illisible ou corrompu
+     */
+    static long charger(Path instantane, BibliothequeService service) throws IOException {
+        verifier(instantane);
+        try (DataInputStream entree = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(instantane), TAILLE_TAMPON))) {
+            int version = entree.readLong() == MAGIQUE ? entree.readInt() : -1;
+            if (version != VERSION_FORMAT && version != VERSION_SANS_RESERVATIONS && version != VERSION_UN_EXEMPLAIRE) {
+                throw new IOException("Format d'instantané inconnu : " + instantane);
+            }
+            long sequence = entree.readLong();
+
+            while (entree.readBoolean()) {
+                service.rejouer(new LivreSupprime(entree.readUTF()));
+            }
+            List<Emprunt> emprunts = new ArrayList<>();
+            while (entree.readBoolean()) {
+                LivreAjoute livre = (LivreAjoute) CodecEvenements.decoder(CodecEvenements.LIVRE_AJOUTE, entree);
+                service.rejouer(livre);
+                if (version == VERSION_UN_EXEMPLAIRE) {
+                    if (entree.readBoolean()) {
+                        emprunts.add(new Emprunt(livre.isbn(), entree.readUTF(), CodecEvenements.lireDate(entree), 0));
+                    }
+                    continue;
+                }
+                int exemplaires = entree.readInt();
+                if (exemplaires > 1) {
+                    service.rejouer(new ExemplairesAjoutes(livre.isbn(), exemplaires));
+                }
+                while (entree.readBoolean()) {
+                    int numero = entree.readInt();
+                    emprunts.add(new Emprunt(livre.isbn(), entree.readUTF(), CodecEvenements.lireDate(entree), numero));
+                }
+            }
+            while (entree.readBoolean()) {
+                service.rejouer(new UtilisateurAjoute(CodecEvenements.decoderUtilisateur(entree)));
+            }
+            for (Emprunt emprunt : emprunts) {
+                service.rejouer(emprunt);
+            }
+            while (version == VERSION_FORMAT && entree.readBoolean()) {
+                String isbn = entree.readUTF();
+                for (int i = entree.readInt(); i > 0; i--) {
+                    service.rejouer(new ReservationAjoutee(isbn, entree.readUTF()));
+                }
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Trouve l'instantané le plus récent
+     * @param dossier le dossier de stockage
+     * @return l'instantané, s'il en existe un
+     */
+    static Optional<Path> dernier(Path dossier) throws IOException {
+        if (!Files.isDirectory(dossier)) {
+            return Optional.empty();
+        }
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            return fichiers.filter(Instantanes::estInstantane).max(Path::compareTo);
+        }
+    }
+
+    /**
+     * Supprime les instantanés antérieurs à celui donné, et les fichiers temporaires abandonnés
+     */
+    static void supprimerAnciens(Path dossier, Path conserve) throws IOException {
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            for (Path fichier : (Iterable<Path>) fichiers::iterator) {
+                String nom = fichier.getFileName().toString();
+                boolean ancien = estInstantane(fichier) && fichier.compareTo(conserve) < 0;
+                boolean abandonne = nom.startsWith(PREFIXE) && nom.endsWith(SUFFIXE + ".tmp");
+                if (ancien || abandonne) {
+                    Files.deleteIfExists(fichier);
+                }
+            }
+        }
+    }
+
+    private static boolean estInstantane(Path fichier) {
+        String nom = fichier.getFileName().toString();
+        return nom.startsWith(PREFIXE) && nom.endsWith(SUFFIXE);
+    }
+
+    private static void ecrireLivre(DataOutputStream sortie, Livre livre) throws IOException {
+        sortie.writeBoolean(true);
+        CodecEvenements.encoder(LivreAjoute.de(livre), sortie);
+        int exemplaires = livre.getNombreExemplaires();
+        sortie.writeInt(exemplaires);
+        if (livre.getNombreEmpruntes() == 0) {
+            sortie.writeBoolean(false);
+            return;
+        }
+        for (int numero = 0; numero < exemplaires; numero++) {
+            Utilisateur emprunteur = livre.getEmprunteur(numero);
+            if (emprunteur != null) {
+                sortie.writeBoolean(true);
+                sortie.writeInt(numero);
+                sortie.writeUTF(emprunteur.getId());
+                CodecEvenements.ecrireDate(sortie, livre.getDateEmprunt(numero));
+            }
+        }
+        sortie.writeBoolean(false);
+    }
+
+    /**
+     * Vérifie le CRC de l'instantané avant de modifier le service
+     */
+    private static void verifier(Path instantane) throws IOException {
+        long taille = Files.size(instantane);
+        if (taille < 4) {
+            throw new IOException("Instantané tronqué : " + instantane);
+        }
+        CRC32C crc = new CRC32C();
+        try (DataInputStream entree = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(instantane), TAILLE_TAMPON))) {
+            byte[] tampon = new byte[TAILLE_TAMPON];
+            long restant = taille - 4;
+            while (restant > 0) {
+                int lus = entree.read(tampon, 0, (int) Math.min(tampon.length, restant));
+                if (lus < 0) {
+                    throw new IOException("Instantané tronqué : " + instantane);
+                }
+                crc.update(tampon, 0, lus);
+                restant -= lus;
+            }
+            if (entree.readInt() != (int) crc.getValue()) {
+                throw new IOException("Instantané corrompu : " + instantane);
+            }
+        }
+    }
+}
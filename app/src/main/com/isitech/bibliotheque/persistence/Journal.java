@@ -0,0 +1,42 @@
+package com.isitech.bibliotheque.persistence;
+
+/**
+ * Journal des mutations du service. Un événement est d'abord encodé et vérifié,
+ * avant la mutation ; son ajout, non bloquant, se fait ensuite sous le verrou de
+ * la mutation (l'ordre du journal suit l'ordre d'application) et ne lève pas :
+ * un échec d'écriture est signalé par l'attente de durabilité, faite hors verrou.
+ */
+public interface Journal {
+
+    /**
+     * Encode et vérifie un événement sans l'ajouter
+     * @param evenement l'événement à enregistrer
+     * @return l'enregistrement prêt à être ajouté
+     * @throws IllegalArgumentException si l'événement ne peut pas être journalisé
+     */
+    EnregistrementJournal preparer(EvenementJournal evenement);
+
+    /**
+     * Ajoute un enregistrement préparé au journal, sans lever d'exception
+     * @param enregistrement l'enregistrement préparé
+     * @return le numéro de séquence attribué
+     */
+    long ajouter(EnregistrementJournal enregistrement);
+
+    /**
+     * Encode puis ajoute un événement dont les champs ont déjà été admis par un
+     * enregistrement préparé (ISBN, ID d'utilisateur...). Ne lève pas : un
+     * événement qui ne peut pas être encodé met le journal en échec.
+     * @param evenement l'événement à enregistrer
+     * @return le numéro de séquence attribué
+     */
+    long ajouter(EvenementJournal evenement);
+
+    /**
+     * Attend que l'événement de séquence donnée soit écrit sur disque
+     * @param sequence le numéro de séquence
+     * @throws java.io.UncheckedIOException si l'écriture a échoué
+     * @throws IllegalStateException si le journal a été fermé avant l'écriture
+     */
+    void attendreDurabilite(long sequence);
+}
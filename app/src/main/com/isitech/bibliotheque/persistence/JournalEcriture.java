@@ -0,0 +1,466 @@
+package com.isitech.bibliotheque.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Journal d'écriture anticipée en segments append-only.
+ * Chaque enregistrement est [taille][crc32c][séquence][type][contenu]. Les
+ * événements sont accumulés dans un lot en mémoire ; un thread écrivain unique
+ * écrit le lot puis fait un seul fsync pour tous les événements qu'il contient
+ * (group commit). Sous charge, le lot suivant se remplit pendant le fsync courant.
+ */
+public class JournalEcriture implements Journal, Closeable {
+    private static final String PREFIXE = "journal-";
+    private static final String SUFFIXE = ".wal";
+    private static final int ENTETE = 8; // taille + crc
+    private static final int TAILLE_MAX_ENREGISTREMENT = 1 << 20;
+
+    private final Path dossier;
+    private final ReentrantLock verrou;
+    private final Condition travail; // Un lot attend d'être écrit
+    private final Condition ecrit; // La séquence durable a avancé
+    private final ArrayDeque<Lot> lotsScelles; // Lots clos par une rotation de segment
+    private final ArrayDeque<Lot> lotsLibres;
+    private final CRC32C crc;
+    private final ThreadLocal<ByteArrayOutputStream> tamponsEncodage;
+    private final Thread ecrivain;
+    private Lot lotCourant;
+    private long derniereSequence;
+    private long sequenceDurable;
+    private long segmentsOuverts;
+    private long nombreFsync;
+    private IOException erreur;
+    private boolean ferme;
+    private boolean termine; // Le thread écrivain a tout écrit et s'est arrêté
+    private FileChannel canal; // Utilisé uniquement par le thread écrivain
+
+    /**
+     * Ouvre un nouveau segment à la suite des séquences déjà présentes
+     * @param dossier le dossier des segments
+     * @param derniereSequence la dernière séquence relue au démarrage
+     * @throws IOException si le segment ne peut pas être créé
+     */
+    public JournalEcriture(Path dossier, long derniereSequence) throws IOException {
+        this.dossier = dossier;
+        this.verrou = new ReentrantLock();
+        this.travail = verrou.newCondition();
+        this.ecrit = verrou.newCondition();
+        this.lotsScelles = new ArrayDeque<>();
+        this.lotsLibres = new ArrayDeque<>();
+        this.crc = new CRC32C();
+        this.tamponsEncodage = ThreadLocal.withInitial(() -> new ByteArrayOutputStream(256));
+        this.lotCourant = new Lot();
+        this.derniereSequence = derniereSequence;
+        this.sequenceDurable = derniereSequence;
+        this.canal = ouvrirSegment(derniereSequence + 1);
+        this.ecrivain = new Thread(this::boucleEcriture, "journal-ecrivain");
+        this.ecrivain.setDaemon(true);
+        this.ecrivain.start();
+    }
+
+    @Override
+    public EnregistrementJournal preparer(EvenementJournal evenement) {
+        // Encodage hors du verrou du journal, dans un tampon propre au thread
+        ByteArrayOutputStream tampon = tamponsEncodage.get();
+        tampon.reset();
+        try {
+            CodecEvenements.encoder(evenement, new DataOutputStream(tampon));
+        } catch (IOException e) {
+            // UTFDataFormatException : un champ dépasse 65535 octets encodés
+            throw new IllegalArgumentException("Événement non journalisable : " + e.getMessage(), e);
+        }
+        if (9 + tampon.size() > TAILLE_MAX_ENREGISTREMENT) {
+            // La relecture tronquerait l'enregistrement et tout ce qui le suit
+            throw new IllegalArgumentException("Enregistrement de " + tampon.size()
+                + " octets au-delà de la limite du journal (" + TAILLE_MAX_ENREGISTREMENT + ")");
+        }
+        return new EnregistrementJournal(CodecEvenements.type(evenement), tampon.toByteArray());
+    }
+
+    @Override
+    public long ajouter(EvenementJournal evenement) {
+        EnregistrementJournal enregistrement;
+        try {
+            enregistrement = preparer(evenement);
+        } catch (IllegalArgumentException e) {
+            verrou.lock();
+            try {
+                if (erreur == null) {
+                    erreur = new IOException(e.getMessage(), e);
+                }
+                ecrit.signalAll();
+                return ++derniereSequence;
+            } finally {
+                verrou.unlock();
+            }
+        }
+        return ajouter(enregistrement);
+    }
+
+    @Override
+    public long ajouter(EnregistrementJournal enregistrement) {
+        byte type = enregistrement.type;
+        byte[] contenu = enregistrement.contenu;
+        verrou.lock();
+        try {
+            long sequence = ++derniereSequence;
+            if (erreur != null || ferme) {
+                return sequence; // Jamais durable : l'attente de durabilité signale l'échec
+            }
+            crc.reset();
+            for (int decalage = 56; decalage >= 0; decalage -= 8) {
+                crc.update((int) (sequence >>> decalage));
+            }
+            crc.update(type);
+            crc.update(contenu);
+
+            Lot lot = lotCourant;
+            lot.ecrireInt(9 + contenu.length);
+            lot.ecrireInt((int) crc.getValue());
+            lot.ecrireLong(sequence);
+            lot.ecrireOctet(type);
+            lot.ecrire(contenu);
+            lot.derniereSequence = sequence;
+            travail.signal();
+            return sequence;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    @Override
+    public void attendreDurabilite(long sequence) {
+        verrou.lock();
+        try {
+            while (sequenceDurable < sequence && erreur == null && !termine) {
+                ecrit.awaitUninterruptibly();
+            }
+            if (sequenceDurable < sequence) {
+                if (erreur != null) {
+                    throw new UncheckedIOException("Échec d'écriture du journal", erreur);
+                }
+                throw new IllegalStateException("Journal fermé");
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Clôt le segment courant : les événements suivants iront dans un nouveau segment.
+     * Utilisé avant un instantané pour pouvoir supprimer les segments qu'il couvre.
+     * @return la dernière séquence du segment clos
+     */
+    public long rotation() {
+        verrou.lock();
+        try {
+            long limite = derniereSequence;
+            long attendu = segmentsOuverts + 1;
+            lotCourant.derniereSequence = limite;
+            lotCourant.finSegment = true;
+            lotsScelles.add(lotCourant);
+            lotCourant = nouveauLot();
+            travail.signal();
+            while (segmentsOuverts < attendu && erreur == null) {
+                ecrit.awaitUninterruptibly();
+            }
+            if (erreur != null) {
+                throw new UncheckedIOException("Échec de rotation du journal", erreur);
+            }
+            return limite;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Obtient le nombre de fsync effectués (un par lot écrit)
+     * @return le nombre de fsync
+     */
+    public long getNombreFsync() {
+        verrou.lock();
+        try {
+            return nombreFsync;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Obtient la dernière séquence attribuée
+     * @return la séquence
+     */
+    public long getDerniereSequence() {
+        verrou.lock();
+        try {
+            return derniereSequence;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        verrou.lock();
+        try {
+            ferme = true;
+            travail.signal();
+        } finally {
+            verrou.unlock();
+        }
+        try {
+            ecrivain.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        canal.close();
+    }
+
+    // === THREAD ÉCRIVAIN ===
+
+    private void boucleEcriture() {
+        while (true) {
+            Lot lot;
+            verrou.lock();
+            try {
+                while (lotsScelles.isEmpty() && lotCourant.taille == 0 && !ferme) {
+                    travail.awaitUninterruptibly();
+                }
+                if (!lotsScelles.isEmpty()) {
+                    lot = lotsScelles.poll();
+                } else if (lotCourant.taille > 0) {
+                    lot = lotCourant;
+                    lotCourant = nouveauLot();
+                } else {
+                    termine = true; // Fermé et tout est écrit
+                    ecrit.signalAll();
+                    return;
+                }
+            } finally {
+                verrou.unlock();
+            }
+
+            try {
+                if (lot.taille > 0) {
+                    ByteBuffer contenu = ByteBuffer.wrap(lot.octets, 0, lot.taille);
+                    while (contenu.hasRemaining()) {
+                        canal.write(contenu);
+                    }
+                    canal.force(false);
+                }
+                if (lot.finSegment) {
+                    canal.close();
+                    canal = ouvrirSegment(lot.derniereSequence + 1);
+                }
+            } catch (IOException e) {
+                verrou.lock();
+                try {
+                    erreur = e;
+                    ecrit.signalAll();
+                } finally {
+                    verrou.unlock();
+                }
+                return;
+            }
+
+            verrou.lock();
+            try {
+                sequenceDurable = Math.max(sequenceDurable, lot.derniereSequence);
+                if (lot.taille > 0) {
+                    nombreFsync++;
+                }
+                if (lot.finSegment) {
+                    segmentsOuverts++;
+                }
+                lot.vider();
+                lotsLibres.push(lot);
+                ecrit.signalAll();
+            } finally {
+                verrou.unlock();
+            }
+        }
+    }
+
+    private Lot nouveauLot() {
+        Lot lot = lotsLibres.poll();
+        return lot != null ? lot : new Lot();
+    }
+
+    private FileChannel ouvrirSegment(long premiereSequence) throws IOException {
+        Files.createDirectories(dossier);
+        return FileChannel.open(cheminSegment(dossier, premiereSequence),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    // === RELECTURE ET MAINTENANCE DES SEGMENTS ===
+
+    /**
+     * Relit les événements du journal postérieurs à une séquence.
+     * Un enregistrement incomplet ou corrompu en fin du dernier segment (écriture
+     * interrompue par un arrêt brutal) est tronqué ; ailleurs c'est une erreur.
+     * @param dossier le dossier des segments
+     * @param apres la séquence déjà couverte par l'instantané
+     * @param action l'action appliquée à chaque événement, dans l'ordre
+     * @return la dernière séquence relue (ou apres si aucune)
+     * @throws IOException si un segment intermédiaire est corrompu
+     */
+    public static long relire(Path dossier, long apres, Consumer<EvenementJournal> action) throws IOException {
+        List<Path> segments = listerSegments(dossier);
+        long derniere = apres;
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            boolean dernierSegment = i == segments.size() - 1;
+            long position = 0;
+            try (DataInputStream entree = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+                CRC32C controle = new CRC32C();
+                while (true) {
+                    int taille;
+                    try {
+                        taille = entree.readInt();
+                    } catch (EOFException fin) {
+                        break;
+                    }
+                    byte[] contenu = null;
+                    int crcLu = 0;
+                    if (taille >= 9 && taille <= TAILLE_MAX_ENREGISTREMENT) {
+                        try {
+                            crcLu = entree.readInt();
+                            contenu = new byte[taille];
+                            entree.readFully(contenu);
+                        } catch (EOFException tronque) {
+                            contenu = null;
+                        }
+                    }
+                    if (contenu != null) {
+                        controle.reset();
+                        controle.update(contenu);
+                    }
+                    if (contenu == null || (int) controle.getValue() != crcLu) {
+                        if (!dernierSegment) {
+                            throw new IOException("Journal corrompu dans " + segment + " à la position " + position);
+                        }
+                        tronquer(segment, position);
+                        break;
+                    }
+
+                    DataInputStream champs = new DataInputStream(new ByteArrayInputStream(contenu));
+                    long sequence = champs.readLong();
+                    byte type = champs.readByte();
+                    if (sequence > apres) {
+                        action.accept(CodecEvenements.decoder(type, champs));
+                    }
+                    derniere = Math.max(derniere, sequence);
+                    position += ENTETE + taille;
+                }
+            }
+        }
+        return derniere;
+    }
+
+    /**
+     * Supprime les segments entièrement couverts par un instantané
+     * @param dossier le dossier des segments
+     * @param sequence la séquence couverte par l'instantané
+     * @throws IOException en cas d'erreur de suppression
+     */
+    public static void supprimerSegmentsJusqua(Path dossier, long sequence) throws IOException {
+        List<Path> segments = listerSegments(dossier);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            // Un segment se termine juste avant le début du suivant
+            if (premiereSequence(segments.get(i + 1)) <= sequence + 1) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+
+    private static List<Path> listerSegments(Path dossier) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(dossier)) {
+            return segments;
+        }
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            fichiers.filter(f -> {
+                    String nom = f.getFileName().toString();
+                    return nom.startsWith(PREFIXE) && nom.endsWith(SUFFIXE);
+                })
+                .sorted()
+                .forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private static long premiereSequence(Path segment) {
+        String nom = segment.getFileName().toString();
+        return Long.parseLong(nom.substring(PREFIXE.length(), nom.length() - SUFFIXE.length()));
+    }
+
+    private static Path cheminSegment(Path dossier, long premiereSequence) {
+        return dossier.resolve(String.format("%s%020d%s", PREFIXE, premiereSequence, SUFFIXE));
+    }
+
+    private static void tronquer(Path segment, long position) throws IOException {
+        try (FileChannel c = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            c.truncate(position);
+            c.force(true);
+        }
+    }
+
+    /**
+     * Lot d'enregistrements encodés en attente d'écriture
+     */
+    private static final class Lot {
+        private byte[] octets = new byte[1 << 16];
+        private int taille;
+        private long derniereSequence;
+        private boolean finSegment;
+
+        void ecrire(byte[] source) {
+            assurerCapacite(source.length);
+            System.arraycopy(source, 0, octets, taille, source.length);
+            taille += source.length;
+        }
+
+        void ecrireOctet(int valeur) {
+            assurerCapacite(1);
+            octets[taille++] = (byte) valeur;
+        }
+
+        void ecrireInt(int valeur) {
+            assurerCapacite(4);
+            for (int decalage = 24; decalage >= 0; decalage -= 8) {
+                octets[taille++] = (byte) (valeur >>> decalage);
+            }
+        }
+
+        void ecrireLong(long valeur) {
+            assurerCapacite(8);
+            for (int decalage = 56; decalage >= 0; decalage -= 8) {
+                octets[taille++] = (byte) (valeur >>> decalage);
+            }
+        }
+
+        void vider() {
+            taille = 0;
+            finSegment = false;
+        }
+
+        private void assurerCapacite(int supplement) {
+            if (taille + supplement > octets.length) {
+                octets = Arrays.copyOf(octets, Math.max(octets.length * 2, taille + supplement));
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.isitech.bibliotheque.persistence;
+
+import com.isitech.bibliotheque.services.BibliothequeService;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moteur de stockage durable du service : instantané binaire + journal d'écriture anticipée.
+ * La récupération charge le dernier instantané puis rejoue la fin du journal ; un
+ * instantané périodique permet de supprimer les segments de journal qu'il couvre.
+ * Si le dossier contient un catalogue projeté ({@value #FICHIER_CATALOGUE}), il sert de
+ * base : instantanés et journal n'enregistrent que les écarts par rapport à lui.
+ */
+public class MoteurStockage implements Closeable {
+    public static final String FICHIER_CATALOGUE = "catalogue.cat";
+
+    private final Path dossier;
+    private final ReentrantLock verrouInstantane;
+    private BibliothequeService service;
+    private JournalEcriture journal;
+    private ScheduledExecutorService planificateur;
+
+    private MoteurStockage(Path dossier) {
+        this.dossier = dossier;
+        this.verrouInstantane = new ReentrantLock();
+    }
+
+    /**
+     * Ouvre (ou crée) le stockage d'un dossier
+     * @param dossier le dossier des données
+     * @return le moteur de stockage
+     * @throws IOException si le dossier ne peut pas être créé
+     */
+    public static MoteurStockage ouvrir(Path dossier) throws IOException {
+        Files.createDirectories(dossier);
+        return new MoteurStockage(dossier);
+    }
+
+    /**
+     * Restaure l'état du service puis branche le journal : toute mutation
+     * ultérieure est journalisée avant d'être confirmée
+     * @param service le service à restaurer (vide)
+     * @return la dernière séquence restaurée
+     * @throws IOException si l'instantané ou le journal est illisible
+     */
+    public long recuperer(BibliothequeService service) throws IOException {
+        if (this.service != null) {
+            throw new IllegalStateException("Stockage déjà récupéré");
+        }
+        Path catalogue = dossier.resolve(FICHIER_CATALOGUE);
+        if (Files.exists(catalogue)) {
+            service.chargerCatalogue(CatalogueMappe.ouvrir(catalogue));
+        }
+        Optional<Path> instantane = Instantanes.dernier(dossier);
+        long sequence = instantane.isPresent() ? Instantanes.charger(instantane.get(), service) : 0;
+        sequence = JournalEcriture.relire(dossier, sequence, service::rejouer);
+
+        this.service = service;
+        this.journal = new JournalEcriture(dossier, sequence);
+        service.setJournal(journal);
+        return sequence;
+    }
+
+    /**
+     * Prend un instantané de l'état courant, sans bloquer les mutations,
+     * puis supprime les segments de journal et instantanés devenus inutiles
+     * @return la séquence couverte par l'instantané
+     * @throws IOException en cas d'erreur d'écriture
+     */
+    public long prendreInstantane() throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("Stockage non récupéré");
+        }
+        verrouInstantane.lock();
+        try {
+            // Tout événement de séquence <= limite est déjà appliqué au service
+            long limite = journal.rotation();
+            Path fichier = Instantanes.ecrire(dossier, limite, service);
+            Instantanes.supprimerAnciens(dossier, fichier);
+            JournalEcriture.supprimerSegmentsJusqua(dossier, limite);
+            return limite;
+        } finally {
+            verrouInstantane.unlock();
+        }
+    }
+
+    /**
+     * Prend un instantané à intervalle régulier
+     * @param periode l'intervalle entre deux instantanés
+     */
+    public void planifierInstantanes(Duration periode) {
+        if (planificateur != null) {
+            throw new IllegalStateException("Instantanés déjà planifiés");
+        }
+        planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stockage-instantanes");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = periode.toMillis();
+        planificateur.scheduleWithFixedDelay(() -> {
+            try {
+                prendreInstantane();
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Échec de l'instantané: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtient le journal d'écriture (null avant la récupération)
+     * @return le journal
+     */
+    public JournalEcriture getJournal() {
+        return journal;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (planificateur != null) {
+            planificateur.shutdownNow();
+        }
+        if (journal != null) {
+            service.setJournal(null);
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.isitech.bibliotheque.serveur;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Configuration du serveur web embarqué. Les clés sont lues dans un fichier de
+ * propriétés facultatif, puis dans les propriétés système préfixées par
+ * "bibliotheque.serveur." qui l'emportent (ex. -Dbibliotheque.serveur.port=9090).
+ * Une valeur de -1 pour les accepteurs ou les sélecteurs laisse Jetty choisir
+ * selon le nombre de processeurs.
+ * @param hote l'interface d'écoute, ou null pour toutes
+ * @param port le port d'écoute (0 : port libre choisi par le système)
+ * @param accepteurs le nombre de threads acceptant les connexions
+ * @param selecteurs le nombre de sélecteurs d'entrées-sorties
+ * @param delaiInactivite le délai de fermeture d'une connexion inactive
+ * @param threadsVirtuels true pour traiter les requêtes sur des threads virtuels
+ * @param threadsMin le nombre minimal de threads de plateforme
+ * @param threadsMax le nombre maximal de threads de plateforme
+ * @param h2c true pour accepter HTTP/2 en clair à côté de HTTP/1.1
+ * @param delaiArret le délai laissé aux requêtes en cours lors de l'arrêt
+ */
+public record ConfigurationServeur(String hote, int port, int accepteurs, int selecteurs,
+                                   Duration delaiInactivite, boolean threadsVirtuels,
+                                   int threadsMin, int threadsMax, boolean h2c, Duration delaiArret) {
+    public static final String PREFIXE = "bibliotheque.serveur.";
+
+    public ConfigurationServeur {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("Port invalide : " + port);
+        }
+        if (accepteurs < -1 || selecteurs < -1 || selecteurs == 0) {
+            throw new IllegalArgumentException("Nombre d'accepteurs ou de sélecteurs invalide");
+        }
+        if (threadsMin < 1 || threadsMax < threadsMin) {
+            throw new IllegalArgumentException("Bornes de threads invalides : " + threadsMin + ".." + threadsMax);
+        }
+        if (delaiInactivite.isNegative() || delaiArret.isNegative()) {
+            throw new IllegalArgumentException("Les délais doivent être positifs");
+        }
+    }
+
+    /**
+     * Configuration par défaut : port 8080, threads de plateforme, HTTP/2 en clair
+     */
+    public static ConfigurationServeur parDefaut() {
+        return depuis(new Properties());
+    }
+
+    /**
+     * Lit la configuration depuis des propriétés sans préfixe
+     * (port, hote, accepteurs, selecteurs, inactivite.ms, threads.virtuels,
+     * threads.min, threads.max, h2c, arret.ms)
+     * @param proprietes les propriétés
+     * @return la configuration
+     * @throws IllegalArgumentException si une valeur est invalide
+     */
+    public static ConfigurationServeur depuis(Properties proprietes) {
+        String hote = proprietes.getProperty("hote");
+        return new ConfigurationServeur(
+            hote == null || hote.isBlank() ? null : hote.trim(),
+            entier(proprietes, "port", 8080),
+            entier(proprietes, "accepteurs", -1),
+            entier(proprietes, "selecteurs", -1),
+            Duration.ofMillis(entier(proprietes, "inactivite.ms", 30_000)),
+            booleen(proprietes, "threads.virtuels", false),
+            entier(proprietes, "threads.min", 8),
+            entier(proprietes, "threads.max", 200),
+            booleen(proprietes, "h2c", true),
+            Duration.ofMillis(entier(proprietes, "arret.ms", 30_000)));
+    }
+
+    /**
+     * Charge la configuration d'un fichier facultatif et des propriétés système
+     * @param fichier le fichier de propriétés, ou null
+     * @return la configuration
+     * @throws IOException si le fichier est illisible
+     */
+    public static ConfigurationServeur charger(Path fichier) throws IOException {
+        Properties proprietes = new Properties();
+        if (fichier != null) {
+            try (Reader lecteur = Files.newBufferedReader(fichier, StandardCharsets.UTF_8)) {
+                proprietes.load(lecteur);
+            }
+        }
+        Properties systeme = System.getProperties();
+        for (String nom : systeme.stringPropertyNames()) {
+            if (nom.startsWith(PREFIXE)) {
+                proprietes.setProperty(nom.substring(PREFIXE.length()), systeme.getProperty(nom));
+            }
+        }
+        return depuis(proprietes);
+    }
+
+    private static int entier(Properties proprietes, String cle, int defaut) {
+        String valeur = proprietes.getProperty(cle);
+        if (valeur == null || valeur.isBlank()) {
+            return defaut;
+        }
+        try {
+            return Integer.parseInt(valeur.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valeur entière attendue pour " + cle + " : " + valeur);
+        }
+    }
+
+    private static boolean booleen(Properties proprietes, String cle, boolean defaut) {
+        String valeur = proprietes.getProperty(cle);
+        if (valeur == null || valeur.isBlank()) {
+            return defaut;
+        }
+        return switch (valeur.trim().toLowerCase()) {
+            case "true", "oui", "1" -> true;
+            case "false", "non", "0" -> false;
+            default -> throw new IllegalArgumentException("Valeur booléenne attendue pour " + cle + " : " + valeur);
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package com.isitech.bibliotheque.serveur;
+
+import com.isitech.bibliotheque.web.BibliothequeServlet;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.ConnectionFactory;
+import org.eclipse.jetty.server.HttpConfiguration;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.StatisticsHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serveur Jetty embarqué servant la BibliothequeServlet selon une ConfigurationServeur.
+ * En mode threads virtuels, accepteurs et sélecteurs restent sur le pool de
+ * plateforme ; seul le traitement (bloquant) des requêtes part sur un thread
+ * virtuel par tâche. L'arrêt est gracieux : les requêtes en cours disposent du
+ * délai d'arrêt avant la destruction de la servlet (instantané final).
+ */
+public final class ServeurJetty implements AutoCloseable {
+    private final ConfigurationServeur configuration;
+    private final Server serveur;
+    private final ServerConnector connecteur;
+    private final ExecutorService executeurVirtuel;
+
+    /**
+     * Construit le serveur sans le démarrer
+     * @param configuration la configuration
+     */
+    public ServeurJetty(ConfigurationServeur configuration) {
+        this.configuration = configuration;
+        QueuedThreadPool threads = new QueuedThreadPool(configuration.threadsMax(), configuration.threadsMin());
+        threads.setName("bibliotheque");
+        if (configuration.threadsVirtuels()) {
+            executeurVirtuel = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("bibliotheque-virtuel-", 0).factory());
+            threads.setVirtualThreadsExecutor(executeurVirtuel);
+        } else {
+            executeurVirtuel = null;
+        }
+        serveur = new Server(threads);
+
+        HttpConfiguration http = new HttpConfiguration();
+        http.setSendServerVersion(false);
+        HttpConnectionFactory http11 = new HttpConnectionFactory(http);
+        // HTTP/1.1 en premier : h2c par mise à niveau ou par connaissance préalable
+        ConnectionFactory[] fabriques = configuration.h2c()
+            ? new ConnectionFactory[] {http11, new HTTP2CServerConnectionFactory(http)}
+            : new ConnectionFactory[] {http11};
+        connecteur = new ServerConnector(serveur, configuration.accepteurs(), configuration.selecteurs(), fabriques);
+        connecteur.setHost(configuration.hote());
+        connecteur.setPort(configuration.port());
+        connecteur.setIdleTimeout(configuration.delaiInactivite().toMillis());
+        serveur.addConnector(connecteur);
+
+        // Contexte racine "/", servlet asynchrone pour les attentes longues
+        ServletContextHandler contexte = new ServletContextHandler(ServletContextHandler.SESSIONS);
+        contexte.setContextPath("/");
+        ServletHolder servlet = new ServletHolder(new BibliothequeServlet());
+        servlet.setAsyncSupported(true);
+        contexte.addServlet(servlet, "/");
+
+        // StatisticsHandler compte les requêtes en cours : indispensable à l'arrêt gracieux
+        StatisticsHandler statistiques = new StatisticsHandler();
+        statistiques.setHandler(contexte);
+        serveur.setHandler(statistiques);
+        serveur.setStopTimeout(configuration.delaiArret().toMillis());
+        serveur.setStopAtShutdown(true);
+    }
+
+    /**
+     * Démarre le serveur
+     * @throws Exception si le port est pris ou si la servlet ne démarre pas
+     */
+    public void demarrer() throws Exception {
+        serveur.start();
+    }
+
+    /**
+     * Attend l'arrêt du serveur (Ctrl+C ou appel à close)
+     */
+    public void attendre() throws InterruptedException {
+        serveur.join();
+    }
+
+    /**
+     * @return le port réellement écouté (utile avec le port 0), ou -1 avant le démarrage
+     */
+    public int getPort() {
+        return connecteur.getLocalPort();
+    }
+
+    public ConfigurationServeur getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Arrête le serveur gracieusement
+     */
+    @Override
+    public void close() throws Exception {
+        try {
+            serveur.stop();
+        } finally {
+            if (executeurVirtuel != null) {
+                executeurVirtuel.close();
+            }
+        }
+    }
+}
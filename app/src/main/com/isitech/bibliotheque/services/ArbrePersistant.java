@@ -0,0 +1,265 @@
+package com.isitech.bibliotheque.services;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+/**
+ * Ensemble trié immuable (arbre AVL persistant). Un ajout ou un retrait rend un
+ * nouvel arbre en O(log n) : seuls les nœuds du chemin modifié sont recopiés,
+ * tous les autres sont partagés avec l'arbre d'origine, qui reste valide.
+ * Chaque nœud porte la taille de son sous-arbre pour l'accès par rang.
+ * @param <T> le type des éléments
+ */
+final class ArbrePersistant<T> {
+
+    /**
+     * Nœud immuable
+     */
+    private static final class Noeud<T> {
+        final T valeur;
+        final Noeud<T> gauche;
+        final Noeud<T> droite;
+        final int hauteur;
+        final int taille;
+
+        Noeud(T valeur, Noeud<T> gauche, Noeud<T> droite) {
+            this.valeur = valeur;
+            this.gauche = gauche;
+            this.droite = droite;
+            this.hauteur = 1 + Math.max(hauteur(gauche), hauteur(droite));
+            this.taille = 1 + taille(gauche) + taille(droite);
+        }
+    }
+
+    private final Comparator<? super T> ordre;
+    private final Noeud<T> racine;
+
+    private ArbrePersistant(Comparator<? super T> ordre, Noeud<T> racine) {
+        this.ordre = ordre;
+        this.racine = racine;
+    }
+
+    /**
+     * Crée un arbre vide
+     * @param ordre l'ordre des éléments
+     * @return l'arbre vide
+     */
+    static <T> ArbrePersistant<T> vide(Comparator<? super T> ordre) {
+        return new ArbrePersistant<>(ordre, null);
+    }
+
+    int taille() {
+        return taille(racine);
+    }
+
+    /**
+     * Ajoute un élément, ou remplace l'élément égal selon l'ordre
+     * @param valeur l'élément
+     * @return le nouvel arbre
+     */
+    ArbrePersistant<T> ajouter(T valeur) {
+        return new ArbrePersistant<>(ordre, ajouter(racine, valeur));
+    }
+
+    /**
+     * Retire l'élément égal selon l'ordre
+     * @param valeur l'élément
+     * @return le nouvel arbre, ou cet arbre si l'élément est absent
+     */
+    ArbrePersistant<T> retirer(T valeur) {
+        Noeud<T> nouvelle = retirer(racine, valeur);
+        return nouvelle == racine ? this : new ArbrePersistant<>(ordre, nouvelle);
+    }
+
+    /**
+     * Obtient l'élément d'un rang donné
+     * @param rang le rang, de 0 à taille() - 1
+     * @return l'élément
+     */
+    T get(int rang) {
+        if (rang < 0 || rang >= taille()) {
+            throw new IndexOutOfBoundsException("Rang " + rang + " hors de [0, " + taille() + ")");
+        }
+        Noeud<T> noeud = racine;
+        while (true) {
+            int gauche = taille(noeud.gauche);
+            if (rang < gauche) {
+                noeud = noeud.gauche;
+            } else if (rang == gauche) {
+                return noeud.valeur;
+            } else {
+                rang -= gauche + 1;
+                noeud = noeud.droite;
+            }
+        }
+    }
+
+    /**
+     * Cherche l'élément correspondant à une position
+     * @param position compare un élément à la clé cherchée (négatif s'il la précède)
+     * @return l'élément de comparaison nulle, ou null
+     */
+    T chercher(ToIntFunction<? super T> position) {
+        Noeud<T> noeud = racine;
+        while (noeud != null) {
+            int comparaison = position.applyAsInt(noeud.valeur);
+            if (comparaison < 0) {
+                noeud = noeud.droite;
+            } else if (comparaison > 0) {
+                noeud = noeud.gauche;
+            } else {
+                return noeud.valeur;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compte les éléments qui précèdent une clé
+     * @param position compare un élément à la clé (négatif s'il la précède)
+     * @param inclure true pour compter aussi les éléments égaux à la clé
+     * @return le nombre d'éléments, soit le rang du premier élément suivant
+     */
+    int compter(ToIntFunction<? super T> position, boolean inclure) {
+        int nombre = 0;
+        Noeud<T> noeud = racine;
+        while (noeud != null) {
+            int comparaison = position.applyAsInt(noeud.valeur);
+            if (comparaison < 0 || (inclure && comparaison == 0)) {
+                nombre += taille(noeud.gauche) + 1;
+                noeud = noeud.droite;
+            } else {
+                noeud = noeud.gauche;
+            }
+        }
+        return nombre;
+    }
+
+    /**
+     * Parcourt les éléments dans l'ordre à partir d'un rang
+     * @param rang le rang du premier élément rendu (taille() pour un parcours vide)
+     * @return l'itérateur
+     */
+    Iterator<T> iterateur(int rang) {
+        ArrayDeque<Noeud<T>> chemin = new ArrayDeque<>();
+        Noeud<T> noeud = racine;
+        // Ancêtres dont le sous-arbre gauche contient le rang : ils restent à rendre
+        while (noeud != null) {
+            int gauche = taille(noeud.gauche);
+            if (rang < gauche) {
+                chemin.push(noeud);
+                noeud = noeud.gauche;
+            } else if (rang == gauche) {
+                chemin.push(noeud);
+                break;
+            } else {
+                rang -= gauche + 1;
+                noeud = noeud.droite;
+            }
+        }
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return !chemin.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (chemin.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Noeud<T> courant = chemin.pop();
+                for (Noeud<T> n = courant.droite; n != null; n = n.gauche) {
+                    chemin.push(n);
+                }
+                return courant.valeur;
+            }
+        };
+    }
+
+    // === ÉQUILIBRAGE ===
+
+    private Noeud<T> ajouter(Noeud<T> noeud, T valeur) {
+        if (noeud == null) {
+            return new Noeud<>(valeur, null, null);
+        }
+        int comparaison = ordre.compare(valeur, noeud.valeur);
+        if (comparaison < 0) {
+            return equilibrer(noeud.valeur, ajouter(noeud.gauche, valeur), noeud.droite);
+        }
+        if (comparaison > 0) {
+            return equilibrer(noeud.valeur, noeud.gauche, ajouter(noeud.droite, valeur));
+        }
+        return new Noeud<>(valeur, noeud.gauche, noeud.droite);
+    }
+
+    private Noeud<T> retirer(Noeud<T> noeud, T valeur) {
+        if (noeud == null) {
+            return null;
+        }
+        int comparaison = ordre.compare(valeur, noeud.valeur);
+        if (comparaison < 0) {
+            Noeud<T> gauche = retirer(noeud.gauche, valeur);
+            return gauche == noeud.gauche ? noeud : equilibrer(noeud.valeur, gauche, noeud.droite);
+        }
+        if (comparaison > 0) {
+            Noeud<T> droite = retirer(noeud.droite, valeur);
+            return droite == noeud.droite ? noeud : equilibrer(noeud.valeur, noeud.gauche, droite);
+        }
+        if (noeud.gauche == null) {
+            return noeud.droite;
+        }
+        if (noeud.droite == null) {
+            return noeud.gauche;
+        }
+        // Remplacé par son successeur, le plus petit élément du sous-arbre droit
+        Noeud<T> successeur = noeud.droite;
+        while (successeur.gauche != null) {
+            successeur = successeur.gauche;
+        }
+        return equilibrer(successeur.valeur, noeud.gauche, retirerPremier(noeud.droite));
+    }
+
+    private Noeud<T> retirerPremier(Noeud<T> noeud) {
+        if (noeud.gauche == null) {
+            return noeud.droite;
+        }
+        return equilibrer(noeud.valeur, retirerPremier(noeud.gauche), noeud.droite);
+    }
+
+    private static <T> Noeud<T> equilibrer(T valeur, Noeud<T> gauche, Noeud<T> droite) {
+        int ecart = hauteur(gauche) - hauteur(droite);
+        if (ecart > 1) {
+            if (hauteur(gauche.gauche) < hauteur(gauche.droite)) {
+                gauche = rotationGauche(gauche.valeur, gauche.gauche, gauche.droite);
+            }
+            return new Noeud<>(gauche.valeur, gauche.gauche, new Noeud<>(valeur, gauche.droite, droite));
+        }
+        if (ecart < -1) {
+            if (hauteur(droite.droite) < hauteur(droite.gauche)) {
+                droite = rotationDroite(droite.valeur, droite.gauche, droite.droite);
+            }
+            return new Noeud<>(droite.valeur, new Noeud<>(valeur, gauche, droite.gauche), droite.droite);
+        }
+        return new Noeud<>(valeur, gauche, droite);
+    }
+
+    private static <T> Noeud<T> rotationGauche(T valeur, Noeud<T> gauche, Noeud<T> droite) {
+        return new Noeud<>(droite.valeur, new Noeud<>(valeur, gauche, droite.gauche), droite.droite);
+    }
+
+    private static <T> Noeud<T> rotationDroite(T valeur, Noeud<T> gauche, Noeud<T> droite) {
+        return new Noeud<>(gauche.valeur, gauche.gauche, new Noeud<>(valeur, gauche.droite, droite));
+    }
+
+    private static int hauteur(Noeud<?> noeud) {
+        return noeud == null ? 0 : noeud.hauteur;
+    }
+
+    private static int taille(Noeud<?> noeud) {
+        return noeud == null ? 0 : noeud.taille;
+    }
+}
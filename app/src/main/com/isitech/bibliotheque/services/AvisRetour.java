@@ -0,0 +1,12 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+
+/**
+ * Avis de retour d'un livre, transmis aux clients en attente
+ * @param livre le livre rendu
+ * @param attributaire le réservataire à qui l'exemplaire a été prêté, ou null s'il est en rayon
+ */
+public record AvisRetour(Livre livre, Utilisateur attributaire) {
+}
@@ -1,18 +1,102 @@
 package com.isitech.bibliotheque.services;
 
+import com.isitech.bibliotheque.evenements.Evenement;
+import com.isitech.bibliotheque.evenements.PuitsEvenements;
+import com.isitech.bibliotheque.evenements.TypeEvenement;
+import com.isitech.bibliotheque.index.IndexTrigrammes;
+import com.isitech.bibliotheque.interfaces.ObservateurLivre;
+import com.isitech.bibliotheque.interfaces.ObservateurUtilisateur;
+import com.isitech.bibliotheque.metriques.Metriques;
+import com.isitech.bibliotheque.metriques.Operation;
+import com.isitech.bibliotheque.models.DictionnaireAuteurs;
+import com.isitech.bibliotheque.models.Isbn;
 import com.isitech.bibliotheque.models.Livre;
 import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.persistence.CatalogueMappe;
+import com.isitech.bibliotheque.persistence.EnregistrementJournal;
+import com.isitech.bibliotheque.persistence.EvenementJournal;
+import com.isitech.bibliotheque.persistence.Journal;
+import com.isitech.bibliotheque.util.Normalisation;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
- * Service principal pour la gestion de la bibliothèque
+ * Service principal pour la gestion de la bibliothèque.
+ * Le service est partagé entre les threads de requête : les index sont des
+ * structures concurrentes et les changements d'état d'un livre sont sérialisés
+ * par un verrou rayé indexé sur l'ISBN, le quota utilisateur étant réservé par CAS.
+ * Inscriptions, désinscriptions et changements d'email sont sérialisés par un
+ * verrou dédié, l'unicité des emails reposant sur un index en O(1).
+ * Un catalogue projeté en mémoire peut servir de base : ses livres ne sont créés
+ * et ajoutés aux index en mémoire qu'au premier accès.
+ * Les emprunts en cours sont indexés par date de retour prévue, selon une
+ * horloge injectable : les retards se lisent sans parcourir le catalogue.
+ * Chaque titre a une file de réservations, protégée par le verrou de son ISBN :
+ * au retour, l'exemplaire est attribué au premier réservataire éligible.
+ * Les opérations principales sont chronométrées dans un registre de métriques
+ * ({@link #getMetriques()}), avec des jauges sur le catalogue et les emprunts.
+ * Les statistiques (par type d'utilisateur, par auteur, retards) sont tenues
+ * à jour à chaque mutation et se lisent sans parcours ({@link #obtenirStatistiques()}).
+ * Les emprunts alimentent des classements de popularité (titres, auteurs) à
+ * décroissance exponentielle, en mémoire bornée.
  */
 public class BibliothequeService {
-    private final Map<String, Livre> catalogueISBN; // Recherche rapide par ISBN
-    private final Map<String, Set<Livre>> catalogueAuteur; // Index par auteur
-    private final Set<Livre> livresDisponibles; // Cache des disponibles
+    private static final int NOMBRE_VERROUS = 256;
+    private static final int CAPACITE_TITRES_POPULAIRES = 1024;
+    private static final int CAPACITE_AUTEURS_POPULAIRES = 256;
+    private static final Duration DEMI_VIE_POPULARITE = Duration.ofDays(7);
+
+    private final CatalogueIsbn catalogueISBN; // Recherche rapide par ISBN, sans hachage de chaîne
+    private final DictionnaireAuteurs dictionnaireAuteurs; // Noms d'auteurs partagés et identifiants canoniques
+    private final IndexAuteurs catalogueAuteur; // Livres triés par auteur canonique
+    private final NavigableSet<Livre> livresTries; // Vue triée de tout le catalogue
+    private final NavigableSet<Livre> livresDisponibles; // Vue triée des disponibles
+    private final NavigableSet<Livre> livresEmpruntes; // Vue triée des empruntés
+    private final LongAdder titresIndisponibles; // Livres en mémoire absents de la vue des disponibles
+    private final IndexTrigrammes indexTexte; // Recherche textuelle titre/auteur
+    private final ObservateurLivre observateurIndex; // Réindexation sur setTitre/setAuteur
+    private final ObservateurLivre observateurCopies; // Copies de la base rendues par la recherche textuelle
     private final Map<String, Utilisateur> utilisateurs; // Gestion des utilisateurs
+    private final Map<String, Utilisateur> utilisateursParEmail; // Index d'unicité (email normalisé)
+    private final ObservateurUtilisateur observateurEmails; // Réindexation sur setEmail
+    private final VerrousRayes verrousLivres; // Un verrou par groupe d'ISBN
+    private final ReentrantLock verrouInscriptions; // Inscriptions et changements d'email
+    private final AtomicLong version; // Incrémentée à chaque changement visible du catalogue
+    private final AtomicReference<InstantaneCatalogue> instantane; // Dernière version immuable, publiée par les écrivains
+    private final IndexEcheances echeances; // Emprunts en cours par date de retour prévue
+    private final Map<String, Deque<Utilisateur>> reservations; // Files d'attente (sous le verrou de l'ISBN)
+    private final Map<String, CompletableFuture<AvisRetour>> attentesRetour; // Une attente partagée par ISBN
+    private volatile Clock horloge; // Source de la date du jour (emprunts, retards)
+    private LocalDate retardsNotifiesAvant; // Échéances déjà notifiées (sous le moniteur de notifierRetards)
+    private volatile Journal journal; // Journal d'écriture anticipée (null si non persistant)
+    private volatile PuitsEvenements evenements; // Destination des événements (aucune par défaut)
+    private volatile CatalogueMappe base; // Catalogue projeté en lecture seule (null si absent)
+    private volatile MasqueBase masqueBase; // Livres de la base matérialisés ou supprimés
+    private final CompteursStatistiques statistiques; // Tenues à jour à chaque mutation
+    private final ClassementPopularite titresPopulaires; // Emprunts récents par ISBN
+    private final ClassementPopularite auteursPopulaires; // Emprunts récents par auteur normalisé
+    private final Metriques metriques; // Latences des opérations et jauges
+    private volatile boolean jaugesEnregistrees; // Au premier appel de getMetriques()
+    private final Operation mesureEmprunt;
+    private final Operation mesureRetour;
+    private final Operation mesureLot;
+    private final Operation mesureInscription;
+    private final Operation mesureRechercheTexte;
+    private final Operation mesureRechercheAuteur;
     private final String nomBibliotheque;
 
     /**
@@ -21,10 +105,38 @@ public class BibliothequeService {
      */
     public BibliothequeService(String nomBibliotheque) {
         this.nomBibliotheque = nomBibliotheque;
-        this.catalogueISBN = new HashMap<>();
-        this.catalogueAuteur = new HashMap<>();
-        this.livresDisponibles = new HashSet<>();
-        this.utilisateurs = new HashMap<>();
+        this.catalogueISBN = new CatalogueIsbn();
+        this.dictionnaireAuteurs = new DictionnaireAuteurs();
+        this.catalogueAuteur = new IndexAuteurs();
+        this.livresTries = new ConcurrentSkipListSet<>();
+        this.livresDisponibles = new ConcurrentSkipListSet<>();
+        this.livresEmpruntes = new ConcurrentSkipListSet<>();
+        this.titresIndisponibles = new LongAdder();
+        this.indexTexte = new IndexTrigrammes();
+        this.observateurIndex = new ObservateurIndex();
+        this.observateurCopies = new ObservateurCopies();
+        this.utilisateurs = new ConcurrentHashMap<>();
+        this.utilisateursParEmail = new ConcurrentHashMap<>();
+        this.observateurEmails = new ObservateurEmails();
+        this.verrousLivres = new VerrousRayes(NOMBRE_VERROUS);
+        this.verrouInscriptions = new ReentrantLock();
+        this.version = new AtomicLong();
+        this.instantane = new AtomicReference<>(InstantaneCatalogue.VIDE);
+        this.echeances = new IndexEcheances();
+        this.reservations = new ConcurrentHashMap<>();
+        this.attentesRetour = new ConcurrentHashMap<>();
+        this.horloge = Clock.systemDefaultZone();
+        this.evenements = PuitsEvenements.AUCUN;
+        this.statistiques = new CompteursStatistiques();
+        this.titresPopulaires = new ClassementPopularite(CAPACITE_TITRES_POPULAIRES, DEMI_VIE_POPULARITE);
+        this.auteursPopulaires = new ClassementPopularite(CAPACITE_AUTEURS_POPULAIRES, DEMI_VIE_POPULARITE);
+        this.metriques = new Metriques();
+        this.mesureEmprunt = metriques.operation("emprunter_livre");
+        this.mesureRetour = metriques.operation("retourner_livre");
+        this.mesureLot = metriques.operation("traiter_lot");
+        this.mesureInscription = metriques.operation("ajouter_utilisateur");
+        this.mesureRechercheTexte = metriques.operation("rechercher_texte");
+        this.mesureRechercheAuteur = metriques.operation("rechercher_auteur");
     }
 
     // === GESTION DU CATALOGUE ===
@@ -35,25 +147,79 @@ public class BibliothequeService {
      * @throws Exception si le livre existe déjà
      */
     public void ajouterLivre(Livre livre) throws Exception {
-        if (livre == null) {
-            throw new Exception("Le livre ne peut pas être null");
+        CodeResultat code = tenterAjouterLivre(livre);
+        if (!code.reussi()) {
+            throw new Exception(code.message(livre != null ? livre.getIsbn() : null, null));
+        }
+    }
+
+    /**
+     * Ajoute un livre au catalogue sans exception
+     * @param livre le livre à ajouter
+     * @return SUCCES, DONNEES_MANQUANTES (ISBN, titre ou auteur absent),
+     *         DONNEES_TROP_VOLUMINEUSES ou LIVRE_EXISTANT
+     */
+    public CodeResultat tenterAjouterLivre(Livre livre) {
+        if (livre == null || livre.getIsbn() == null || livre.getTitre() == null || livre.getAuteur() == null) {
+            return CodeResultat.DONNEES_MANQUANTES;
         }
-        
-        if (catalogueISBN.containsKey(livre.getIsbn())) {
-            throw new Exception("Un livre avec l'ISBN " + livre.getIsbn() + " existe déjà");
+        EnregistrementJournal enregistrement;
+        try {
+            enregistrement = preparer(EvenementJournal.LivreAjoute.de(livre));
+        } catch (IllegalArgumentException e) {
+            return CodeResultat.DONNEES_TROP_VOLUMINEUSES;
         }
 
-        // Ajout dans les différents index
-        catalogueISBN.put(livre.getIsbn(), livre);
-        
-        // Index par auteur
-        catalogueAuteur.computeIfAbsent(livre.getAuteur().toLowerCase(), k -> new HashSet<>()).add(livre);
-        
-        if (livre.estDisponible()) {
-            livresDisponibles.add(livre);
+        long sequence;
+        ReentrantLock verrou = verrousLivres.pour(livre.getIsbn());
+        verrou.lock();
+        try {
+            // putIfAbsent : la vérification d'unicité et l'insertion sont atomiques
+            if (!insererLivre(livre)) {
+                return CodeResultat.LIVRE_EXISTANT;
+            }
+            sequence = journaliser(enregistrement);
+        } finally {
+            verrou.unlock();
+        }
+        attendreJournal(sequence);
+        publier(TypeEvenement.LIVRE_AJOUTE, livre, null, 0);
+        return CodeResultat.SUCCES;
+    }
+
+    /**
+     * Ajoute un lot de livres en une passe, sans exception ni trace par livre
+     * (import en masse). Chaque livre est inséré dans tous les index sous le
+     * verrou de son ISBN ; la durabilité n'est attendue qu'une fois pour le lot.
+     * @param livres les livres à ajouter, dans l'ordre de priorité
+     * @return les livres refusés car leur ISBN est déjà présent ou qu'ils sont trop
+     *         volumineux pour le journal
+     */
+    public List<Livre> ajouterLivres(Collection<Livre> livres) {
+        List<Livre> refuses = new ArrayList<>();
+        long sequence = 0;
+        for (Livre livre : livres) {
+            EnregistrementJournal enregistrement;
+            try {
+                enregistrement = preparer(EvenementJournal.LivreAjoute.de(livre));
+            } catch (IllegalArgumentException e) {
+                refuses.add(livre);
+                continue;
+            }
+            ReentrantLock verrou = verrousLivres.pour(livre.getIsbn());
+            verrou.lock();
+            try {
+                if (insererLivre(livre)) {
+                    sequence = journaliser(enregistrement);
+                } else {
+                    refuses.add(livre);
+                }
+            } finally {
+                verrou.unlock();
+            }
         }
-        
-        System.out.println("Livre ajouté: " + livre.getTitre());
+        attendreJournal(sequence);
+        return refuses;
     }
 
     /**
@@ -63,56 +229,98 @@ public class BibliothequeService {
      * @throws IllegalStateException si le livre est emprunté
      */
     public boolean supprimerLivre(String isbn) {
-        Livre livre = catalogueISBN.remove(isbn);
-        if (livre == null) {
-            return false;
-        }
-
-        // Vérifier qu'il n'est pas emprunté
-        if (!livre.estDisponible()) {
-            catalogueISBN.put(isbn, livre); // Remettre
-            throw new IllegalStateException("Impossible de supprimer un livre emprunté");
-        }
+        Livre livre;
+        long sequence;
+        ReentrantLock verrou = verrousLivres.pour(isbn);
+        verrou.lock();
+        try {
+            livre = rechercherIsbnExact(isbn);
+            if (livre == null) {
+                return false;
+            }
 
-        // Supprimer des index
-        Set<Livre> livresAuteur = catalogueAuteur.get(livre.getAuteur().toLowerCase());
-        if (livresAuteur != null) {
-            livresAuteur.remove(livre);
-            if (livresAuteur.isEmpty()) {
-                catalogueAuteur.remove(livre.getAuteur().toLowerCase());
+            // Vérifier qu'aucun exemplaire n'est emprunté
+            if (livre.getNombreEmpruntes() > 0) {
+                throw new IllegalStateException("Impossible de supprimer un livre emprunté");
             }
+
+            retirerLivre(livre);
+            sequence = journaliser(new EvenementJournal.LivreSupprime(isbn));
+        } finally {
+            verrou.unlock();
         }
+        attendreJournal(sequence);
 
-        livresDisponibles.remove(livre);
-        System.out.println("Livre supprimé: " + livre.getTitre());
+        CompletableFuture<AvisRetour> attente = attentesRetour.remove(isbn);
+        if (attente != null) {
+            attente.completeExceptionally(new IllegalStateException("Livre avec ISBN " + isbn + " supprimé"));
+        }
+        publier(TypeEvenement.LIVRE_SUPPRIME, livre, null, 0);
         return true;
     }
 
     // === RECHERCHES ===
 
     /**
-     * Recherche un livre par ISBN
+     * Recherche un livre par ISBN. Un ISBN-10 ou un ISBN avec tirets qui ne
+     * correspond à aucun livre est recherché aussi sous sa forme ISBN-13.
      * @param isbn l'ISBN à rechercher
      * @return le livre ou null
      */
     public Livre rechercherParIsbn(String isbn) {
-        return catalogueISBN.get(isbn);
+        Livre livre = rechercherIsbnExact(isbn);
+        if (livre != null) {
+            return livre;
+        }
+        String canonique = Isbn.normaliser(isbn);
+        return canonique == null || canonique.equals(isbn) ? null : rechercherIsbnExact(canonique);
+    }
+
+    /**
+     * Recherche exacte, utilisée par les mutations : l'ISBN demandé est aussi celui
+     * dont le verrou est pris
+     */
+    private Livre rechercherIsbnExact(String isbn) {
+        Livre livre = catalogueISBN.get(isbn);
+        CatalogueMappe catalogue = base;
+        if (livre != null || catalogue == null) {
+            return livre;
+        }
+        int indice = catalogue.indice(isbn);
+        return indice < 0 ? null : materialiser(indice, null);
     }
 
     /**
-     * Recherche des livres par auteur
+     * Recherche des livres par auteur (insensible à la casse et aux accents)
      * @param auteur le nom de l'auteur
-     * @return la liste des livres de cet auteur
+     * @return la liste triée des livres de cet auteur (non modifiable)
      */
     public List<Livre> rechercherParAuteur(String auteur) {
-        Set<Livre> livres = catalogueAuteur.get(auteur.toLowerCase());
-        return livres != null ? 
-            livres.stream().sorted().collect(Collectors.toList()) : 
-            new ArrayList<>();
+        long debut = System.nanoTime();
+        try {
+            return rechercherAuteur(auteur);
+        } finally {
+            mesureRechercheAuteur.enregistrer(debut);
+        }
+    }
+
+    private List<Livre> rechercherAuteur(String auteur) {
+        // Tableau déjà trié et jamais modifié après publication : rendu sans copie
+        Livre[] livres = catalogueAuteur.livres(dictionnaireAuteurs.chercherCanonique(auteur));
+        CatalogueMappe catalogue = base;
+        if (catalogue == null) {
+            return Collections.unmodifiableList(Arrays.asList(livres));
+        }
+        NavigableSet<Livre> resultats = new TreeSet<>(Arrays.asList(livres));
+        catalogue.parAuteur(Normalisation.plier(auteur), indice -> ajouterDeLaBase(resultats, indice));
+        return new ArrayList<>(resultats);
     }
 
     /**
-     * Recherche textuelle dans les titres et auteurs
+     * Recherche textuelle dans les titres et auteurs (via l'index de trigrammes),
+     * insensible à la casse et aux accents. Les livres de la base encore non
+     * matérialisés sont rendus comme copies lues dans la projection, sans être
+     * indexés ; une copie modifiée devient le livre qui fait foi.
      * @param texte le texte à rechercher
      * @return la liste des livres correspondants
      */
@@ -120,24 +328,64 @@ public class BibliothequeService {
         if (texte == null || texte.trim().isEmpty()) {
             return new ArrayList<>();
         }
+        long debut = System.nanoTime();
+        try {
+            return rechercherTexteIndexe(texte);
+        } finally {
+            mesureRechercheTexte.enregistrer(debut);
+        }
+    }
 
-        String texteMinuscule = texte.toLowerCase();
-        return catalogueISBN.values().stream()
-            .filter(livre -> 
-                livre.getTitre().toLowerCase().contains(texteMinuscule) ||
-                livre.getAuteur().toLowerCase().contains(texteMinuscule))
-            .sorted()
-            .collect(Collectors.toList());
+    private List<Livre> rechercherTexteIndexe(String texte) {
+        // Une seule version : un livre matérialisé entre-temps y figure une seule fois,
+        // en mémoire ou comme enregistrement de la base, et les clés de tri sont figées
+        InstantaneCatalogue courant = instantane.get();
+        List<InstantaneCatalogue.Entree> entrees = new ArrayList<>();
+        for (Livre livre : indexTexte.rechercher(texte)) {
+            InstantaneCatalogue.Entree entree = courant.entree(livre);
+            if (entree != null) {
+                entrees.add(entree);
+            }
+        }
+        courant.rechercherDansBase(Normalisation.plier(texte), entrees::add);
+        entrees.sort(InstantaneCatalogue.Entree.ORDRE);
+        List<Livre> resultats = new ArrayList<>(entrees.size());
+        for (InstantaneCatalogue.Entree entree : entrees) {
+            resultats.add(entree.livre());
+        }
+        return resultats;
     }
 
     /**
-     * Obtient tous les livres du catalogue
-     * @return la liste de tous les livres triée
+     * Obtient tous les livres du catalogue, tels qu'à un instant donné
+     * @return la liste triée et non modifiable de tous les livres (sans copie)
      */
     public List<Livre> obtenirTousLesLivres() {
-        return catalogueISBN.values().stream()
-            .sorted()
-            .collect(Collectors.toList());
+        return obtenirInstantane().livres();
+    }
+
+    /**
+     * Obtient la dernière version immuable du catalogue, par une simple lecture :
+     * chaque ajout, suppression, renommage ou matérialisation publie la suivante
+     * sous le verrou de l'ISBN concerné.
+     * @return l'instantané du catalogue
+     */
+    public InstantaneCatalogue obtenirInstantane() {
+        return instantane.get();
+    }
+
+    /**
+     * Publie la version suivante du catalogue (sous le verrou de l'ISBN concerné).
+     * Les écrivains d'ISBN différents publient en concurrence : le changement est
+     * réappliqué à la version la plus récente jusqu'à ce que la publication aboutisse.
+     */
+    private void publierInstantane(UnaryOperator<InstantaneCatalogue> changement) {
+        while (true) {
+            InstantaneCatalogue courant = instantane.get();
+            if (instantane.compareAndSet(courant, changement.apply(courant))) {
+                return;
+            }
+        }
     }
 
     /**
@@ -145,10 +393,9 @@ public class BibliothequeService {
      * @return la liste des livres disponibles
      */
     public List<Livre> obtenirLivresDisponibles() {
-        return catalogueISBN.values().stream()
-            .filter(Livre::estDisponible)
-            .sorted()
-            .collect(Collectors.toList());
+        List<Livre> livres = new ArrayList<>();
+        instantane.get().parcourir(VueCatalogue.DISPONIBLES, null).forEachRemaining(livres::add);
+        return livres;
     }
 
     /**
@@ -156,10 +403,62 @@ public class BibliothequeService {
      * @return la liste des livres empruntés
      */
     public List<Livre> obtenirLivresEmpruntes() {
-        return catalogueISBN.values().stream()
-            .filter(livre -> !livre.estDisponible())
-            .sorted()
-            .collect(Collectors.toList());
+        return new ArrayList<>(livresEmpruntes);
+    }
+
+    /**
+     * Obtient les livres dont un exemplaire est en retard, du plus ancien retour
+     * prévu au plus récent (coût proportionnel au nombre de retards)
+     * @return la liste des livres en retard
+     */
+    public List<Livre> obtenirLivresEnRetard() {
+        Set<Livre> retards = new LinkedHashSet<>();
+        for (IndexEcheances.Echeance echeance : echeances.depassees(aujourdhui())) {
+            Livre livre = catalogueISBN.get(echeance.isbn());
+            if (livre != null) {
+                retards.add(livre);
+            }
+        }
+        return new ArrayList<>(retards);
+    }
+
+    /**
+     * Parcourt une vue triée à partir d'une position, sans copier la vue : la
+     * dernière version publiée pour tous les livres et les disponibles, la vue
+     * en mémoire (faiblement cohérente) pour les empruntés
+     * @param vue la vue à parcourir
+     * @param apres le curseur après lequel commencer, ou null pour le début
+     * @return un itérateur sur la vue
+     */
+    public Iterator<Livre> parcourirLivres(VueCatalogue vue, Curseur apres) {
+        // Les livres de la base non matérialisés ne sont jamais empruntés
+        if (vue == VueCatalogue.EMPRUNTES) {
+            return apres == null ? livresEmpruntes.iterator() : livresEmpruntes.tailSet(apres.borne(), false).iterator();
+        }
+        return instantane.get().parcourir(vue, apres);
+    }
+
+    /**
+     * Obtient une page d'une vue triée
+     * @param vue la vue à parcourir
+     * @param apres le curseur de la page, ou null pour la première page
+     * @param limite le nombre maximal de livres de la page
+     * @return la page et le curseur de la page suivante
+     */
+    public PageLivres obtenirPage(VueCatalogue vue, Curseur apres, int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("La limite doit être positive");
+        }
+        if (vue != VueCatalogue.EMPRUNTES) {
+            return instantane.get().page(vue, apres, limite);
+        }
+        Iterator<Livre> iterateur = parcourirLivres(vue, apres);
+        List<Livre> livres = new ArrayList<>(Math.min(limite, 256));
+        while (livres.size() < limite && iterateur.hasNext()) {
+            livres.add(iterateur.next());
+        }
+        Curseur suivant = iterateur.hasNext() ? Curseur.apres(livres.get(livres.size() - 1)) : null;
+        return new PageLivres(livres, suivant);
     }
 
     // === GESTION DES UTILISATEURS ===
@@ -167,27 +466,130 @@ public class BibliothequeService {
     /**
      * Ajoute un utilisateur
      * @param utilisateur l'utilisateur à ajouter
-     * @throws Exception si l'utilisateur existe déjà
+     * @throws Exception si l'ID ou l'email (à la casse près) est déjà utilisé
      */
     public void ajouterUtilisateur(Utilisateur utilisateur) throws Exception {
+        CodeResultat code = tenterAjouterUtilisateur(utilisateur);
+        if (!code.reussi()) {
+            throw new Exception(code.message(null, utilisateur != null ? utilisateur.getId() : null));
+        }
+    }
+
+    /**
+     * Inscrit un utilisateur sans exception
+     * @param utilisateur l'utilisateur à inscrire
+     * @return SUCCES, DONNEES_MANQUANTES, DONNEES_TROP_VOLUMINEUSES, UTILISATEUR_EXISTANT
+     *         ou EMAIL_EXISTANT
+     */
+    public CodeResultat tenterAjouterUtilisateur(Utilisateur utilisateur) {
+        long debut = System.nanoTime();
+        CodeResultat code = effectuerInscription(utilisateur);
+        mesureInscription.enregistrer(debut, code.reussi());
+        return code;
+    }
+
+    private CodeResultat effectuerInscription(Utilisateur utilisateur) {
         if (utilisateur == null) {
-            throw new Exception("L'utilisateur ne peut pas être null");
+            return CodeResultat.DONNEES_MANQUANTES;
+        }
+        EnregistrementJournal enregistrement;
+        try {
+            enregistrement = preparer(new EvenementJournal.UtilisateurAjoute(utilisateur));
+        } catch (IllegalArgumentException e) {
+            return CodeResultat.DONNEES_TROP_VOLUMINEUSES;
         }
 
-        if (utilisateurs.containsKey(utilisateur.getId())) {
-            throw new Exception("Utilisateur avec l'ID " + utilisateur.getId() + " existe déjà");
+        long sequence;
+        verrouInscriptions.lock();
+        try {
+            if (utilisateurs.containsKey(utilisateur.getId())) {
+                return CodeResultat.UTILISATEUR_EXISTANT;
+            }
+            if (emailPris(utilisateur.getEmailNormalise())) {
+                return CodeResultat.EMAIL_EXISTANT;
+            }
+            sequence = inscrire(utilisateur, enregistrement);
+        } finally {
+            verrouInscriptions.unlock();
         }
+        attendreJournal(sequence);
+        publier(TypeEvenement.UTILISATEUR_AJOUTE, null, utilisateur, 0);
+        return CodeResultat.SUCCES;
+    }
 
-        // Vérifier unicité email
-        boolean emailExiste = utilisateurs.values().stream()
-            .anyMatch(u -> u.getEmail().equalsIgnoreCase(utilisateur.getEmail()));
-        
-        if (emailExiste) {
-            throw new Exception("Un utilisateur avec l'email " + utilisateur.getEmail() + " existe déjà");
+    /**
+     * Inscrit un lot d'utilisateurs en une passe sous le verrou des inscriptions :
+     * chaque utilisateur est validé contre les index (et contre le lot) en O(1)
+     * @param lot les utilisateurs à inscrire
+     * @return les utilisateurs refusés (null, trop volumineux pour le journal,
+     *         ID ou email déjà utilisé)
+     */
+    public List<Utilisateur> ajouterUtilisateurs(Collection<Utilisateur> lot) {
+        List<Utilisateur> refuses = new ArrayList<>();
+        long sequence = 0;
+        verrouInscriptions.lock();
+        try {
+            for (Utilisateur utilisateur : lot) {
+                if (utilisateur == null || utilisateurs.containsKey(utilisateur.getId())
+                        || emailPris(utilisateur.getEmailNormalise())) {
+                    refuses.add(utilisateur);
+                    continue;
+                }
+                EnregistrementJournal enregistrement;
+                try {
+                    enregistrement = preparer(new EvenementJournal.UtilisateurAjoute(utilisateur));
+                } catch (IllegalArgumentException e) {
+                    refuses.add(utilisateur);
+                    continue;
+                }
+                sequence = inscrire(utilisateur, enregistrement);
+            }
+        } finally {
+            verrouInscriptions.unlock();
         }
+        attendreJournal(sequence);
+        return refuses;
+    }
 
-        utilisateurs.put(utilisateur.getId(), utilisateur);
-        System.out.println("Utilisateur ajouté: " + utilisateur.getNom() + " (" + utilisateur.getTypeUtilisateur() + ")");
+    /**
+     * Désinscrit un utilisateur
+     * @param id l'ID de l'utilisateur
+     * @return true si supprimé, false si introuvable
+     * @throws IllegalStateException si l'utilisateur a des emprunts en cours
+     */
+    public boolean supprimerUtilisateur(String id) {
+        Utilisateur utilisateur;
+        long sequence;
+        verrouInscriptions.lock();
+        try {
+            // Retiré d'abord : un emprunt concurrent constate le retrait et s'annule
+            utilisateur = utilisateurs.remove(id);
+            if (utilisateur == null) {
+                return false;
+            }
+            if (utilisateur.getEmpruntsActuels() > 0) {
+                utilisateurs.put(id, utilisateur);
+                throw new IllegalStateException("Impossible de supprimer un utilisateur ayant des emprunts en cours");
+            }
+            desindexerEmail(utilisateur, utilisateur.getEmailNormalise());
+            utilisateur.setObservateur(null);
+            statistiques.inscription(utilisateur, -1);
+            sequence = journaliser(new EvenementJournal.UtilisateurSupprime(id));
+        } finally {
+            verrouInscriptions.unlock();
+        }
+        attendreJournal(sequence);
+        return true;
+    }
+
+    /**
+     * Recherche un utilisateur par email (insensible à la casse)
+     * @param email l'email
+     * @return l'utilisateur ou null
+     */
+    public Utilisateur rechercherUtilisateurParEmail(String email) {
+        String cle = Utilisateur.normaliserEmail(email);
+        return cle == null ? null : utilisateursParEmail.get(cle);
     }
 
     /**
@@ -200,13 +602,14 @@ public class BibliothequeService {
     }
 
     /**
-     * Recherche des utilisateurs par nom
+     * Recherche des utilisateurs par nom (insensible à la casse et aux accents)
      * @param nom le nom à rechercher
      * @return la liste des utilisateurs correspondants
      */
     public List<Utilisateur> rechercherUtilisateurParNom(String nom) {
+        String cle = Normalisation.plier(nom);
         return utilisateurs.values().stream()
-            .filter(u -> u.getNom().toLowerCase().contains(nom.toLowerCase()))
+            .filter(u -> u.getNomNormalise().contains(cle))
             .sorted(Comparator.comparing(Utilisateur::getNom))
             .collect(Collectors.toList());
     }
@@ -222,87 +625,1533 @@ public class BibliothequeService {
     // === GESTION DES EMPRUNTS ===
 
     /**
-     * Emprunte un livre
+     * Emprunte un exemplaire libre d'un livre
      * @param isbn l'ISBN du livre
      * @param idUtilisateur l'ID de l'utilisateur
+     * @return le numéro de l'exemplaire prêté
      * @throws Exception si l'emprunt est impossible
      */
-    public void emprunterLivre(String isbn, String idUtilisateur) throws Exception {
-        Livre livre = rechercherParIsbn(isbn);
+    public int emprunterLivre(String isbn, String idUtilisateur) throws Exception {
+        ResultatEmprunt resultat = tenterEmprunterLivre(isbn, idUtilisateur);
+        if (!resultat.reussi()) {
+            throw new Exception(resultat.code().message(isbn, idUtilisateur));
+        }
+        return resultat.exemplaire();
+    }
+
+    /**
+     * Emprunte un exemplaire libre sans exception : les échecs courants
+     * (épuisé, quota...) renvoient un résultat préalloué
+     * @param isbn l'ISBN du livre
+     * @param idUtilisateur l'ID de l'utilisateur
+     * @return l'exemplaire prêté, ou le code de l'échec
+     */
+    public ResultatEmprunt tenterEmprunterLivre(String isbn, String idUtilisateur) {
+        long debut = System.nanoTime();
+        ResultatEmprunt resultat = effectuerEmprunt(isbn, idUtilisateur);
+        mesureEmprunt.enregistrer(debut, resultat.reussi());
+        return resultat;
+    }
+
+    private ResultatEmprunt effectuerEmprunt(String isbn, String idUtilisateur) {
+        Livre livre = isbn != null ? rechercherIsbnExact(isbn) : null;
         if (livre == null) {
-            throw new Exception("Livre avec ISBN " + isbn + " introuvable");
+            return ResultatEmprunt.echec(CodeResultat.LIVRE_INTROUVABLE);
         }
 
-        Utilisateur utilisateur = rechercherUtilisateur(idUtilisateur);
+        Utilisateur utilisateur = idUtilisateur != null ? rechercherUtilisateur(idUtilisateur) : null;
         if (utilisateur == null) {
-            throw new Exception("Utilisateur avec ID " + idUtilisateur + " introuvable");
+            return ResultatEmprunt.echec(CodeResultat.UTILISATEUR_INTROUVABLE);
+        }
+
+        int exemplaire;
+        long sequence;
+        ReentrantLock verrou = verrousLivres.pour(isbn);
+        verrou.lock();
+        try {
+            // Le livre a pu être supprimé entre la recherche et la prise du verrou
+            if (catalogueISBN.get(isbn) != livre) {
+                return ResultatEmprunt.echec(CodeResultat.LIVRE_INTROUVABLE);
+            }
+            exemplaire = livre.tenterEmprunter(utilisateur, aujourdhui());
+            if (exemplaire < 0) {
+                return ResultatEmprunt.echec(codeEmprunt(exemplaire));
+            }
+            // L'utilisateur a pu être désinscrit pendant la réservation du quota
+            if (utilisateurs.get(idUtilisateur) != utilisateur) {
+                livre.retourner(exemplaire);
+                return ResultatEmprunt.echec(CodeResultat.UTILISATEUR_INTROUVABLE);
+            }
+            sequence = enregistrerEmprunt(livre, exemplaire, utilisateur);
+        } finally {
+            verrou.unlock();
         }
+        attendreJournal(sequence);
+        noterEmprunt(livre);
+        publier(TypeEvenement.EMPRUNT, livre, utilisateur, 0);
+        return ResultatEmprunt.succes(exemplaire);
+    }
 
-        livre.emprunter(utilisateur);
-        livresDisponibles.remove(livre);
-        System.out.println("Emprunt effectué: " + livre.getTitre() + " par " + utilisateur.getNom());
+    /**
+     * Traduit un échec de Livre.tenterEmprunter
+     */
+    private static CodeResultat codeEmprunt(int echec) {
+        return switch (echec) {
+            case Livre.DEJA_DETENU -> CodeResultat.DEJA_EMPRUNTE;
+            case Livre.QUOTA_ATTEINT -> CodeResultat.QUOTA_DEPASSE;
+            default -> CodeResultat.LIVRE_INDISPONIBLE;
+        };
     }
 
     /**
-     * Retourne un livre
+     * Retourne un livre dont un seul exemplaire est emprunté
      * @param isbn l'ISBN du livre à retourner
-     * @throws Exception si le retour est impossible
+     * @throws Exception si le retour est impossible ou si plusieurs exemplaires sont empruntés
      */
     public void retournerLivre(String isbn) throws Exception {
-        Livre livre = rechercherParIsbn(isbn);
+        retourner(isbn, -1);
+    }
+
+    /**
+     * Retourne sans exception un livre dont un seul exemplaire est emprunté
+     * @param isbn l'ISBN du livre à retourner
+     * @return SUCCES, LIVRE_INTROUVABLE, NON_EMPRUNTE ou EXEMPLAIRE_AMBIGU
+     */
+    public CodeResultat tenterRetournerLivre(String isbn) {
+        return tenterRetourner(isbn, -1);
+    }
+
+    /**
+     * Retourne un exemplaire donné d'un livre
+     * @param isbn l'ISBN du livre
+     * @param exemplaire le numéro de l'exemplaire
+     * @throws Exception si l'exemplaire n'est pas emprunté
+     */
+    public void retournerExemplaire(String isbn, int exemplaire) throws Exception {
+        retourner(isbn, exemplaire);
+    }
+
+    /**
+     * Retourne sans exception un exemplaire donné d'un livre
+     * @param isbn l'ISBN du livre
+     * @param exemplaire le numéro de l'exemplaire
+     * @return SUCCES, LIVRE_INTROUVABLE ou NON_EMPRUNTE
+     */
+    public CodeResultat tenterRetournerExemplaire(String isbn, int exemplaire) {
+        return exemplaire < 0 ? CodeResultat.NON_EMPRUNTE : tenterRetourner(isbn, exemplaire);
+    }
+
+    /**
+     * Retourne un exemplaire (-1 : l'unique exemplaire emprunté)
+     */
+    private void retourner(String isbn, int exemplaire) throws Exception {
+        CodeResultat code = tenterRetourner(isbn, exemplaire);
+        if (!code.reussi()) {
+            throw new Exception(code.message(isbn, null));
+        }
+    }
+
+    private CodeResultat tenterRetourner(String isbn, int exemplaire) {
+        long debut = System.nanoTime();
+        CodeResultat code = effectuerRetour(isbn, exemplaire);
+        mesureRetour.enregistrer(debut, code.reussi());
+        return code;
+    }
+
+    private CodeResultat effectuerRetour(String isbn, int exemplaire) {
+        Livre livre = isbn != null ? rechercherIsbnExact(isbn) : null;
         if (livre == null) {
-            throw new Exception("Livre avec ISBN " + isbn + " introuvable");
+            return CodeResultat.LIVRE_INTROUVABLE;
         }
 
-        if (livre.estDisponible()) {
-            throw new Exception("Le livre n'est pas emprunté");
+        Utilisateur emprunteur;
+        long joursRetard;
+        AvisRetour avis;
+        long sequence;
+        ReentrantLock verrou = verrousLivres.pour(isbn);
+        verrou.lock();
+        try {
+            if (exemplaire < 0) {
+                if (livre.getNombreEmpruntes() == 0) {
+                    return CodeResultat.NON_EMPRUNTE;
+                }
+                if (livre.getNombreEmpruntes() > 1) {
+                    return CodeResultat.EXEMPLAIRE_AMBIGU;
+                }
+                exemplaire = livre.exemplaireDe(livre.getEmprunteur());
+            }
+            if (exemplaire >= livre.getNombreExemplaires() || livre.getEmprunteur(exemplaire) == null) {
+                return CodeResultat.NON_EMPRUNTE;
+            }
+
+            // Le retard se mesure avant le retour, qui efface la date d'emprunt
+            emprunteur = livre.getEmprunteur(exemplaire);
+            joursRetard = livre.joursRetard(exemplaire, aujourdhui());
+            livre.retourner(exemplaire);
+            echeances.retirer(isbn, exemplaire);
+            statistiques.retour(emprunteur, joursRetard);
+            actualiserVues(livre);
+            version.incrementAndGet();
+            sequence = journaliser(new EvenementJournal.Retour(isbn, exemplaire));
+
+            // L'exemplaire rendu passe au premier réservataire éligible, sous le même verrou
+            Utilisateur attributaire = attribuerReservation(livre);
+            if (attributaire != null) {
+                sequence = enregistrerEmprunt(livre, livre.exemplaireDe(attributaire), attributaire);
+            }
+            avis = new AvisRetour(livre, attributaire);
+        } finally {
+            verrou.unlock();
+        }
+        attendreJournal(sequence);
+        publier(TypeEvenement.RETOUR, livre, emprunteur, joursRetard);
+        if (avis.attributaire() != null) {
+            noterEmprunt(livre);
+            publier(TypeEvenement.EMPRUNT, livre, avis.attributaire(), 0);
         }
+        reveillerAttentes(avis);
+        return CodeResultat.SUCCES;
+    }
+
+    /**
+     * Met à jour les index et le journal après le prêt d'un exemplaire
+     * (sous le verrou de l'ISBN)
+     * @return la séquence à attendre
+     */
+    private long enregistrerEmprunt(Livre livre, int exemplaire, Utilisateur utilisateur) {
+        echeances.ajouter(livre.getIsbn(), exemplaire, livre.getDateRetourPrevue(exemplaire));
+        statistiques.emprunt(livre, utilisateur);
+        actualiserVues(livre);
+        version.incrementAndGet();
+        return journaliser(new EvenementJournal.Emprunt(livre.getIsbn(), utilisateur.getId(),
+            livre.getDateEmprunt(exemplaire), exemplaire));
+    }
+
+    // === LOTS DE CIRCULATION ===
 
-        String nomEmprunteur = livre.getEmprunteur().getNom();
-        livre.retourner();
-        livresDisponibles.add(livre);
-        
-        System.out.println("Retour effectué: " + livre.getTitre() + " (était emprunté par " + nomEmprunteur + ")");
-        
-        if (livre.estEnRetard()) {
-            System.out.println("ATTENTION: Retour en retard de " + livre.joursRetard() + " jours");
+    /**
+     * Applique un lot d'emprunts et de retours en tout ou rien (automates de prêt).
+     * Les retours passent avant les emprunts et leur libèrent exemplaires et quota.
+     * Chaque verrou d'ISBN concerné n'est pris qu'une fois pour tout le lot, et
+     * la durabilité du journal n'est attendue qu'une fois.
+     * @param operations les opérations du lot
+     * @return un résultat par opération, dans le même ordre ; en cas d'échec,
+     *         aucune opération n'est appliquée et les opérations valides portent
+     *         l'erreur {@link ResultatCirculation#LOT_ANNULE}
+     */
+    public List<ResultatCirculation> traiterLot(List<OperationCirculation> operations) {
+        long debut = System.nanoTime();
+        boolean reussi = false;
+        try {
+            List<ResultatCirculation> resultats = effectuerLot(operations);
+            reussi = resultats.isEmpty() || resultats.get(0).reussi();
+            return resultats;
+        } finally {
+            mesureLot.enregistrer(debut, reussi);
         }
     }
 
-    // === STATISTIQUES ===
+    private List<ResultatCirculation> effectuerLot(List<OperationCirculation> operations) {
+        int nombre = operations.size();
+        Livre[] livres = new Livre[nombre];
+        Utilisateur[] lecteurs = new Utilisateur[nombre];
+        int[] indices = new int[nombre];
+
+        // Résolution et quotas sans verrou : un lot voué à l'échec n'en prend aucun
+        Map<Utilisateur, Integer> empruntsParLecteur = new HashMap<>();
+        for (int i = 0; i < nombre; i++) {
+            OperationCirculation operation = operations.get(i);
+            livres[i] = rechercherIsbnExact(operation.isbn());
+            if (livres[i] == null) {
+                return echecLot(operations, i, "Livre avec ISBN " + operation.isbn() + " introuvable");
+            }
+            if (operation.idUtilisateur() != null) {
+                lecteurs[i] = rechercherUtilisateur(operation.idUtilisateur());
+                if (lecteurs[i] == null) {
+                    return echecLot(operations, i, "Utilisateur avec ID " + operation.idUtilisateur() + " introuvable");
+                }
+            }
+            if (operation.nature() == OperationCirculation.Nature.EMPRUNT
+                    && empruntsParLecteur.merge(lecteurs[i], 1, Integer::sum) > lecteurs[i].getMaxEmprunts()) {
+                return echecLot(operations, i, "Quota d'emprunts dépassé pour " + lecteurs[i].getNom());
+            }
+            indices[i] = verrousLivres.indice(operation.isbn());
+        }
+
+        // Verrous pris par indice croissant : deux lots concurrents ne peuvent s'interbloquer
+        indices = Arrays.stream(indices).sorted().distinct().toArray();
+        int[] exemplaires = new int[nombre];
+        Utilisateur[] emprunteurs = new Utilisateur[nombre];
+        long[] joursRetard = new long[nombre];
+        List<AvisRetour> avis = new ArrayList<>();
+        long sequence = 0;
+        for (int indice : indices) {
+            verrousLivres.verrou(indice).lock();
+        }
+        try {
+            List<ResultatCirculation> echec = validerLot(operations, livres, lecteurs, exemplaires);
+            if (echec != null) {
+                return echec;
+            }
+            echec = appliquerLot(operations, livres, lecteurs, exemplaires, emprunteurs, joursRetard);
+            if (echec != null) {
+                return echec;
+            }
+
+            // Lot appliqué : index, statistiques et journal, retours en tête comme à l'application
+            Set<Livre> rendus = new LinkedHashSet<>();
+            for (int i = 0; i < nombre; i++) {
+                if (operations.get(i).nature() == OperationCirculation.Nature.RETOUR) {
+                    echeances.retirer(livres[i].getIsbn(), exemplaires[i]);
+                    statistiques.retour(emprunteurs[i], joursRetard[i]);
+                    actualiserVues(livres[i]);
+                    version.incrementAndGet();
+                    sequence = journaliser(new EvenementJournal.Retour(livres[i].getIsbn(), exemplaires[i]));
+                    rendus.add(livres[i]);
+                }
+            }
+            for (int i = 0; i < nombre; i++) {
+                if (operations.get(i).nature() == OperationCirculation.Nature.EMPRUNT) {
+                    sequence = enregistrerEmprunt(livres[i], exemplaires[i], lecteurs[i]);
+                }
+            }
+            // Les exemplaires restés libres passent aux réservataires, sous les mêmes verrous
+            for (Livre livre : rendus) {
+                Utilisateur attributaire = attribuerReservation(livre);
+                if (attributaire != null) {
+                    sequence = enregistrerEmprunt(livre, livre.exemplaireDe(attributaire), attributaire);
+                }
+                avis.add(new AvisRetour(livre, attributaire));
+            }
+        } finally {
+            for (int k = indices.length - 1; k >= 0; k--) {
+                verrousLivres.verrou(indices[k]).unlock();
+            }
+        }
+        attendreJournal(sequence);
+
+        List<ResultatCirculation> resultats = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            OperationCirculation operation = operations.get(i);
+            if (operation.nature() == OperationCirculation.Nature.RETOUR) {
+                publier(TypeEvenement.RETOUR, livres[i], emprunteurs[i], joursRetard[i]);
+            } else {
+                noterEmprunt(livres[i]);
+                publier(TypeEvenement.EMPRUNT, livres[i], lecteurs[i], 0);
+            }
+            resultats.add(new ResultatCirculation(operation, exemplaires[i], null));
+        }
+        for (AvisRetour retour : avis) {
+            if (retour.attributaire() != null) {
+                noterEmprunt(retour.livre());
+                publier(TypeEvenement.EMPRUNT, retour.livre(), retour.attributaire(), 0);
+            }
+            reveillerAttentes(retour);
+        }
+        return resultats;
+    }
 
     /**
-     * Affiche les statistiques de la bibliothèque
+     * Vérifie tout le lot contre l'état courant sans rien modifier (sous les verrous
+     * du lot) : exemplaires libres, titres déjà détenus et quotas, en tenant compte
+     * des opérations qui précèdent dans le lot
+     * @param exemplaires reçoit l'exemplaire de chaque retour
+     * @return null si le lot est applicable, sinon les résultats d'échec
      */
-    public void afficherStatistiques() {
-        System.out.println("\n=== STATISTIQUES " + nomBibliotheque.toUpperCase() + " ===");
-        System.out.println("Total livres: " + catalogueISBN.size());
-        System.out.println("Livres disponibles: " + livresDisponibles.size());
-        System.out.println("Livres empruntés: " + (catalogueISBN.size() - livresDisponibles.size()));
-        System.out.println("Total utilisateurs: " + utilisateurs.size());
-        
-        // Statistiques par type d'utilisateur
-        Map<String, Long> parType = utilisateurs.values().stream()
-            .collect(Collectors.groupingBy(
-                Utilisateur::getTypeUtilisateur,
-                Collectors.counting()
-            ));
-        
-        System.out.println("Utilisateurs par type:");
-        parType.forEach((type, count) -> System.out.println("  " + type + ": " + count));
-        System.out.println();
+    private List<ResultatCirculation> validerLot(List<OperationCirculation> operations, Livre[] livres,
+                                                 Utilisateur[] lecteurs, int[] exemplaires) {
+        for (int i = 0; i < livres.length; i++) {
+            // Le livre a pu être supprimé entre la recherche et la prise des verrous
+            if (catalogueISBN.get(livres[i].getIsbn()) != livres[i]) {
+                return echecLot(operations, i, "Livre avec ISBN " + livres[i].getIsbn() + " introuvable");
+            }
+        }
+
+        Map<Livre, Integer> libresEnPlus = new HashMap<>();
+        Map<Utilisateur, Integer> empruntsEnPlus = new HashMap<>();
+        Set<Map.Entry<Livre, Utilisateur>> rendus = new HashSet<>();
+        for (int i = 0; i < livres.length; i++) {
+            if (operations.get(i).nature() != OperationCirculation.Nature.RETOUR) {
+                continue;
+            }
+            Livre livre = livres[i];
+            int exemplaire;
+            if (lecteurs[i] != null) {
+                exemplaire = livre.exemplaireDe(lecteurs[i]);
+                if (exemplaire < 0) {
+                    return echecLot(operations, i, lecteurs[i].getNom() + " n'a pas emprunté ce livre");
+                }
+            } else if (livre.getNombreEmpruntes() != 1) {
+                return echecLot(operations, i, livre.getNombreEmpruntes() == 0
+                    ? "Le livre n'est pas emprunté"
+                    : "Plusieurs exemplaires empruntés : préciser l'utilisateur");
+            } else {
+                exemplaire = livre.exemplaireDe(livre.getEmprunteur());
+            }
+            Utilisateur emprunteur = livre.getEmprunteur(exemplaire);
+            if (!rendus.add(Map.entry(livre, emprunteur))) {
+                return echecLot(operations, i, "L'exemplaire " + exemplaire + " est déjà rendu dans ce lot");
+            }
+            exemplaires[i] = exemplaire;
+            libresEnPlus.merge(livre, 1, Integer::sum);
+            empruntsEnPlus.merge(emprunteur, -1, Integer::sum);
+        }
+
+        Set<Map.Entry<Livre, Utilisateur>> empruntes = new HashSet<>();
+        for (int i = 0; i < livres.length; i++) {
+            if (operations.get(i).nature() != OperationCirculation.Nature.EMPRUNT) {
+                continue;
+            }
+            Livre livre = livres[i];
+            Utilisateur lecteur = lecteurs[i];
+            if (livre.getNombreDisponibles() + libresEnPlus.merge(livre, -1, Integer::sum) < 0) {
+                return echecLot(operations, i, livre.getNombreExemplaires() == 1
+                    ? "Livre déjà emprunté" : "Aucun exemplaire disponible");
+            }
+            Map.Entry<Livre, Utilisateur> cle = Map.entry(livre, lecteur);
+            if ((livre.exemplaireDe(lecteur) >= 0 && !rendus.contains(cle)) || !empruntes.add(cle)) {
+                return echecLot(operations, i, lecteur.getNom() + " a déjà emprunté ce livre");
+            }
+            if (lecteur.getEmpruntsActuels() + empruntsEnPlus.merge(lecteur, 1, Integer::sum) > lecteur.getMaxEmprunts()) {
+                return echecLot(operations, i, "Quota d'emprunts dépassé pour " + lecteur.getNom());
+            }
+        }
+        return null;
     }
 
-    // Getters
-    public String getNomBibliotheque() { 
-        return nomBibliotheque; 
+    /**
+     * Applique un lot validé (sous les verrous du lot). Seul un emprunt concurrent
+     * sur un autre ISBN peut encore épuiser un quota, ou une désinscription faire
+     * disparaître un lecteur : le lot est alors défait dans l'ordre inverse.
+     * @param exemplaires reçoit l'exemplaire de chaque emprunt
+     * @param emprunteurs reçoit l'ancien emprunteur de chaque retour
+     * @param joursRetard reçoit le retard de chaque retour
+     * @return null si le lot est appliqué, sinon les résultats d'échec
+     */
+    private List<ResultatCirculation> appliquerLot(List<OperationCirculation> operations, Livre[] livres,
+                                                   Utilisateur[] lecteurs, int[] exemplaires,
+                                                   Utilisateur[] emprunteurs, long[] joursRetard) {
+        LocalDate aujourdhui = aujourdhui();
+        Deque<Runnable> annulations = new ArrayDeque<>();
+        for (int i = 0; i < livres.length; i++) {
+            if (operations.get(i).nature() == OperationCirculation.Nature.RETOUR) {
+                Livre livre = livres[i];
+                int exemplaire = exemplaires[i];
+                Utilisateur emprunteur = livre.getEmprunteur(exemplaire);
+                LocalDate dateEmprunt = livre.getDateEmprunt(exemplaire);
+                // Le retard se mesure avant le retour, qui efface la date d'emprunt
+                emprunteurs[i] = emprunteur;
+                joursRetard[i] = livre.joursRetard(exemplaire, aujourdhui);
+                livre.retourner(exemplaire);
+                annulations.push(() -> livre.restaurerEmprunt(exemplaire, emprunteur, dateEmprunt));
+            }
+        }
+        for (int i = 0; i < livres.length; i++) {
+            if (operations.get(i).nature() == OperationCirculation.Nature.EMPRUNT) {
+                Livre livre = livres[i];
+                int exemplaire = livre.tenterEmprunter(lecteurs[i], aujourdhui);
+                if (exemplaire < 0) {
+                    annulations.forEach(Runnable::run);
+                    return echecLot(operations, i, codeEmprunt(exemplaire).message(livre.getIsbn(), lecteurs[i].getId()));
+                }
+                exemplaires[i] = exemplaire;
+                annulations.push(() -> livre.retourner(exemplaire));
+            }
+        }
+        for (int i = 0; i < livres.length; i++) {
+            // Un lecteur a pu être désinscrit pendant la réservation de son quota
+            if (operations.get(i).nature() == OperationCirculation.Nature.EMPRUNT
+                    && utilisateurs.get(lecteurs[i].getId()) != lecteurs[i]) {
+                annulations.forEach(Runnable::run);
+                return echecLot(operations, i, "Utilisateur avec ID " + lecteurs[i].getId() + " introuvable");
+            }
+        }
+        return null;
     }
-    
-    public int getTaileCatalogue() { 
-        return catalogueISBN.size(); 
+
+    /**
+     * Construit les résultats d'un lot rejeté
+     * @param fautive l'indice de l'opération en cause
+     * @param erreur la cause de l'échec
+     */
+    private static List<ResultatCirculation> echecLot(List<OperationCirculation> operations, int fautive, String erreur) {
+        List<ResultatCirculation> resultats = new ArrayList<>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            resultats.add(new ResultatCirculation(operations.get(i), -1,
+                i == fautive ? erreur : ResultatCirculation.LOT_ANNULE));
+        }
+        return resultats;
     }
-    
-    public int getNombreUtilisateurs() { 
-        return utilisateurs.size(); 
+
+    /**
+     * Compte un emprunt dans les classements de popularité (hors verrou de l'ISBN,
+     * sans attente : un simple dépôt dans un tampon)
+     */
+    private void noterEmprunt(Livre livre) {
+        Instant maintenant = horloge.instant();
+        titresPopulaires.enregistrer(livre.getIsbn(), livre.getTitre(), maintenant);
+        String auteur = livre.getAuteurNormalise();
+        if (auteur != null && !auteur.isEmpty()) {
+            auteursPopulaires.enregistrer(auteur, livre.getAuteur(), maintenant);
+        }
+    }
+
+    /**
+     * Obtient les titres les plus empruntés récemment (demi-vie d'une semaine).
+     * Le coût ne dépend que de la capacité du classement, pas du catalogue.
+     * @param nombre le nombre de titres souhaité (au plus 1024)
+     * @return les titres par score décroissant (clé : ISBN, libellé : titre)
+     */
+    public List<ScorePopularite> obtenirTitresPopulaires(int nombre) {
+        return titresPopulaires.meilleurs(nombre, horloge.instant());
+    }
+
+    /**
+     * Obtient les auteurs les plus empruntés récemment (demi-vie d'une semaine)
+     * @param nombre le nombre d'auteurs souhaité (au plus 256)
+     * @return les auteurs par score décroissant (clé : auteur normalisé, libellé : nom)
+     */
+    public List<ScorePopularite> obtenirAuteursPopulaires(int nombre) {
+        return auteursPopulaires.meilleurs(nombre, horloge.instant());
+    }
+
+    /**
+     * Ajoute des exemplaires physiques à un titre
+     * @param isbn l'ISBN du livre
+     * @param nombre le nombre d'exemplaires à ajouter
+     * @throws Exception si le livre est introuvable ou le nombre invalide
+     */
+    public void ajouterExemplaires(String isbn, int nombre) throws Exception {
+        if (nombre <= 0) {
+            throw new Exception("Le nombre d'exemplaires à ajouter doit être positif");
+        }
+        Livre livre = rechercherIsbnExact(isbn);
+        if (livre == null) {
+            throw new Exception("Livre avec ISBN " + isbn + " introuvable");
+        }
+
+        long sequence;
+        ReentrantLock verrou = verrousLivres.pour(isbn);
+        verrou.lock();
+        try {
+            if (catalogueISBN.get(isbn) != livre) {
+                throw new Exception("Livre avec ISBN " + isbn + " introuvable");
+            }
+            livre.ajouterExemplaires(nombre);
+            actualiserVues(livre);
+            version.incrementAndGet();
+            sequence = journaliser(new EvenementJournal.ExemplairesAjoutes(isbn, livre.getNombreExemplaires()));
+        } finally {
+            verrou.unlock();
+        }
+        attendreJournal(sequence);
+        reveillerAttentes(new AvisRetour(livre, null));
+    }
+
+    // === RÉSERVATIONS ===
+
+    /**
+     * Réserve un livre dont aucun exemplaire n'est libre : l'utilisateur est placé
+     * en fin de file et recevra le prochain exemplaire rendu s'il peut l'emprunter
+     * @param isbn l'ISBN du livre
+     * @param idUtilisateur l'ID de l'utilisateur
+     * @return la position dans la file (à partir de 1)
+     * @throws Exception si le livre est disponible, déjà détenu ou déjà réservé
+     */
+    public int reserverLivre(String isbn, String idUtilisateur) throws Exception {
+        Livre livre = rechercherIsbnExact(isbn);
+        if (livre == null) {
+            throw new Exception("Livre avec ISBN " + isbn + " introuvable");
+        }
+        Utilisateur utilisateur = rechercherUtilisateur(idUtilisateur);
+        if (utilisateur == null) {
+            throw new Exception("Utilisateur avec ID " + idUtilisateur + " introuvable");
+        }
+
+        int position;
+        long sequence;
+        ReentrantLock verrou = verrousLivres.pour(isbn);
+        verrou.lock();
+        try {
+            if (catalogueISBN.get(isbn) != livre) {
+                throw new Exception("Livre avec ISBN " + isbn + " introuvable");
+            }
+            if (livre.estDisponible()) {
+                throw new Exception("Un exemplaire est disponible : l'emprunter directement");
+            }
+            if (livre.exemplaireDe(utilisateur) >= 0) {
+                throw new Exception(utilisateur.getNom() + " a déjà emprunté ce livre");
+            }
+            Deque<Utilisateur> file = reservations.computeIfAbsent(isbn, cle -> new ArrayDeque<>());
+            if (file.contains(utilisateur)) {
+                throw new Exception(utilisateur.getNom() + " a déjà réservé ce livre");
+            }
+            file.addLast(utilisateur);
+            position = file.size();
+            sequence = journaliser(new EvenementJournal.ReservationAjoutee(isbn, idUtilisateur));
+        } finally {
+            verrou.unlock();
+        }
+        attendreJournal(sequence);
+        publier(TypeEvenement.RESERVATION, livre, utilisateur, 0);
+        return position;
+    }
+
+    /**
+     * Annule une réservation
+     * @param isbn l'ISBN du livre
+     * @param idUtilisateur l'ID de l'utilisateur
+     * @return true si annulée, false si l'utilisateur n'était pas dans la file
+     */
+    public boolean annulerReservation(String isbn, String idUtilisateur) {
+        long sequence;
+        ReentrantLock verrou = verrousLivres.pour(isbn);
+        verrou.lock();
+        try {
+            if (!retirerReservation(isbn, idUtilisateur)) {
+                return false;
+            }
+            sequence = journaliser(new EvenementJournal.ReservationAnnulee(isbn, idUtilisateur));
+        } finally {
+            verrou.unlock();
+        }
+        attendreJournal(sequence);
+        return true;
+    }
+
+    /**
+     * Obtient la file de réservations d'un livre
+     * @param isbn l'ISBN du livre
+     * @return les réservataires, du premier servi au dernier
+     */
+    public List<Utilisateur> obtenirReservations(String isbn) {
+        ReentrantLock verrou = verrousLivres.pour(isbn);
+        verrou.lock();
+        try {
+            Deque<Utilisateur> file = reservations.get(isbn);
+            if (file == null) {
+                return List.of();
+            }
+            // Les réservataires désinscrits ne sont retirés de la file qu'au prochain retour
+            List<Utilisateur> inscrits = new ArrayList<>(file.size());
+            for (Utilisateur utilisateur : file) {
+                if (utilisateurs.get(utilisateur.getId()) == utilisateur) {
+                    inscrits.add(utilisateur);
+                }
+            }
+            return inscrits;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Attend le prochain retour (ou ajout d'exemplaires) d'un livre, sans scrutation :
+     * tous les clients qui attendent le même ISBN partagent une seule attente
+     * @param isbn l'ISBN du livre
+     * @return l'avis, immédiatement complété si un exemplaire est déjà libre,
+     *         ou complété par une IllegalStateException si le livre est supprimé
+     * @throws IllegalArgumentException si le livre est introuvable
+     */
+    public CompletableFuture<AvisRetour> attendreRetour(String isbn) {
+        Livre livre = rechercherIsbnExact(isbn);
+        if (livre == null) {
+            throw new IllegalArgumentException("Livre avec ISBN " + isbn + " introuvable");
+        }
+        // Inscription avant la lecture de l'état : un retour qui libère un exemplaire
+        // après cette lecture complètera forcément l'attente inscrite
+        CompletableFuture<AvisRetour> attente = attentesRetour.computeIfAbsent(isbn, cle -> new CompletableFuture<>());
+        if (livre.estDisponible()) {
+            // L'attente inscrite ne doit pas survivre : un exemplaire est libre pour tous ceux qui la partagent
+            AvisRetour avis = new AvisRetour(livre, null);
+            if (attentesRetour.remove(isbn, attente)) {
+                attente.complete(avis);
+            }
+            return CompletableFuture.completedFuture(avis);
+        }
+        return attente.copy();
+    }
+
+    /**
+     * Parcourt les files de réservations non vides (prise d'instantané)
+     * @param action reçoit l'ISBN et les ID des réservataires dans l'ordre de la file
+     */
+    public void parcourirReservations(BiConsumer<String, List<String>> action) {
+        for (String isbn : reservations.keySet()) {
+            List<String> ids = new ArrayList<>();
+            ReentrantLock verrou = verrousLivres.pour(isbn);
+            verrou.lock();
+            try {
+                Deque<Utilisateur> file = reservations.get(isbn);
+                if (file != null) {
+                    for (Utilisateur utilisateur : file) {
+                        ids.add(utilisateur.getId());
+                    }
+                }
+            } finally {
+                verrou.unlock();
+            }
+            if (!ids.isEmpty()) {
+                action.accept(isbn, ids);
+            }
+        }
+    }
+
+    /**
+     * Prête un exemplaire libre au premier réservataire éligible (sous le verrou de l'ISBN).
+     * Les réservataires désinscrits sont retirés de la file ; ceux dont le quota
+     * est atteint y gardent leur place.
+     * @return le réservataire servi, ou null
+     */
+    private Utilisateur attribuerReservation(Livre livre) {
+        Deque<Utilisateur> file = reservations.get(livre.getIsbn());
+        if (file == null) {
+            return null;
+        }
+        Utilisateur attributaire = null;
+        for (Iterator<Utilisateur> it = file.iterator(); it.hasNext() && livre.estDisponible(); ) {
+            Utilisateur utilisateur = it.next();
+            if (utilisateurs.get(utilisateur.getId()) != utilisateur) {
+                it.remove();
+            } else if (utilisateur.peutEmprunter() && livre.tenterEmprunter(utilisateur, aujourdhui()) >= 0) {
+                // Sinon (quota atteint entre-temps), l'utilisateur garde sa place
+                it.remove();
+                attributaire = utilisateur;
+                break;
+            }
+        }
+        if (file.isEmpty()) {
+            reservations.remove(livre.getIsbn());
+        }
+        return attributaire;
+    }
+
+    /**
+     * Retire un utilisateur d'une file de réservations (sous le verrou de l'ISBN)
+     */
+    private boolean retirerReservation(String isbn, String idUtilisateur) {
+        Deque<Utilisateur> file = reservations.get(isbn);
+        if (file == null || !file.removeIf(utilisateur -> utilisateur.getId().equals(idUtilisateur))) {
+            return false;
+        }
+        if (file.isEmpty()) {
+            reservations.remove(isbn);
+        }
+        return true;
+    }
+
+    /**
+     * Complète l'attente partagée d'un livre (hors verrou)
+     */
+    private void reveillerAttentes(AvisRetour avis) {
+        CompletableFuture<AvisRetour> attente = attentesRetour.remove(avis.livre().getIsbn());
+        if (attente != null) {
+            attente.complete(avis);
+        }
+    }
+
+    /**
+     * Obtient les emprunts en cours d'un utilisateur, du retour prévu le plus
+     * proche au plus lointain (coût proportionnel au nombre d'emprunts)
+     * @param idUtilisateur l'ID de l'utilisateur
+     * @return ses emprunts, ou une liste vide si l'utilisateur est introuvable
+     */
+    public List<EmpruntEnCours> obtenirEmpruntsUtilisateur(String idUtilisateur) {
+        Utilisateur utilisateur = rechercherUtilisateur(idUtilisateur);
+        if (utilisateur == null) {
+            return List.of();
+        }
+        List<EmpruntEnCours> emprunts = new ArrayList<>();
+        for (Livre livre : utilisateur.getLivresEmpruntes()) {
+            // Le livre a pu être rendu depuis la lecture de la liste
+            int exemplaire = livre.exemplaireDe(utilisateur);
+            LocalDate dateEmprunt = exemplaire < 0 ? null : livre.getDateEmprunt(exemplaire);
+            if (dateEmprunt != null) {
+                emprunts.add(new EmpruntEnCours(livre, exemplaire, dateEmprunt,
+                    dateEmprunt.plusDays(utilisateur.getDureeEmpruntMax())));
+            }
+        }
+        emprunts.sort(Comparator.comparing(EmpruntEnCours::dateRetourPrevue));
+        return emprunts;
+    }
+
+    // === RETARDS ===
+
+    /**
+     * Remplace l'horloge qui fixe la date des emprunts et des retards (tests)
+     * @param horloge l'horloge
+     */
+    public void setHorloge(Clock horloge) {
+        this.horloge = Objects.requireNonNull(horloge);
+    }
+
+    /**
+     * Obtient l'horloge du service
+     * @return l'horloge courante
+     */
+    public Clock getHorloge() {
+        return horloge;
+    }
+
+    private LocalDate aujourdhui() {
+        return LocalDate.now(horloge);
+    }
+
+    /**
+     * Publie un événement RETARD pour chaque emprunt passé en retard depuis
+     * l'appel précédent (tous les retards au premier appel). Appelé
+     * périodiquement par {@link PlanificateurRetards}.
+     * @return le nombre d'emprunts notifiés
+     */
+    public synchronized int notifierRetards() {
+        LocalDate aujourdhui = aujourdhui();
+        LocalDate depuis = retardsNotifiesAvant;
+        Collection<IndexEcheances.Echeance> nouvelles = depuis == null
+            ? echeances.depassees(aujourdhui)
+            : echeances.depasseesEntre(depuis, aujourdhui);
+        int notifies = 0;
+        for (IndexEcheances.Echeance echeance : nouvelles) {
+            Livre livre;
+            Utilisateur emprunteur;
+            long joursRetard;
+            ReentrantLock verrou = verrousLivres.pour(echeance.isbn());
+            verrou.lock();
+            try {
+                // L'emprunt a pu être rendu depuis la lecture de l'index
+                livre = catalogueISBN.get(echeance.isbn());
+                int exemplaire = echeance.exemplaire();
+                if (livre == null || exemplaire >= livre.getNombreExemplaires()
+                        || !echeance.dateRetour().equals(livre.getDateRetourPrevue(exemplaire))) {
+                    continue;
+                }
+                emprunteur = livre.getEmprunteur(exemplaire);
+                joursRetard = livre.joursRetard(exemplaire, aujourdhui);
+            } finally {
+                verrou.unlock();
+            }
+            publier(TypeEvenement.RETARD, livre, emprunteur, joursRetard);
+            notifies++;
+        }
+        if (depuis == null || aujourdhui.isAfter(depuis)) {
+            retardsNotifiesAvant = aujourdhui;
+        }
+        statistiques.retardsNotifies(notifies);
+        return notifies;
+    }
+
+    // === ÉVÉNEMENTS ===
+
+    /**
+     * Choisit la destination des événements (ajouts, suppressions, emprunts, retours)
+     * @param evenements le puits, ou null pour ignorer les événements
+     */
+    public void setPuitsEvenements(PuitsEvenements evenements) {
+        this.evenements = evenements != null ? evenements : PuitsEvenements.AUCUN;
+    }
+
+    /**
+     * Obtient la destination des événements
+     * @return le puits courant
+     */
+    public PuitsEvenements getPuitsEvenements() {
+        return evenements;
+    }
+
+    /**
+     * Publie un événement, sans mise en forme sur le chemin de la requête
+     */
+    private void publier(TypeEvenement type, Livre livre, Utilisateur utilisateur, long joursRetard) {
+        PuitsEvenements puits = evenements;
+        if (puits.estActif()) {
+            puits.publier(Evenement.maintenant(type,
+                livre != null ? livre.getIsbn() : null, livre != null ? livre.getTitre() : null,
+                utilisateur != null ? utilisateur.getId() : null, utilisateur != null ? utilisateur.getNom() : null,
+                joursRetard));
+        }
+    }
+
+    // === PERSISTANCE ===
+
+    /**
+     * Branche le journal d'écriture anticipée : chaque mutation y est enregistrée
+     * et n'est confirmée qu'une fois écrite sur disque
+     * @param journal le journal, ou null pour désactiver la journalisation
+     */
+    public void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Applique un événement relu d'un instantané ou du journal, sans le journaliser.
+     * L'application est idempotente : un instantané pris pendant l'activité peut
+     * déjà refléter une partie des événements rejoués.
+     * @param evenement l'événement à appliquer
+     */
+    public void rejouer(EvenementJournal evenement) {
+        if (evenement instanceof EvenementJournal.UtilisateurAjoute
+                || evenement instanceof EvenementJournal.EmailModifie
+                || evenement instanceof EvenementJournal.UtilisateurSupprime) {
+            rejouerUtilisateur(evenement);
+            return;
+        }
+        String isbn = isbnDe(evenement);
+        ReentrantLock verrou = verrousLivres.pour(isbn);
+        verrou.lock();
+        try {
+            Livre livre = rechercherIsbnExact(isbn);
+            if (evenement instanceof EvenementJournal.LivreAjoute e) {
+                if (livre == null) {
+                    insererLivre(e.versLivre());
+                } else {
+                    // Livre de la base : l'instantané porte son titre et son auteur courants
+                    if (!Objects.equals(livre.getTitre(), e.titre())) {
+                        livre.setTitre(e.titre());
+                    }
+                    if (!Objects.equals(livre.getAuteur(), e.auteur())) {
+                        livre.setAuteur(e.auteur());
+                    }
+                }
+            } else if (livre == null) {
+                return; // Livre supprimé plus loin dans l'historique
+            } else if (evenement instanceof EvenementJournal.LivreModifie e) {
+                livre.setTitre(e.titre());
+                livre.setAuteur(e.auteur());
+            } else if (evenement instanceof EvenementJournal.LivreSupprime) {
+                for (int i = 0; i < livre.getNombreExemplaires(); i++) {
+                    statistiques.changementEmprunteur(livre.getEmprunteur(i), null);
+                }
+                livre.restaurerDisponible();
+                retirerLivre(livre);
+            } else if (evenement instanceof EvenementJournal.ExemplairesAjoutes e) {
+                if (e.nombre() > livre.getNombreExemplaires()) {
+                    livre.ajouterExemplaires(e.nombre() - livre.getNombreExemplaires());
+                    actualiserVues(livre);
+                    version.incrementAndGet();
+                }
+            } else if (evenement instanceof EvenementJournal.Emprunt e) {
+                Utilisateur utilisateur = utilisateurs.get(e.idUtilisateur());
+                if (utilisateur != null) {
+                    Utilisateur ancien = emprunteurRejoue(livre, e.exemplaire());
+                    livre.restaurerEmprunt(e.exemplaire(), utilisateur, e.dateEmprunt());
+                    statistiques.changementEmprunteur(ancien, utilisateur);
+                    echeances.ajouter(isbn, e.exemplaire(), livre.getDateRetourPrevue(e.exemplaire()));
+                    actualiserVues(livre);
+                    version.incrementAndGet();
+                    // Emprunt issu d'une réservation : le réservataire quitte la file
+                    retirerReservation(isbn, e.idUtilisateur());
+                }
+            } else if (evenement instanceof EvenementJournal.Retour e) {
+                if (e.exemplaire() < livre.getNombreExemplaires()) {
+                    statistiques.changementEmprunteur(livre.getEmprunteur(e.exemplaire()), null);
+                    livre.restaurerEmprunt(e.exemplaire(), null, null);
+                }
+                echeances.retirer(isbn, e.exemplaire());
+                actualiserVues(livre);
+                version.incrementAndGet();
+            } else if (evenement instanceof EvenementJournal.ReservationAjoutee e) {
+                Utilisateur utilisateur = utilisateurs.get(e.idUtilisateur());
+                Deque<Utilisateur> file = reservations.computeIfAbsent(isbn, cle -> new ArrayDeque<>());
+                if (utilisateur != null && !file.contains(utilisateur)) {
+                    file.addLast(utilisateur);
+                }
+                if (file.isEmpty()) {
+                    reservations.remove(isbn);
+                }
+            } else if (evenement instanceof EvenementJournal.ReservationAnnulee e) {
+                retirerReservation(isbn, e.idUtilisateur());
+            }
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Emprunteur courant d'un exemplaire relu, null si l'exemplaire n'existe pas encore
+     */
+    private static Utilisateur emprunteurRejoue(Livre livre, int exemplaire) {
+        return exemplaire < livre.getNombreExemplaires() ? livre.getEmprunteur(exemplaire) : null;
+    }
+
+    /**
+     * Applique un événement d'utilisateur relu (idempotent)
+     */
+    private void rejouerUtilisateur(EvenementJournal evenement) {
+        verrouInscriptions.lock();
+        try {
+            if (evenement instanceof EvenementJournal.UtilisateurAjoute e) {
+                Utilisateur utilisateur = e.utilisateur();
+                if (!utilisateurs.containsKey(utilisateur.getId())) {
+                    inscrire(utilisateur, null); // Relu : rien à journaliser
+                }
+            } else if (evenement instanceof EvenementJournal.EmailModifie e) {
+                Utilisateur utilisateur = utilisateurs.get(e.idUtilisateur());
+                if (utilisateur != null && !Objects.equals(utilisateur.getEmail(), e.email())) {
+                    utilisateur.setEmail(e.email());
+                }
+            } else if (evenement instanceof EvenementJournal.UtilisateurSupprime e) {
+                Utilisateur utilisateur = utilisateurs.remove(e.idUtilisateur());
+                if (utilisateur != null) {
+                    desindexerEmail(utilisateur, utilisateur.getEmailNormalise());
+                    utilisateur.setObservateur(null);
+                    statistiques.inscription(utilisateur, -1);
+                }
+            }
+        } finally {
+            verrouInscriptions.unlock();
+        }
+    }
+
+    /**
+     * Parcourt le catalogue en tenant le verrou de chaque livre pendant l'action,
+     * qui voit ainsi un état d'emprunt cohérent (prise d'instantané)
+     * @param action l'action à appliquer à chaque livre
+     */
+    public void parcourirCatalogue(Consumer<Livre> action) {
+        for (Livre livre : catalogueISBN) {
+            ReentrantLock verrou = verrousLivres.pour(livre.getIsbn());
+            verrou.lock();
+            try {
+                if (catalogueISBN.get(livre.getIsbn()) == livre) {
+                    action.accept(livre);
+                }
+            } finally {
+                verrou.unlock();
+            }
+        }
+    }
+
+    /**
+     * Parcourt les ISBN des livres du catalogue projeté qui ont été supprimés
+     * @param action l'action à appliquer à chaque ISBN
+     */
+    public void parcourirSuppressionsBase(Consumer<String> action) {
+        CatalogueMappe catalogue = base;
+        if (catalogue == null) {
+            return;
+        }
+        for (int indice = masqueBase.suivant(0); indice >= 0; indice = masqueBase.suivant(indice + 1)) {
+            String isbn = catalogue.isbn(indice);
+            ReentrantLock verrou = verrousLivres.pour(isbn);
+            verrou.lock();
+            try {
+                if (!catalogueISBN.contient(isbn)) {
+                    action.accept(isbn);
+                }
+            } finally {
+                verrou.unlock();
+            }
+        }
+    }
+
+    private static String isbnDe(EvenementJournal evenement) {
+        if (evenement instanceof EvenementJournal.LivreAjoute e) return e.isbn();
+        if (evenement instanceof EvenementJournal.LivreModifie e) return e.isbn();
+        if (evenement instanceof EvenementJournal.LivreSupprime e) return e.isbn();
+        if (evenement instanceof EvenementJournal.ExemplairesAjoutes e) return e.isbn();
+        if (evenement instanceof EvenementJournal.ReservationAjoutee e) return e.isbn();
+        if (evenement instanceof EvenementJournal.ReservationAnnulee e) return e.isbn();
+        if (evenement instanceof EvenementJournal.Emprunt e) return e.isbn();
+        return ((EvenementJournal.Retour) evenement).isbn();
+    }
+
+    /**
+     * Encode et vérifie un événement qui admet de nouvelles données, avant la mutation
+     * @return l'enregistrement à ajouter, ou null sans journal
+     * @throws IllegalArgumentException si l'événement ne peut pas être journalisé
+     */
+    private EnregistrementJournal preparer(EvenementJournal evenement) {
+        Journal j = journal;
+        return j == null ? null : j.preparer(evenement);
+    }
+
+    /**
+     * Ajoute un enregistrement préparé au journal (sous le verrou de la mutation, sans échec)
+     * @return la séquence à attendre, ou 0 sans journal
+     */
+    private long journaliser(EnregistrementJournal enregistrement) {
+        Journal j = journal;
+        return j == null || enregistrement == null ? 0 : j.ajouter(enregistrement);
+    }
+
+    /**
+     * Enregistre un événement dont les champs ont déjà été admis (sous le verrou de
+     * la mutation, sans échec : un encodage impossible met le journal en échec)
+     * @return la séquence à attendre, ou 0 sans journal
+     */
+    private long journaliser(EvenementJournal evenement) {
+        Journal j = journal;
+        return j == null ? 0 : j.ajouter(evenement);
+    }
+
+    /**
+     * Attend la durabilité d'un événement (appelé hors verrou)
+     */
+    private void attendreJournal(long sequence) {
+        Journal j = journal;
+        if (sequence > 0 && j != null) {
+            j.attendreDurabilite(sequence);
+        }
+    }
+
+    // === INDEX INTERNES ===
+
+    /**
+     * Insère un livre dans le catalogue et tous les index (sous le verrou de l'ISBN)
+     * @param livre le livre à insérer
+     * @return false si l'ISBN est déjà présent
+     */
+    private boolean insererLivre(Livre livre) {
+        if (estDansBase(livre.getIsbn())) {
+            return false;
+        }
+        if (!indexerLivre(livre)) {
+            return false;
+        }
+        publierInstantane(courant -> courant.avecLivre(livre));
+        version.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Ajoute un livre au catalogue en mémoire et à tous les index (sous le verrou de l'ISBN)
+     * @param livre le livre à indexer
+     * @return false si l'ISBN est déjà présent en mémoire
+     */
+    private boolean indexerLivre(Livre livre) {
+        if (catalogueISBN.ajouterSiAbsent(livre) != null) {
+            return false;
+        }
+        indexerAuteur(livre);
+        indexTexte.ajouter(livre);
+        indexerVues(livre);
+        livre.setObservateur(observateurIndex);
+        return true;
+    }
+
+    /**
+     * Retire un livre du catalogue et de tous les index (sous le verrou de l'ISBN)
+     * @param livre le livre à retirer
+     */
+    private void retirerLivre(Livre livre) {
+        catalogueISBN.retirer(livre.getIsbn());
+        livre.setObservateur(null);
+        desindexerAuteur(livre);
+        indexTexte.retirer(livre);
+        desindexerVues(livre);
+        echeances.retirerTous(livre.getIsbn(), livre.getNombreExemplaires());
+        reservations.remove(livre.getIsbn());
+        publierInstantane(courant -> courant.sansLivre(livre));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Ajoute un livre à l'index par auteur (atomique pour l'auteur), après avoir
+     * interné son auteur dans le dictionnaire du service
+     * @param livre le livre à indexer
+     */
+    private void indexerAuteur(Livre livre) {
+        livre.internerAuteur(dictionnaireAuteurs);
+        catalogueAuteur.ajouter(livre);
+    }
+
+    /**
+     * Retire un livre de l'index par auteur, en libérant l'entrée devenue vide
+     * @param livre le livre à retirer
+     */
+    private void desindexerAuteur(Livre livre) {
+        catalogueAuteur.retirer(livre);
+    }
+
+    /**
+     * Ajoute un livre aux vues triées correspondant à son état
+     * @param livre le livre à ajouter
+     */
+    private void indexerVues(Livre livre) {
+        if (!livresTries.add(livre)) {
+            return;
+        }
+        if (livre.estDisponible()) {
+            livresDisponibles.add(livre);
+        } else {
+            titresIndisponibles.increment();
+        }
+        if (livre.getNombreEmpruntes() > 0) {
+            livresEmpruntes.add(livre);
+        }
+    }
+
+    /**
+     * Aligne les vues disponibles/empruntés sur l'état des exemplaires
+     * (sous le verrou de l'ISBN, livre déjà présent dans la vue complète)
+     * @param livre le livre dont l'état a changé
+     */
+    private void actualiserVues(Livre livre) {
+        // Le compteur des indisponibles suit les entrées et sorties de la vue des disponibles
+        if (livre.estDisponible()) {
+            if (livresDisponibles.add(livre)) {
+                titresIndisponibles.decrement();
+            }
+        } else if (livresDisponibles.remove(livre)) {
+            titresIndisponibles.increment();
+        }
+        if (livre.getNombreEmpruntes() > 0) {
+            livresEmpruntes.add(livre);
+        } else {
+            livresEmpruntes.remove(livre);
+        }
+    }
+
+    /**
+     * Retire un livre des vues triées (avec sa clé de tri courante)
+     * @param livre le livre à retirer
+     */
+    private void desindexerVues(Livre livre) {
+        boolean present = livresTries.remove(livre);
+        boolean disponible = livresDisponibles.remove(livre);
+        livresEmpruntes.remove(livre);
+        if (present && !disponible) {
+            titresIndisponibles.decrement();
+        }
+    }
+
+    /**
+     * Maintient les index à jour lorsque le titre ou l'auteur d'un livre change.
+     * Le verrou de l'ISBN est tenu entre les deux appels : un emprunt concurrent
+     * ne peut pas réinsérer le livre dans une vue avec son ancienne clé de tri.
+     */
+    private final class ObservateurIndex implements ObservateurLivre {
+        @Override
+        public void avantModification(Livre livre, String titre, String auteur) {
+            // Vérifié avant le verrou et la modification ; réencodé à l'identique après
+            preparer(new EvenementJournal.LivreModifie(livre.getIsbn(), titre, auteur));
+            verrousLivres.pour(livre.getIsbn()).lock();
+            // L'instantané garde l'ancienne clé jusqu'à la publication, après la modification
+            desindexerAuteur(livre);
+            desindexerVues(livre);
+        }
+
+        @Override
+        public void apresModification(Livre livre) {
+            long sequence = 0;
+            try {
+                // Le livre a pu être supprimé pendant la modification
+                if (catalogueISBN.get(livre.getIsbn()) == livre) {
+                    indexerAuteur(livre);
+                    indexTexte.ajouter(livre);
+                    indexerVues(livre);
+                    publierInstantane(courant -> courant.renomme(livre));
+                    version.incrementAndGet();
+                    sequence = journaliser(new EvenementJournal.LivreModifie(
+                        livre.getIsbn(), livre.getTitre(), livre.getAuteur()));
+                }
+            } finally {
+                verrousLivres.pour(livre.getIsbn()).unlock();
+            }
+            attendreJournal(sequence);
+        }
+    }
+
+    /**
+     * Matérialise une copie de la base à sa première modification : la copie devient
+     * le livre indexé, puis la modification suit le chemin des livres en mémoire.
+     * Une copie dont le livre a été matérialisé ou supprimé entre-temps est refusée.
+     */
+    private final class ObservateurCopies implements ObservateurLivre {
+        @Override
+        public void avantModification(Livre livre, String titre, String auteur) {
+            int indice = base.indice(livre.getIsbn());
+            if (materialiser(indice, livre) != livre) {
+                throw new IllegalStateException("Copie périmée du livre " + livre.getIsbn()
+                    + " : le relire par son ISBN");
+            }
+            observateurIndex.avantModification(livre, titre, auteur);
+        }
+
+        @Override
+        public void apresModification(Livre livre) {
+            observateurIndex.apresModification(livre);
+        }
+    }
+
+    // === INDEX DES UTILISATEURS ===
+
+    /**
+     * Vérifie si un email est déjà utilisé (appelé sous le verrou des inscriptions)
+     * @param cle l'email normalisé
+     */
+    private boolean emailPris(String cle) {
+        return cle != null && utilisateursParEmail.containsKey(cle);
+    }
+
+    /**
+     * Journalise puis rend visible un utilisateur validé (sous le verrou des inscriptions).
+     * L'inscription est journalisée avant d'être visible : aucun emprunt de cet
+     * utilisateur ne peut la précéder dans le journal.
+     * @param enregistrement l'inscription préparée pour le journal
+     * @return la séquence à attendre
+     */
+    private long inscrire(Utilisateur utilisateur, EnregistrementJournal enregistrement) {
+        long sequence = journaliser(enregistrement);
+        String cle = utilisateur.getEmailNormalise();
+        if (cle != null) {
+            utilisateursParEmail.put(cle, utilisateur);
+        }
+        utilisateur.setObservateur(observateurEmails);
+        utilisateurs.put(utilisateur.getId(), utilisateur);
+        statistiques.inscription(utilisateur, 1);
+        return sequence;
+    }
+
+    /**
+     * Retire l'entrée d'index d'un email si elle désigne bien cet utilisateur
+     */
+    private void desindexerEmail(Utilisateur utilisateur, String cle) {
+        if (cle != null) {
+            utilisateursParEmail.remove(cle, utilisateur);
+        }
+    }
+
+    /**
+     * Maintient l'index des emails lors d'un setEmail. Le verrou des inscriptions
+     * est tenu entre les deux appels : le nouvel email est réservé avant le
+     * changement, l'ancien libéré après.
+     */
+    private final class ObservateurEmails implements ObservateurUtilisateur {
+        @Override
+        public void avantChangementEmail(Utilisateur utilisateur, String nouvelEmail) {
+            preparer(new EvenementJournal.EmailModifie(utilisateur.getId(), nouvelEmail));
+            verrouInscriptions.lock();
+            String cle = Utilisateur.normaliserEmail(nouvelEmail);
+            Utilisateur titulaire = cle == null ? null : utilisateursParEmail.get(cle);
+            if (titulaire != null && titulaire != utilisateur) {
+                verrouInscriptions.unlock();
+                throw new IllegalArgumentException("Un utilisateur avec l'email " + nouvelEmail + " existe déjà");
+            }
+        }
+
+        @Override
+        public void apresChangementEmail(Utilisateur utilisateur, String ancienEmail) {
+            long sequence = 0;
+            try {
+                // L'utilisateur a pu être désinscrit entre-temps
+                if (utilisateurs.get(utilisateur.getId()) == utilisateur) {
+                    desindexerEmail(utilisateur, Utilisateur.normaliserEmail(ancienEmail));
+                    String cle = utilisateur.getEmailNormalise();
+                    if (cle != null) {
+                        utilisateursParEmail.put(cle, utilisateur);
+                    }
+                    sequence = journaliser(new EvenementJournal.EmailModifie(utilisateur.getId(), utilisateur.getEmail()));
+                }
+            } finally {
+                verrouInscriptions.unlock();
+            }
+            attendreJournal(sequence);
+        }
+    }
+
+    // === CATALOGUE PROJETÉ ===
+
+    /**
+     * Utilise un catalogue projeté en mémoire comme base du catalogue. Ses livres sont
+     * servis directement depuis la projection et ne deviennent des objets Livre, indexés
+     * en mémoire, qu'au premier accès (recherche, page, emprunt, modification).
+     * @param catalogue le catalogue projeté
+     * @throws IllegalStateException si le service contient déjà des livres
+     */
+    public void chargerCatalogue(CatalogueMappe catalogue) {
+        if (catalogue == null) {
+            throw new IllegalArgumentException("Le catalogue ne peut pas être null");
+        }
+        if (base != null || !catalogueISBN.estVide()) {
+            throw new IllegalStateException("Le catalogue projeté doit être chargé dans un service vide");
+        }
+        masqueBase = new MasqueBase(catalogue.taille());
+        base = catalogue;
+        publierInstantane(courant -> courant.avecBase(catalogue, indice -> copieDeLaBase(catalogue, indice)));
+        version.incrementAndGet();
+    }
+
+    /**
+     * Vérifie si un ISBN désigne un livre de la base encore non matérialisé ni supprimé
+     * (appelé sous le verrou de l'ISBN)
+     */
+    private boolean estDansBase(String isbn) {
+        CatalogueMappe catalogue = base;
+        if (catalogue == null) {
+            return false;
+        }
+        int indice = catalogue.indice(isbn);
+        return indice >= 0 && !masqueBase.estMasque(indice);
+    }
+
+    /**
+     * Crée l'objet d'un livre de la base et l'insère dans les index en mémoire, qui
+     * font désormais foi pour ce livre. Un livre n'est matérialisé qu'une fois.
+     * @param indice l'indice de l'enregistrement
+     * @param lu le livre déjà lu dans la projection, ou null
+     * @return le livre, ou null s'il a été supprimé
+     */
+    private Livre materialiser(int indice, Livre lu) {
+        String isbn = lu != null ? lu.getIsbn() : base.isbn(indice);
+        if (masqueBase.estMasque(indice)) {
+            return catalogueISBN.get(isbn);
+        }
+        ReentrantLock verrou = verrousLivres.pour(isbn);
+        verrou.lock();
+        try {
+            if (masqueBase.estMasque(indice)) {
+                return catalogueISBN.get(isbn);
+            }
+            Livre livre = lu != null ? lu : base.lire(indice);
+            indexerLivre(livre);
+            masqueBase.masquer(indice);
+            publierInstantane(courant -> courant.avecMaterialise(livre, indice));
+            return livre;
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Ajoute à un résultat de recherche un livre trouvé dans la base. Les livres
+     * masqués sont ignorés : les index en mémoire les ont déjà trouvés (ou non).
+     */
+    private void ajouterDeLaBase(Set<Livre> resultats, int indice) {
+        if (!masqueBase.estMasque(indice)) {
+            Livre livre = materialiser(indice, null);
+            if (livre != null) {
+                resultats.add(livre);
+            }
+        }
+    }
+
+    /**
+     * Lit un livre de la base sans le matérialiser ; sa modification le matérialise
+     */
+    private Livre copieDeLaBase(CatalogueMappe catalogue, int indice) {
+        Livre copie = catalogue.lire(indice);
+        copie.setObservateur(observateurCopies);
+        return copie;
+    }
+
+    /**
+     * Nombre de livres de la base qui ne sont pas encore matérialisés
+     */
+    private int restantsBase() {
+        CatalogueMappe catalogue = base;
+        return catalogue == null ? 0 : catalogue.taille() - masqueBase.nombre();
+    }
+
+    // === STATISTIQUES ===
+
+    /**
+     * Affiche les statistiques de la bibliothèque
+     */
+    public void afficherStatistiques() {
+        System.out.println("\n=== STATISTIQUES " + nomBibliotheque.toUpperCase() + " ===");
+        System.out.println("Total livres: " + getTaileCatalogue());
+        System.out.println("Livres disponibles: " + (livresDisponibles.size() + restantsBase()));
+        System.out.println("Livres empruntés: " + livresEmpruntes.size());
+        System.out.println("Total utilisateurs: " + utilisateurs.size());
+
+        // Statistiques par type d'utilisateur, tenues à jour sans parcours
+        Statistiques stats = obtenirStatistiques();
+        System.out.println("Utilisateurs par type:");
+        stats.utilisateursParType().forEach((type, count) -> System.out.println("  " + type + ": " + count));
+        System.out.println("Emprunts en cours par type:");
+        stats.empruntsEnCoursParType().forEach((type, count) -> System.out.println("  " + type + ": " + count));
+        System.out.println("Retours en retard: " + stats.retoursEnRetard() + " (" + stats.joursRetard() + " jours)");
+        System.out.println();
+    }
+
+    /**
+     * Obtient un instantané des statistiques, sans parcourir utilisateurs ni catalogue
+     * @return les statistiques courantes
+     */
+    public Statistiques obtenirStatistiques() {
+        return statistiques.instantane();
+    }
+
+    /**
+     * Obtient le nombre d'emprunts des livres d'un auteur depuis le démarrage
+     * @param auteur le nom de l'auteur (insensible à la casse et aux accents)
+     * @return le nombre d'emprunts
+     */
+    public long getNombreEmpruntsAuteur(String auteur) {
+        return statistiques.empruntsAuteur(Normalisation.plier(auteur));
+    }
+
+    // Getters
+    public String getNomBibliotheque() { 
+        return nomBibliotheque; 
+    }
+    
+    public int getTaileCatalogue() { 
+        return catalogueISBN.taille() + restantsBase(); 
+    }
+    
+    public int getNombreUtilisateurs() { 
+        return utilisateurs.size(); 
+    }
+
+    public int getNombreEmpruntsEnCours() {
+        return echeances.taille();
+    }
+
+    /**
+     * @return le nombre de livres dont un retour est attendu par des clients
+     */
+    public int getNombreAttentesRetour() {
+        return attentesRetour.size();
+    }
+
+    /**
+     * Obtient la part des titres dont au moins un exemplaire est libre, en O(1) :
+     * le nombre de titres sans exemplaire libre est tenu à jour par les vues
+     * @return un ratio entre 0 et 1 (1 pour un catalogue vide)
+     */
+    public double getTauxDisponibilite() {
+        int total = getTaileCatalogue();
+        if (total == 0) {
+            return 1.0;
+        }
+        long indisponibles = titresIndisponibles.sum();
+        return Math.min(total, Math.max(0, total - indisponibles)) / (double) total;
+    }
+
+    /**
+     * Obtient le registre des métriques du service (la servlet y ajoute les siennes)
+     * @return le registre
+     */
+    public Metriques getMetriques() {
+        if (!jaugesEnregistrees) {
+            // Hors du constructeur : les jauges ne référencent qu'un service entièrement construit
+            enregistrerJauges();
+            jaugesEnregistrees = true;
+        }
+        return metriques;
+    }
+
+    /**
+     * Enregistre les jauges du service (idempotent : une jauge remplace celle de même nom)
+     */
+    private void enregistrerJauges() {
+        metriques.jauge("livres", "Nombre de titres au catalogue", this::getTaileCatalogue);
+        metriques.jauge("utilisateurs", "Nombre d'utilisateurs inscrits", this::getNombreUtilisateurs);
+        metriques.jauge("emprunts_en_cours", "Nombre d'exemplaires empruntés", this::getNombreEmpruntsEnCours);
+        metriques.jauge("disponibilite_ratio", "Part des titres ayant un exemplaire libre", this::getTauxDisponibilite);
+        metriques.jauge("auteurs_graphies", "Graphies d'auteur dans le dictionnaire (jamais réduit)", dictionnaireAuteurs::taille);
+        metriques.jauge("attentes_retour", "Livres dont un retour est attendu par des clients", this::getNombreAttentesRetour);
+        metriques.compteur("popularite_perdus", "Emprunts non comptés dans les classements (tampons pleins)",
+            () -> titresPopulaires.getNombrePerdus() + auteursPopulaires.getNombrePerdus());
+    }
+
+    /**
+     * Obtient la version du catalogue, incrémentée à chaque ajout, suppression,
+     * modification, emprunt ou retour de livre
+     * @return la version courante
+     */
+    public long getVersion() {
+        return version.get();
     }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Livre;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Index des livres par ISBN. Les ISBN numériques (jusqu'à 17 chiffres, donc tous
+ * les ISBN-13 sans tiret) sont codés dans un long et rangés dans une table à
+ * adressage ouvert : une recherche ne hache aucune chaîne et ne crée aucun objet.
+ * Les autres identifiants (tirets, lettres) passent par une table de chaînes.
+ * <p>
+ * Par rapport à un ConcurrentHashMap (nœud de 32 octets et case de table par
+ * entrée, soit environ 40 octets), une entrée coûte ici une case de long et une
+ * référence, soit 12 octets par case et de 17 à 34 octets par entrée selon le
+ * remplissage (entre 35 et 70 %).
+ * <p>
+ * Les lectures sont sans verrou. Les écritures, rares (ajout ou suppression de
+ * livre), sont sérialisées par le moniteur de l'index. Une case publie sa valeur
+ * avant sa clé ; une clé n'apparaît qu'une fois dans la table et garde sa case
+ * après suppression (valeur null), de sorte qu'un lecteur qui trouve la clé
+ * lit la valeur qui lui correspond.
+ */
+final class CatalogueIsbn implements Iterable<Livre> {
+    private static final long VIDE = 0; // Aucune clé codée ne vaut 0 (longueur >= 1)
+    private static final int CHIFFRES_MAX = 17; // 10^17 < 2^57
+    private static final int DECALAGE_LONGUEUR = 57;
+    private static final int CAPACITE_INITIALE = 1024;
+
+    private volatile Table table;
+    private final Map<String, Livre> autres; // Identifiants non numériques
+    private int occupees; // Cases dont la clé est posée (sous le moniteur)
+    private volatile int taille;
+
+    /**
+     * Table à adressage ouvert (sondage linéaire), remplacée en bloc lors d'un agrandissement
+     */
+    private static final class Table {
+        final AtomicLongArray cles;
+        final AtomicReferenceArray<Livre> valeurs;
+        final int masque;
+
+        Table(int capacite) {
+            this.cles = new AtomicLongArray(capacite);
+            this.valeurs = new AtomicReferenceArray<>(capacite);
+            this.masque = capacite - 1;
+        }
+    }
+
+    CatalogueIsbn() {
+        this.table = new Table(CAPACITE_INITIALE);
+        this.autres = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Code un identifiant numérique dans un long, sans allocation. La longueur
+     * est gardée dans les bits de poids fort : "0012" et "12" ont des clés distinctes.
+     * @return la clé, ou VIDE si l'identifiant n'est pas fait de 1 à 17 chiffres
+     */
+    static long cle(String isbn) {
+        int longueur = isbn.length();
+        if (longueur == 0 || longueur > CHIFFRES_MAX) {
+            return VIDE;
+        }
+        long valeur = 0;
+        for (int i = 0; i < longueur; i++) {
+            char c = isbn.charAt(i);
+            if (c < '0' || c > '9') {
+                return VIDE;
+            }
+            valeur = valeur * 10 + (c - '0');
+        }
+        return ((long) longueur << DECALAGE_LONGUEUR) | valeur;
+    }
+
+    private static int position(long cle, int masque) {
+        // Mélange final de MurmurHash3 : les ISBN consécutifs se répartissent sur toute la table
+        cle ^= cle >>> 33;
+        cle *= 0xff51afd7ed558ccdL;
+        cle ^= cle >>> 33;
+        cle *= 0xc4ceb9fe1a85ec53L;
+        cle ^= cle >>> 33;
+        return (int) cle & masque;
+    }
+
+    /**
+     * @return le livre de cet ISBN, ou null
+     */
+    Livre get(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        long cle = cle(isbn);
+        if (cle == VIDE) {
+            return autres.get(isbn);
+        }
+        Table t = table;
+        for (int i = position(cle, t.masque); ; i = (i + 1) & t.masque) {
+            long presente = t.cles.get(i);
+            if (presente == cle) {
+                return t.valeurs.get(i);
+            }
+            if (presente == VIDE) {
+                return null;
+            }
+        }
+    }
+
+    boolean contient(String isbn) {
+        return get(isbn) != null;
+    }
+
+    /**
+     * Ajoute un livre si son ISBN est libre
+     * @return le livre déjà présent pour cet ISBN, ou null si le livre a été ajouté
+     */
+    synchronized Livre ajouterSiAbsent(Livre livre) {
+        String isbn = livre.getIsbn();
+        long cle = cle(isbn);
+        if (cle == VIDE) {
+            Livre present = autres.putIfAbsent(isbn, livre);
+            if (present == null) {
+                taille++;
+            }
+            return present;
+        }
+        Table t = table;
+        int i = position(cle, t.masque);
+        while (true) {
+            long presente = t.cles.get(i);
+            if (presente == cle) {
+                Livre present = t.valeurs.get(i);
+                if (present != null) {
+                    return present;
+                }
+                t.valeurs.set(i, livre); // Case libérée par une suppression de ce même ISBN
+                taille++;
+                return null;
+            }
+            if (presente == VIDE) {
+                break;
+            }
+            i = (i + 1) & t.masque;
+        }
+        t.valeurs.set(i, livre);
+        t.cles.set(i, cle);
+        taille++;
+        if (++occupees * 10L > t.cles.length() * 7L) {
+            reorganiser();
+        }
+        return null;
+    }
+
+    /**
+     * Retire le livre d'un ISBN
+     * @return le livre retiré, ou null
+     */
+    synchronized Livre retirer(String isbn) {
+        long cle = cle(isbn);
+        Livre retire;
+        if (cle == VIDE) {
+            retire = autres.remove(isbn);
+        } else {
+            retire = null;
+            Table t = table;
+            for (int i = position(cle, t.masque); ; i = (i + 1) & t.masque) {
+                long presente = t.cles.get(i);
+                if (presente == cle) {
+                    retire = t.valeurs.getAndSet(i, null);
+                    break;
+                }
+                if (presente == VIDE) {
+                    break;
+                }
+            }
+        }
+        if (retire != null) {
+            taille--;
+        }
+        return retire;
+    }
+
+    /**
+     * Recopie les entrées vivantes dans une nouvelle table (doublée jusqu'à être
+     * remplie au plus à moitié), ce qui purge les cases des ISBN supprimés
+     */
+    private void reorganiser() {
+        Table ancienne = table;
+        int vivantes = taille - autres.size();
+        int capacite = ancienne.cles.length();
+        while (vivantes > capacite / 2) {
+            capacite <<= 1;
+        }
+        Table nouvelle = new Table(capacite);
+        for (int i = 0; i < ancienne.cles.length(); i++) {
+            Livre livre = ancienne.valeurs.get(i);
+            if (livre != null) {
+                long cle = ancienne.cles.get(i);
+                int j = position(cle, nouvelle.masque);
+                while (nouvelle.cles.get(j) != VIDE) {
+                    j = (j + 1) & nouvelle.masque;
+                }
+                nouvelle.valeurs.set(j, livre);
+                nouvelle.cles.set(j, cle);
+            }
+        }
+        occupees = vivantes;
+        table = nouvelle;
+    }
+
+    int taille() {
+        return taille;
+    }
+
+    boolean estVide() {
+        return taille == 0;
+    }
+
+    /**
+     * Parcourt les livres, avec la même cohérence faible qu'un ConcurrentHashMap
+     */
+    @Override
+    public Iterator<Livre> iterator() {
+        Table t = table;
+        Iterator<Livre> suite = autres.values().iterator();
+        return new Iterator<>() {
+            private int indice = -1;
+            private Livre prochain = avancer();
+
+            private Livre avancer() {
+                while (++indice < t.cles.length()) {
+                    Livre livre = t.valeurs.get(indice);
+                    if (livre != null) {
+                        return livre;
+                    }
+                }
+                return suite.hasNext() ? suite.next() : null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return prochain != null;
+            }
+
+            @Override
+            public Livre next() {
+                if (prochain == null) {
+                    throw new NoSuchElementException();
+                }
+                Livre livre = prochain;
+                prochain = avancer();
+                return livre;
+            }
+        };
+    }
+}
@@ -0,0 +1,297 @@
+package com.isitech.bibliotheque.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Classement des clés les plus fréquentes (titres, auteurs) sur une fenêtre
+ * glissante, en mémoire bornée quelle que soit la taille du catalogue.
+ * Algorithme Space-Saving : au plus {@code capacite} clés suivies dans un tas
+ * min ; une clé nouvelle remplace la moins fréquente et hérite de son score,
+ * ce qui surestime au plus de ce score sans jamais oublier une clé vraiment fréquente.
+ * Les scores décroissent exponentiellement (demi-vie) par décroissance « avant » :
+ * chaque événement pèse exp(λ(t - t0)), une seule remise à l'échelle évite le
+ * débordement, et aucun score n'est recalculé au fil du temps.
+ * Les occurrences sont déposées sans verrou dans des tampons circulaires
+ * répartis par thread, puis reportées dans le tas par lots : par le thread qui
+ * remplit un demi-tampon s'il obtient le verrou sans attendre, et à chaque
+ * lecture du classement. Un dépôt ne bloque donc jamais ; si un tampon est plein
+ * pendant qu'un autre thread le vide, l'occurrence est perdue et comptée.
+ */
+final class ClassementPopularite {
+    private static final double POIDS_MAX = 1e100; // Remise à l'échelle au-delà (ou en deçà de l'inverse)
+    private static final int NOMBRE_TAMPONS = 16; // Puissance de 2
+    private static final int CAPACITE_TAMPON = 256; // Puissance de 2
+
+    private final int capacite;
+    private final double lambda; // Décroissance par seconde
+    private final Tampon[] tampons;
+    private final LongAdder perdus;
+    private final ReentrantLock verrou; // Garde tout l'état ci-dessous, et la lecture des tampons
+    private final Map<String, Entree> entrees;
+    private final Entree[] tas; // Tas min sur le score
+    private int taille;
+    private long origine; // t0 en secondes, fixé au premier enregistrement
+    private ScorePopularite[] classement; // Classement trié en cache, null si périmé
+
+    private static final class Entree {
+        String cle;
+        String libelle;
+        double score;
+        int position;
+    }
+
+    private record Occurrence(String cle, String libelle, long seconde) {
+    }
+
+    /**
+     * Constructeur du classement
+     * @param capacite le nombre de clés suivies (borne aussi la taille des classements)
+     * @param demiVie la durée au bout de laquelle un emprunt ne compte plus que pour moitié
+     */
+    ClassementPopularite(int capacite, Duration demiVie) {
+        this.capacite = capacite;
+        this.lambda = Math.log(2) / demiVie.toSeconds();
+        this.tampons = new Tampon[NOMBRE_TAMPONS];
+        for (int i = 0; i < NOMBRE_TAMPONS; i++) {
+            tampons[i] = new Tampon();
+        }
+        this.perdus = new LongAdder();
+        this.verrou = new ReentrantLock();
+        this.entrees = new HashMap<>(capacite * 2);
+        this.tas = new Entree[capacite];
+    }
+
+    /**
+     * Compte une occurrence d'une clé, sans attendre aucun verrou
+     * @param cle la clé (ISBN, auteur normalisé)
+     * @param libelle le libellé affiché pour cette clé
+     * @param instant l'instant de l'occurrence
+     */
+    void enregistrer(String cle, String libelle, Instant instant) {
+        Occurrence occurrence = new Occurrence(cle, libelle, instant.getEpochSecond());
+        Tampon tampon = tampons[Thread.currentThread().hashCode() & (NOMBRE_TAMPONS - 1)];
+        long position = tampon.deposer(occurrence);
+        if (position >= 0 && (position & (CAPACITE_TAMPON / 2 - 1)) != 0) {
+            return;
+        }
+        // Un demi-tampon rempli, ou un tampon plein : report si le verrou est libre
+        if (verrou.tryLock()) {
+            try {
+                reporter();
+                if (position < 0) {
+                    appliquer(occurrence);
+                }
+            } finally {
+                verrou.unlock();
+            }
+        } else if (position < 0) {
+            perdus.increment();
+        }
+    }
+
+    /**
+     * @return le nombre d'occurrences perdues faute de place dans les tampons
+     */
+    long getNombrePerdus() {
+        return perdus.sum();
+    }
+
+    /**
+     * Reporte dans le tas les occurrences en attente (sous le verrou)
+     */
+    private void reporter() {
+        for (Tampon tampon : tampons) {
+            Occurrence occurrence;
+            while ((occurrence = tampon.retirer()) != null) {
+                appliquer(occurrence);
+            }
+        }
+    }
+
+    private void appliquer(Occurrence occurrence) {
+        if (taille == 0) {
+            origine = occurrence.seconde();
+        }
+        double poids = poids(occurrence.seconde());
+        if (poids > POIDS_MAX || poids < 1 / POIDS_MAX) {
+            // Même facteur pour tous les scores : l'ordre du tas est conservé
+            for (int i = 0; i < taille; i++) {
+                tas[i].score /= poids;
+            }
+            origine = occurrence.seconde();
+            poids = 1.0;
+        }
+        classement = null;
+
+        String cle = occurrence.cle();
+        Entree entree = entrees.get(cle);
+        if (entree != null) {
+            entree.score += poids;
+            entree.libelle = occurrence.libelle();
+            descendre(entree.position);
+            return;
+        }
+        if (taille < capacite) {
+            entree = new Entree();
+            entree.cle = cle;
+            entree.libelle = occurrence.libelle();
+            entree.score = poids;
+            entree.position = taille;
+            tas[taille++] = entree;
+            entrees.put(cle, entree);
+            monter(entree.position);
+            return;
+        }
+        // La clé la moins fréquente cède sa place et son score
+        Entree minimum = tas[0];
+        entrees.remove(minimum.cle);
+        minimum.cle = cle;
+        minimum.libelle = occurrence.libelle();
+        minimum.score += poids;
+        entrees.put(cle, minimum);
+        descendre(0);
+    }
+
+    /**
+     * Obtient les clés les plus fréquentes, après report des occurrences en attente.
+     * Le tri porte sur au plus {@code capacite} entrées et n'est refait qu'après
+     * un nouvel enregistrement.
+     * @param nombre le nombre de clés souhaité
+     * @param instant l'instant auquel les scores sont évalués
+     * @return les clés par score décroissant, le score valant le nombre d'occurrences pondérées
+     */
+    List<ScorePopularite> meilleurs(int nombre, Instant instant) {
+        verrou.lock();
+        try {
+            reporter();
+            return trier(nombre, instant);
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    private List<ScorePopularite> trier(int nombre, Instant instant) {
+        if (classement == null) {
+            Entree[] tries = Arrays.copyOf(tas, taille);
+            Arrays.sort(tries, Comparator.comparingDouble((Entree e) -> e.score).reversed());
+            classement = new ScorePopularite[taille];
+            for (int i = 0; i < taille; i++) {
+                classement[i] = new ScorePopularite(tries[i].cle, tries[i].libelle, tries[i].score);
+            }
+        }
+        // Une horloge reculée de plusieurs années donnerait un facteur infini
+        double facteur = Math.min(1.0 / poids(instant.getEpochSecond()), POIDS_MAX);
+        int limite = Math.min(Math.max(nombre, 0), classement.length);
+        List<ScorePopularite> resultats = new ArrayList<>(limite);
+        for (int i = 0; i < limite; i++) {
+            ScorePopularite score = classement[i];
+            resultats.add(new ScorePopularite(score.cle(), score.libelle(), score.score() * facteur));
+        }
+        return resultats;
+    }
+
+    private double poids(long seconde) {
+        return Math.exp(lambda * (seconde - origine));
+    }
+
+    private void monter(int position) {
+        Entree entree = tas[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (tas[parent].score <= entree.score) {
+                break;
+            }
+            placer(tas[parent], position);
+            position = parent;
+        }
+        placer(entree, position);
+    }
+
+    private void descendre(int position) {
+        Entree entree = tas[position];
+        while (true) {
+            int enfant = 2 * position + 1;
+            if (enfant >= taille) {
+                break;
+            }
+            if (enfant + 1 < taille && tas[enfant + 1].score < tas[enfant].score) {
+                enfant++;
+            }
+            if (entree.score <= tas[enfant].score) {
+                break;
+            }
+            placer(tas[enfant], position);
+            position = enfant;
+        }
+        placer(entree, position);
+    }
+
+    private void placer(Entree entree, int position) {
+        tas[position] = entree;
+        entree.position = position;
+    }
+
+    /**
+     * Tampon circulaire à producteurs multiples et consommateur unique (celui qui
+     * tient le verrou du classement) : chaque case porte un numéro de séquence
+     * qui indique à qui elle appartient
+     */
+    private static final class Tampon {
+        private final Occurrence[] cases = new Occurrence[CAPACITE_TAMPON];
+        private final AtomicLongArray sequences = new AtomicLongArray(CAPACITE_TAMPON);
+        private final AtomicLong queue = new AtomicLong();
+        private long tete; // Lue et écrite sous le verrou du classement
+
+        Tampon() {
+            for (int i = 0; i < CAPACITE_TAMPON; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        /**
+         * @return la position de l'occurrence déposée, ou -1 si le tampon est plein
+         */
+        long deposer(Occurrence occurrence) {
+            long position = queue.get();
+            while (true) {
+                int indice = (int) position & (CAPACITE_TAMPON - 1);
+                long ecart = sequences.get(indice) - position;
+                if (ecart == 0) {
+                    if (queue.compareAndSet(position, position + 1)) {
+                        cases[indice] = occurrence;
+                        sequences.set(indice, position + 1); // Publie la case au consommateur
+                        return position;
+                    }
+                    position = queue.get();
+                } else if (ecart < 0) {
+                    return -1; // Plein : la case n'a pas encore été consommée
+                } else {
+                    position = queue.get(); // Un autre producteur a pris cette case
+                }
+            }
+        }
+
+        Occurrence retirer() {
+            int indice = (int) tete & (CAPACITE_TAMPON - 1);
+            if (sequences.get(indice) != tete + 1) {
+                return null;
+            }
+            Occurrence occurrence = cases[indice];
+            cases[indice] = null;
+            sequences.set(indice, tete + CAPACITE_TAMPON); // Rend la case aux producteurs
+            tete++;
+            return occurrence;
+        }
+    }
+}
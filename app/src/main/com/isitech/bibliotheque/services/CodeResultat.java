@@ -0,0 +1,41 @@
+package com.isitech.bibliotheque.services;
+
+/**
+ * Issue d'une opération du service, renvoyée sans exception ni trace de pile.
+ * Chaque code porte un modèle de message : %1$s est l'ISBN, %2$s l'ID de l'utilisateur.
+ */
+public enum CodeResultat {
+    SUCCES("Opération réussie"),
+    DONNEES_MANQUANTES("Données manquantes"),
+    DONNEES_TROP_VOLUMINEUSES("Données trop volumineuses pour être enregistrées"),
+    LIVRE_INTROUVABLE("Livre avec ISBN %1$s introuvable"),
+    UTILISATEUR_INTROUVABLE("Utilisateur avec ID %2$s introuvable"),
+    LIVRE_INDISPONIBLE("Aucun exemplaire disponible pour le livre %1$s"),
+    DEJA_EMPRUNTE("L'utilisateur %2$s a déjà emprunté ce livre"),
+    QUOTA_DEPASSE("Quota d'emprunts dépassé pour l'utilisateur %2$s"),
+    NON_EMPRUNTE("Le livre %1$s n'est pas emprunté"),
+    EXEMPLAIRE_AMBIGU("Plusieurs exemplaires empruntés : préciser l'exemplaire"),
+    LIVRE_EXISTANT("Un livre avec l'ISBN %1$s existe déjà"),
+    UTILISATEUR_EXISTANT("Utilisateur avec l'ID %2$s existe déjà"),
+    EMAIL_EXISTANT("Un utilisateur avec cet email existe déjà");
+
+    private final String modele;
+
+    CodeResultat(String modele) {
+        this.modele = modele;
+    }
+
+    public boolean reussi() {
+        return this == SUCCES;
+    }
+
+    /**
+     * Construit le message de l'issue (chemin d'erreur uniquement)
+     * @param isbn l'ISBN concerné, ou null
+     * @param idUtilisateur l'ID de l'utilisateur concerné, ou null
+     * @return le message
+     */
+    public String message(String isbn, String idUtilisateur) {
+        return String.format(modele, isbn, idUtilisateur);
+    }
+}
@@ -0,0 +1,107 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistiques de la bibliothèque tenues à jour à chaque mutation, sans parcours :
+ * une lecture coûte au plus le nombre de types d'utilisateurs.
+ * Les effectifs (utilisateurs et emprunts en cours par type) suivent l'état,
+ * y compris rejoué ; les cumuls (emprunts, retours en retard, notifications)
+ * comptent l'activité depuis le démarrage.
+ */
+final class CompteursStatistiques {
+    private final Map<String, LongAdder> utilisateursParType = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> empruntsEnCoursParType = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> empruntsParType = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> empruntsParAuteur = new ConcurrentHashMap<>(); // Clé : auteur normalisé
+    private final LongAdder retoursEnRetard = new LongAdder();
+    private final LongAdder joursRetard = new LongAdder();
+    private final LongAdder retardsNotifies = new LongAdder();
+
+    void inscription(Utilisateur utilisateur, int delta) {
+        compteur(utilisateursParType, utilisateur.getTypeUtilisateur()).add(delta);
+    }
+
+    /**
+     * Un exemplaire change d'emprunteur (emprunt, retour ou état rejoué)
+     * @param ancien l'emprunteur précédent, ou null
+     * @param nouveau le nouvel emprunteur, ou null
+     */
+    void changementEmprunteur(Utilisateur ancien, Utilisateur nouveau) {
+        if (ancien == nouveau) {
+            return;
+        }
+        if (ancien != null) {
+            compteur(empruntsEnCoursParType, ancien.getTypeUtilisateur()).decrement();
+        }
+        if (nouveau != null) {
+            compteur(empruntsEnCoursParType, nouveau.getTypeUtilisateur()).increment();
+        }
+    }
+
+    /**
+     * Emprunt effectué par un utilisateur (hors rejeu)
+     */
+    void emprunt(Livre livre, Utilisateur utilisateur) {
+        changementEmprunteur(null, utilisateur);
+        compteur(empruntsParType, utilisateur.getTypeUtilisateur()).increment();
+        String auteur = livre.getAuteurNormalise();
+        if (auteur != null) {
+            compteur(empruntsParAuteur, auteur).increment();
+        }
+    }
+
+    /**
+     * Retour effectué (hors rejeu)
+     * @param jours le nombre de jours de retard (0 si à l'heure)
+     */
+    void retour(Utilisateur emprunteur, long jours) {
+        changementEmprunteur(emprunteur, null);
+        if (jours > 0) {
+            retoursEnRetard.increment();
+            joursRetard.add(jours);
+        }
+    }
+
+    void retardsNotifies(int nombre) {
+        retardsNotifies.add(nombre);
+    }
+
+    long empruntsAuteur(String auteurNormalise) {
+        LongAdder compteur = empruntsParAuteur.get(auteurNormalise);
+        return compteur == null ? 0 : compteur.sum();
+    }
+
+    Statistiques instantane() {
+        return new Statistiques(
+            copier(utilisateursParType),
+            copier(empruntsEnCoursParType),
+            copier(empruntsParType),
+            retoursEnRetard.sum(),
+            joursRetard.sum(),
+            retardsNotifies.sum());
+    }
+
+    private static LongAdder compteur(Map<String, LongAdder> compteurs, String cle) {
+        LongAdder compteur = compteurs.get(cle);
+        return compteur != null ? compteur : compteurs.computeIfAbsent(cle, c -> new LongAdder());
+    }
+
+    private static Map<String, Long> copier(Map<String, LongAdder> compteurs) {
+        Map<String, Long> copie = new TreeMap<>();
+        compteurs.forEach((cle, compteur) -> {
+            long valeur = compteur.sum();
+            if (valeur != 0) {
+                copie.put(cle, valeur);
+            }
+        });
+        return Collections.unmodifiableMap(copie);
+    }
+}
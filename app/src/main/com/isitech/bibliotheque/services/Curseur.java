@@ -0,0 +1,71 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Livre;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position dans une vue triée du catalogue (titre, auteur, ISBN du dernier livre lu).
+ * Le curseur reste valide même si ce livre a été supprimé entre deux pages.
+ * @param titre le titre du dernier livre lu
+ * @param auteur l'auteur du dernier livre lu
+ * @param isbn l'ISBN du dernier livre lu
+ */
+public record Curseur(String titre, String auteur, String isbn) {
+    private static final char SEPARATEUR = '\u0000';
+    private static final char PRESENT = '+'; // Préfixe d'un auteur renseigné
+    private static final char ABSENT = '-'; // Auteur null, distinct d'un auteur "null" ou vide
+
+    /**
+     * Crée le curseur positionné après un livre
+     * @param livre le dernier livre de la page
+     * @return le curseur
+     */
+    public static Curseur apres(Livre livre) {
+        return new Curseur(livre.getTitre(), livre.getAuteur(), livre.getIsbn());
+    }
+
+    /**
+     * Encode le curseur pour un paramètre d'URL ; l'auteur est préfixé d'un
+     * indicateur de présence pour qu'un auteur null se relise null
+     * @return le curseur encodé en Base64 URL
+     */
+    public String encoder() {
+        String champAuteur = auteur == null ? String.valueOf(ABSENT) : PRESENT + auteur;
+        String brut = titre + SEPARATEUR + champAuteur + SEPARATEUR + isbn;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(brut.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Décode un curseur produit par {@link #encoder()}
+     * @param encode le curseur encodé
+     * @return le curseur
+     * @throws IllegalArgumentException si le curseur est invalide
+     */
+    public static Curseur decoder(String encode) {
+        String brut = new String(Base64.getUrlDecoder().decode(encode), StandardCharsets.UTF_8);
+        int premier = brut.indexOf(SEPARATEUR);
+        int second = premier < 0 ? -1 : brut.indexOf(SEPARATEUR, premier + 1);
+        if (second < 0 || second == premier + 1) {
+            throw new IllegalArgumentException("Curseur invalide");
+        }
+        String auteur = switch (brut.charAt(premier + 1)) {
+            case PRESENT -> brut.substring(premier + 2, second);
+            case ABSENT -> {
+                if (second != premier + 2) {
+                    throw new IllegalArgumentException("Curseur invalide");
+                }
+                yield null;
+            }
+            default -> throw new IllegalArgumentException("Curseur invalide");
+        };
+        return new Curseur(brut.substring(0, premier), auteur, brut.substring(second + 1));
+    }
+
+    /**
+     * Livre fictif servant de borne dans les ensembles triés
+     */
+    Livre borne() {
+        return new Livre(isbn, titre, auteur);
+    }
+}
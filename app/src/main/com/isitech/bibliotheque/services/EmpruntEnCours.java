@@ -0,0 +1,14 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Livre;
+import java.time.LocalDate;
+
+/**
+ * Emprunt en cours d'un utilisateur
+ * @param livre le livre emprunté
+ * @param exemplaire le numéro de l'exemplaire détenu
+ * @param dateEmprunt la date d'emprunt
+ * @param dateRetourPrevue la date de retour prévue
+ */
+public record EmpruntEnCours(Livre livre, int exemplaire, LocalDate dateEmprunt, LocalDate dateRetourPrevue) {
+}
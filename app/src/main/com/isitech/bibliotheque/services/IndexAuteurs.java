@@ -0,0 +1,121 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.DictionnaireAuteurs;
+import com.isitech.bibliotheque.models.Livre;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Index des livres par auteur canonique : les livres ajoutés ont un auteur
+ * interné dans le {@link DictionnaireAuteurs} du service.
+ * Chaque auteur a un tableau de livres trié dans l'ordre naturel des livres,
+ * remplacé en entier à chaque ajout ou retrait (copie sur écriture, par CAS) :
+ * une recherche rend le tableau tel quel, déjà trié, sans copie ni tri.
+ * Les tableaux sont rangés par identifiant dans des segments de taille fixe ;
+ * l'ajout d'un segment ne déplace pas les existants, si bien qu'aucune mise à
+ * jour n'est perdue pendant un agrandissement.
+ * La clé de tri d'un livre ne doit pas changer tant qu'il est indexé
+ * (le service le retire avant un changement de titre ou d'auteur).
+ */
+final class IndexAuteurs {
+    private static final int BITS_SEGMENT = 10;
+    private static final int TAILLE_SEGMENT = 1 << BITS_SEGMENT;
+    private static final Livre[] AUCUN = new Livre[0];
+
+    private volatile AtomicReferenceArray<Livre[]>[] segments;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    IndexAuteurs() {
+        this.segments = new AtomicReferenceArray[] {new AtomicReferenceArray<Livre[]>(TAILLE_SEGMENT)};
+    }
+
+    /**
+     * Obtient les livres d'un auteur
+     * @param canonique l'identifiant canonique de l'auteur
+     * @return les livres triés (tableau partagé, à ne pas modifier), vide si aucun
+     */
+    Livre[] livres(int canonique) {
+        AtomicReferenceArray<Livre[]>[] s = segments;
+        int segment = canonique >>> BITS_SEGMENT;
+        if (canonique < 0 || segment >= s.length) {
+            return AUCUN;
+        }
+        Livre[] livres = s[segment].get(canonique & (TAILLE_SEGMENT - 1));
+        return livres != null ? livres : AUCUN;
+    }
+
+    void ajouter(Livre livre) {
+        AtomicReferenceArray<Livre[]> segment = segment(livre.getIdAuteurCanonique());
+        int indice = livre.getIdAuteurCanonique() & (TAILLE_SEGMENT - 1);
+        while (true) {
+            Livre[] actuels = segment.get(indice);
+            Livre[] nouveaux;
+            if (actuels == null) {
+                nouveaux = new Livre[] {livre};
+            } else {
+                int position = Arrays.binarySearch(actuels, livre);
+                if (position >= 0) {
+                    return;
+                }
+                position = -position - 1;
+                nouveaux = new Livre[actuels.length + 1];
+                System.arraycopy(actuels, 0, nouveaux, 0, position);
+                nouveaux[position] = livre;
+                System.arraycopy(actuels, position, nouveaux, position + 1, actuels.length - position);
+            }
+            if (segment.compareAndSet(indice, actuels, nouveaux)) {
+                return;
+            }
+        }
+    }
+
+    void retirer(Livre livre) {
+        int canonique = livre.getIdAuteurCanonique();
+        AtomicReferenceArray<Livre[]>[] s = segments;
+        if (canonique >>> BITS_SEGMENT >= s.length) {
+            return;
+        }
+        AtomicReferenceArray<Livre[]> segment = s[canonique >>> BITS_SEGMENT];
+        int indice = canonique & (TAILLE_SEGMENT - 1);
+        while (true) {
+            Livre[] actuels = segment.get(indice);
+            int position = actuels == null ? -1 : Arrays.binarySearch(actuels, livre);
+            if (position < 0 || actuels[position] != livre) {
+                return;
+            }
+            Livre[] nouveaux = null; // L'entrée devenue vide est libérée
+            if (actuels.length > 1) {
+                nouveaux = new Livre[actuels.length - 1];
+                System.arraycopy(actuels, 0, nouveaux, 0, position);
+                System.arraycopy(actuels, position + 1, nouveaux, position, actuels.length - position - 1);
+            }
+            if (segment.compareAndSet(indice, actuels, nouveaux)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Obtient le segment d'un identifiant, en ajoutant les segments manquants
+     */
+    private AtomicReferenceArray<Livre[]> segment(int canonique) {
+        int segment = canonique >>> BITS_SEGMENT;
+        AtomicReferenceArray<Livre[]>[] s = segments;
+        if (segment < s.length) {
+            return s[segment];
+        }
+        synchronized (this) {
+            s = segments;
+            if (segment >= s.length) {
+                AtomicReferenceArray<Livre[]>[] agrandis = Arrays.copyOf(s, Math.max(segment + 1, s.length * 2));
+                for (int i = s.length; i < agrandis.length; i++) {
+                    agrandis[i] = new AtomicReferenceArray<>(TAILLE_SEGMENT);
+                }
+                segments = agrandis;
+                s = agrandis;
+            }
+            return s[segment];
+        }
+    }
+}
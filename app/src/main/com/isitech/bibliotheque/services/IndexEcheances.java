@@ -0,0 +1,104 @@
+package com.isitech.bibliotheque.services;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Index des emprunts en cours (un par exemplaire prêté) trié par date de retour
+ * prévue : les emprunts en retard forment un préfixe de l'index, lu en O(retards)
+ * sans parcourir le catalogue. Les mises à jour d'un même ISBN sont sérialisées
+ * par le verrou du livre.
+ */
+final class IndexEcheances {
+    /**
+     * Échéance d'un emprunt
+     * @param dateRetour la date de retour prévue
+     * @param isbn l'ISBN du livre emprunté
+     * @param exemplaire le numéro de l'exemplaire
+     */
+    record Echeance(LocalDate dateRetour, String isbn, int exemplaire) {
+    }
+
+    /**
+     * Clé d'un exemplaire
+     */
+    private record Exemplaire(String isbn, int numero) {
+    }
+
+    private static final Comparator<Echeance> ORDRE = Comparator.comparing(Echeance::dateRetour)
+        .thenComparing(Echeance::isbn).thenComparingInt(Echeance::exemplaire);
+
+    private final NavigableSet<Echeance> echeances = new ConcurrentSkipListSet<>(ORDRE);
+    private final Map<Exemplaire, Echeance> parExemplaire = new ConcurrentHashMap<>();
+
+    /**
+     * Enregistre (ou remplace) l'échéance d'un exemplaire
+     * @param isbn l'ISBN du livre
+     * @param exemplaire le numéro de l'exemplaire
+     * @param dateRetour la date de retour prévue
+     */
+    void ajouter(String isbn, int exemplaire, LocalDate dateRetour) {
+        Echeance echeance = new Echeance(dateRetour, isbn, exemplaire);
+        Echeance ancienne = parExemplaire.put(new Exemplaire(isbn, exemplaire), echeance);
+        if (ancienne != null) {
+            echeances.remove(ancienne);
+        }
+        echeances.add(echeance);
+    }
+
+    /**
+     * Retire l'échéance d'un exemplaire (sans effet s'il n'est pas emprunté)
+     * @param isbn l'ISBN du livre
+     * @param exemplaire le numéro de l'exemplaire
+     */
+    void retirer(String isbn, int exemplaire) {
+        Echeance ancienne = parExemplaire.remove(new Exemplaire(isbn, exemplaire));
+        if (ancienne != null) {
+            echeances.remove(ancienne);
+        }
+    }
+
+    /**
+     * Retire les échéances de tous les exemplaires d'un livre
+     * @param isbn l'ISBN du livre
+     * @param exemplaires le nombre d'exemplaires du livre
+     */
+    void retirerTous(String isbn, int exemplaires) {
+        for (int numero = 0; numero < exemplaires; numero++) {
+            retirer(isbn, numero);
+        }
+    }
+
+    /**
+     * Échéances dépassées à une date : retour prévu strictement avant cette date
+     * @param aujourdhui la date du jour
+     * @return la vue triée des échéances dépassées
+     */
+    NavigableSet<Echeance> depassees(LocalDate aujourdhui) {
+        return echeances.headSet(new Echeance(aujourdhui, "", 0), false);
+    }
+
+    /**
+     * Échéances dépassées pour la première fois entre deux dates
+     * @param depuis la date de la précédente consultation (incluse)
+     * @param aujourdhui la date du jour (exclue)
+     * @return la vue triée des échéances
+     */
+    NavigableSet<Echeance> depasseesEntre(LocalDate depuis, LocalDate aujourdhui) {
+        if (!depuis.isBefore(aujourdhui)) {
+            return new ConcurrentSkipListSet<>(ORDRE);
+        }
+        return echeances.subSet(new Echeance(depuis, "", 0), true, new Echeance(aujourdhui, "", 0), false);
+    }
+
+    /**
+     * @return le nombre d'exemplaires empruntés
+     */
+    int taille() {
+        return parExemplaire.size();
+    }
+}
@@ -0,0 +1,433 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.persistence.CatalogueMappe;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Version immuable du catalogue à un instant donné : les titres dans l'ordre
+ * naturel, tels qu'après une modification validée et avant la suivante.
+ * Les écrivains publient chaque version sous le verrou de l'ISBN modifié, en
+ * dérivant la précédente en O(log n) (arbre persistant) ; les lecteurs la
+ * partagent sans verrou ni copie et voient tous la même composition du catalogue.
+ * Les livres de la base projetée restent dans la projection : ils sont fusionnés
+ * à la lecture et rendus comme copies, sauf ceux déjà matérialisés.
+ * Les objets Livre sont partagés : leur état d'emprunt est celui du moment de
+ * la lecture. Leur clé de tri (titre, auteur, ISBN) est en revanche figée à
+ * l'entrée dans la version : un livre renommé depuis garde sa place dans cette
+ * version, et les recherches et curseurs portent sur ces clés figées.
+ */
+public final class InstantaneCatalogue {
+    static final InstantaneCatalogue VIDE = new InstantaneCatalogue(0, ArbrePersistant.vide(Entree.ORDRE),
+        ArbrePersistant.vide(Entree.ORDRE_ISBN), null, ArbrePersistant.vide(Comparator.<Integer>naturalOrder()), null);
+
+    /**
+     * Livre de la version, avec sa clé de tri figée
+     */
+    record Entree(String titre, String auteur, String isbn, Livre livre) {
+        // Même ordre que Livre.compareTo (un auteur absent passe en premier)
+        static final Comparator<Entree> ORDRE = Comparator.comparing(Entree::titre, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Entree::auteur, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(Entree::isbn);
+        static final Comparator<Entree> ORDRE_ISBN = Comparator.comparing(Entree::isbn);
+
+        static Entree de(Livre livre) {
+            return new Entree(livre.getTitre(), livre.getAuteur(), livre.getIsbn(), livre);
+        }
+
+        static Entree de(Curseur curseur) {
+            return new Entree(curseur.titre(), curseur.auteur(), curseur.isbn(), null);
+        }
+
+        Livre borne() {
+            return new Livre(isbn, titre, auteur);
+        }
+    }
+
+    private final long version;
+    private final ArbrePersistant<Entree> arbre; // Livres en mémoire
+    private final ArbrePersistant<Entree> parIsbn; // Mêmes entrées, par ISBN
+    private final CatalogueMappe base; // Catalogue projeté (null si absent)
+    private final ArbrePersistant<Integer> exclus; // Indices de la base matérialisés
+    private final IntFunction<Livre> lecteurBase; // Copie d'un enregistrement de la base
+    private final List<Livre> vue;
+
+    private InstantaneCatalogue(long version, ArbrePersistant<Entree> arbre, ArbrePersistant<Entree> parIsbn,
+                                CatalogueMappe base, ArbrePersistant<Integer> exclus, IntFunction<Livre> lecteurBase) {
+        this.version = version;
+        this.arbre = arbre;
+        this.parIsbn = parIsbn;
+        this.base = base;
+        this.exclus = exclus;
+        this.lecteurBase = lecteurBase;
+        this.vue = new Vue();
+    }
+
+    // === VERSIONS SUIVANTES (sous le verrou de l'ISBN concerné) ===
+
+    /**
+     * @param livre le livre ajouté, clé figée à l'appel
+     * @return la version suivante
+     */
+    InstantaneCatalogue avecLivre(Livre livre) {
+        Entree entree = Entree.de(livre);
+        return new InstantaneCatalogue(version + 1, arbre.ajouter(entree), parIsbn.ajouter(entree),
+            base, exclus, lecteurBase);
+    }
+
+    /**
+     * @param livre le livre matérialisé, qui remplace l'enregistrement de la base
+     * @param indice l'indice de l'enregistrement
+     * @return la version suivante
+     */
+    InstantaneCatalogue avecMaterialise(Livre livre, int indice) {
+        Entree entree = Entree.de(livre);
+        return new InstantaneCatalogue(version + 1, arbre.ajouter(entree), parIsbn.ajouter(entree),
+            base, exclus.ajouter(indice), lecteurBase);
+    }
+
+    /**
+     * @param livre le livre retiré, retrouvé par son ISBN sous sa clé figée
+     * @return la version suivante, ou celle-ci si le livre n'y figure pas
+     */
+    InstantaneCatalogue sansLivre(Livre livre) {
+        Entree entree = entree(livre);
+        if (entree == null) {
+            return this;
+        }
+        return new InstantaneCatalogue(version + 1, arbre.retirer(entree), parIsbn.retirer(entree),
+            base, exclus, lecteurBase);
+    }
+
+    /**
+     * @param livre le livre renommé : son ancienne clé figée est remplacée par l'actuelle
+     * @return la version suivante, ou celle-ci si le livre n'y figure pas
+     */
+    InstantaneCatalogue renomme(Livre livre) {
+        Entree ancienne = entree(livre);
+        if (ancienne == null) {
+            return this;
+        }
+        Entree nouvelle = Entree.de(livre);
+        return new InstantaneCatalogue(version + 1, arbre.retirer(ancienne).ajouter(nouvelle),
+            parIsbn.ajouter(nouvelle), base, exclus, lecteurBase);
+    }
+
+    /**
+     * @param catalogue le catalogue projeté
+     * @param lecteur rend la copie d'un enregistrement
+     * @return la version suivante
+     */
+    InstantaneCatalogue avecBase(CatalogueMappe catalogue, IntFunction<Livre> lecteur) {
+        return new InstantaneCatalogue(version + 1, arbre, parIsbn, catalogue, exclus, lecteur);
+    }
+
+    // === LECTURE ===
+
+    /**
+     * @return le nombre de versions publiées avant celle-ci (ajouts, suppressions,
+     *         renommages, matérialisations)
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int taille() {
+        return arbre.taille() + (base == null ? 0 : base.taille() - exclus.taille());
+    }
+
+    /**
+     * @return les livres triés, en liste non modifiable partagée (accès par
+     *         position en O(log n), O(log² n) avec une base)
+     */
+    public List<Livre> livres() {
+        return vue;
+    }
+
+    /**
+     * Vérifie si un livre en mémoire fait partie de cette version, même s'il a
+     * été renommé depuis (recherche par ISBN, puis par identité)
+     * @param livre le livre
+     * @return true si ce livre, et non un autre de même ISBN, est présent
+     */
+    public boolean contient(Livre livre) {
+        return entree(livre) != null;
+    }
+
+    /**
+     * Obtient une page de cette version : des pages successives lues dans le
+     * même instantané ne sautent ni ne répètent aucun livre
+     * @param apres le curseur de la page, ou null pour la première page
+     * @param limite le nombre maximal de livres de la page
+     * @return la page et le curseur de la page suivante
+     */
+    public PageLivres page(Curseur apres, int limite) {
+        return page(VueCatalogue.TOUS, apres, limite);
+    }
+
+    /**
+     * Obtient une page d'une vue de cette version ; la disponibilité est celle du
+     * moment de la lecture
+     * @param vue la vue à parcourir
+     * @param apres le curseur de la page, ou null pour la première page
+     * @param limite le nombre maximal de livres de la page
+     * @return la page et le curseur de la page suivante
+     */
+    public PageLivres page(VueCatalogue vue, Curseur apres, int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("La limite doit être positive");
+        }
+        Iterator<Entree> parcours = parcourirEntrees(vue, apres);
+        List<Livre> livres = new ArrayList<>(Math.min(limite, 256));
+        Entree derniere = null;
+        while (livres.size() < limite && parcours.hasNext()) {
+            derniere = parcours.next();
+            livres.add(derniere.livre());
+        }
+        Curseur suivant = parcours.hasNext()
+            ? new Curseur(derniere.titre(), derniere.auteur(), derniere.isbn()) : null;
+        return new PageLivres(Collections.unmodifiableList(livres), suivant);
+    }
+
+    /**
+     * Parcourt une vue de cette version à partir d'une position
+     * @param vue la vue à parcourir
+     * @param apres le curseur après lequel commencer, ou null pour le début
+     * @return l'itérateur
+     */
+    public Iterator<Livre> parcourir(VueCatalogue vue, Curseur apres) {
+        Iterator<Entree> parcours = parcourirEntrees(vue, apres);
+        return new Iterator<Livre>() {
+            @Override
+            public boolean hasNext() {
+                return parcours.hasNext();
+            }
+
+            @Override
+            public Livre next() {
+                return parcours.next().livre();
+            }
+        };
+    }
+
+    /**
+     * Cherche l'entrée d'un livre en mémoire par son ISBN
+     * @return l'entrée de ce livre (et non d'un autre de même ISBN), avec sa clé
+     *         figée dans cette version, ou null
+     */
+    Entree entree(Livre livre) {
+        String isbn = livre.getIsbn();
+        Entree trouvee = parIsbn.chercher(e -> e.isbn().compareTo(isbn));
+        return trouvee != null && trouvee.livre() == livre ? trouvee : null;
+    }
+
+    /**
+     * Recherche textuelle dans les enregistrements de la base non matérialisés
+     * @param textePlie le texte normalisé
+     * @param action reçoit l'entrée de chaque copie trouvée
+     */
+    void rechercherDansBase(String textePlie, Consumer<Entree> action) {
+        if (base != null) {
+            base.rechercherTexte(textePlie, indice -> {
+                if (!estExclu(indice)) {
+                    action.accept(Entree.de(lecteurBase.apply(indice)));
+                }
+            });
+        }
+    }
+
+    // === FUSION AVEC LA BASE ===
+
+    private Iterator<Entree> parcourirEntrees(VueCatalogue vue, Curseur apres) {
+        Entree cle = apres == null ? null : Entree.de(apres);
+        int rang = cle == null ? 0 : arbre.compter(e -> Entree.ORDRE.compare(e, cle), true);
+        Iterator<Entree> parcours;
+        if (base == null) {
+            parcours = arbre.iterateur(rang);
+        } else {
+            int debut = cle == null ? 0 : base.premierApres(cle.borne());
+            parcours = new Fusion(arbre.iterateur(rang), debut);
+        }
+        return vue == VueCatalogue.TOUS ? parcours : new Filtre(parcours, vue);
+    }
+
+    private boolean estExclu(int indice) {
+        return exclus.chercher(i -> Integer.compare(i, indice)) != null;
+    }
+
+    /**
+     * Entrée d'une position de la version : l'entrée en mémoire de rang j est à
+     * la position j + (enregistrements visibles de la base qui la précèdent)
+     */
+    private Entree entreeA(int position) {
+        if (base == null) {
+            return arbre.get(position);
+        }
+        int bas = 0;
+        int haut = arbre.taille() - 1;
+        int avant = 0; // Entrées en mémoire placées avant la position
+        while (bas <= haut) {
+            int milieu = (bas + haut) >>> 1;
+            Entree entree = arbre.get(milieu);
+            int placee = milieu + visiblesAvant(base.premierApres(entree.borne()));
+            if (placee == position) {
+                return entree;
+            }
+            if (placee < position) {
+                avant = milieu + 1;
+                bas = milieu + 1;
+            } else {
+                haut = milieu - 1;
+            }
+        }
+        return Entree.de(lecteurBase.apply(indiceVisible(position - avant)));
+    }
+
+    /**
+     * @return le nombre d'enregistrements de la base non matérialisés d'indice < fin
+     */
+    private int visiblesAvant(int fin) {
+        return fin - exclus.compter(i -> Integer.compare(i, fin), false);
+    }
+
+    /**
+     * @return l'indice du rang-ième enregistrement de la base non matérialisé
+     */
+    private int indiceVisible(int rang) {
+        int bas = 0;
+        int haut = base.taille() - 1;
+        while (bas < haut) {
+            int milieu = (bas + haut) >>> 1;
+            if (visiblesAvant(milieu + 1) > rang) {
+                haut = milieu;
+            } else {
+                bas = milieu + 1;
+            }
+        }
+        return bas;
+    }
+
+    /**
+     * Liste des livres de la version
+     */
+    private final class Vue extends AbstractList<Livre> {
+        @Override
+        public Livre get(int index) {
+            if (index < 0 || index >= taille()) {
+                throw new IndexOutOfBoundsException("Position " + index + " hors de [0, " + taille() + ")");
+            }
+            return entreeA(index).livre();
+        }
+
+        @Override
+        public int size() {
+            return taille();
+        }
+
+        @Override
+        public Iterator<Livre> iterator() {
+            return parcourir(VueCatalogue.TOUS, null);
+        }
+    }
+
+    /**
+     * Fusionne les entrées en mémoire et les enregistrements de la base non
+     * matérialisés (triés dans le même ordre)
+     */
+    private final class Fusion implements Iterator<Entree> {
+        private final Iterator<Entree> memoire;
+        private final Iterator<Integer> exclusRestants;
+        private int prochainIndice;
+        private Integer prochainExclu;
+        private Entree teteMemoire;
+        private Entree teteBase;
+
+        Fusion(Iterator<Entree> memoire, int debut) {
+            this.memoire = memoire;
+            this.prochainIndice = debut;
+            this.exclusRestants = exclus.iterateur(exclus.compter(i -> Integer.compare(i, debut), false));
+            this.prochainExclu = exclusRestants.hasNext() ? exclusRestants.next() : null;
+            this.teteMemoire = memoire.hasNext() ? memoire.next() : null;
+            lireBase();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return teteMemoire != null || teteBase != null;
+        }
+
+        @Override
+        public Entree next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entree entree;
+            if (teteBase == null || (teteMemoire != null && Entree.ORDRE.compare(teteMemoire, teteBase) <= 0)) {
+                entree = teteMemoire;
+                teteMemoire = memoire.hasNext() ? memoire.next() : null;
+            } else {
+                entree = teteBase;
+                lireBase();
+            }
+            return entree;
+        }
+
+        private void lireBase() {
+            teteBase = null;
+            while (prochainIndice < base.taille()) {
+                int indice = prochainIndice++;
+                while (prochainExclu != null && prochainExclu < indice) {
+                    prochainExclu = exclusRestants.hasNext() ? exclusRestants.next() : null;
+                }
+                if (prochainExclu == null || prochainExclu != indice) {
+                    teteBase = Entree.de(lecteurBase.apply(indice));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Garde les entrées d'une vue selon l'état des livres au moment de la lecture
+     */
+    private static final class Filtre implements Iterator<Entree> {
+        private final Iterator<Entree> source;
+        private final VueCatalogue vue;
+        private Entree suivante;
+
+        Filtre(Iterator<Entree> source, VueCatalogue vue) {
+            this.source = source;
+            this.vue = vue;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (suivante == null && source.hasNext()) {
+                Entree entree = source.next();
+                Livre livre = entree.livre();
+                if (vue == VueCatalogue.DISPONIBLES ? livre.estDisponible() : livre.getNombreEmpruntes() > 0) {
+                    suivante = entree;
+                }
+            }
+            return suivante != null;
+        }
+
+        @Override
+        public Entree next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entree entree = suivante;
+            suivante = null;
+            return entree;
+        }
+    }
+}
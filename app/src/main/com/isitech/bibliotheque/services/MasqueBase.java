@@ -0,0 +1,75 @@
+package com.isitech.bibliotheque.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ensemble des enregistrements du catalogue projeté qui ne font plus foi :
+ * livres matérialisés (présents dans les index en mémoire) ou supprimés.
+ * Un bit par enregistrement, sans objet par livre.
+ */
+final class MasqueBase {
+    private final AtomicLongArray bits;
+    private final AtomicInteger nombre;
+
+    /**
+     * Constructeur du masque
+     * @param taille le nombre d'enregistrements du catalogue projeté
+     */
+    MasqueBase(int taille) {
+        this.bits = new AtomicLongArray((taille + 63) >>> 6);
+        this.nombre = new AtomicInteger();
+    }
+
+    /**
+     * Vérifie si un enregistrement est masqué
+     * @param indice l'indice de l'enregistrement
+     * @return true s'il est masqué
+     */
+    boolean estMasque(int indice) {
+        return (bits.get(indice >>> 6) & (1L << indice)) != 0;
+    }
+
+    /**
+     * Masque un enregistrement
+     * @param indice l'indice de l'enregistrement
+     * @return true si l'enregistrement n'était pas déjà masqué
+     */
+    boolean masquer(int indice) {
+        long bit = 1L << indice;
+        long mot = bits.getAndUpdate(indice >>> 6, valeur -> valeur | bit);
+        if ((mot & bit) != 0) {
+            return false;
+        }
+        nombre.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Trouve le prochain enregistrement masqué
+     * @param depuis l'indice de départ (inclus)
+     * @return l'indice du prochain enregistrement masqué, ou -1
+     */
+    int suivant(int depuis) {
+        int mot = depuis >>> 6;
+        if (mot >= bits.length()) {
+            return -1;
+        }
+        long valeur = bits.get(mot) & (-1L << depuis);
+        while (valeur == 0) {
+            if (++mot >= bits.length()) {
+                return -1;
+            }
+            valeur = bits.get(mot);
+        }
+        return (mot << 6) + Long.numberOfTrailingZeros(valeur);
+    }
+
+    /**
+     * Obtient le nombre d'enregistrements masqués
+     * @return le nombre d'enregistrements masqués
+     */
+    int nombre() {
+        return nombre.get();
+    }
+}
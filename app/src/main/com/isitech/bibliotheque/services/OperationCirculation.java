@@ -0,0 +1,48 @@
+package com.isitech.bibliotheque.services;
+
+/**
+ * Opération d'un lot de circulation (emprunt ou retour d'un exemplaire)
+ * @param nature emprunt ou retour
+ * @param isbn l'ISBN du livre
+ * @param idUtilisateur l'emprunteur ; pour un retour, null désigne l'unique exemplaire emprunté
+ */
+public record OperationCirculation(Nature nature, String isbn, String idUtilisateur) {
+
+    /**
+     * Nature d'une opération de circulation
+     */
+    public enum Nature {
+        EMPRUNT,
+        RETOUR
+    }
+
+    public OperationCirculation {
+        if (nature == null || isbn == null) {
+            throw new IllegalArgumentException("Nature et ISBN obligatoires");
+        }
+        if (nature == Nature.EMPRUNT && idUtilisateur == null) {
+            throw new IllegalArgumentException("Un emprunt doit préciser l'utilisateur");
+        }
+    }
+
+    /**
+     * Emprunt d'un exemplaire libre
+     */
+    public static OperationCirculation emprunt(String isbn, String idUtilisateur) {
+        return new OperationCirculation(Nature.EMPRUNT, isbn, idUtilisateur);
+    }
+
+    /**
+     * Retour de l'exemplaire détenu par un utilisateur
+     */
+    public static OperationCirculation retour(String isbn, String idUtilisateur) {
+        return new OperationCirculation(Nature.RETOUR, isbn, idUtilisateur);
+    }
+
+    /**
+     * Retour de l'unique exemplaire emprunté d'un livre
+     */
+    public static OperationCirculation retour(String isbn) {
+        return new OperationCirculation(Nature.RETOUR, isbn, null);
+    }
+}
@@ -0,0 +1,12 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Livre;
+import java.util.List;
+
+/**
+ * Page d'une vue triée du catalogue
+ * @param livres les livres de la page, dans l'ordre du catalogue
+ * @param suivant le curseur de la page suivante, ou null si c'est la dernière
+ */
+public record PageLivres(List<Livre> livres, Curseur suivant) {
+}
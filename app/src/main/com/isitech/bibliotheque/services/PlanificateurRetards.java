@@ -0,0 +1,50 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.metriques.Operation;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifie périodiquement les emprunts passés en retard, par lots, depuis un
+ * thread démon : chaque passage ne lit que les nouvelles échéances dépassées.
+ * Les passages sont chronométrés dans les métriques du service (opération
+ * notifier_retards) ; un passage en échec y est compté, le suivant reprend.
+ */
+public class PlanificateurRetards implements AutoCloseable {
+    private final ScheduledExecutorService planificateur;
+
+    /**
+     * Démarre la notification périodique (un premier passage immédiat)
+     * @param service le service à surveiller
+     * @param periode l'intervalle entre deux passages
+     */
+    public PlanificateurRetards(BibliothequeService service, Duration periode) {
+        this.planificateur = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "bibliotheque-retards");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Operation mesure = service.getMetriques().operation("notifier_retards");
+        long millis = periode.toMillis();
+        planificateur.scheduleWithFixedDelay(() -> {
+            long debut = System.nanoTime();
+            boolean reussi = false;
+            try {
+                service.notifierRetards();
+                reussi = true;
+            } catch (RuntimeException e) {
+                // Compté en échec ; une exception non rattrapée arrêterait les passages suivants
+            } finally {
+                mesure.enregistrer(debut, reussi);
+            }
+        }, 0, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        planificateur.shutdownNow();
+    }
+}
@@ -0,0 +1,19 @@
+package com.isitech.bibliotheque.services;
+
+/**
+ * Résultat d'une opération d'un lot de circulation
+ * @param operation l'opération demandée
+ * @param exemplaire le numéro de l'exemplaire prêté ou rendu, ou -1 si le lot a échoué
+ * @param erreur la cause de l'échec, ou null si l'opération a été appliquée
+ */
+public record ResultatCirculation(OperationCirculation operation, int exemplaire, String erreur) {
+
+    /**
+     * Message des opérations valides d'un lot annulé par l'échec d'une autre
+     */
+    public static final String LOT_ANNULE = "Lot annulé";
+
+    public boolean reussi() {
+        return erreur == null;
+    }
+}
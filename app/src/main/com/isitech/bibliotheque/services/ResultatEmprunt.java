@@ -0,0 +1,41 @@
+package com.isitech.bibliotheque.services;
+
+/**
+ * Résultat d'un emprunt sans exception. Les échecs et les premiers numéros
+ * d'exemplaire sont préalloués : le chemin courant n'alloue rien.
+ * @param code l'issue de l'emprunt
+ * @param exemplaire le numéro de l'exemplaire prêté, ou -1 en cas d'échec
+ */
+public record ResultatEmprunt(CodeResultat code, int exemplaire) {
+    private static final ResultatEmprunt[] ECHECS = new ResultatEmprunt[CodeResultat.values().length];
+    private static final ResultatEmprunt[] SUCCES = new ResultatEmprunt[64];
+
+    static {
+        for (CodeResultat code : CodeResultat.values()) {
+            ECHECS[code.ordinal()] = new ResultatEmprunt(code, -1);
+        }
+        for (int i = 0; i < SUCCES.length; i++) {
+            SUCCES[i] = new ResultatEmprunt(CodeResultat.SUCCES, i);
+        }
+    }
+
+    /**
+     * Obtient le résultat d'un emprunt réussi
+     * @param exemplaire le numéro de l'exemplaire prêté
+     */
+    public static ResultatEmprunt succes(int exemplaire) {
+        return exemplaire < SUCCES.length ? SUCCES[exemplaire] : new ResultatEmprunt(CodeResultat.SUCCES, exemplaire);
+    }
+
+    /**
+     * Obtient le résultat préalloué d'un échec
+     * @param code l'issue de l'emprunt
+     */
+    public static ResultatEmprunt echec(CodeResultat code) {
+        return ECHECS[code.ordinal()];
+    }
+
+    public boolean reussi() {
+        return code.reussi();
+    }
+}
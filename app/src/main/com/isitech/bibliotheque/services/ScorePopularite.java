@@ -0,0 +1,10 @@
+package com.isitech.bibliotheque.services;
+
+/**
+ * Entrée d'un classement de popularité
+ * @param cle la clé classée (ISBN ou auteur normalisé)
+ * @param libelle le libellé à afficher (titre ou nom de l'auteur)
+ * @param score le nombre d'emprunts pondéré par leur ancienneté (demi-vie)
+ */
+public record ScorePopularite(String cle, String libelle, double score) {
+}
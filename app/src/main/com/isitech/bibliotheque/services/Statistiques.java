@@ -0,0 +1,22 @@
+package com.isitech.bibliotheque.services;
+
+import java.util.Map;
+
+/**
+ * Instantané des statistiques de la bibliothèque (tableaux de bord).
+ * Les tables sont indexées par type d'utilisateur (getTypeUtilisateur) et triées.
+ * @param utilisateursParType le nombre d'inscrits par type
+ * @param empruntsEnCoursParType le nombre d'exemplaires empruntés par type d'emprunteur
+ * @param empruntsParType le nombre d'emprunts par type depuis le démarrage
+ * @param retoursEnRetard le nombre de retours en retard depuis le démarrage
+ * @param joursRetard le total des jours de retard de ces retours
+ * @param retardsNotifies le nombre de notifications de retard émises depuis le démarrage
+ */
+public record Statistiques(
+    Map<String, Long> utilisateursParType,
+    Map<String, Long> empruntsEnCoursParType,
+    Map<String, Long> empruntsParType,
+    long retoursEnRetard,
+    long joursRetard,
+    long retardsNotifies) {
+}
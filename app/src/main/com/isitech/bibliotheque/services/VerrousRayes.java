@@ -0,0 +1,53 @@
+package com.isitech.bibliotheque.services;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ensemble fixe de verrous "rayés" : chaque clé est associée à l'un des verrous
+ * selon son hash, ce qui évite à la fois un verrou global et un verrou par clé
+ */
+final class VerrousRayes {
+    private final ReentrantLock[] verrous;
+    private final int masque;
+
+    /**
+     * Constructeur des verrous rayés
+     * @param nombre le nombre de verrous souhaité (arrondi à la puissance de 2 supérieure)
+     */
+    VerrousRayes(int nombre) {
+        int taille = Integer.highestOneBit(Math.max(1, nombre - 1)) << 1;
+        this.verrous = new ReentrantLock[taille];
+        for (int i = 0; i < taille; i++) {
+            verrous[i] = new ReentrantLock();
+        }
+        this.masque = taille - 1;
+    }
+
+    /**
+     * Obtient l'indice du verrou associé à une clé
+     * @param cle la clé (ISBN, ID utilisateur...)
+     * @return l'indice du verrou
+     */
+    int indice(Object cle) {
+        int h = cle.hashCode();
+        return (h ^ (h >>> 16)) & masque;
+    }
+
+    /**
+     * Obtient le verrou associé à une clé
+     * @param cle la clé
+     * @return le verrou
+     */
+    ReentrantLock pour(Object cle) {
+        return verrous[indice(cle)];
+    }
+
+    /**
+     * Obtient le verrou d'un indice donné (prise de plusieurs verrous par indice croissant)
+     * @param indice l'indice, tel que renvoyé par {@link #indice(Object)}
+     * @return le verrou
+     */
+    ReentrantLock verrou(int indice) {
+        return verrous[indice];
+    }
+}
@@ -0,0 +1,10 @@
+package com.isitech.bibliotheque.services;
+
+/**
+ * Vues triées du catalogue maintenues par le service
+ */
+public enum VueCatalogue {
+    TOUS,
+    DISPONIBLES,
+    EMPRUNTES
+}
@@ -0,0 +1,120 @@
+package com.isitech.bibliotheque.util;
+
+import java.text.Normalizer;
+
+/**
+ * Normalisation des textes utilisés comme clés de recherche :
+ * minuscules, accents supprimés (décomposition NFD), ligatures développées
+ * et espaces consécutifs réduits à un seul.
+ * Les clés sont calculées une fois à la création ou modification des objets.
+ */
+public final class Normalisation {
+    // Pliage précalculé des caractères Latin-1 (0 : caractère plié en plusieurs caractères)
+    private static final char[] LATIN1 = new char[256];
+    private static final String[] LATIN1_MULTIPLE = new String[256];
+
+    static {
+        for (char c = 0; c < 256; c++) {
+            String plie = plierDecompose(String.valueOf(c));
+            if (plie.length() == 1 && plie.charAt(0) != 0) {
+                LATIN1[c] = plie.charAt(0);
+            } else {
+                LATIN1_MULTIPLE[c] = plie;
+            }
+        }
+    }
+
+    private Normalisation() {
+    }
+
+    /**
+     * Calcule la clé de recherche d'un texte
+     * @param texte le texte à normaliser (peut être null)
+     * @return la clé pliée, ou une chaîne vide si le texte est null
+     */
+    public static String plier(String texte) {
+        if (texte == null) {
+            return "";
+        }
+        // La décomposition NFD d'un caractère Latin-1 ne dépend pas de ses voisins :
+        // la table précalculée suffit pour les textes français courants
+        return estLatin1(texte) ? plierLatin1(texte) : plierDecompose(texte);
+    }
+
+    private static String plierLatin1(String texte) {
+        StringBuilder cle = new StringBuilder(texte.length());
+        boolean espaceEnAttente = false;
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            if (estEspace(c)) {
+                espaceEnAttente = cle.length() > 0;
+                continue;
+            }
+            char plie = LATIN1[c];
+            String multiple = plie == 0 ? LATIN1_MULTIPLE[c] : null;
+            if (plie == 0 && multiple.isEmpty()) {
+                continue;
+            }
+            if (espaceEnAttente) {
+                cle.append(' ');
+                espaceEnAttente = false;
+            }
+            if (multiple != null) {
+                cle.append(multiple);
+            } else {
+                cle.append(plie);
+            }
+        }
+        return cle.toString();
+    }
+
+    private static String plierDecompose(String texte) {
+        // Les caractères non ASCII (accents, ligatures) passent par la décomposition NFD
+        String source = estAscii(texte) ? texte : Normalizer.normalize(texte, Normalizer.Form.NFD);
+
+        StringBuilder cle = new StringBuilder(source.length());
+        boolean espaceEnAttente = false;
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (estEspace(c)) {
+                espaceEnAttente = cle.length() > 0;
+                continue;
+            }
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue; // Diacritique issu de la décomposition
+            }
+            if (espaceEnAttente) {
+                cle.append(' ');
+                espaceEnAttente = false;
+            }
+            switch (c) {
+                case 'œ', 'Œ' -> cle.append("oe");
+                case 'æ', 'Æ' -> cle.append("ae");
+                default -> cle.append(Character.toLowerCase(c));
+            }
+        }
+        return cle.toString();
+    }
+
+    private static boolean estEspace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c);
+    }
+
+    private static boolean estAscii(String texte) {
+        for (int i = 0; i < texte.length(); i++) {
+            if (texte.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean estLatin1(String texte) {
+        for (int i = 0; i < texte.length(); i++) {
+            if (texte.charAt(i) >= 0x100) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,20 +1,157 @@
 package com.isitech.bibliotheque.web;
 
+import com.isitech.bibliotheque.evenements.PuitsAsynchrone;
+import com.isitech.bibliotheque.metriques.Metriques;
+import com.isitech.bibliotheque.metriques.Operation;
 import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.persistence.MoteurStockage;
+import com.isitech.bibliotheque.services.AvisRetour;
 import com.isitech.bibliotheque.services.BibliothequeService;
+import com.isitech.bibliotheque.services.CodeResultat;
+import com.isitech.bibliotheque.services.Curseur;
+import com.isitech.bibliotheque.services.PlanificateurRetards;
+import com.isitech.bibliotheque.services.ResultatEmprunt;
+import com.isitech.bibliotheque.services.VueCatalogue;
 
 import jakarta.servlet.http.*;
 import jakarta.servlet.*;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
+/**
+ * Servlet d'affichage du catalogue, paginé par curseur, en HTML ou en JSON.
+ * Paramètres : vue (tous, disponibles, empruntes), apres (curseur), limite, format (html, json).
+ * Avec attente=ISBN (et optionnellement utilisateur=ID), la requête est une attente
+ * longue : la réponse JSON part au prochain retour du livre, ou 204 après expiration.
+ * La servlet doit être déclarée avec le support asynchrone.
+ * En POST, action=emprunter (isbn, utilisateur), retourner (isbn, exemplaire
+ * facultatif) ou ajouter (isbn, titre, auteur) : le code de résultat du service,
+ * renvoyé en JSON, donne le statut HTTP sans qu'aucune exception ne soit levée.
+ * Les pages du catalogue sont gardées dans un cache borné, évincé par horloge (paramètre d'init
+ * ou propriété "bibliotheque.cache.octets", 0 pour le désactiver), invalidé par
+ * la version du catalogue ; ses succès et échecs sont publiés dans les métriques.
+ * Le chemin /metrics expose les métriques au format texte Prometheus ; elles sont
+ * aussi publiées en JMX sous "com.isitech.bibliotheque:type=Metriques".
+ * Si le dossier de données est configuré (paramètre d'init ou propriété système
+ * "bibliotheque.donnees"), l'état est restauré au démarrage puis journalisé.
+ */
 public class BibliothequeServlet extends HttpServlet {
+    private static final int LIMITE_DEFAUT = 50;
+    private static final int LIMITE_MAX = 500;
+    private static final int TAILLE_TAMPON = 8192;
+    private static final String PROPRIETE_DONNEES = "bibliotheque.donnees";
+    private static final Duration PERIODE_INSTANTANES = Duration.ofMinutes(10);
+    private static final int CAPACITE_EVENEMENTS = 8192;
+    private static final Duration PERIODE_RETARDS = Duration.ofHours(1);
+    private static final Duration DELAI_ATTENTE = Duration.ofSeconds(30);
+    private static final String CHEMIN_METRIQUES = "/metrics";
+    private static final String NOM_JMX = "com.isitech.bibliotheque:type=Metriques";
+    private static final String PROPRIETE_CACHE = "bibliotheque.cache.octets";
+    private static final long CACHE_OCTETS_DEFAUT = 16L << 20;
+    private static final int CACHE_ENTREES_MAX = 4096;
+
+    // Fragments HTML pré-encodés
+    private static final byte[] HTML_DEBUT = EcrivainOctets.fragment("<html><head><title>Bibliothèque</title></head><body>\n<h1>");
+    private static final byte[] HTML_LISTE = EcrivainOctets.fragment("</h1><ul>\n");
+    private static final byte[] HTML_ITEM = EcrivainOctets.fragment("<li>");
+    private static final byte[] HTML_SEPARATEUR = EcrivainOctets.fragment(" - ");
+    private static final byte[] HTML_FIN_ITEM = EcrivainOctets.fragment("</li>\n");
+    private static final byte[] HTML_SUIVANT = EcrivainOctets.fragment("</ul>\n<a href=\"?vue=");
+    private static final byte[] HTML_SUIVANT_LIMITE = EcrivainOctets.fragment("&amp;limite=");
+    private static final byte[] HTML_SUIVANT_APRES = EcrivainOctets.fragment("&amp;apres=");
+    private static final byte[] HTML_SUIVANT_FIN = EcrivainOctets.fragment("\">Page suivante</a>\n</body></html>\n");
+    private static final byte[] HTML_FIN = EcrivainOctets.fragment("</ul></body></html>\n");
+
+    // Fragments JSON pré-encodés
+    private static final byte[] JSON_DEBUT = EcrivainOctets.fragment("{\"livres\":[");
+    private static final byte[] JSON_ISBN = EcrivainOctets.fragment("{\"isbn\":\"");
+    private static final byte[] JSON_TITRE = EcrivainOctets.fragment("\",\"titre\":\"");
+    private static final byte[] JSON_AUTEUR = EcrivainOctets.fragment("\",\"auteur\":\"");
+    private static final byte[] JSON_DISPONIBLE = EcrivainOctets.fragment("\",\"disponible\":true}");
+    private static final byte[] JSON_EMPRUNTE = EcrivainOctets.fragment("\",\"disponible\":false}");
+    private static final byte[] JSON_VIRGULE = EcrivainOctets.fragment(",");
+    private static final byte[] JSON_SUIVANT = EcrivainOctets.fragment("],\"suivant\":\"");
+    private static final byte[] JSON_SUIVANT_FIN = EcrivainOctets.fragment("\"}");
+    private static final byte[] JSON_FIN = EcrivainOctets.fragment("],\"suivant\":null}");
+
+    // Fragments JSON de l'avis de retour
+    private static final byte[] AVIS_ISBN = EcrivainOctets.fragment("{\"isbn\":\"");
+    private static final byte[] AVIS_DISPONIBLE = EcrivainOctets.fragment("\",\"disponible\":");
+    private static final byte[] AVIS_ATTRIBUE = EcrivainOctets.fragment(",\"attribue\":");
+    private static final byte[] AVIS_POUR_VOUS = EcrivainOctets.fragment(",\"pourVous\":");
+    private static final byte[] AVIS_FIN = EcrivainOctets.fragment("}");
+    // Corps des résultats de POST, un par code
+    private static final byte[][] RESULTATS = new byte[CodeResultat.values().length][];
+    private static final byte[] RESULTAT_EXEMPLAIRE = EcrivainOctets.fragment(",\"exemplaire\":");
+
+    static {
+        for (CodeResultat code : CodeResultat.values()) {
+            RESULTATS[code.ordinal()] = EcrivainOctets.fragment("{\"code\":\"" + code.name() + "\"");
+        }
+    }
+
+    private static final byte[] VRAI = EcrivainOctets.fragment("true");
+    private static final byte[] FAUX = EcrivainOctets.fragment("false");
+
     private BibliothequeService bibliotheque;
+    private MoteurStockage stockage;
+    private PuitsAsynchrone evenements;
+    private PlanificateurRetards retards;
+    private Operation mesureAffichage;
+    private CacheReponses cache;
+    private ObjectName objetJmx;
 
     @Override
-    public void init() {
+    public void init() throws ServletException {
         bibliotheque = new BibliothequeService("Bibliothèque Centrale");
+        evenements = new PuitsAsynchrone(System.out, CAPACITE_EVENEMENTS);
+        bibliotheque.setPuitsEvenements(evenements);
+
+        String dossier = parametre(PROPRIETE_DONNEES);
+        if (dossier != null) {
+            try {
+                stockage = MoteurStockage.ouvrir(Path.of(dossier));
+                stockage.recuperer(bibliotheque);
+                stockage.planifierInstantanes(PERIODE_INSTANTANES);
+            } catch (IOException e) {
+                throw new ServletException("Impossible de restaurer les données de " + dossier, e);
+            }
+        }
+        retards = new PlanificateurRetards(bibliotheque, PERIODE_RETARDS);
+        mesureAffichage = bibliotheque.getMetriques().operation("servlet_get");
+        String octetsCache = parametre(PROPRIETE_CACHE);
+        try {
+            cache = new CacheReponses(octetsCache != null ? Long.parseLong(octetsCache) : CACHE_OCTETS_DEFAUT, CACHE_ENTREES_MAX);
+        } catch (IllegalArgumentException e) {
+            throw new ServletException("Taille de cache invalide : " + octetsCache, e);
+        }
+        Metriques metriques = bibliotheque.getMetriques();
+        metriques.compteur("cache_pages_succes", "Pages servies depuis le cache", cache::getSucces);
+        metriques.compteur("cache_pages_echecs", "Pages absentes ou périmées dans le cache", cache::getEchecs);
+        metriques.compteur("cache_pages_evictions", "Pages évincées du cache", cache::getEvictions);
+        metriques.jauge("cache_pages_octets", "Taille des pages en cache", cache::getOctets);
+        try {
+            objetJmx = bibliotheque.getMetriques().exposerJmx(NOM_JMX);
+        } catch (JMException e) {
+            // Les métriques restent disponibles sur /metrics
+            e.printStackTrace();
+        }
+
+        // Catalogue de démonstration pour une bibliothèque vide
+        if (bibliotheque.getTaileCatalogue() > 0) {
+            return;
+        }
         try {
             bibliotheque.ajouterLivre(new Livre("1", "Java Facile", "Auteur A", 300, "Éditions Tech", LocalDate.of(2020, 5, 1)));
             bibliotheque.ajouterLivre(new Livre("2", "Maths pour Tous", "Auteur B", 200, "Éditions Math", LocalDate.of(2019, 3, 15)));
@@ -23,18 +160,435 @@ public class BibliothequeServlet extends HttpServlet {
         }
     }
 
+    @Override
+    public void destroy() {
+        if (retards != null) {
+            retards.close();
+        }
+        if (objetJmx != null) {
+            try {
+                Metriques.retirerJmx(objetJmx);
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+        if (stockage != null) {
+            try {
+                stockage.prendreInstantane();
+                stockage.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        try {
+            evenements.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        resp.setContentType("text/html;charset=UTF-8");
-        PrintWriter out = resp.getWriter();
+        if (CHEMIN_METRIQUES.equals(req.getServletPath())) {
+            ecrireMetriques(resp);
+            return;
+        }
+        String attente = req.getParameter("attente");
+        if (attente != null) {
+            attendreRetour(req, resp, attente);
+            return;
+        }
+
+        long debut = System.nanoTime();
+        boolean reussi = false;
+        try {
+            afficherCatalogue(req, resp);
+            reussi = true;
+        } finally {
+            mesureAffichage.enregistrer(debut, reussi);
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String action = req.getParameter("action");
+        String isbn = req.getParameter("isbn");
+        if (action == null || isbn == null || isbn.isEmpty()) {
+            ecrireResultat(resp, CodeResultat.DONNEES_MANQUANTES, -1);
+            return;
+        }
+        switch (action) {
+            case "emprunter" -> {
+                ResultatEmprunt resultat = bibliotheque.tenterEmprunterLivre(isbn, req.getParameter("utilisateur"));
+                ecrireResultat(resp, resultat.code(), resultat.exemplaire());
+            }
+            case "retourner" -> {
+                String valeur = req.getParameter("exemplaire");
+                int exemplaire = valeur == null ? -1 : lireExemplaire(valeur);
+                CodeResultat code;
+                if (valeur == null) {
+                    code = bibliotheque.tenterRetournerLivre(isbn);
+                } else if (exemplaire < 0) {
+                    code = CodeResultat.DONNEES_MANQUANTES;
+                } else {
+                    code = bibliotheque.tenterRetournerExemplaire(isbn, exemplaire);
+                }
+                ecrireResultat(resp, code, exemplaire);
+            }
+            case "ajouter" -> {
+                String titre = req.getParameter("titre");
+                String auteur = req.getParameter("auteur");
+                CodeResultat code = titre == null || titre.isEmpty() || auteur == null || auteur.isEmpty()
+                    ? CodeResultat.DONNEES_MANQUANTES
+                    : bibliotheque.tenterAjouterLivre(new Livre(isbn, titre, auteur));
+                ecrireResultat(resp, code, -1, code.reussi() ? HttpServletResponse.SC_CREATED : statut(code));
+            }
+            default -> ecrireResultat(resp, CodeResultat.DONNEES_MANQUANTES, -1);
+        }
+    }
+
+    /**
+     * Écrit le résultat d'une opération en JSON, avec le statut HTTP de son code
+     */
+    private void ecrireResultat(HttpServletResponse resp, CodeResultat code, int exemplaire) throws IOException {
+        ecrireResultat(resp, code, exemplaire, statut(code));
+    }
+
+    private void ecrireResultat(HttpServletResponse resp, CodeResultat code, int exemplaire, int statut) throws IOException {
+        resp.setStatus(statut);
+        resp.setContentType("application/json;charset=UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        EcrivainOctets out = new EcrivainOctets(resp.getOutputStream(), TAILLE_TAMPON);
+        out.ecrire(RESULTATS[code.ordinal()]);
+        if (code.reussi() && exemplaire >= 0) {
+            out.ecrire(RESULTAT_EXEMPLAIRE);
+            out.ecrireNombre(exemplaire);
+        }
+        out.ecrire(AVIS_FIN);
+        out.vider();
+    }
+
+    private static int statut(CodeResultat code) {
+        return switch (code) {
+            case SUCCES -> HttpServletResponse.SC_OK;
+            case DONNEES_MANQUANTES, DONNEES_TROP_VOLUMINEUSES, EXEMPLAIRE_AMBIGU -> HttpServletResponse.SC_BAD_REQUEST;
+            case LIVRE_INTROUVABLE, UTILISATEUR_INTROUVABLE -> HttpServletResponse.SC_NOT_FOUND;
+            case QUOTA_DEPASSE -> HttpServletResponse.SC_FORBIDDEN;
+            case LIVRE_INDISPONIBLE, DEJA_EMPRUNTE, NON_EMPRUNTE,
+                 LIVRE_EXISTANT, UTILISATEUR_EXISTANT, EMAIL_EXISTANT -> HttpServletResponse.SC_CONFLICT;
+        };
+    }
+
+    /**
+     * Lit un numéro d'exemplaire sans exception
+     * @return le numéro, ou -1 s'il est mal formé
+     */
+    private static int lireExemplaire(String valeur) {
+        if (valeur.isEmpty() || valeur.length() > 9) {
+            return -1;
+        }
+        int numero = 0;
+        for (int i = 0; i < valeur.length(); i++) {
+            char c = valeur.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            numero = numero * 10 + (c - '0');
+        }
+        return numero;
+    }
+
+    /**
+     * Page du catalogue en HTML ou JSON, avec validation par ETag
+     */
+    private void afficherCatalogue(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        VueCatalogue vue;
+        Curseur apres;
+        int limite;
+        try {
+            vue = lireVue(req.getParameter("vue"));
+            String curseur = req.getParameter("apres");
+            apres = curseur == null || curseur.isEmpty() ? null : Curseur.decoder(curseur);
+            limite = lireLimite(req.getParameter("limite"));
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+        boolean json = demandeJson(req);
+
+        // La version du catalogue est lue avant le rendu : le contenu est au moins aussi récent
+        long version = bibliotheque.getVersion();
+        String etag = etag(version, vue, req.getParameter("apres"), limite, json);
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Cache-Control", "no-cache");
+        resp.setHeader("Vary", "Accept");
+        if (correspond(req.getHeader("If-None-Match"), etag)) {
+            resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // Une mutation change la version : une page en cache est donc toujours à jour
+        String cle = cleCache(vue, apres, limite, json);
+        byte[] corps = cache.obtenir(cle, version);
+        if (corps == null) {
+            ByteArrayOutputStream tampon = new ByteArrayOutputStream(TAILLE_TAMPON);
+            EcrivainOctets out = new EcrivainOctets(tampon, TAILLE_TAMPON);
+            Iterator<Livre> livres = bibliotheque.parcourirLivres(vue, apres);
+            if (json) {
+                ecrireJson(out, livres, limite);
+            } else {
+                ecrireHtml(out, vue, livres, limite);
+            }
+            out.vider();
+            corps = tampon.toByteArray();
+            cache.placer(cle, version, corps);
+        }
+        resp.setContentType(json ? "application/json;charset=UTF-8" : "text/html;charset=UTF-8");
+        resp.setContentLength(corps.length);
+        resp.getOutputStream().write(corps);
+    }
+
+    /**
+     * Clé de cache d'une page : route et paramètres normalisés, pour que des
+     * requêtes équivalentes (ordre, valeurs par défaut) partagent l'entrée
+     */
+    private static String cleCache(VueCatalogue vue, Curseur apres, int limite, boolean json) {
+        return "/?vue=" + vue.name() + "&limite=" + limite + "&format=" + (json ? "json" : "html")
+            + (apres != null ? "&apres=" + apres.encoder() : "");
+    }
+
+    /**
+     * Métriques au format texte d'exposition Prometheus
+     */
+    private void ecrireMetriques(HttpServletResponse resp) throws IOException {
+        StringBuilder texte = new StringBuilder(4096);
+        bibliotheque.getMetriques().ecrirePrometheus(texte);
+        resp.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        resp.setHeader("Cache-Control", "no-store");
+        resp.getOutputStream().write(texte.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Attente longue du retour d'un livre, sans occuper de thread pendant l'attente
+     */
+    private void attendreRetour(HttpServletRequest req, HttpServletResponse resp, String isbn) throws IOException {
+        CompletableFuture<AvisRetour> avis;
+        try {
+            avis = bibliotheque.attendreRetour(isbn);
+        } catch (IllegalArgumentException e) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, e.getMessage());
+            return;
+        }
+        String idUtilisateur = req.getParameter("utilisateur");
+        if (avis.isDone()) {
+            ecrireAvis(resp, avis.join(), idUtilisateur);
+            return;
+        }
+
+        AsyncContext contexte = req.startAsync();
+        contexte.setTimeout(DELAI_ATTENTE.toMillis());
+        // Le premier de l'avis ou de l'expiration répond
+        AtomicBoolean repondu = new AtomicBoolean();
+        contexte.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent evenement) {
+                if (repondu.compareAndSet(false, true)) {
+                    avis.cancel(false);
+                    ((HttpServletResponse) contexte.getResponse()).setStatus(HttpServletResponse.SC_NO_CONTENT);
+                    contexte.complete();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent evenement) {
+                if (repondu.compareAndSet(false, true)) {
+                    avis.cancel(false);
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent evenement) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent evenement) {
+            }
+        });
+        // Réponse hors du thread qui a rendu le livre
+        avis.whenCompleteAsync((retour, erreur) -> {
+            // Une annulation vient de l'expiration ou d'une erreur, qui ont déjà répondu
+            if (!repondu.compareAndSet(false, true)) {
+                return;
+            }
+            HttpServletResponse reponse = (HttpServletResponse) contexte.getResponse();
+            try {
+                if (erreur != null) {
+                    // Livre supprimé pendant l'attente
+                    reponse.sendError(HttpServletResponse.SC_NOT_FOUND, "Livre avec ISBN " + isbn + " supprimé");
+                } else {
+                    ecrireAvis(reponse, retour, idUtilisateur);
+                }
+            } catch (IOException e) {
+                // Client déconnecté
+            } finally {
+                contexte.complete();
+            }
+        });
+    }
+
+    /**
+     * Écrit l'avis de retour en JSON
+     */
+    private void ecrireAvis(HttpServletResponse resp, AvisRetour avis, String idUtilisateur) throws IOException {
+        resp.setContentType("application/json;charset=UTF-8");
+        resp.setHeader("Cache-Control", "no-store");
+        EcrivainOctets out = new EcrivainOctets(resp.getOutputStream(), TAILLE_TAMPON);
+        out.ecrire(AVIS_ISBN);
+        out.ecrireJson(avis.livre().getIsbn());
+        out.ecrire(AVIS_DISPONIBLE);
+        out.ecrire(avis.livre().estDisponible() ? VRAI : FAUX);
+        out.ecrire(AVIS_ATTRIBUE);
+        out.ecrire(avis.attributaire() != null ? VRAI : FAUX);
+        if (idUtilisateur != null) {
+            out.ecrire(AVIS_POUR_VOUS);
+            out.ecrire(avis.attributaire() != null && idUtilisateur.equals(avis.attributaire().getId()) ? VRAI : FAUX);
+        }
+        out.ecrire(AVIS_FIN);
+        out.vider();
+    }
+
+    /**
+     * Écrit une page HTML en parcourant la vue sans la copier
+     */
+    private void ecrireHtml(EcrivainOctets out, VueCatalogue vue, Iterator<Livre> livres, int limite) throws IOException {
+        out.ecrire(HTML_DEBUT);
+        out.ecrireHtml(titre(vue));
+        out.ecrire(HTML_LISTE);
+        Livre dernier = null;
+        for (int n = 0; n < limite && livres.hasNext(); n++) {
+            dernier = livres.next();
+            out.ecrire(HTML_ITEM);
+            out.ecrireHtml(dernier.getTitre());
+            out.ecrire(HTML_SEPARATEUR);
+            out.ecrireHtml(dernier.getAuteur());
+            out.ecrire(HTML_FIN_ITEM);
+        }
+        if (dernier != null && livres.hasNext()) {
+            out.ecrire(HTML_SUIVANT);
+            out.ecrireHtml(vue.name().toLowerCase(Locale.ROOT));
+            out.ecrire(HTML_SUIVANT_LIMITE);
+            out.ecrireNombre(limite);
+            out.ecrire(HTML_SUIVANT_APRES);
+            out.ecrireHtml(Curseur.apres(dernier).encoder());
+            out.ecrire(HTML_SUIVANT_FIN);
+        } else {
+            out.ecrire(HTML_FIN);
+        }
+    }
 
-        out.println("<html><head><title>Bibliothèque</title></head><body>");
-        out.println("<h1>Livres disponibles</h1><ul>");
+    /**
+     * Écrit une page JSON en parcourant la vue sans la copier
+     */
+    private void ecrireJson(EcrivainOctets out, Iterator<Livre> livres, int limite) throws IOException {
+        out.ecrire(JSON_DEBUT);
+        Livre dernier = null;
+        for (int n = 0; n < limite && livres.hasNext(); n++) {
+            if (dernier != null) {
+                out.ecrire(JSON_VIRGULE);
+            }
+            dernier = livres.next();
+            out.ecrire(JSON_ISBN);
+            out.ecrireJson(dernier.getIsbn());
+            out.ecrire(JSON_TITRE);
+            out.ecrireJson(dernier.getTitre());
+            out.ecrire(JSON_AUTEUR);
+            out.ecrireJson(dernier.getAuteur());
+            out.ecrire(dernier.estDisponible() ? JSON_DISPONIBLE : JSON_EMPRUNTE);
+        }
+        if (dernier != null && livres.hasNext()) {
+            out.ecrire(JSON_SUIVANT);
+            out.ecrireJson(Curseur.apres(dernier).encoder());
+            out.ecrire(JSON_SUIVANT_FIN);
+        } else {
+            out.ecrire(JSON_FIN);
+        }
+    }
 
-        for (Livre livre : bibliotheque.obtenirTousLesLivres()) {
-            out.printf("<li>%s - %s</li>%n", livre.getTitre(), livre.getAuteur());
+    // Lecture des paramètres
+
+    private static VueCatalogue lireVue(String valeur) {
+        if (valeur == null || valeur.isEmpty()) {
+            return VueCatalogue.TOUS;
+        }
+        try {
+            return VueCatalogue.valueOf(valeur.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Vue inconnue : " + valeur);
+        }
+    }
+
+    private static int lireLimite(String valeur) {
+        if (valeur == null || valeur.isEmpty()) {
+            return LIMITE_DEFAUT;
+        }
+        int limite;
+        try {
+            limite = Integer.parseInt(valeur);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Limite invalide : " + valeur);
+        }
+        if (limite <= 0) {
+            throw new IllegalArgumentException("Limite invalide : " + valeur);
         }
+        return Math.min(limite, LIMITE_MAX);
+    }
+
+    private static boolean demandeJson(HttpServletRequest req) {
+        String format = req.getParameter("format");
+        if (format != null) {
+            return format.equalsIgnoreCase("json");
+        }
+        String accept = req.getHeader("Accept");
+        return accept != null && accept.contains("application/json") && !accept.contains("text/html");
+    }
+
+    /**
+     * Lit un paramètre d'init, à défaut la propriété système du même nom
+     */
+    private String parametre(String nom) {
+        String valeur = getInitParameter(nom);
+        return valeur != null ? valeur : System.getProperty(nom);
+    }
+
+    private static String etag(long version, VueCatalogue vue, String apres, int limite, boolean json) {
+        int requete = Objects.hash(vue, apres, limite, json);
+        return "\"" + version + "-" + Integer.toHexString(requete) + "\"";
+    }
+
+    /**
+     * Vérifie si l'en-tête If-None-Match désigne l'ETag courant
+     */
+    private static boolean correspond(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidat : ifNoneMatch.split(",")) {
+            String valeur = candidat.trim();
+            if (valeur.startsWith("W/")) {
+                valeur = valeur.substring(2);
+            }
+            if (valeur.equals("*") || valeur.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        out.println("</ul></body></html>");
+    private static String titre(VueCatalogue vue) {
+        return switch (vue) {
+            case TOUS -> "Livres";
+            case DISPONIBLES -> "Livres disponibles";
+            case EMPRUNTES -> "Livres empruntés";
+        };
     }
-}
\ No newline at end of file
+}
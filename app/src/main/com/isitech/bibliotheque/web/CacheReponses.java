@@ -0,0 +1,169 @@
+package com.isitech.bibliotheque.web;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache borné des pages rendues, par route et paramètres normalisés, évincé
+ * par l'algorithme de l'horloge (approximation de LRU) sur un budget d'octets
+ * et un nombre d'entrées. La lecture ne prend aucun verrou : elle marque
+ * seulement l'entrée comme récemment lue ; seule l'insertion, sur un échec,
+ * fait tourner l'horloge sous un verrou.
+ * Chaque entrée porte la version du catalogue lue avant son rendu : elle n'est
+ * servie que si cette version est toujours la version courante, ce qui
+ * l'invalide dès le premier ajout, suppression, emprunt ou retour.
+ */
+final class CacheReponses {
+
+    /**
+     * Page rendue pour une version du catalogue
+     */
+    private static final class Entree {
+        private final String cle;
+        private final long version;
+        private final byte[] corps;
+        private volatile boolean lue; // Bit de référence de l'horloge
+
+        private Entree(String cle, long version, byte[] corps) {
+            this.cle = cle;
+            this.version = version;
+            this.corps = corps;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entree> entrees = new ConcurrentHashMap<>();
+    private final ArrayDeque<Entree> horloge = new ArrayDeque<>(); // Ordre d'insertion, gardé par verrou
+    private final ReentrantLock verrou = new ReentrantLock();
+    private final long capaciteOctets;
+    private final int capaciteEntrees;
+    private final AtomicLong octets = new AtomicLong();
+    private final LongAdder succes = new LongAdder();
+    private final LongAdder echecs = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructeur du cache
+     * @param capaciteOctets le budget total des corps en octets (0 : cache désactivé)
+     * @param capaciteEntrees le nombre maximal d'entrées
+     */
+    CacheReponses(long capaciteOctets, int capaciteEntrees) {
+        if (capaciteOctets < 0 || capaciteEntrees < 1) {
+            throw new IllegalArgumentException("Capacités du cache invalides");
+        }
+        this.capaciteOctets = capaciteOctets;
+        this.capaciteEntrees = capaciteEntrees;
+    }
+
+    /**
+     * Obtient une page à jour, sans verrou
+     * @param cle la route et les paramètres normalisés
+     * @param version la version courante du catalogue
+     * @return le corps de la page, ou null si absent ou périmé
+     */
+    byte[] obtenir(String cle, long version) {
+        Entree entree = entrees.get(cle);
+        if (entree != null && entree.version != version) {
+            retirer(entree);
+            entree = null;
+        }
+        if (entree == null) {
+            echecs.increment();
+            return null;
+        }
+        if (!entree.lue) {
+            entree.lue = true;
+        }
+        succes.increment();
+        return entree.corps;
+    }
+
+    /**
+     * Place une page rendue ; une page trop grande (plus d'un huitième du budget)
+     * n'est pas gardée, et une page plus ancienne ne remplace pas une plus récente
+     * @param cle la route et les paramètres normalisés
+     * @param version la version du catalogue lue avant le rendu
+     * @param corps le corps de la page
+     */
+    void placer(String cle, long version, byte[] corps) {
+        if (corps.length > capaciteOctets / 8) {
+            return;
+        }
+        Entree nouvelle = new Entree(cle, version, corps);
+        verrou.lock();
+        try {
+            Entree ancienne = entrees.get(cle);
+            if (ancienne != null && ancienne.version > version) {
+                return;
+            }
+            octets.addAndGet(corps.length);
+            ancienne = entrees.put(cle, nouvelle);
+            if (ancienne != null) {
+                octets.addAndGet(-ancienne.corps.length);
+            }
+            horloge.addLast(nouvelle);
+            tourner();
+        } finally {
+            verrou.unlock();
+        }
+    }
+
+    /**
+     * Fait tourner l'horloge jusqu'à revenir sous les capacités : une entrée lue
+     * depuis le dernier passage gagne un tour, les autres sont évincées ; les
+     * entrées déjà retirées ou remplacées sont simplement oubliées
+     */
+    private void tourner() {
+        while (octets.get() > capaciteOctets || entrees.size() > capaciteEntrees
+                || horloge.size() > 2 * capaciteEntrees) {
+            Entree entree = horloge.pollFirst();
+            if (entree == null) {
+                return;
+            }
+            if (entrees.get(entree.cle) != entree) {
+                continue;
+            }
+            if (entree.lue) {
+                entree.lue = false;
+                horloge.addLast(entree);
+            } else if (retirer(entree)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Retire une entrée si elle est toujours celle de sa clé
+     * @param entree l'entrée à retirer
+     * @return true si c'est cet appel qui l'a retirée
+     */
+    private boolean retirer(Entree entree) {
+        if (entrees.remove(entree.cle, entree)) {
+            octets.addAndGet(-entree.corps.length);
+            return true;
+        }
+        return false;
+    }
+
+    long getSucces() {
+        return succes.sum();
+    }
+
+    long getEchecs() {
+        return echecs.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    long getOctets() {
+        return octets.get();
+    }
+
+    int getNombreEntrees() {
+        return entrees.size();
+    }
+}
@@ -0,0 +1,159 @@
+package com.isitech.bibliotheque.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Écriture de réponses directement en octets UTF-8 : les fragments fixes sont
+ * encodés une seule fois, les valeurs sont échappées et encodées à la volée
+ * dans un tampon, sans String.format ni chaînes intermédiaires.
+ */
+final class EcrivainOctets {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream sortie;
+    private final byte[] tampon;
+    private int position;
+
+    /**
+     * Constructeur de l'écrivain
+     * @param sortie le flux de la réponse
+     * @param taille la taille du tampon en octets
+     */
+    EcrivainOctets(OutputStream sortie, int taille) {
+        this.sortie = sortie;
+        this.tampon = new byte[taille];
+    }
+
+    /**
+     * Encode un fragment fixe une fois pour toutes
+     * @param texte le fragment
+     * @return les octets UTF-8 du fragment
+     */
+    static byte[] fragment(String texte) {
+        return texte.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Écrit un fragment pré-encodé
+     * @param octets le fragment
+     */
+    void ecrire(byte[] octets) throws IOException {
+        if (octets.length > tampon.length - position) {
+            vider();
+            if (octets.length > tampon.length) {
+                sortie.write(octets);
+                return;
+            }
+        }
+        System.arraycopy(octets, 0, tampon, position, octets.length);
+        position += octets.length;
+    }
+
+    /**
+     * Écrit un texte en l'échappant pour du HTML
+     * @param texte le texte (null écrit une chaîne vide)
+     */
+    void ecrireHtml(String texte) throws IOException {
+        if (texte == null) {
+            return;
+        }
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            switch (c) {
+                case '&' -> ecrireAscii("&amp;");
+                case '<' -> ecrireAscii("&lt;");
+                case '>' -> ecrireAscii("&gt;");
+                case '"' -> ecrireAscii("&quot;");
+                case '\'' -> ecrireAscii("&#39;");
+                default -> i = ecrireCaractere(texte, i);
+            }
+        }
+    }
+
+    /**
+     * Écrit un texte en l'échappant pour une chaîne JSON (sans les guillemets)
+     * @param texte le texte (null écrit une chaîne vide)
+     */
+    void ecrireJson(String texte) throws IOException {
+        if (texte == null) {
+            return;
+        }
+        for (int i = 0; i < texte.length(); i++) {
+            char c = texte.charAt(i);
+            if (c == '"' || c == '\\') {
+                octet('\\');
+                octet(c);
+            } else if (c < 0x20) {
+                ecrireAscii("\\u00");
+                octet(HEX[c >> 4]);
+                octet(HEX[c & 0xF]);
+            } else {
+                i = ecrireCaractere(texte, i);
+            }
+        }
+    }
+
+    /**
+     * Écrit un entier en décimal
+     * @param valeur l'entier
+     */
+    void ecrireNombre(long valeur) throws IOException {
+        ecrireAscii(Long.toString(valeur));
+    }
+
+    /**
+     * Envoie le contenu du tampon sur le flux
+     */
+    void vider() throws IOException {
+        if (position > 0) {
+            sortie.write(tampon, 0, position);
+            position = 0;
+        }
+    }
+
+    // Encodage UTF-8
+
+    private void ecrireAscii(String texte) throws IOException {
+        for (int i = 0; i < texte.length(); i++) {
+            octet(texte.charAt(i));
+        }
+    }
+
+    /**
+     * Encode le caractère à l'indice donné (paire de substitution comprise)
+     * @return l'indice du dernier char consommé
+     */
+    private int ecrireCaractere(String texte, int i) throws IOException {
+        char c = texte.charAt(i);
+        if (c < 0x80) {
+            octet(c);
+        } else if (c < 0x800) {
+            octet(0xC0 | (c >> 6));
+            octet(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < texte.length()
+                && Character.isLowSurrogate(texte.charAt(i + 1))) {
+            int point = Character.toCodePoint(c, texte.charAt(i + 1));
+            octet(0xF0 | (point >> 18));
+            octet(0x80 | ((point >> 12) & 0x3F));
+            octet(0x80 | ((point >> 6) & 0x3F));
+            octet(0x80 | (point & 0x3F));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            octet('?'); // Substitut isolé : non représentable en UTF-8
+        } else {
+            octet(0xE0 | (c >> 12));
+            octet(0x80 | ((c >> 6) & 0x3F));
+            octet(0x80 | (c & 0x3F));
+        }
+        return i;
+    }
+
+    private void octet(int valeur) throws IOException {
+        if (position == tampon.length) {
+            vider();
+        }
+        tampon[position++] = (byte) valeur;
+    }
+}
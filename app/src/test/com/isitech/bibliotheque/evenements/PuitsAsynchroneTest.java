@@ -0,0 +1,115 @@
+package com.isitech.bibliotheque.evenements;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PuitsAsynchroneTest {
+
+    @Test
+    @Timeout(30)
+    void ecritTousLesEvenementsDeProducteursConcurrents() throws Exception {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        PuitsAsynchrone puits = new PuitsAsynchrone(sortie, 1 << 16);
+        int threads = 16;
+        int parThread = 2000;
+        List<Thread> producteurs = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int numero = t;
+            producteurs.add(new Thread(() -> {
+                for (int i = 0; i < parThread; i++) {
+                    puits.publier(Evenement.maintenant(TypeEvenement.EMPRUNT, numero + "-" + i, "Titre \"" + i + "\"", "U", null, 0));
+                }
+            }));
+        }
+        producteurs.forEach(Thread::start);
+        for (Thread producteur : producteurs) {
+            producteur.join();
+        }
+        puits.close();
+
+        String[] lignes = sortie.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(0, puits.getNombrePerdus());
+        assertEquals(threads * parThread, puits.getNombreEcrits());
+        assertEquals(threads * parThread, lignes.length);
+        assertTrue(lignes[0].startsWith("{\"horodatage\":\""));
+        assertTrue(lignes[0].contains("\"type\":\"EMPRUNT\""));
+        assertTrue(lignes[0].contains("\\\""), "guillemets échappés");
+        // L'ordre de chaque producteur est conservé
+        List<String> premier = java.util.Arrays.stream(lignes).filter(l -> l.contains("\"isbn\":\"0-"))
+            .collect(Collectors.toList());
+        for (int i = 0; i < parThread; i++) {
+            assertTrue(premier.get(i).contains("\"isbn\":\"0-" + i + "\""));
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void compteLesEvenementsPerdusQuandLeTamponEstPlein() throws Exception {
+        CountDownLatch bloque = new CountDownLatch(1);
+        OutputStream lente = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                try {
+                    bloque.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        PuitsAsynchrone puits = new PuitsAsynchrone(lente, 8);
+        for (int i = 0; i < 1000; i++) {
+            puits.publier(Evenement.maintenant(TypeEvenement.RETOUR, "I" + i, null, null, null, 0));
+        }
+        assertTrue(puits.getNombrePerdus() > 900, "perdus: " + puits.getNombrePerdus());
+        bloque.countDown();
+        puits.close();
+        assertEquals(1000, puits.getNombrePerdus() + puits.getNombreEcrits());
+    }
+
+    @Test
+    void leServicePublieDesEvenementsStructures() throws Exception {
+        List<Evenement> recus = new CopyOnWriteArrayList<>();
+        BibliothequeService service = new BibliothequeService("Test");
+        service.setPuitsEvenements(recus::add);
+        Utilisateur etudiant = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        service.ajouterUtilisateur(etudiant);
+        service.ajouterLivre(new Livre("1", "Java Facile", "Auteur A"));
+        service.emprunterLivre("1", etudiant.getId());
+        service.retournerLivre("1");
+        service.supprimerLivre("1");
+
+        assertEquals(List.of(TypeEvenement.UTILISATEUR_AJOUTE, TypeEvenement.LIVRE_AJOUTE, TypeEvenement.EMPRUNT,
+            TypeEvenement.RETOUR, TypeEvenement.LIVRE_SUPPRIME),
+            recus.stream().map(Evenement::type).collect(Collectors.toList()));
+        Evenement retour = recus.get(3);
+        assertEquals("1", retour.isbn());
+        assertEquals(etudiant.getId(), retour.idUtilisateur());
+        assertEquals("Alice", retour.nomUtilisateur());
+        assertEquals(0, retour.joursRetard());
+
+        // Sans puits, rien n'est construit ni publié
+        service.setPuitsEvenements(null);
+        assertSame(PuitsEvenements.AUCUN, service.getPuitsEvenements());
+        service.ajouterLivre(new Livre("2", "Maths", "Auteur B"));
+        assertEquals(5, recus.size());
+    }
+}
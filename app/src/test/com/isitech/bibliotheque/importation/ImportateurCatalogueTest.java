@@ -0,0 +1,94 @@
+package com.isitech.bibliotheque.importation;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.persistence.CatalogueMappe;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportateurCatalogueTest {
+    @TempDir
+    Path dossier;
+
+    private Path fichier(String contenu) throws Exception {
+        Path fichier = dossier.resolve("catalogue.csv");
+        Files.writeString(fichier, contenu, StandardCharsets.UTF_8);
+        return fichier;
+    }
+
+    @Test
+    void importeLesLignesValidesEtRapporteLesRejets() throws Exception {
+        Path csv = fichier("﻿isbn,titre,auteur,pages,editeur,date\n"
+            + "1,Java Facile,Auteur A,300,Éditions Tech,2020-05-01\n"
+            + "2,\"Maths, pour \"\"Tous\"\"\",Auteur B,,,2019\r\n"
+            + "3,Sans auteur\n"
+            + "\n"
+            + "4,Pages,Auteur C,beaucoup\n"
+            + "1,Doublon,Auteur D\n"
+            + "5,\"Non fermé,Auteur E\n"
+            + "6,Dernier,Auteur F");
+        BibliothequeService service = new BibliothequeService("Test");
+        // Blocs minuscules : chaque bloc coupe des lignes, certaines plus longues qu'un bloc
+        RapportImport rapport = new ImportateurCatalogue(',', 16, 3).importer(csv, service);
+
+        assertEquals(9, rapport.lignes());
+        assertEquals(3, rapport.importes());
+        assertEquals(4, rapport.rejetes());
+        assertEquals(List.of(4L, 6L, 7L, 8L), rapport.rejets().stream().map(RapportImport.Rejet::ligne)
+            .sorted().collect(Collectors.toList()));
+        assertEquals("ISBN en double", rapport.rejets().stream().filter(r -> r.ligne() == 7).findFirst().orElseThrow().motif());
+
+        Livre maths = service.rechercherParIsbn("2");
+        assertEquals("Maths, pour \"Tous\"", maths.getTitre());
+        assertEquals(LocalDate.of(2019, 1, 1), maths.getDatePublication());
+        Livre java = service.rechercherParIsbn("1");
+        assertEquals("Java Facile", java.getTitre());
+        assertEquals(300, java.getNbPages());
+        assertEquals("Éditions Tech", java.getEditeur());
+        assertNotNull(service.rechercherParIsbn("6"));
+    }
+
+    @Test
+    void rejetteUnChampTropLongPourLeJournal() throws Exception {
+        Path csv = fichier("1,Court,Auteur A\n"
+            + "2," + "é".repeat(40_000) + ",Auteur B\n"
+            + "3," + "e".repeat(40_000) + ",Auteur C\n");
+        BibliothequeService service = new BibliothequeService("Test");
+        RapportImport rapport = new ImportateurCatalogue().importer(csv, service);
+
+        // 40 000 « é » font 80 000 octets encodés : au-delà d'un champ du journal
+        assertEquals(2, rapport.importes());
+        assertEquals(1, rapport.rejetes());
+        assertEquals("champ trop long (colonne 2)", rapport.rejets().get(0).motif());
+        assertNull(service.rechercherParIsbn("2"));
+    }
+
+    @Test
+    void laPremiereOccurrenceLEmporteSurUnGrandFichier() throws Exception {
+        StringBuilder contenu = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            contenu.append(i % 1000).append(",Titre ").append(i).append(",Auteur ").append(i % 13).append('\n');
+        }
+        Path csv = fichier(contenu.toString());
+        Path catalogue = dossier.resolve("catalogue.cat");
+        RapportImport rapport = new ImportateurCatalogue(',', 4096, 4).construireCatalogue(csv, catalogue);
+
+        assertEquals(20_000, rapport.lignes());
+        assertEquals(1000, rapport.importes());
+        assertEquals(19_000, rapport.rejetes());
+        CatalogueMappe projete = CatalogueMappe.ouvrir(catalogue);
+        assertEquals(1000, projete.taille());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("Titre " + i, projete.lire(projete.indice(String.valueOf(i))).getTitre());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.isitech.bibliotheque.index;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexTrigrammesTest {
+
+    @Test
+    void trouveLesSousChainesDansTitreEtAuteur() {
+        IndexTrigrammes index = new IndexTrigrammes();
+        index.ajouter(new Livre("1", "Java Facile", "Auteur A"));
+        index.ajouter(new Livre("2", "Maths pour Tous", "Auteur B"));
+
+        assertEquals(Set.of("1"), isbns(index.rechercher("va fa")));
+        assertEquals(Set.of("2"), isbns(index.rechercher("POUR")));
+        assertEquals(Set.of("1", "2"), isbns(index.rechercher("auteur")));
+        assertEquals(Set.of("1"), isbns(index.rechercher("ja")));
+        assertTrue(index.rechercher("inexistant").isEmpty());
+    }
+
+    @Test
+    void neMelangePasTitreEtAuteur() {
+        IndexTrigrammes index = new IndexTrigrammes();
+        index.ajouter(new Livre("1", "abc", "def"));
+
+        assertTrue(index.rechercher("bcd").isEmpty());
+    }
+
+    @Test
+    void suitLesModificationsEtSuppressionsDuService() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Livre livre = new Livre("1", "Ancien titre", "Victor Hugo");
+        service.ajouterLivre(livre);
+
+        livre.setTitre("Les Misérables");
+        assertTrue(service.rechercherTexte("ancien").isEmpty());
+        assertEquals(List.of(livre), service.rechercherTexte("misérables"));
+
+        livre.setAuteur("Hugo Victor");
+        assertEquals(List.of(livre), service.rechercherParAuteur("hugo victor"));
+        assertTrue(service.rechercherParAuteur("victor hugo").isEmpty());
+
+        service.supprimerLivre("1");
+        assertTrue(service.rechercherTexte("misérables").isEmpty());
+    }
+
+    @Test
+    void equivalentAuParcoursLineaireApresCompactage() {
+        IndexTrigrammes index = new IndexTrigrammes();
+        Random aleatoire = new Random(42);
+        Map<String, Livre> vivants = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            Livre livre = new Livre("L" + i, mot(aleatoire) + " " + mot(aleatoire), mot(aleatoire));
+            index.ajouter(livre);
+            vivants.put(livre.getIsbn(), livre);
+            // Suffisamment de suppressions pour déclencher le compactage
+            for (int essai = 0; essai < 3; essai++) {
+                Livre retire = vivants.remove("L" + aleatoire.nextInt(i + 1));
+                if (retire != null) {
+                    index.retirer(retire);
+                }
+            }
+        }
+        assertEquals(vivants.size(), index.taille());
+
+        for (int q = 0; q < 200; q++) {
+            String requete = mot(aleatoire).substring(0, 1 + aleatoire.nextInt(4));
+            Set<String> attendus = vivants.values().stream()
+                .filter(l -> l.getTitre().toLowerCase().contains(requete)
+                    || l.getAuteur().toLowerCase().contains(requete))
+                .map(Livre::getIsbn)
+                .collect(Collectors.toSet());
+            assertEquals(attendus, isbns(index.rechercher(requete)), "requête " + requete);
+        }
+    }
+
+    private static String mot(Random aleatoire) {
+        char[] lettres = new char[5 + aleatoire.nextInt(4)];
+        for (int i = 0; i < lettres.length; i++) {
+            lettres[i] = (char) ('a' + aleatoire.nextInt(8));
+        }
+        return new String(lettres);
+    }
+
+    private static Set<String> isbns(List<Livre> livres) {
+        return livres.stream().map(Livre::getIsbn).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,74 @@
+package com.isitech.bibliotheque.metriques;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetriquesTest {
+
+    @Test
+    void quantilesAvecErreurRelativeBornee() {
+        HistogrammeLatences histogramme = new HistogrammeLatences();
+        assertEquals(0, histogramme.quantile(0.5));
+        for (long valeur = 1; valeur <= 100_000; valeur++) {
+            histogramme.enregistrer(valeur * 1000);
+        }
+
+        assertEquals(100_000, histogramme.nombre());
+        assertEquals(1000L * 100_000 * 100_001 / 2, histogramme.somme());
+        long[] quantiles = histogramme.quantiles(0.5, 0.99, 1.0);
+        assertEquals(50_000_000, quantiles[0], 50_000_000 * 0.04);
+        assertEquals(99_000_000, quantiles[1], 99_000_000 * 0.04);
+        assertTrue(quantiles[2] >= 100_000_000);
+        // Valeurs exactes sous 32 ns, valeurs hors bornes ramenées aux extrêmes
+        assertEquals(HistogrammeLatences.borneHaute(HistogrammeLatences.seau(17)), 17);
+        histogramme.enregistrer(-5);
+        histogramme.enregistrer(Long.MAX_VALUE);
+        assertEquals(0, histogramme.quantile(0));
+    }
+
+    @Test
+    void operationsDuServiceExposees() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        service.ajouterLivre(new Livre("1", "Titre", "Auteur"));
+        service.ajouterLivre(new Livre("2", "Autre titre", "Auteur"));
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        service.ajouterUtilisateur(alice);
+        service.emprunterLivre("1", alice.getId());
+        assertThrows(Exception.class, () -> service.emprunterLivre("1", alice.getId()));
+        service.rechercherTexte("titre");
+
+        Metriques metriques = service.getMetriques();
+        assertEquals(2, metriques.operation("emprunter_livre").getLatences().nombre());
+        assertEquals(1, metriques.operation("emprunter_livre").getEchecs());
+        assertEquals(0.5, service.getTauxDisponibilite());
+
+        StringBuilder texte = new StringBuilder();
+        metriques.ecrirePrometheus(texte);
+        String sortie = texte.toString();
+        assertTrue(sortie.contains("# TYPE bibliotheque_livres gauge\nbibliotheque_livres 2\n"));
+        assertTrue(sortie.contains("bibliotheque_disponibilite_ratio 0.5\n"));
+        assertTrue(sortie.contains("bibliotheque_emprunts_en_cours 1\n"));
+        assertTrue(sortie.contains("bibliotheque_operation_duree_secondes_count{operation=\"emprunter_livre\"} 2\n"));
+        assertTrue(sortie.contains("bibliotheque_operation_duree_secondes{operation=\"rechercher_texte\",quantile=\"0.99\"} "));
+        assertTrue(sortie.contains("bibliotheque_operation_echecs_total{operation=\"emprunter_livre\"} 1\n"));
+        assertTrue(sortie.contains("# TYPE bibliotheque_popularite_perdus_total counter\nbibliotheque_popularite_perdus_total 0\n"));
+
+        ObjectName objet = metriques.exposerJmx("com.isitech.bibliotheque.test:type=Metriques");
+        try {
+            var serveur = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, serveur.getAttribute(objet, "emprunter_livre.echecs"));
+            assertEquals(2.0, serveur.getAttribute(objet, "livres"));
+            assertEquals(0L, serveur.getAttribute(objet, "popularite_perdus"));
+        } finally {
+            Metriques.retirerJmx(objet);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.isitech.bibliotheque.persistence;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.services.BibliothequeService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Mesure du temps de démarrage (instantané + fin de journal) pour un grand catalogue.
+ * Usage : gradle benchRecuperation -Plivres=10000000 -Pqueue=100000 [-Pbase=projete]
+ * Avec base=projete, le catalogue initial est un catalogue projeté plutôt qu'un instantané.
+ */
+public class BenchmarkRecuperation {
+
+    public static void main(String[] args) throws Exception {
+        int livres = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int queue = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        boolean projete = args.length > 2 && args[2].equals("projete");
+        Path dossier = Files.createTempDirectory("bench-recuperation");
+        try {
+            preparer(dossier, livres, queue, projete);
+            for (int essai = 1; essai <= 3; essai++) {
+                System.gc();
+                long debut = System.nanoTime();
+                BibliothequeService service = new BibliothequeService("Benchmark");
+                try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+                    stockage.recuperer(service);
+                }
+                long millis = (System.nanoTime() - debut) / 1_000_000;
+                System.out.printf("Essai %d : %d livres restaurés en %d ms%n", essai, service.getTaileCatalogue(), millis);
+            }
+        } finally {
+            supprimer(dossier);
+        }
+    }
+
+    /**
+     * Construit un instantané (ou un catalogue projeté) de {@code livres - queue} livres
+     * suivi d'un journal de {@code queue} ajouts
+     */
+    private static void preparer(Path dossier, int livres, int queue, boolean projete) throws Exception {
+        long debut = System.nanoTime();
+        BibliothequeService service = new BibliothequeService("Benchmark");
+        if (projete) {
+            List<Livre> base = new ArrayList<>(livres - queue);
+            for (int i = 0; i < livres - queue; i++) {
+                base.add(livre(i));
+            }
+            CatalogueMappe.ecrire(dossier.resolve(MoteurStockage.FICHIER_CATALOGUE), base);
+        } else {
+            for (int i = 0; i < livres - queue; i++) {
+                service.ajouterLivre(livre(i));
+            }
+        }
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(service);
+            stockage.prendreInstantane();
+            for (int i = livres - queue; i < livres; i++) {
+                service.ajouterLivre(livre(i));
+            }
+        }
+        System.out.printf("Préparation : %d livres (%d journalisés) en %d ms%n",
+            livres, queue, (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    private static Livre livre(int i) {
+        return new Livre(String.format("978%010d", i), "Titre " + i, "Auteur " + (i % 50_000));
+    }
+
+    private static void supprimer(Path dossier) throws IOException {
+        try (Stream<Path> fichiers = Files.walk(dossier)) {
+            for (Path fichier : fichiers.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(fichier);
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.isitech.bibliotheque.persistence;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import com.isitech.bibliotheque.services.Curseur;
+import com.isitech.bibliotheque.services.InstantaneCatalogue;
+import com.isitech.bibliotheque.services.PageLivres;
+import com.isitech.bibliotheque.services.VueCatalogue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogueMappeTest {
+    @TempDir
+    Path dossier;
+
+    private static List<Livre> livres(int nombre) {
+        List<Livre> livres = new ArrayList<>();
+        for (int i = 0; i < nombre; i++) {
+            livres.add(new Livre(String.format("978%05d", i), "Titre " + (nombre - i), "Auteur " + (i % 7),
+                100 + i, i % 2 == 0 ? "Éditions" : null, i % 3 == 0 ? null : LocalDate.of(2000, 1, 1).plusDays(i)));
+        }
+        return livres;
+    }
+
+    private Path ecrire(List<Livre> livres) throws Exception {
+        Path fichier = dossier.resolve(MoteurStockage.FICHIER_CATALOGUE);
+        CatalogueMappe.ecrire(fichier, livres);
+        return fichier;
+    }
+
+    @Test
+    void relitLesEnregistrementsParIsbn() throws Exception {
+        List<Livre> sources = livres(200);
+        sources.add(new Livre("X1", "Les Misérables", "Victor Hugo"));
+        CatalogueMappe catalogue = CatalogueMappe.ouvrir(ecrire(sources));
+
+        assertEquals(201, catalogue.taille());
+        for (Livre source : sources) {
+            int indice = catalogue.indice(source.getIsbn());
+            assertTrue(indice >= 0, source.getIsbn());
+            Livre lu = catalogue.lire(indice);
+            assertEquals(source.getTitre(), lu.getTitre());
+            assertEquals(source.getAuteur(), lu.getAuteur());
+            assertEquals(source.getNbPages(), lu.getNbPages());
+            assertEquals(source.getEditeur(), lu.getEditeur());
+            assertEquals(source.getDatePublication(), lu.getDatePublication());
+        }
+        assertEquals(-1, catalogue.indice("inconnu"));
+    }
+
+    @Test
+    void enregistrementsDansLOrdreNaturelEtIndexAuteur() throws Exception {
+        List<Livre> sources = livres(100);
+        CatalogueMappe catalogue = CatalogueMappe.ouvrir(ecrire(sources));
+
+        for (int i = 1; i < catalogue.taille(); i++) {
+            assertTrue(catalogue.lire(i - 1).compareTo(catalogue.lire(i)) < 0);
+        }
+        Livre borne = catalogue.lire(41);
+        assertEquals(42, catalogue.premierApres(borne));
+        assertEquals(0, catalogue.premierApres(null));
+
+        List<String> parAuteur = new ArrayList<>();
+        catalogue.parAuteur("auteur 3", indice -> parAuteur.add(catalogue.isbn(indice)));
+        List<String> attendus = sources.stream().filter(l -> l.getAuteur().equals("Auteur 3"))
+            .map(Livre::getIsbn).sorted().collect(Collectors.toList());
+        parAuteur.sort(null);
+        assertEquals(attendus, parAuteur);
+    }
+
+    @Test
+    void leServiceMaterialiseALaDemande() throws Exception {
+        List<Livre> sources = livres(50);
+        sources.add(new Livre("X1", "Les Misérables", "Victor Hugo"));
+        BibliothequeService service = new BibliothequeService("Test");
+        service.chargerCatalogue(CatalogueMappe.ouvrir(ecrire(sources)));
+
+        assertEquals(51, service.getTaileCatalogue());
+        Livre livre = service.rechercherParIsbn("X1");
+        assertSame(livre, service.rechercherParIsbn("X1"));
+        assertEquals(List.of(livre), service.rechercherTexte("miserables"));
+        assertEquals(List.of(livre), service.rechercherParAuteur("VICTOR HUGO"));
+        assertThrows(Exception.class, () -> service.ajouterLivre(new Livre("97800001", "Doublon", "Auteur")));
+
+        // Les pages fusionnent la base et les livres en mémoire, sans doublon
+        service.ajouterLivre(new Livre("N1", "Titre 25 bis", "Nouvel Auteur"));
+        List<Livre> tous = new ArrayList<>();
+        PageLivres page = service.obtenirPage(VueCatalogue.TOUS, null, 7);
+        while (true) {
+            tous.addAll(page.livres());
+            if (page.suivant() == null) {
+                break;
+            }
+            page = service.obtenirPage(VueCatalogue.TOUS, Curseur.decoder(page.suivant().encoder()), 7);
+        }
+        assertEquals(52, tous.size());
+        for (int i = 1; i < tous.size(); i++) {
+            assertTrue(tous.get(i - 1).compareTo(tous.get(i)) < 0);
+        }
+        assertEquals(52, service.getTaileCatalogue());
+
+        // Emprunt, modification et suppression d'un livre de la base
+        Utilisateur etudiant = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        service.ajouterUtilisateur(etudiant);
+        service.emprunterLivre("97800010", etudiant.getId());
+        assertEquals(1, service.obtenirLivresEmpruntes().size());
+        assertEquals(51, service.obtenirLivresDisponibles().size());
+        service.rechercherParIsbn("97800020").setTitre("Titre renommé");
+        assertEquals("97800020", service.rechercherTexte("renomme").get(0).getIsbn());
+        assertTrue(service.rechercherTexte("Titre 30").isEmpty());
+        assertTrue(service.supprimerLivre("97800021"));
+        assertNull(service.rechercherParIsbn("97800021"));
+        assertEquals(51, service.getTaileCatalogue());
+        service.ajouterLivre(new Livre("97800021", "Réédition", "Auteur 0"));
+        assertEquals("Réédition", service.rechercherParIsbn("97800021").getTitre());
+    }
+
+    @Test
+    void lInstantaneFusionneLaBaseSansLaMaterialiser() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        service.chargerCatalogue(CatalogueMappe.ouvrir(ecrire(livres(40))));
+        service.ajouterLivre(new Livre("N1", "Titre 15 bis", "Nouvel Auteur"));
+        service.ajouterLivre(new Livre("N2", "A la une", "Nouvel Auteur"));
+        service.rechercherParIsbn("97800007").setTitre("Zz renommé");
+        assertTrue(service.supprimerLivre("97800011"));
+
+        // Accès par position et parcours donnent la même fusion triée, sans doublon
+        InstantaneCatalogue instantane = service.obtenirInstantane();
+        List<Livre> liste = instantane.livres();
+        assertEquals(service.getTaileCatalogue(), liste.size());
+        List<Livre> parcourus = new ArrayList<>(liste);
+        for (int i = 0; i < liste.size(); i++) {
+            assertEquals(parcourus.get(i).getIsbn(), liste.get(i).getIsbn());
+            if (i > 0) {
+                assertTrue(parcourus.get(i - 1).compareTo(parcourus.get(i)) < 0);
+            }
+        }
+        assertEquals("N2", liste.get(0).getIsbn());
+        assertEquals("97800007", liste.get(liste.size() - 1).getIsbn());
+        assertTrue(liste.stream().noneMatch(livre -> livre.getIsbn().equals("97800011")));
+
+        // Les enregistrements de la base sont rendus comme copies : rien n'est matérialisé
+        Livre copie = liste.get(1);
+        assertNotSame(copie, liste.get(1));
+        assertSame(instantane, service.obtenirInstantane());
+        Livre materialise = service.rechercherParIsbn(copie.getIsbn());
+        InstantaneCatalogue suivant = service.obtenirInstantane();
+        assertNotSame(instantane, suivant);
+        assertSame(materialise, suivant.livres().get(1));
+        assertEquals(liste.size(), suivant.taille());
+    }
+
+    @Test
+    void rechercheTexteParLesPostingsDuFichier() throws Exception {
+        List<Livre> sources = livres(300);
+        sources.add(new Livre("X1", "Les Misérables", "Victor Hugo"));
+        sources.add(new Livre("X2", "Notre-Dame de Paris", "Victor Hugo"));
+        CatalogueMappe catalogue = CatalogueMappe.ouvrir(ecrire(sources));
+
+        for (String requete : List.of("titre 12", "hugo", "victor hugo", "ditions", "e 1", "re", "zzz", "titre 1 auteur")) {
+            List<Integer> trouves = new ArrayList<>();
+            catalogue.rechercherTexte(requete, trouves::add);
+            List<Integer> attendus = new ArrayList<>();
+            for (int i = 0; i < catalogue.taille(); i++) {
+                Livre livre = catalogue.lire(i);
+                if (livre.getTitreNormalise().contains(requete) || livre.getAuteurNormalise().contains(requete)) {
+                    attendus.add(i);
+                }
+            }
+            // Mêmes enregistrements qu'un parcours complet, dans l'ordre du fichier
+            assertEquals(attendus, trouves, requete);
+        }
+    }
+
+    @Test
+    void laRechercheTexteNeMaterialisePasLaBase() throws Exception {
+        List<Livre> sources = livres(20);
+        sources.add(new Livre("X1", "Les Misérables", "Victor Hugo"));
+        BibliothequeService service = new BibliothequeService("Test");
+        service.chargerCatalogue(CatalogueMappe.ouvrir(ecrire(sources)));
+
+        // Copies lues dans la projection : rien n'est indexé en mémoire
+        Livre copie = service.rechercherTexte("miserables").get(0);
+        assertNotSame(copie, service.rechercherTexte("miserables").get(0));
+        assertEquals(20, service.rechercherTexte("titre").size());
+
+        // Une copie modifiée devient le livre qui fait foi
+        copie.setTitre("Les Travailleurs de la mer");
+        assertSame(copie, service.rechercherParIsbn("X1"));
+        assertEquals(List.of(copie), service.rechercherTexte("travailleurs"));
+        assertTrue(service.rechercherTexte("miserables").isEmpty());
+
+        // Une copie dont le livre a été matérialisé entre-temps est refusée
+        Livre perimee = service.rechercherTexte("titre 7").get(0);
+        Livre livre = service.rechercherParIsbn(perimee.getIsbn());
+        assertThrows(IllegalStateException.class, () -> perimee.setTitre("Autre"));
+        assertSame(livre, service.rechercherTexte("titre 7").get(0));
+        assertEquals("Titre 7", livre.getTitre());
+    }
+
+    @Test
+    void laRecuperationNEnregistreQueLesEcartsALaBase() throws Exception {
+        ecrire(livres(30));
+        String idEtudiant;
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            Utilisateur etudiant = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+            service.ajouterUtilisateur(etudiant);
+            idEtudiant = etudiant.getId();
+            service.emprunterLivre("97800001", idEtudiant);
+            service.supprimerLivre("97800002");
+            service.supprimerLivre("97800003");
+            service.ajouterLivre(new Livre("97800003", "Réédition", "Auteur"));
+            stockage.prendreInstantane();
+            service.rechercherParIsbn("97800004").setAuteur("Autre Auteur");
+            service.supprimerLivre("97800005");
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+        assertEquals(28, restaure.getTaileCatalogue());
+        assertEquals(idEtudiant, restaure.rechercherParIsbn("97800001").getEmprunteur().getId());
+        assertNull(restaure.rechercherParIsbn("97800002"));
+        assertEquals("Réédition", restaure.rechercherParIsbn("97800003").getTitre());
+        assertEquals("Autre Auteur", restaure.rechercherParIsbn("97800004").getAuteur());
+        assertNull(restaure.rechercherParIsbn("97800005"));
+    }
+}
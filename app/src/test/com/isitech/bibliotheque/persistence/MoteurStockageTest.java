@@ -0,0 +1,199 @@
+package com.isitech.bibliotheque.persistence;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import com.isitech.bibliotheque.services.CodeResultat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoteurStockageTest {
+    @TempDir
+    Path dossier;
+
+    @Test
+    void restaureCatalogueUtilisateursEtEmprunts() throws Exception {
+        String idEtudiant;
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            service.ajouterLivre(new Livre("1", "Java Facile", "Auteur A"));
+            service.ajouterLivre(new Livre("2", "Maths pour Tous", "Auteur B"));
+            service.ajouterLivre(new Livre("3", "À supprimer", "Auteur C"));
+            Utilisateur etudiant = new Etudiant("Alice", "alice@test.fr", "E1", 4, "Info");
+            service.ajouterUtilisateur(etudiant);
+            idEtudiant = etudiant.getId();
+            service.emprunterLivre("1", idEtudiant);
+            service.emprunterLivre("2", idEtudiant);
+            service.retournerLivre("2");
+            service.supprimerLivre("3");
+            service.rechercherParIsbn("2").setTitre("Maths pour Personne");
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+
+        assertEquals(2, restaure.getTaileCatalogue());
+        assertNull(restaure.rechercherParIsbn("3"));
+        Utilisateur etudiant = restaure.rechercherUtilisateur(idEtudiant);
+        assertInstanceOfEtudiant(etudiant);
+        assertEquals(1, etudiant.getEmpruntsActuels());
+        assertSame(etudiant, restaure.rechercherParIsbn("1").getEmprunteur());
+        assertTrue(restaure.rechercherParIsbn("2").estDisponible());
+        assertEquals("Maths pour Personne", restaure.rechercherParIsbn("2").getTitre());
+        assertEquals(List.of(restaure.rechercherParIsbn("2")), restaure.rechercherTexte("personne"));
+    }
+
+    @Test
+    void instantanePuisFinDuJournal() throws Exception {
+        String idProf;
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            Utilisateur prof = new Professeur("Bob", "bob@test.fr", "Maths");
+            service.ajouterUtilisateur(prof);
+            idProf = prof.getId();
+            for (int i = 0; i < 100; i++) {
+                service.ajouterLivre(new Livre("L" + i, "Titre " + i, "Auteur"));
+            }
+            service.emprunterLivre("L1", idProf);
+            stockage.prendreInstantane();
+            service.emprunterLivre("L2", idProf);
+            service.retournerLivre("L1");
+            service.ajouterLivre(new Livre("L100", "Titre 100", "Auteur"));
+        }
+        // Un seul instantané, et le journal ne contient plus que les événements postérieurs
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            assertEquals(1, fichiers.filter(f -> f.getFileName().toString().startsWith("instantane-")).count());
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+        assertEquals(101, restaure.getTaileCatalogue());
+        assertTrue(restaure.rechercherParIsbn("L1").estDisponible());
+        assertEquals(idProf, restaure.rechercherParIsbn("L2").getEmprunteur().getId());
+        assertEquals(1, restaure.rechercherUtilisateur(idProf).getEmpruntsActuels());
+    }
+
+    @Test
+    void refuseAvantMutationUnChampNonJournalisable() throws Exception {
+        String geant = "x".repeat(70_000); // Au-delà des 65535 octets d'un champ encodé
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            assertEquals(CodeResultat.DONNEES_TROP_VOLUMINEUSES,
+                service.tenterAjouterLivre(new Livre("1", geant, "Auteur")));
+            assertEquals(0, service.getTaileCatalogue());
+
+            Livre livre = new Livre("2", "Titre", "Auteur");
+            service.ajouterLivre(livre);
+            assertThrows(IllegalArgumentException.class, () -> livre.setTitre(geant));
+            assertEquals("Titre", livre.getTitre());
+            assertEquals(List.of(livre), service.rechercherTexte("titre"));
+            assertEquals(List.of(livre), service.ajouterLivres(List.of(livre)));
+            assertEquals(1, service.ajouterLivres(List.of(new Livre("3", "Autre", geant))).size());
+            // Le journal reste utilisable après les refus
+            livre.setTitre("Renomme");
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+        assertEquals(1, restaure.getTaileCatalogue());
+        assertEquals("Renomme", restaure.rechercherParIsbn("2").getTitre());
+    }
+
+    @Test
+    void tronqueUnEnregistrementIncompletEnFinDeJournal() throws Exception {
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            service.ajouterLivre(new Livre("1", "Premier", "Auteur"));
+            service.ajouterLivre(new Livre("2", "Second", "Auteur"));
+        }
+        // Simule un arrêt brutal au milieu de l'écriture du dernier enregistrement
+        Path segment;
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            segment = fichiers.filter(f -> f.getFileName().toString().endsWith(".wal"))
+                .filter(f -> f.toFile().length() > 0)
+                .findFirst().orElseThrow();
+        }
+        try (FileChannel canal = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 3);
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+            restaure.ajouterLivre(new Livre("3", "Troisième", "Auteur"));
+        }
+        assertNotNull(restaure.rechercherParIsbn("1"));
+        assertNull(restaure.rechercherParIsbn("2"));
+
+        BibliothequeService encore = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(encore);
+        }
+        assertEquals(2, encore.getTaileCatalogue());
+        assertNotNull(encore.rechercherParIsbn("3"));
+    }
+
+    @Test
+    void regroupeLesFsyncSousCharge() throws Exception {
+        int threads = 32;
+        int parThread = 50;
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            List<Future<?>> taches = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int debut = t * parThread;
+                taches.add(pool.submit(() -> {
+                    for (int i = debut; i < debut + parThread; i++) {
+                        service.ajouterLivre(new Livre("G" + i, "Titre " + i, "Auteur"));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tache : taches) {
+                tache.get();
+            }
+            pool.shutdown();
+            assertTrue(stockage.getJournal().getNombreFsync() < threads * parThread,
+                "les fsync doivent être regroupés");
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+        assertEquals(threads * parThread, restaure.getTaileCatalogue());
+    }
+
+    private static void assertInstanceOfEtudiant(Utilisateur utilisateur) {
+        assertNotNull(utilisateur);
+        assertTrue(utilisateur instanceof Etudiant);
+        assertEquals(4, ((Etudiant) utilisateur).getNiveau());
+    }
+}
@@ -0,0 +1,55 @@
+package com.isitech.bibliotheque.serveur;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigurationServeurTest {
+    @TempDir
+    Path dossier;
+
+    @Test
+    void valeursParDefaut() {
+        ConfigurationServeur configuration = ConfigurationServeur.parDefaut();
+        assertNull(configuration.hote());
+        assertEquals(8080, configuration.port());
+        assertEquals(-1, configuration.accepteurs());
+        assertEquals(-1, configuration.selecteurs());
+        assertFalse(configuration.threadsVirtuels());
+        assertTrue(configuration.h2c());
+        assertEquals(Duration.ofSeconds(30), configuration.delaiArret());
+    }
+
+    @Test
+    void proprietesSystemePrioritairesSurLeFichier() throws Exception {
+        Path fichier = dossier.resolve("serveur.properties");
+        Files.writeString(fichier, "port=9090\nselecteurs=4\nthreads.virtuels=oui\ninactivite.ms=5000\nh2c=non\n");
+        System.setProperty(ConfigurationServeur.PREFIXE + "port", "9191");
+        try {
+            ConfigurationServeur configuration = ConfigurationServeur.charger(fichier);
+            assertEquals(9191, configuration.port());
+            assertEquals(4, configuration.selecteurs());
+            assertTrue(configuration.threadsVirtuels());
+            assertFalse(configuration.h2c());
+            assertEquals(Duration.ofSeconds(5), configuration.delaiInactivite());
+        } finally {
+            System.clearProperty(ConfigurationServeur.PREFIXE + "port");
+        }
+    }
+
+    @Test
+    void valeursInvalidesRefusees() {
+        for (String ligne : new String[] {"port=70000", "port=abc", "selecteurs=0", "threads.max=2", "h2c=peut-etre"}) {
+            Properties proprietes = new Properties();
+            String[] cleValeur = ligne.split("=");
+            proprietes.setProperty(cleValeur[0], cleValeur[1]);
+            assertThrows(IllegalArgumentException.class, () -> ConfigurationServeur.depuis(proprietes));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.isitech.bibliotheque.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArbrePersistantTest {
+
+    @Test
+    void equivalentAUnEnsembleTrieEtVersionsAnciennesIntactes() {
+        Random aleatoire = new Random(42);
+        ArbrePersistant<Integer> arbre = ArbrePersistant.vide(Comparator.naturalOrder());
+        TreeSet<Integer> reference = new TreeSet<>();
+        List<ArbrePersistant<Integer>> versions = new ArrayList<>();
+        List<List<Integer>> contenus = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            int valeur = aleatoire.nextInt(1000);
+            if (aleatoire.nextInt(3) == 0) {
+                arbre = arbre.retirer(valeur);
+                reference.remove(valeur);
+            } else {
+                arbre = arbre.ajouter(valeur);
+                reference.add(valeur);
+            }
+            if (i % 500 == 0) {
+                versions.add(arbre);
+                contenus.add(new ArrayList<>(reference));
+            }
+        }
+        List<Integer> attendus = new ArrayList<>(reference);
+        assertEquals(attendus.size(), arbre.taille());
+        for (int rang = 0; rang < attendus.size(); rang++) {
+            assertEquals(attendus.get(rang), arbre.get(rang));
+        }
+        for (int sonde = -1; sonde <= 1000; sonde += 7) {
+            int cle = sonde;
+            assertEquals(reference.headSet(cle, false).size(), arbre.compter(v -> Integer.compare(v, cle), false));
+            assertEquals(reference.headSet(cle, true).size(), arbre.compter(v -> Integer.compare(v, cle), true));
+            assertEquals(reference.contains(cle) ? Integer.valueOf(cle) : null, arbre.chercher(v -> Integer.compare(v, cle)));
+        }
+        // Parcours à partir d'un rang, jusqu'au rang de fin (parcours vide)
+        for (int rang : new int[] {0, 1, attendus.size() / 2, attendus.size() - 1, attendus.size()}) {
+            List<Integer> lus = new ArrayList<>();
+            arbre.iterateur(rang).forEachRemaining(lus::add);
+            assertEquals(attendus.subList(rang, attendus.size()), lus);
+        }
+        // Les versions précédentes ne voient aucune des modifications suivantes
+        for (int v = 0; v < versions.size(); v++) {
+            List<Integer> lus = new ArrayList<>();
+            versions.get(v).iterateur(0).forEachRemaining(lus::add);
+            assertEquals(contenus.get(v), lus);
+        }
+    }
+
+    @Test
+    void retraitDUnAbsentRendLeMemeArbre() {
+        ArbrePersistant<String> arbre = ArbrePersistant.<String>vide(Comparator.naturalOrder()).ajouter("b").ajouter("a");
+        assertSame(arbre, arbre.retirer("c"));
+        assertThrows(IndexOutOfBoundsException.class, () -> arbre.get(2));
+        Iterator<String> parcours = arbre.iterateur(2);
+        assertFalse(parcours.hasNext());
+    }
+}
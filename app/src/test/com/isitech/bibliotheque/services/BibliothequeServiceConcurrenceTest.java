@@ -0,0 +1,174 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de charge multi-threads : aucun double emprunt, aucun dépassement de quota
+ */
+class BibliothequeServiceConcurrenceTest {
+    private static final int THREADS = 64;
+
+    @Test
+    void unSeulEmpruntGagnantParLivre() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        List<Utilisateur> utilisateurs = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Utilisateur u = new Professeur("Prof " + i, "prof" + i + "@test.fr", "Info");
+            service.ajouterUtilisateur(u);
+            utilisateurs.add(u);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int tour = 0; tour < 100; tour++) {
+                String isbn = "T" + tour;
+                service.ajouterLivre(new Livre(isbn, "Titre " + tour, "Auteur"));
+
+                CountDownLatch depart = new CountDownLatch(1);
+                AtomicInteger gagnants = new AtomicInteger();
+                List<Future<?>> taches = new ArrayList<>();
+                for (Utilisateur u : utilisateurs) {
+                    taches.add(pool.submit(() -> {
+                        depart.await();
+                        try {
+                            service.emprunterLivre(isbn, u.getId());
+                            gagnants.incrementAndGet();
+                        } catch (Exception attendue) {
+                            // Livre déjà emprunté
+                        }
+                        return null;
+                    }));
+                }
+                depart.countDown();
+                for (Future<?> tache : taches) {
+                    tache.get();
+                }
+
+                assertEquals(1, gagnants.get(), "un seul emprunt doit réussir pour " + isbn);
+                service.retournerLivre(isbn);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void quotaJamaisDepasseSousContention() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Utilisateur etudiant = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        service.ajouterUtilisateur(etudiant);
+        for (int i = 0; i < THREADS; i++) {
+            service.ajouterLivre(new Livre("Q" + i, "Titre " + i, "Auteur"));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch depart = new CountDownLatch(1);
+            AtomicInteger reussis = new AtomicInteger();
+            List<Future<?>> taches = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                String isbn = "Q" + i;
+                taches.add(pool.submit(() -> {
+                    depart.await();
+                    try {
+                        service.emprunterLivre(isbn, etudiant.getId());
+                        reussis.incrementAndGet();
+                    } catch (Exception attendue) {
+                        // Quota atteint
+                    }
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> tache : taches) {
+                tache.get();
+            }
+
+            assertEquals(etudiant.getMaxEmprunts(), reussis.get());
+            assertEquals(etudiant.getMaxEmprunts(), etudiant.getEmpruntsActuels());
+            assertEquals(etudiant.getMaxEmprunts(), service.obtenirLivresEmpruntes().size());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void invariantsPreservesSousChargeMixte() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        int nbLivres = 32;
+        int nbUtilisateurs = 16;
+        for (int i = 0; i < nbLivres; i++) {
+            service.ajouterLivre(new Livre("M" + i, "Titre " + i, "Auteur " + (i % 4)));
+        }
+        List<Utilisateur> utilisateurs = new ArrayList<>();
+        for (int i = 0; i < nbUtilisateurs; i++) {
+            Utilisateur u = new Etudiant("Etudiant " + i, "e" + i + "@test.fr", "E" + i, 1, "Info");
+            service.ajouterUtilisateur(u);
+            utilisateurs.add(u);
+        }
+
+        // Nombre de détenteurs observés par livre et d'emprunts observés par utilisateur
+        AtomicIntegerArray detenteurs = new AtomicIntegerArray(nbLivres);
+        AtomicIntegerArray tenus = new AtomicIntegerArray(nbUtilisateurs);
+        AtomicInteger violations = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch depart = new CountDownLatch(1);
+            List<Future<?>> taches = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int graine = t;
+                taches.add(pool.submit(() -> {
+                    depart.await();
+                    ThreadLocalRandom aleatoire = ThreadLocalRandom.current();
+                    for (int op = 0; op < 500; op++) {
+                        int livre = aleatoire.nextInt(nbLivres);
+                        int utilisateur = (graine + op) % nbUtilisateurs;
+                        Utilisateur u = utilisateurs.get(utilisateur);
+                        try {
+                            service.emprunterLivre("M" + livre, u.getId());
+                        } catch (Exception refus) {
+                            continue;
+                        }
+                        if (detenteurs.incrementAndGet(livre) > 1) {
+                            violations.incrementAndGet();
+                        }
+                        if (tenus.incrementAndGet(utilisateur) > u.getMaxEmprunts()) {
+                            violations.incrementAndGet();
+                        }
+                        // Seul le thread qui a emprunté rend le livre
+                        detenteurs.decrementAndGet(livre);
+                        tenus.decrementAndGet(utilisateur);
+                        service.retournerLivre("M" + livre);
+                    }
+                    return null;
+                }));
+            }
+            depart.countDown();
+            for (Future<?> tache : taches) {
+                tache.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(0, violations.get(), "double emprunt ou quota dépassé observé");
+        assertEquals(nbLivres, service.obtenirLivresDisponibles().size());
+        assertTrue(service.obtenirLivresEmpruntes().isEmpty());
+        for (Utilisateur u : utilisateurs) {
+            assertEquals(0, u.getEmpruntsActuels(), "compteur incohérent pour " + u.getNom());
+        }
+    }
+}
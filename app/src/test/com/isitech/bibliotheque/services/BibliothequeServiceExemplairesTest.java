@@ -0,0 +1,114 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.persistence.MoteurStockage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibliothequeServiceExemplairesTest {
+    @TempDir
+    Path dossier;
+
+    private static List<Utilisateur> inscrire(BibliothequeService service, int nombre) throws Exception {
+        List<Utilisateur> lecteurs = new ArrayList<>();
+        for (int i = 0; i < nombre; i++) {
+            Utilisateur lecteur = new Etudiant("Lecteur " + i, "lecteur" + i + "@test.fr", "E" + i, 1, "Info");
+            service.ajouterUtilisateur(lecteur);
+            lecteurs.add(lecteur);
+        }
+        return lecteurs;
+    }
+
+    @Test
+    void empruntParExemplaire() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Livre livre = new Livre("1", "Best-seller", "Auteur");
+        service.ajouterLivre(livre);
+        service.ajouterExemplaires("1", 2);
+        List<Utilisateur> lecteurs = inscrire(service, 4);
+
+        assertEquals(3, livre.getNombreExemplaires());
+        assertEquals(0, service.emprunterLivre("1", lecteurs.get(0).getId()));
+        assertEquals(1, service.emprunterLivre("1", lecteurs.get(1).getId()));
+        // Emprunté et encore disponible : présent dans les deux vues
+        assertTrue(livre.estDisponible());
+        assertEquals(List.of(livre), service.obtenirLivresDisponibles());
+        assertEquals(List.of(livre), service.obtenirLivresEmpruntes());
+
+        Exception doublon = assertThrows(Exception.class, () -> service.emprunterLivre("1", lecteurs.get(0).getId()));
+        assertTrue(doublon.getMessage().contains("déjà emprunté"));
+        assertEquals(2, service.emprunterLivre("1", lecteurs.get(2).getId()));
+        assertFalse(livre.estDisponible());
+        assertTrue(service.obtenirLivresDisponibles().isEmpty());
+        assertThrows(Exception.class, () -> service.emprunterLivre("1", lecteurs.get(3).getId()));
+        assertEquals(0, lecteurs.get(3).getEmpruntsActuels());
+
+        // Plusieurs exemplaires sortis : le retour doit préciser lequel
+        assertThrows(Exception.class, () -> service.retournerLivre("1"));
+        service.retournerExemplaire("1", 1);
+        assertNull(livre.getEmprunteur(1));
+        assertEquals(1, livre.getNombreDisponibles());
+        assertThrows(Exception.class, () -> service.retournerExemplaire("1", 1));
+        assertEquals(1, service.emprunterLivre("1", lecteurs.get(3).getId()));
+        assertSame(lecteurs.get(3), livre.getEmprunteur(1));
+        assertEquals(1, service.obtenirEmpruntsUtilisateur(lecteurs.get(3).getId()).get(0).exemplaire());
+
+        service.retournerExemplaire("1", 0);
+        service.retournerExemplaire("1", 2);
+        service.retournerLivre("1");
+        assertEquals(3, livre.getNombreDisponibles());
+        assertTrue(service.obtenirLivresEmpruntes().isEmpty());
+        assertEquals(0, service.getNombreEmpruntsEnCours());
+        assertTrue(service.supprimerLivre("1"));
+    }
+
+    @Test
+    void exemplairesEtEmpruntsRestaures() throws Exception {
+        String idProf;
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            service.ajouterLivre(new Livre("1", "Best-seller", "Auteur"));
+            service.ajouterLivre(new Livre("2", "Autre", "Auteur"));
+            service.ajouterExemplaires("1", 3);
+            List<Utilisateur> lecteurs = inscrire(service, 3);
+            Utilisateur prof = new Professeur("Prof", "prof@test.fr", "Maths");
+            service.ajouterUtilisateur(prof);
+            idProf = prof.getId();
+            for (Utilisateur lecteur : lecteurs) {
+                service.emprunterLivre("1", lecteur.getId());
+            }
+            service.retournerExemplaire("1", 0);
+            // Instantané au milieu : la suite vient du journal
+            stockage.prendreInstantane();
+            service.emprunterLivre("1", idProf);
+            service.retournerExemplaire("1", 2);
+            service.ajouterExemplaires("2", 1);
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+
+        Livre livre = restaure.rechercherParIsbn("1");
+        assertEquals(4, livre.getNombreExemplaires());
+        assertEquals(2, livre.getNombreDisponibles());
+        assertEquals(idProf, livre.getEmprunteur(0).getId());
+        assertNotNull(livre.getEmprunteur(1));
+        assertNull(livre.getEmprunteur(2));
+        assertEquals(2, restaure.rechercherParIsbn("2").getNombreExemplaires());
+        assertEquals(2, restaure.getNombreEmpruntsEnCours());
+        assertEquals(List.of(livre), restaure.rechercherUtilisateur(idProf).getLivresEmpruntes());
+        assertEquals(1, restaure.rechercherUtilisateur(idProf).getEmpruntsActuels());
+    }
+}
@@ -0,0 +1,185 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.persistence.MoteurStockage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibliothequeServiceLotsTest {
+    @TempDir
+    Path dossier;
+
+    private static BibliothequeService catalogue(int nombre) throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        for (int i = 1; i <= nombre; i++) {
+            service.ajouterLivre(new Livre(String.valueOf(i), "Titre " + i, "Auteur"));
+        }
+        return service;
+    }
+
+    private static Utilisateur etudiant(BibliothequeService service, String nom) throws Exception {
+        Utilisateur etudiant = new Etudiant(nom, nom.toLowerCase() + "@test.fr", nom, 1, "Info");
+        service.ajouterUtilisateur(etudiant);
+        return etudiant;
+    }
+
+    @Test
+    void lotAppliqueRetoursAvantEmprunts() throws Exception {
+        BibliothequeService service = catalogue(4);
+        Utilisateur alice = etudiant(service, "Alice");
+        for (int i = 1; i <= 3; i++) {
+            service.emprunterLivre(String.valueOf(i), alice.getId());
+        }
+
+        // Quota atteint (3) : le retour placé après l'emprunt libère quand même la place
+        List<ResultatCirculation> resultats = service.traiterLot(List.of(
+            OperationCirculation.emprunt("4", alice.getId()),
+            OperationCirculation.retour("1", alice.getId()),
+            OperationCirculation.retour("2")));
+        assertTrue(resultats.stream().allMatch(ResultatCirculation::reussi));
+        assertEquals(List.of(0, 0, 0), resultats.stream().map(ResultatCirculation::exemplaire).toList());
+        assertEquals(2, alice.getEmpruntsActuels());
+        assertSame(alice, service.rechercherParIsbn("4").getEmprunteur());
+        assertTrue(service.rechercherParIsbn("1").estDisponible());
+        assertEquals(2, service.getNombreEmpruntsEnCours());
+        assertTrue(service.traiterLot(List.of()).isEmpty());
+    }
+
+    @Test
+    void lotRejeteEnToutOuRien() throws Exception {
+        BibliothequeService service = catalogue(5);
+        Utilisateur alice = etudiant(service, "Alice");
+        Utilisateur bob = etudiant(service, "Bob");
+        service.emprunterLivre("5", bob.getId());
+        long version = service.getVersion();
+
+        // Quatre emprunts pour un quota de trois : rejet sans prendre de verrou
+        List<ResultatCirculation> quota = service.traiterLot(List.of(
+            OperationCirculation.emprunt("1", alice.getId()),
+            OperationCirculation.emprunt("2", alice.getId()),
+            OperationCirculation.emprunt("3", alice.getId()),
+            OperationCirculation.emprunt("4", alice.getId())));
+        assertEquals(ResultatCirculation.LOT_ANNULE, quota.get(0).erreur());
+        assertTrue(quota.get(3).erreur().contains("Quota"));
+
+        // Livre déjà sorti en fin de lot : les retours et emprunts valides sont défaits
+        List<ResultatCirculation> indisponible = service.traiterLot(List.of(
+            OperationCirculation.retour("5", bob.getId()),
+            OperationCirculation.emprunt("1", bob.getId()),
+            OperationCirculation.emprunt("5", alice.getId()),
+            OperationCirculation.emprunt("5", bob.getId())));
+        assertFalse(indisponible.get(3).reussi());
+        assertEquals(ResultatCirculation.LOT_ANNULE, indisponible.get(0).erreur());
+        assertEquals(-1, indisponible.get(1).exemplaire());
+
+        List<ResultatCirculation> doublon = service.traiterLot(List.of(
+            OperationCirculation.emprunt("1", alice.getId()),
+            OperationCirculation.emprunt("1", alice.getId())));
+        assertFalse(doublon.get(1).reussi());
+        assertFalse(service.traiterLot(List.of(OperationCirculation.retour("2"))).get(0).reussi());
+        assertFalse(service.traiterLot(List.of(OperationCirculation.emprunt("9", alice.getId()))).get(0).reussi());
+
+        assertEquals(version, service.getVersion());
+        assertSame(bob, service.rechercherParIsbn("5").getEmprunteur());
+        assertEquals(1, bob.getEmpruntsActuels());
+        assertEquals(0, alice.getEmpruntsActuels());
+        assertEquals(1, service.getNombreEmpruntsEnCours());
+    }
+
+    @Test
+    void lotRenduAttribueAuxReservataires() throws Exception {
+        BibliothequeService service = catalogue(2);
+        Utilisateur alice = etudiant(service, "Alice");
+        Utilisateur bob = etudiant(service, "Bob");
+        service.emprunterLivre("1", alice.getId());
+        service.reserverLivre("1", bob.getId());
+
+        List<ResultatCirculation> resultats = service.traiterLot(List.of(
+            OperationCirculation.retour("1"),
+            OperationCirculation.emprunt("2", alice.getId())));
+        assertTrue(resultats.get(0).reussi());
+        assertSame(bob, service.rechercherParIsbn("1").getEmprunteur());
+        assertTrue(service.obtenirReservations("1").isEmpty());
+    }
+
+    @Test
+    void lotsConcurrentsSansInterblocage() throws Exception {
+        int nombreLivres = 64;
+        BibliothequeService service = catalogue(nombreLivres);
+        List<Utilisateur> lecteurs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            lecteurs.add(etudiant(service, "Lecteur" + i));
+        }
+        ExecutorService executeur = Executors.newFixedThreadPool(8);
+        CountDownLatch depart = new CountDownLatch(1);
+        List<Future<?>> taches = new ArrayList<>();
+        for (Utilisateur lecteur : lecteurs) {
+            taches.add(executeur.submit(() -> {
+                depart.await();
+                for (int tour = 0; tour < 200; tour++) {
+                    // Ordres d'ISBN différents selon les lecteurs : les verrous triés évitent l'interblocage
+                    List<OperationCirculation> lot = new ArrayList<>();
+                    for (int k = 0; k < 3; k++) {
+                        int isbn = 1 + Math.floorMod(lecteur.hashCode() * 31 + tour * 7 - k * 13, nombreLivres);
+                        lot.add(OperationCirculation.emprunt(String.valueOf(isbn), lecteur.getId()));
+                    }
+                    if (service.traiterLot(lot).get(0).reussi()) {
+                        List<OperationCirculation> retours = new ArrayList<>();
+                        for (OperationCirculation emprunt : lot) {
+                            retours.add(OperationCirculation.retour(emprunt.isbn(), lecteur.getId()));
+                        }
+                        assertTrue(service.traiterLot(retours).get(0).reussi());
+                    }
+                }
+                return null;
+            }));
+        }
+        depart.countDown();
+        for (Future<?> tache : taches) {
+            tache.get();
+        }
+        executeur.shutdown();
+        assertEquals(0, service.getNombreEmpruntsEnCours());
+        for (Utilisateur lecteur : lecteurs) {
+            assertEquals(0, lecteur.getEmpruntsActuels());
+        }
+    }
+
+    @Test
+    void lotRejoueDepuisJournal() throws Exception {
+        String idAlice;
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = catalogue(0);
+            stockage.recuperer(service);
+            service.ajouterLivre(new Livre("1", "Titre 1", "Auteur"));
+            service.ajouterLivre(new Livre("2", "Titre 2", "Auteur"));
+            idAlice = etudiant(service, "Alice").getId();
+            service.emprunterLivre("1", idAlice);
+            service.traiterLot(List.of(
+                OperationCirculation.emprunt("1", idAlice),
+                OperationCirculation.retour("1"),
+                OperationCirculation.emprunt("2", idAlice)));
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+        Utilisateur alice = restaure.rechercherUtilisateur(idAlice);
+        assertSame(alice, restaure.rechercherParIsbn("1").getEmprunteur());
+        assertSame(alice, restaure.rechercherParIsbn("2").getEmprunteur());
+        assertEquals(2, alice.getEmpruntsActuels());
+    }
+}
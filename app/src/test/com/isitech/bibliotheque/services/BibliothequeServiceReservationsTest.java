@@ -0,0 +1,125 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.persistence.MoteurStockage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibliothequeServiceReservationsTest {
+    @TempDir
+    Path dossier;
+
+    private static Utilisateur etudiant(BibliothequeService service, String nom) throws Exception {
+        Utilisateur etudiant = new Etudiant(nom, nom.toLowerCase() + "@test.fr", nom, 1, "Info");
+        service.ajouterUtilisateur(etudiant);
+        return etudiant;
+    }
+
+    @Test
+    void retourAttribueAuPremierReservataireEligible() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        for (int i = 1; i <= 4; i++) {
+            service.ajouterLivre(new Livre(String.valueOf(i), "Titre " + i, "Auteur"));
+        }
+        Utilisateur alice = etudiant(service, "Alice");
+        Utilisateur bob = etudiant(service, "Bob");
+        Utilisateur carol = etudiant(service, "Carol");
+        service.emprunterLivre("1", alice.getId());
+
+        // Livre disponible, puis livre déjà détenu
+        assertThrows(Exception.class, () -> service.reserverLivre("2", bob.getId()));
+        assertThrows(Exception.class, () -> service.reserverLivre("1", alice.getId()));
+        assertEquals(1, service.reserverLivre("1", bob.getId()));
+        assertEquals(2, service.reserverLivre("1", carol.getId()));
+        assertThrows(Exception.class, () -> service.reserverLivre("1", carol.getId()));
+
+        // Bob a atteint son quota : il garde sa place mais Carol est servie
+        for (int i = 2; i <= 4; i++) {
+            service.emprunterLivre(String.valueOf(i), bob.getId());
+        }
+        CompletableFuture<AvisRetour> attente = service.attendreRetour("1");
+        assertFalse(attente.isDone());
+        service.retournerLivre("1");
+
+        Livre livre = service.rechercherParIsbn("1");
+        assertSame(carol, livre.getEmprunteur());
+        assertEquals(List.of(bob), service.obtenirReservations("1"));
+        assertEquals(List.of(livre), service.obtenirLivresEmpruntes().subList(0, 1));
+        AvisRetour avis = attente.get(1, TimeUnit.SECONDS);
+        assertSame(carol, avis.attributaire());
+
+        // Bob retrouve de la place : le prochain retour lui revient
+        service.retournerLivre("2");
+        service.retournerLivre("1");
+        assertSame(bob, livre.getEmprunteur());
+        assertTrue(service.obtenirReservations("1").isEmpty());
+
+        assertFalse(service.annulerReservation("1", "inconnu"));
+        service.reserverLivre("1", alice.getId());
+        assertTrue(service.annulerReservation("1", alice.getId()));
+        service.retournerLivre("1");
+        assertTrue(livre.estDisponible());
+        assertTrue(service.attendreRetour("1").isDone());
+    }
+
+    @Test
+    void attentesRetourNeSurviventPasAuLivre() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        service.ajouterLivre(new Livre("1", "Titre", "Auteur"));
+        Utilisateur alice = etudiant(service, "Alice");
+
+        // Un livre disponible interrogé en boucle ne laisse aucune attente inscrite
+        for (int i = 0; i < 3; i++) {
+            assertTrue(service.attendreRetour("1").isDone());
+        }
+        assertEquals(0, service.getNombreAttentesRetour());
+
+        service.emprunterLivre("1", alice.getId());
+        CompletableFuture<AvisRetour> attente = service.attendreRetour("1");
+        assertEquals(1, service.getNombreAttentesRetour());
+        service.retournerLivre("1");
+        assertTrue(attente.isDone());
+        assertEquals(0, service.getNombreAttentesRetour());
+        assertTrue(service.supprimerLivre("1"));
+        assertEquals(0, service.getNombreAttentesRetour());
+    }
+
+    @Test
+    void filesRestaureesDepuisInstantaneEtJournal() throws Exception {
+        String idBob;
+        String idCarol;
+        String idDave;
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            service.ajouterLivre(new Livre("1", "Titre", "Auteur"));
+            Utilisateur alice = etudiant(service, "Alice");
+            idBob = etudiant(service, "Bob").getId();
+            idCarol = etudiant(service, "Carol").getId();
+            idDave = etudiant(service, "Dave").getId();
+            service.emprunterLivre("1", alice.getId());
+            service.reserverLivre("1", idBob);
+            service.reserverLivre("1", idCarol);
+            stockage.prendreInstantane();
+            service.reserverLivre("1", idDave);
+            service.retournerLivre("1"); // Attribué à Bob
+            service.annulerReservation("1", idDave);
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+        assertEquals(idBob, restaure.rechercherParIsbn("1").getEmprunteur().getId());
+        assertEquals(List.of(restaure.rechercherUtilisateur(idCarol)), restaure.obtenirReservations("1"));
+    }
+}
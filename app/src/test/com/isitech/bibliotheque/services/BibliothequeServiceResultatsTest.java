@@ -0,0 +1,86 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibliothequeServiceResultatsTest {
+
+    @Test
+    void empruntsEtRetoursSansException() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(CodeResultat.SUCCES, service.tenterAjouterLivre(new Livre(String.valueOf(i), "Titre " + i, "Auteur")));
+        }
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        Utilisateur bob = new Etudiant("Bob", "bob@test.fr", "E2", 1, "Info");
+        assertEquals(CodeResultat.SUCCES, service.tenterAjouterUtilisateur(alice));
+        assertEquals(CodeResultat.SUCCES, service.tenterAjouterUtilisateur(bob));
+
+        ResultatEmprunt resultat = service.tenterEmprunterLivre("1", alice.getId());
+        assertTrue(resultat.reussi());
+        assertEquals(0, resultat.exemplaire());
+        assertSame(ResultatEmprunt.succes(0), resultat);
+
+        // Les échecs sont préalloués
+        ResultatEmprunt indisponible = service.tenterEmprunterLivre("1", bob.getId());
+        assertEquals(CodeResultat.LIVRE_INDISPONIBLE, indisponible.code());
+        assertSame(indisponible, service.tenterEmprunterLivre("1", bob.getId()));
+        assertEquals(-1, indisponible.exemplaire());
+        service.ajouterExemplaires("1", 1);
+        assertEquals(CodeResultat.DEJA_EMPRUNTE, service.tenterEmprunterLivre("1", alice.getId()).code());
+        assertEquals(CodeResultat.LIVRE_INTROUVABLE, service.tenterEmprunterLivre("9", alice.getId()).code());
+        assertEquals(CodeResultat.LIVRE_INTROUVABLE, service.tenterEmprunterLivre(null, alice.getId()).code());
+        assertEquals(CodeResultat.UTILISATEUR_INTROUVABLE, service.tenterEmprunterLivre("2", "inconnu").code());
+        assertTrue(service.tenterEmprunterLivre("2", alice.getId()).reussi());
+        assertTrue(service.tenterEmprunterLivre("3", alice.getId()).reussi());
+        assertEquals(CodeResultat.QUOTA_DEPASSE, service.tenterEmprunterLivre("4", alice.getId()).code());
+        assertEquals(3, alice.getEmpruntsActuels());
+
+        assertEquals(CodeResultat.NON_EMPRUNTE, service.tenterRetournerLivre("4"));
+        assertEquals(CodeResultat.LIVRE_INTROUVABLE, service.tenterRetournerLivre("9"));
+        assertEquals(CodeResultat.SUCCES, service.tenterEmprunterLivre("1", bob.getId()).code());
+        assertEquals(CodeResultat.EXEMPLAIRE_AMBIGU, service.tenterRetournerLivre("1"));
+        assertEquals(CodeResultat.NON_EMPRUNTE, service.tenterRetournerExemplaire("1", 5));
+        assertEquals(CodeResultat.NON_EMPRUNTE, service.tenterRetournerExemplaire("1", -1));
+        assertEquals(CodeResultat.SUCCES, service.tenterRetournerExemplaire("1", 0));
+        assertEquals(CodeResultat.SUCCES, service.tenterRetournerLivre("1"));
+        assertEquals(2, alice.getEmpruntsActuels());
+        assertEquals(2, service.getNombreEmpruntsEnCours());
+    }
+
+    @Test
+    void ajoutsRefusesSansException() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        assertEquals(CodeResultat.DONNEES_MANQUANTES, service.tenterAjouterLivre(null));
+        assertEquals(CodeResultat.SUCCES, service.tenterAjouterLivre(new Livre("1", "Titre", "Auteur")));
+        assertEquals(CodeResultat.LIVRE_EXISTANT, service.tenterAjouterLivre(new Livre("1", "Autre", "Auteur")));
+        // Un livre sans auteur est refusé avant toute indexation
+        assertEquals(CodeResultat.DONNEES_MANQUANTES, service.tenterAjouterLivre(new Livre("11", "Titre", null)));
+        assertNull(service.rechercherParIsbn("11"));
+        assertEquals(CodeResultat.SUCCES, service.tenterAjouterLivre(new Livre("11", "Titre", "Autre auteur")));
+        // Un auteur retiré ensuite ne casse pas le tri des livres de même titre
+        service.rechercherParIsbn("11").setAuteur(null);
+        assertEquals(2, service.getTaileCatalogue());
+        assertEquals(List.of("11", "1"), service.obtenirTousLesLivres().stream().map(Livre::getIsbn).toList());
+
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        assertEquals(CodeResultat.DONNEES_MANQUANTES, service.tenterAjouterUtilisateur(null));
+        assertEquals(CodeResultat.SUCCES, service.tenterAjouterUtilisateur(alice));
+        assertEquals(CodeResultat.UTILISATEUR_EXISTANT, service.tenterAjouterUtilisateur(alice));
+        assertEquals(CodeResultat.EMAIL_EXISTANT, service.tenterAjouterUtilisateur(new Professeur("Autre", "ALICE@test.fr", "Maths")));
+        assertEquals(1, service.getNombreUtilisateurs());
+
+        // L'API à exceptions garde ses messages
+        Exception erreur = assertThrows(Exception.class, () -> service.ajouterLivre(new Livre("1", "Autre", "Auteur")));
+        assertEquals("Un livre avec l'ISBN 1 existe déjà", erreur.getMessage());
+        erreur = assertThrows(Exception.class, () -> service.emprunterLivre("1", "inconnu"));
+        assertEquals("Utilisateur avec ID inconnu introuvable", erreur.getMessage());
+    }
+}
@@ -0,0 +1,148 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.evenements.Evenement;
+import com.isitech.bibliotheque.evenements.TypeEvenement;
+import com.isitech.bibliotheque.metriques.Operation;
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.persistence.MoteurStockage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibliothequeServiceRetardsTest {
+    private static final LocalDate DEBUT = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dossier;
+
+    private static Clock le(LocalDate date) {
+        return Clock.fixed(date.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    }
+
+    @Test
+    void retardsListesParDateDeRetourPrevue() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        service.setHorloge(le(DEBUT));
+        for (int i = 1; i <= 3; i++) {
+            service.ajouterLivre(new Livre(String.valueOf(i), "Titre " + i, "Auteur"));
+        }
+        Utilisateur etudiant = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        Utilisateur prof = new Professeur("Bob", "bob@test.fr", "Maths");
+        service.ajouterUtilisateur(etudiant);
+        service.ajouterUtilisateur(prof);
+
+        service.emprunterLivre("1", prof.getId()); // Retour prévu à J+30
+        service.emprunterLivre("2", etudiant.getId()); // Retour prévu à J+15
+        service.emprunterLivre("3", etudiant.getId());
+        service.retournerLivre("3");
+        assertEquals(DEBUT, service.rechercherParIsbn("1").getDateEmprunt());
+        assertEquals(2, service.getNombreEmpruntsEnCours());
+
+        service.setHorloge(le(DEBUT.plusDays(15)));
+        assertTrue(service.obtenirLivresEnRetard().isEmpty());
+
+        service.setHorloge(le(DEBUT.plusDays(31)));
+        Livre livre1 = service.rechercherParIsbn("1");
+        Livre livre2 = service.rechercherParIsbn("2");
+        assertEquals(List.of(livre2, livre1), service.obtenirLivresEnRetard());
+
+        service.retournerLivre("2");
+        assertEquals(List.of(livre1), service.obtenirLivresEnRetard());
+    }
+
+    @Test
+    void notificationsParLotsSansDoublon() throws Exception {
+        List<Evenement> recus = new CopyOnWriteArrayList<>();
+        BibliothequeService service = new BibliothequeService("Test");
+        service.setPuitsEvenements(recus::add);
+        service.setHorloge(le(DEBUT));
+        service.ajouterLivre(new Livre("1", "Titre 1", "Auteur"));
+        service.ajouterLivre(new Livre("2", "Titre 2", "Auteur"));
+        Utilisateur etudiant = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        service.ajouterUtilisateur(etudiant);
+        service.emprunterLivre("1", etudiant.getId());
+        service.setHorloge(le(DEBUT.plusDays(5)));
+        service.emprunterLivre("2", etudiant.getId());
+        recus.clear();
+
+        assertEquals(0, service.notifierRetards());
+        service.setHorloge(le(DEBUT.plusDays(17)));
+        assertEquals(1, service.notifierRetards());
+        assertEquals(0, service.notifierRetards());
+        service.setHorloge(le(DEBUT.plusDays(30)));
+        assertEquals(1, service.notifierRetards());
+
+        assertEquals(2, recus.size());
+        assertEquals(TypeEvenement.RETARD, recus.get(0).type());
+        assertEquals("1", recus.get(0).isbn());
+        assertEquals(2, recus.get(0).joursRetard());
+        assertEquals("2", recus.get(1).isbn());
+        assertEquals(10, recus.get(1).joursRetard());
+    }
+
+    @Test
+    void echeancesRestaureesDepuisLeJournal() throws Exception {
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            service.setHorloge(le(DEBUT));
+            stockage.recuperer(service);
+            service.ajouterLivre(new Livre("1", "Titre", "Auteur"));
+            Utilisateur etudiant = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+            service.ajouterUtilisateur(etudiant);
+            service.emprunterLivre("1", etudiant.getId());
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        restaure.setHorloge(le(DEBUT.plusDays(20)));
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+        assertEquals(List.of(restaure.rechercherParIsbn("1")), restaure.obtenirLivresEnRetard());
+        assertEquals(5, restaure.rechercherParIsbn("1").joursRetard(LocalDate.now(restaure.getHorloge())));
+    }
+
+    @Test
+    void passageEnEchecCompteDansLesMetriques() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        service.setHorloge(new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                throw new IllegalStateException("Horloge indisponible");
+            }
+        });
+        Operation mesure = service.getMetriques().operation("notifier_retards");
+        try (PlanificateurRetards planificateur = new PlanificateurRetards(service, Duration.ofMillis(10))) {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            // Les passages continuent après un échec
+            while (mesure.getEchecs() < 2 && System.nanoTime() < limite) {
+                Thread.sleep(5);
+            }
+        }
+        assertTrue(mesure.getEchecs() >= 2);
+    }
+}
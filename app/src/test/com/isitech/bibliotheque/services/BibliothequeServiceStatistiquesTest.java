@@ -0,0 +1,88 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.persistence.MoteurStockage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibliothequeServiceStatistiquesTest {
+    private static final LocalDate DEBUT = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dossier;
+
+    private static Clock le(LocalDate date) {
+        return Clock.fixed(date.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+    }
+
+    @Test
+    void compteursTenusAJourAChaqueMutation() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        service.setHorloge(le(DEBUT));
+        service.ajouterLivre(new Livre("1", "Titre 1", "Émile Zola"));
+        service.ajouterLivre(new Livre("2", "Titre 2", "Emile Zola"));
+        service.ajouterLivre(new Livre("3", "Titre 3", "Victor Hugo"));
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        Utilisateur bob = new Etudiant("Bob", "bob@test.fr", "E2", 1, "Info");
+        Utilisateur carol = new Professeur("Carol", "carol@test.fr", "Maths");
+        service.ajouterUtilisateurs(java.util.List.of(alice, bob, carol));
+
+        service.emprunterLivre("1", alice.getId());
+        service.emprunterLivre("2", carol.getId());
+        service.emprunterLivre("3", bob.getId());
+        assertThrows(Exception.class, () -> service.emprunterLivre("1", bob.getId()));
+        service.setHorloge(le(DEBUT.plusDays(20))); // Étudiants en retard de 5 jours
+        service.retournerLivre("1");
+        service.retournerLivre("2");
+        assertEquals(1, service.notifierRetards());
+        assertTrue(service.supprimerUtilisateur(alice.getId()));
+
+        Statistiques stats = service.obtenirStatistiques();
+        assertEquals(Map.of("Étudiant L1", 1L, "Professeur", 1L), stats.utilisateursParType());
+        assertEquals(Map.of("Étudiant L1", 1L), stats.empruntsEnCoursParType());
+        assertEquals(Map.of("Étudiant L1", 2L, "Professeur", 1L), stats.empruntsParType());
+        assertEquals(1, stats.retoursEnRetard());
+        assertEquals(5, stats.joursRetard());
+        assertEquals(1, stats.retardsNotifies());
+        assertEquals(2, service.getNombreEmpruntsAuteur("EMILE ZOLA"));
+        assertEquals(0, service.getNombreEmpruntsAuteur("Inconnu"));
+    }
+
+    @Test
+    void effectifsRestaures() throws Exception {
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            service.ajouterLivre(new Livre("1", "Titre 1", "Auteur"));
+            service.ajouterLivre(new Livre("2", "Titre 2", "Auteur"));
+            Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+            Utilisateur carol = new Professeur("Carol", "carol@test.fr", "Maths");
+            service.ajouterUtilisateur(alice);
+            service.ajouterUtilisateur(carol);
+            service.emprunterLivre("1", alice.getId());
+            // Instantané au milieu : le journal rejoue des événements qu'il reflète déjà
+            stockage.prendreInstantane();
+            service.emprunterLivre("2", carol.getId());
+            service.retournerLivre("1");
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+        Statistiques stats = restaure.obtenirStatistiques();
+        assertEquals(Map.of("Étudiant L1", 1L, "Professeur", 1L), stats.utilisateursParType());
+        assertEquals(Map.of("Professeur", 1L), stats.empruntsEnCoursParType());
+    }
+}
@@ -0,0 +1,163 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import com.isitech.bibliotheque.persistence.MoteurStockage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibliothequeServiceUtilisateursTest {
+    @TempDir
+    Path dossier;
+
+    @Test
+    void emailUniqueSansDistinctionDeCasse() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        service.ajouterUtilisateur(alice);
+
+        Exception erreur = assertThrows(Exception.class,
+            () -> service.ajouterUtilisateur(new Professeur("Autre", " ALICE@Test.fr", "Maths")));
+        assertTrue(erreur.getMessage().contains("existe déjà"));
+        assertEquals(1, service.getNombreUtilisateurs());
+        assertSame(alice, service.rechercherUtilisateurParEmail("Alice@TEST.fr"));
+    }
+
+    @Test
+    void changementEmailReindexe() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        Utilisateur bob = new Professeur("Bob", "bob@test.fr", "Maths");
+        service.ajouterUtilisateur(alice);
+        service.ajouterUtilisateur(bob);
+
+        assertThrows(IllegalArgumentException.class, () -> bob.setEmail("Alice@test.fr"));
+        assertEquals("bob@test.fr", bob.getEmail());
+
+        alice.setEmail("alice@autre.fr");
+        assertNull(service.rechercherUtilisateurParEmail("alice@test.fr"));
+        assertSame(alice, service.rechercherUtilisateurParEmail("alice@autre.fr"));
+        // L'ancien email est libéré
+        bob.setEmail("alice@test.fr");
+        assertSame(bob, service.rechercherUtilisateurParEmail("alice@test.fr"));
+        // Changement de casse pour soi-même accepté
+        alice.setEmail("ALICE@autre.fr");
+        assertSame(alice, service.rechercherUtilisateurParEmail("alice@autre.fr"));
+    }
+
+    @Test
+    void suppressionLibereEmail() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        service.ajouterLivre(new Livre("1", "Titre", "Auteur"));
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        service.ajouterUtilisateur(alice);
+
+        service.emprunterLivre("1", alice.getId());
+        assertThrows(IllegalStateException.class, () -> service.supprimerUtilisateur(alice.getId()));
+        assertSame(alice, service.rechercherUtilisateur(alice.getId()));
+
+        service.retournerLivre("1");
+        assertTrue(service.supprimerUtilisateur(alice.getId()));
+        assertFalse(service.supprimerUtilisateur(alice.getId()));
+        assertNull(service.rechercherUtilisateurParEmail("alice@test.fr"));
+        assertThrows(Exception.class, () -> service.emprunterLivre("1", alice.getId()));
+
+        // Un utilisateur désinscrit n'est plus suivi par l'index
+        alice.setEmail("autre@test.fr");
+        assertNull(service.rechercherUtilisateurParEmail("autre@test.fr"));
+        service.ajouterUtilisateur(new Professeur("Bob", "alice@test.fr", "Maths"));
+    }
+
+    @Test
+    void inscriptionEnLot() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Utilisateur existant = new Professeur("Bob", "bob@test.fr", "Maths");
+        service.ajouterUtilisateur(existant);
+
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        Utilisateur doublonLot = new Etudiant("Alice 2", "ALICE@test.fr", "E2", 1, "Info");
+        Utilisateur doublonExistant = new Etudiant("Bob 2", "bob@test.fr", "E3", 1, "Info");
+        Utilisateur memeId = new Etudiant(alice.getId(), "Carol", "carol@test.fr", "E4", 1, "Info");
+        Utilisateur dave = new Etudiant("Dave", "dave@test.fr", "E5", 1, "Info");
+
+        List<Utilisateur> refuses = service.ajouterUtilisateurs(
+            List.of(alice, doublonLot, doublonExistant, memeId, dave));
+
+        assertEquals(List.of(doublonLot, doublonExistant, memeId), refuses);
+        assertEquals(3, service.getNombreUtilisateurs());
+        assertSame(alice, service.rechercherUtilisateurParEmail("alice@test.fr"));
+        assertSame(dave, service.rechercherUtilisateurParEmail("dave@test.fr"));
+    }
+
+    @Test
+    void empruntsDUnUtilisateur() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        LocalDate debut = LocalDate.of(2024, 3, 1);
+        service.setHorloge(Clock.fixed(debut.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        for (int i = 1; i <= 3; i++) {
+            service.ajouterLivre(new Livre(String.valueOf(i), "Titre " + i, "Auteur"));
+        }
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        Utilisateur bob = new Professeur("Bob", "bob@test.fr", "Maths");
+        service.ajouterUtilisateur(alice);
+        service.ajouterUtilisateur(bob);
+
+        service.emprunterLivre("1", alice.getId());
+        service.emprunterLivre("2", bob.getId());
+        service.emprunterLivre("3", alice.getId());
+        service.retournerLivre("1");
+
+        List<EmpruntEnCours> emprunts = service.obtenirEmpruntsUtilisateur(alice.getId());
+        assertEquals(1, emprunts.size());
+        assertSame(service.rechercherParIsbn("3"), emprunts.get(0).livre());
+        assertEquals(debut, emprunts.get(0).dateEmprunt());
+        assertEquals(debut.plusDays(15), emprunts.get(0).dateRetourPrevue());
+        assertEquals(List.of(service.rechercherParIsbn("2")), bob.getLivresEmpruntes());
+        assertTrue(service.obtenirEmpruntsUtilisateur("inconnu").isEmpty());
+    }
+
+    @Test
+    void changementsEtSuppressionsRestaures() throws Exception {
+        String idAlice;
+        String idBob;
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            BibliothequeService service = new BibliothequeService("Test");
+            stockage.recuperer(service);
+            Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+            Utilisateur bob = new Professeur("Bob", "bob@test.fr", "Maths");
+            service.ajouterUtilisateurs(List.of(alice, bob));
+            idAlice = alice.getId();
+            idBob = bob.getId();
+            alice.setEmail("alice@autre.fr");
+            service.supprimerUtilisateur(idBob);
+            service.ajouterLivre(new Livre("1", "Titre", "Auteur"));
+            service.emprunterLivre("1", idAlice);
+        }
+
+        BibliothequeService restaure = new BibliothequeService("Test");
+        try (MoteurStockage stockage = MoteurStockage.ouvrir(dossier)) {
+            stockage.recuperer(restaure);
+        }
+
+        Utilisateur alice = restaure.rechercherUtilisateur(idAlice);
+        assertEquals("alice@autre.fr", alice.getEmail());
+        assertSame(alice, restaure.rechercherUtilisateurParEmail("alice@autre.fr"));
+        assertNull(restaure.rechercherUtilisateurParEmail("alice@test.fr"));
+        assertNull(restaure.rechercherUtilisateur(idBob));
+        assertNull(restaure.rechercherUtilisateurParEmail("bob@test.fr"));
+        assertEquals(List.of(restaure.rechercherParIsbn("1")), alice.getLivresEmpruntes());
+        // L'utilisateur restauré est de nouveau suivi par l'index
+        alice.setEmail("alice@test.fr");
+        assertSame(alice, restaure.rechercherUtilisateurParEmail("alice@test.fr"));
+    }
+}
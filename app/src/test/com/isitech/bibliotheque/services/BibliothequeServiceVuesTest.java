@@ -0,0 +1,117 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Professeur;
+import com.isitech.bibliotheque.models.Utilisateur;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BibliothequeServiceVuesTest {
+
+    @Test
+    void vuesTrieesSuiventEmpruntsEtRenommages() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Livre b = new Livre("2", "B", "Auteur");
+        Livre a = new Livre("1", "A", "Auteur");
+        Livre memeTitre = new Livre("3", "A", "Auteur");
+        service.ajouterLivre(b);
+        service.ajouterLivre(a);
+        service.ajouterLivre(memeTitre);
+        Utilisateur prof = new Professeur("Prof", "prof@test.fr", "Info");
+        service.ajouterUtilisateur(prof);
+
+        assertEquals(List.of(a, memeTitre, b), service.obtenirTousLesLivres());
+
+        service.emprunterLivre("1", prof.getId());
+        assertEquals(List.of(memeTitre, b), service.obtenirLivresDisponibles());
+        assertEquals(List.of(a), service.obtenirLivresEmpruntes());
+
+        a.setTitre("C");
+        assertEquals(List.of(memeTitre, b, a), service.obtenirTousLesLivres());
+        assertEquals(List.of(a), service.obtenirLivresEmpruntes());
+
+        service.retournerLivre("1");
+        assertEquals(List.of(memeTitre, b, a), service.obtenirLivresDisponibles());
+        assertTrue(service.obtenirLivresEmpruntes().isEmpty());
+    }
+
+    @Test
+    void tauxDeDisponibiliteSuitLesVues() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        for (int i = 1; i <= 4; i++) {
+            service.ajouterLivre(new Livre(String.valueOf(i), "Titre " + i, "Auteur"));
+        }
+        Utilisateur prof = new Professeur("Bob", "bob@test.fr", "Maths");
+        service.ajouterUtilisateur(prof);
+        assertEquals(1.0, service.getTauxDisponibilite());
+
+        service.emprunterLivre("1", prof.getId());
+        service.emprunterLivre("2", prof.getId());
+        assertEquals(0.5, service.getTauxDisponibilite());
+        // Un second exemplaire rend le titre disponible
+        service.ajouterExemplaires("2", 1);
+        assertEquals(0.75, service.getTauxDisponibilite());
+        // Un renommage retire puis réindexe le livre sans fausser le compte
+        service.rechercherParIsbn("1").setTitre("Autre titre");
+        assertEquals(0.75, service.getTauxDisponibilite());
+        service.retournerLivre("1");
+        assertTrue(service.supprimerLivre("1"));
+        assertEquals(1.0, service.getTauxDisponibilite());
+        service.emprunterLivre("3", prof.getId());
+        assertEquals(2 / 3.0, service.getTauxDisponibilite(), 1e-9);
+    }
+
+    @Test
+    void paginationParCurseur() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        for (int i = 0; i < 25; i++) {
+            service.ajouterLivre(new Livre(String.valueOf(i), String.format("Titre %02d", i), "Auteur"));
+        }
+
+        List<Livre> lus = new ArrayList<>();
+        Curseur curseur = null;
+        int pages = 0;
+        do {
+            PageLivres page = service.obtenirPage(VueCatalogue.TOUS, curseur, 10);
+            lus.addAll(page.livres());
+            // Aller-retour par la forme encodée, comme depuis une URL
+            curseur = page.suivant() == null ? null : Curseur.decoder(page.suivant().encoder());
+            pages++;
+        } while (curseur != null);
+
+        assertEquals(3, pages);
+        assertEquals(service.obtenirTousLesLivres(), lus);
+    }
+
+    @Test
+    void paginationAuPassageDUnAuteurAbsent() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Livre sansAuteur = new Livre("1", "Meme", "X");
+        Livre vide = new Livre("2", "Meme", "");
+        Livre b = new Livre("3", "Meme", "B");
+        Livre litteral = new Livre("4", "Meme", "null");
+        for (Livre livre : List.of(litteral, b, vide, sansAuteur)) {
+            service.ajouterLivre(livre);
+        }
+        sansAuteur.setAuteur(null);
+
+        // Un auteur absent se relit absent, distinct de "null" et de ""
+        Curseur apresAbsent = Curseur.decoder(Curseur.apres(sansAuteur).encoder());
+        assertNull(apresAbsent.auteur());
+        assertEquals("null", Curseur.decoder(Curseur.apres(litteral).encoder()).auteur());
+        assertEquals("", Curseur.decoder(Curseur.apres(vide).encoder()).auteur());
+
+        List<Livre> lus = new ArrayList<>();
+        Curseur curseur = null;
+        do {
+            PageLivres page = service.obtenirPage(VueCatalogue.TOUS, curseur, 1);
+            lus.addAll(page.livres());
+            curseur = page.suivant() == null ? null : Curseur.decoder(page.suivant().encoder());
+        } while (curseur != null);
+        assertEquals(List.of(sansAuteur, vide, b, litteral), lus);
+    }
+}
@@ -0,0 +1,78 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Isbn;
+import com.isitech.bibliotheque.models.Livre;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogueIsbnTest {
+
+    @Test
+    void isbnValidesEtNormalises() {
+        assertEquals(9780306406157L, Isbn.analyser("978-0-306-40615-7").valeur());
+        assertEquals("9780306406157", Isbn.normaliser("0-306-40615-2"));
+        assertEquals("9780804429573", Isbn.normaliser("080442957X"));
+        assertEquals(Isbn.analyser("0306406152"), Isbn.analyser("9780306406157"));
+        assertNull(Isbn.normaliser("9780306406158")); // Mauvaise clé
+        assertNull(Isbn.normaliser("0306406153"));
+        assertNull(Isbn.normaliser("1234567890123")); // Préfixe autre que 978/979
+        assertNull(Isbn.normaliser("12"));
+        assertNull(Isbn.normaliser("X306406152"));
+        assertThrows(IllegalArgumentException.class, () -> Isbn.analyser("abc"));
+        assertThrows(IllegalArgumentException.class, () -> new Isbn(9780306406158L));
+    }
+
+    @Test
+    void tableAAdressageOuvert() {
+        CatalogueIsbn catalogue = new CatalogueIsbn();
+        assertNotEquals(CatalogueIsbn.cle("12"), CatalogueIsbn.cle("0012"));
+        for (int i = 0; i < 10_000; i++) {
+            assertNull(catalogue.ajouterSiAbsent(new Livre(String.format("978%010d", i), "T", "A")));
+        }
+        Livre alpha = new Livre("ISBN-A", "Alpha", "A");
+        Livre court = new Livre("12", "Court", "A");
+        assertNull(catalogue.ajouterSiAbsent(alpha));
+        assertNull(catalogue.ajouterSiAbsent(court));
+        assertSame(alpha, catalogue.ajouterSiAbsent(new Livre("ISBN-A", "Doublon", "A")));
+        assertNotNull(catalogue.ajouterSiAbsent(new Livre("9780000000042", "Doublon", "A")));
+        assertEquals(10_002, catalogue.taille());
+        assertSame(court, catalogue.get("12"));
+        assertNull(catalogue.get("0012"));
+        assertEquals("9780000004321", catalogue.get("9780000004321").getIsbn());
+
+        // Suppressions puis réinsertions : les cases libérées sont réutilisées ou purgées
+        for (int i = 0; i < 10_000; i += 2) {
+            assertNotNull(catalogue.retirer(String.format("978%010d", i)));
+        }
+        assertNull(catalogue.retirer("9780000000000"));
+        assertNull(catalogue.get("9780000000000"));
+        assertSame(alpha, catalogue.retirer("ISBN-A"));
+        Livre remis = new Livre("9780000000000", "Remis", "A");
+        assertNull(catalogue.ajouterSiAbsent(remis));
+        assertSame(remis, catalogue.get("9780000000000"));
+        for (int i = 20_000; i < 40_000; i++) {
+            catalogue.ajouterSiAbsent(new Livre(String.format("978%010d", i), "T", "A"));
+        }
+
+        Set<String> vus = new HashSet<>();
+        for (Livre livre : catalogue) {
+            assertTrue(vus.add(livre.getIsbn()));
+        }
+        assertEquals(5_000 + 2 + 20_000, catalogue.taille());
+        assertEquals(catalogue.taille(), vus.size());
+        assertTrue(vus.contains("12"));
+    }
+
+    @Test
+    void rechercheParIsbn10() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        service.ajouterLivre(new Livre("9780306406157", "Titre", "Auteur"));
+        assertNotNull(service.rechercherParIsbn("0-306-40615-2"));
+        assertNotNull(service.rechercherParIsbn("978-0-306-40615-7"));
+        assertNull(service.rechercherParIsbn("0-306-40615-3"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassementPopulariteTest {
+    private static final Instant DEBUT = Instant.parse("2024-01-01T00:00:00Z");
+
+    private static List<String> cles(List<ScorePopularite> classement) {
+        return classement.stream().map(ScorePopularite::cle).toList();
+    }
+
+    @Test
+    void scoresDecroissentAvecLaDemiVie() {
+        ClassementPopularite classement = new ClassementPopularite(16, Duration.ofDays(7));
+        for (int i = 0; i < 4; i++) {
+            classement.enregistrer("ancien", "Ancien", DEBUT);
+        }
+        Instant semaineSuivante = DEBUT.plus(Duration.ofDays(7));
+        for (int i = 0; i < 3; i++) {
+            classement.enregistrer("recent", "Récent", semaineSuivante);
+        }
+
+        List<ScorePopularite> meilleurs = classement.meilleurs(10, semaineSuivante);
+        assertEquals(List.of("recent", "ancien"), cles(meilleurs));
+        assertEquals(3.0, meilleurs.get(0).score(), 1e-9);
+        assertEquals(2.0, meilleurs.get(1).score(), 1e-9);
+        // Deux demi-vies plus tard : chaque score est divisé par 4
+        assertEquals(0.75, classement.meilleurs(1, semaineSuivante.plus(Duration.ofDays(14))).get(0).score(), 1e-9);
+
+        // Des siècles plus tard : remise à l'échelle sans débordement
+        Instant lointain = DEBUT.plus(Duration.ofDays(365 * 300));
+        classement.enregistrer("nouveau", "Nouveau", lointain);
+        assertEquals("nouveau", classement.meilleurs(1, lointain).get(0).cle());
+        assertEquals(1.0, classement.meilleurs(1, lointain).get(0).score(), 1e-9);
+    }
+
+    @Test
+    void memoireBorneeSansPerdreLesClesFrequentes() {
+        // 11 000 occurrences pour 16 places : toute clé au-delà de 11 000 / 16 reste suivie
+        ClassementPopularite classement = new ClassementPopularite(16, Duration.ofDays(7));
+        for (int i = 0; i < 10_000; i++) {
+            classement.enregistrer("isbn" + i, "Titre " + i, DEBUT);
+            if (i % 10 == 0) {
+                classement.enregistrer("vedette", "Vedette", DEBUT);
+            }
+        }
+        List<ScorePopularite> meilleurs = classement.meilleurs(100, DEBUT);
+        assertEquals(16, meilleurs.size());
+        assertEquals("vedette", meilleurs.get(0).cle());
+        // Space-Saving ne sous-estime jamais
+        assertTrue(meilleurs.get(0).score() >= 1000);
+    }
+
+    @Test
+    void enregistrementsConcurrentsTousComptesOuPerdus() throws Exception {
+        ClassementPopularite classement = new ClassementPopularite(16, Duration.ofDays(7));
+        int threads = 8;
+        int occurrences = 20_000;
+        List<Thread> producteurs = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String cle = "isbn" + (t % 2);
+            Thread producteur = new Thread(() -> {
+                for (int i = 0; i < occurrences; i++) {
+                    classement.enregistrer(cle, "Titre", DEBUT);
+                }
+            });
+            producteurs.add(producteur);
+            producteur.start();
+        }
+        for (Thread producteur : producteurs) {
+            producteur.join();
+        }
+        // Les occurrences encore en tampon sont reportées à la lecture
+        double total = classement.meilleurs(2, DEBUT).stream().mapToDouble(ScorePopularite::score).sum();
+        assertEquals(threads * occurrences, total + classement.getNombrePerdus(), 1e-6);
+    }
+
+    @Test
+    void empruntsAlimententLesClassementsDuService() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        service.setHorloge(Clock.fixed(DEBUT, ZoneOffset.UTC));
+        service.ajouterLivre(new Livre("1", "Germinal", "Émile Zola"));
+        service.ajouterLivre(new Livre("2", "Nana", "Emile Zola"));
+        service.ajouterLivre(new Livre("3", "Les Misérables", "Victor Hugo"));
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        Utilisateur bob = new Etudiant("Bob", "bob@test.fr", "E2", 1, "Info");
+        service.ajouterUtilisateur(alice);
+        service.ajouterUtilisateur(bob);
+
+        service.emprunterLivre("3", alice.getId());
+        service.retournerLivre("3");
+        service.emprunterLivre("3", bob.getId());
+        service.emprunterLivre("1", alice.getId());
+        service.reserverLivre("1", bob.getId());
+        service.emprunterLivre("2", alice.getId());
+        service.retournerLivre("1"); // Attribué à Bob : compte comme un emprunt
+
+        List<ScorePopularite> titres = service.obtenirTitresPopulaires(10);
+        assertEquals(Set.of("1", "3"), Set.copyOf(cles(titres.subList(0, 2))));
+        assertEquals(2.0, titres.get(0).score(), 1e-9);
+        assertEquals("2", titres.get(2).cle());
+        assertEquals("Nana", titres.get(2).libelle());
+        List<ScorePopularite> auteurs = service.obtenirAuteursPopulaires(5);
+        assertEquals(List.of("emile zola", "victor hugo"), cles(auteurs));
+        assertEquals(3.0, auteurs.get(0).score(), 1e-9);
+    }
+}
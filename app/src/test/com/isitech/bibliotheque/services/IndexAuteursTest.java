@@ -0,0 +1,114 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.DictionnaireAuteurs;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.NomAuteur;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexAuteursTest {
+
+    @Test
+    void nomsPartagesEtIdentifiantsCanoniques() {
+        DictionnaireAuteurs dictionnaire = new DictionnaireAuteurs();
+        Livre germinal = new Livre("1", "Germinal", new String("Émile Zola"));
+        Livre nana = new Livre("2", "Nana", new String("Émile Zola"));
+        Livre assommoir = new Livre("3", "L'Assommoir", "EMILE  zola");
+        assertEquals(NomAuteur.NON_INTERNE, germinal.getIdAuteurCanonique());
+        assertEquals("emile zola", assommoir.getAuteurNormalise());
+        for (Livre livre : List.of(germinal, nana, assommoir)) {
+            livre.internerAuteur(dictionnaire);
+        }
+
+        assertSame(germinal.getAuteur(), nana.getAuteur());
+        assertSame(germinal.getAuteurNormalise(), assommoir.getAuteurNormalise());
+        assertEquals(germinal.getIdAuteurCanonique(), assommoir.getIdAuteurCanonique());
+        assertEquals("EMILE  zola", assommoir.getAuteur());
+        assertEquals(2, dictionnaire.taille());
+        assertEquals(germinal.getIdAuteurCanonique(), dictionnaire.chercherCanonique("emile ZOLA"));
+        assertEquals(-1, dictionnaire.chercherCanonique("Auteur jamais vu"));
+        assertNull(new Livre("4", "Anonyme", null).getAuteur());
+    }
+
+    @Test
+    void dictionnaireParService() throws Exception {
+        BibliothequeService premier = new BibliothequeService("Premier");
+        BibliothequeService second = new BibliothequeService("Second");
+        premier.ajouterLivre(new Livre("1", "Germinal", "Émile Zola"));
+        second.ajouterLivre(new Livre("2", "Les Misérables", "Victor Hugo"));
+        Livre nana = new Livre("3", "Nana", "Émile Zola");
+        second.ajouterLivre(nana);
+
+        // Identifiants propres à chaque service : le premier auteur de chacun a le même
+        assertEquals(premier.rechercherParIsbn("1").getIdAuteurCanonique(),
+            second.rechercherParIsbn("2").getIdAuteurCanonique());
+        assertEquals(List.of(nana), second.rechercherParAuteur("emile zola"));
+        assertEquals(1, premier.rechercherParAuteur("emile zola").size());
+        assertTrue(premier.rechercherParAuteur("victor hugo").isEmpty());
+    }
+
+    @Test
+    void rechercheDejaTrieeEtTenueAJour() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Livre nana = new Livre("2", "Nana", "Émile Zola");
+        Livre germinal = new Livre("1", "Germinal", "Emile Zola");
+        Livre therese = new Livre("3", "Thérèse Raquin", "Émile Zola");
+        service.ajouterLivre(nana);
+        service.ajouterLivre(therese);
+        service.ajouterLivre(germinal);
+        service.ajouterLivre(new Livre("4", "Les Misérables", "Victor Hugo"));
+
+        assertEquals(List.of(germinal, nana, therese), service.rechercherParAuteur("EMILE ZOLA"));
+        assertThrows(UnsupportedOperationException.class, () -> service.rechercherParAuteur("Émile Zola").clear());
+
+        // Changement de titre : le livre reprend sa place dans l'ordre
+        nana.setTitre("A Nana");
+        assertEquals(List.of(nana, germinal, therese), service.rechercherParAuteur("émile zola"));
+        therese.setAuteur("Victor Hugo");
+        assertEquals(List.of(nana, germinal), service.rechercherParAuteur("émile zola"));
+        assertEquals(2, service.rechercherParAuteur("victor hugo").size());
+        service.supprimerLivre("1");
+        service.supprimerLivre("2");
+        assertTrue(service.rechercherParAuteur("émile zola").isEmpty());
+    }
+
+    @Test
+    void ajoutsConcurrentsPourUnMemeAuteur() throws Exception {
+        DictionnaireAuteurs dictionnaire = new DictionnaireAuteurs();
+        IndexAuteurs index = new IndexAuteurs();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int decalage = t;
+            threads.add(new Thread(() -> {
+                for (int i = decalage; i < 2000; i += 4) {
+                    Livre livre = new Livre(String.valueOf(i), String.format("Titre %04d", i), "Auteur prolifique");
+                    livre.internerAuteur(dictionnaire);
+                    index.ajouter(livre);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Livre[] livres = index.livres(dictionnaire.chercherCanonique("Auteur prolifique"));
+        assertEquals(2000, livres.length);
+        for (int i = 1; i < livres.length; i++) {
+            assertTrue(livres[i - 1].compareTo(livres[i]) < 0);
+        }
+
+        // Plusieurs milliers d'auteurs : l'index ajoute des segments
+        Livre dernier = null;
+        for (int i = 0; i < 3000; i++) {
+            dernier = new Livre("A" + i, "Titre", "Auteur numéro " + i);
+            dernier.internerAuteur(dictionnaire);
+            index.ajouter(dernier);
+        }
+        assertArrayEquals(new Livre[] {dernier}, index.livres(dernier.getIdAuteurCanonique()));
+        assertEquals(2000, index.livres(dictionnaire.chercherCanonique("Auteur prolifique")).length);
+    }
+}
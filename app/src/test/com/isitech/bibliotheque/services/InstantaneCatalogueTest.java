@@ -0,0 +1,190 @@
+package com.isitech.bibliotheque.services;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.models.Utilisateur;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstantaneCatalogueTest {
+
+    @Test
+    void versionPartageeJusquAuProchainChangementDeComposition() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Livre b = new Livre("2", "Beta", "Auteur");
+        Livre a = new Livre("1", "Alpha", "Auteur");
+        service.ajouterLivre(b);
+        service.ajouterLivre(a);
+        Utilisateur alice = new Etudiant("Alice", "alice@test.fr", "E1", 1, "Info");
+        service.ajouterUtilisateur(alice);
+
+        InstantaneCatalogue premier = service.obtenirInstantane();
+        assertEquals(List.of(a, b), premier.livres());
+        assertThrows(UnsupportedOperationException.class, () -> premier.livres().add(a));
+        // Un emprunt ne change pas la composition : même version, sans copie
+        service.emprunterLivre("1", alice.getId());
+        assertSame(premier, service.obtenirInstantane());
+        assertSame(premier.livres(), service.obtenirTousLesLivres());
+
+        Livre c = new Livre("3", "Gamma", "Auteur");
+        service.ajouterLivre(c);
+        InstantaneCatalogue second = service.obtenirInstantane();
+        assertNotSame(premier, second);
+        assertEquals(List.of(a, b), premier.livres());
+        assertTrue(second.contient(c));
+        assertFalse(premier.contient(c));
+
+        // Un changement de titre reclasse le livre dans la version suivante
+        a.setTitre("Zeta");
+        assertEquals(List.of(b, c, a), service.obtenirTousLesLivres());
+        service.retournerLivre("1");
+        assertTrue(service.supprimerLivre("2"));
+        assertEquals(List.of(c, a), service.obtenirTousLesLivres());
+    }
+
+    @Test
+    void pagesDUneMemeVersionSansSautNiDoublon() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        for (int i = 0; i < 10; i++) {
+            service.ajouterLivre(new Livre(String.valueOf(i), "Titre " + i, "Auteur"));
+        }
+        InstantaneCatalogue instantane = service.obtenirInstantane();
+        List<Livre> lus = new ArrayList<>();
+        Curseur curseur = null;
+        do {
+            PageLivres page = instantane.page(curseur, 3);
+            lus.addAll(page.livres());
+            curseur = page.suivant();
+            // Les écritures concurrentes ne touchent pas la version en cours de lecture
+            service.ajouterLivre(new Livre("x" + lus.size(), "Titre 0" + lus.size(), "Auteur"));
+        } while (curseur != null);
+        assertEquals(instantane.livres(), lus);
+        assertEquals(14, service.obtenirTousLesLivres().size());
+    }
+
+    @Test
+    void versionAncienneStableApresUnChangementDeTitre() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        List<Livre> livres = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Livre livre = new Livre(String.valueOf(i), "T" + i, "Auteur");
+            livres.add(livre);
+            service.ajouterLivre(livre);
+        }
+        InstantaneCatalogue ancien = service.obtenirInstantane();
+        livres.get(1).setTitre("Z");
+        livres.get(4).setAuteur("Autre");
+
+        // La version ancienne garde ses clés : ni saut ni doublon
+        List<Livre> lus = new ArrayList<>();
+        Curseur curseur = null;
+        do {
+            PageLivres page = ancien.page(curseur, 2);
+            lus.addAll(page.livres());
+            curseur = page.suivant();
+        } while (curseur != null);
+        assertEquals(livres, lus);
+        for (Livre livre : livres) {
+            assertTrue(ancien.contient(livre));
+        }
+        assertFalse(ancien.contient(new Livre("9", "T1", "Auteur")));
+        // Un curseur de la version suivante reprend au bon endroit dans l'ancienne
+        assertEquals(List.of(livres.get(4), livres.get(5)), ancien.page(new Curseur("T3", "Auteur", "3"), 5).livres());
+        assertEquals("Z", service.obtenirTousLesLivres().get(5).getTitre());
+    }
+
+    @Test
+    void lectureSansAttenteSousRenommagesIncessants() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        int nombre = 64;
+        List<Livre> livres = new ArrayList<>();
+        for (int i = 0; i < nombre; i++) {
+            Livre livre = new Livre(String.valueOf(i), "Titre " + i, "Auteur");
+            livres.add(livre);
+            service.ajouterLivre(livre);
+        }
+        ExecutorService executeur = Executors.newFixedThreadPool(5);
+        AtomicBoolean fini = new AtomicBoolean();
+        List<Future<?>> ecrivains = new ArrayList<>();
+        for (int e = 0; e < 4; e++) {
+            int numero = e;
+            ecrivains.add(executeur.submit(() -> {
+                // Chaque renommage publie une version : le lecteur n'attend ni ne reconstruit
+                for (int i = 0; !fini.get(); i++) {
+                    livres.get((numero + 4 * i) % nombre).setTitre("Titre " + numero + "-" + i);
+                }
+                return null;
+            }));
+        }
+        Future<Integer> lecteur = executeur.submit(() -> {
+            int lectures = 0;
+            for (; lectures < 200; lectures++) {
+                assertEquals(nombre, service.obtenirInstantane().taille());
+            }
+            return lectures;
+        });
+        try {
+            assertEquals(200, (int) lecteur.get(30, TimeUnit.SECONDS));
+        } finally {
+            fini.set(true);
+            for (Future<?> ecrivain : ecrivains) {
+                ecrivain.get();
+            }
+            executeur.shutdown();
+        }
+    }
+
+    @Test
+    void lecteursConcurrentsVoientDesVersionsCompletes() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        int ecrivains = 4;
+        int ajouts = 2000;
+        ExecutorService executeur = Executors.newFixedThreadPool(ecrivains + 2);
+        AtomicBoolean fini = new AtomicBoolean();
+        List<Future<?>> taches = new ArrayList<>();
+        for (int e = 0; e < ecrivains; e++) {
+            int numero = e;
+            taches.add(executeur.submit(() -> {
+                for (int i = 0; i < ajouts; i++) {
+                    service.ajouterLivre(new Livre(numero + "-" + i, "Titre " + (i * 7919 % ajouts), "Auteur " + numero));
+                }
+                return null;
+            }));
+        }
+        List<Future<Integer>> lecteurs = new ArrayList<>();
+        for (int l = 0; l < 2; l++) {
+            lecteurs.add(executeur.submit(() -> {
+                int lectures = 0;
+                while (!fini.get()) {
+                    InstantaneCatalogue instantane = service.obtenirInstantane();
+                    // Uniquement des ajouts réussis : la taille suit exactement la version
+                    assertEquals(instantane.getVersion(), instantane.taille());
+                    List<Livre> livres = instantane.livres();
+                    for (int i = 1; i < livres.size(); i++) {
+                        assertTrue(livres.get(i - 1).compareTo(livres.get(i)) < 0);
+                    }
+                    lectures++;
+                }
+                return lectures;
+            }));
+        }
+        for (Future<?> tache : taches) {
+            tache.get();
+        }
+        fini.set(true);
+        for (Future<Integer> lecteur : lecteurs) {
+            assertTrue(lecteur.get() > 0);
+        }
+        executeur.shutdown();
+        assertEquals(ecrivains * ajouts, service.obtenirInstantane().taille());
+    }
+}
@@ -0,0 +1,35 @@
+package com.isitech.bibliotheque.util;
+
+import com.isitech.bibliotheque.models.Etudiant;
+import com.isitech.bibliotheque.models.Livre;
+import com.isitech.bibliotheque.services.BibliothequeService;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NormalisationTest {
+
+    @Test
+    void plieCasseAccentsEtEspaces() {
+        assertEquals("etudiant", Normalisation.plier("Étudiant"));
+        assertEquals("les miserables", Normalisation.plier("  Les\tMisérables  "));
+        assertEquals("oeuvres completes", Normalisation.plier("Œuvres   complètes"));
+        assertEquals("garcon", Normalisation.plier("GARÇON"));
+        assertEquals("", Normalisation.plier(null));
+    }
+
+    @Test
+    void lesRecherchesIgnorentLesAccents() throws Exception {
+        BibliothequeService service = new BibliothequeService("Test");
+        Livre livre = new Livre("1", "Guide de l'Étudiant", "Émile Zola");
+        service.ajouterLivre(livre);
+        Etudiant etudiant = new Etudiant("Hélène Dupré", "helene@test.fr", "E1", 1, "Lettres");
+        service.ajouterUtilisateur(etudiant);
+
+        assertEquals(List.of(livre), service.rechercherTexte("etudiant"));
+        assertEquals(List.of(livre), service.rechercherParAuteur("emile  ZOLA"));
+        assertEquals(List.of(etudiant), service.rechercherUtilisateurParNom("helene"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.isitech.bibliotheque.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheReponsesTest {
+
+    @Test
+    void pageInvalideeParLaVersion() {
+        CacheReponses cache = new CacheReponses(1024, 16);
+        byte[] page = new byte[10];
+        assertNull(cache.obtenir("/?vue=TOUS", 1));
+        cache.placer("/?vue=TOUS", 1, page);
+        assertSame(page, cache.obtenir("/?vue=TOUS", 1));
+
+        // Une mutation a changé la version : la page périmée est retirée
+        assertNull(cache.obtenir("/?vue=TOUS", 2));
+        assertEquals(0, cache.getNombreEntrees());
+        assertEquals(0, cache.getOctets());
+
+        // Un rendu tardif d'une version plus ancienne n'écrase pas le plus récent
+        byte[] recente = new byte[12];
+        cache.placer("/?vue=TOUS", 3, recente);
+        cache.placer("/?vue=TOUS", 2, page);
+        assertSame(recente, cache.obtenir("/?vue=TOUS", 3));
+        assertEquals(2, cache.getSucces());
+        assertEquals(2, cache.getEchecs());
+    }
+
+    @Test
+    void evictionDesMoinsRecemmentLues() {
+        CacheReponses cache = new CacheReponses(800, 3);
+        cache.placer("a", 1, new byte[100]);
+        cache.placer("b", 1, new byte[100]);
+        cache.placer("c", 1, new byte[100]);
+        assertNotNull(cache.obtenir("a", 1));
+        cache.placer("d", 1, new byte[100]); // Au-delà de 3 entrées : "b" part
+        assertNull(cache.obtenir("b", 1));
+        assertNotNull(cache.obtenir("a", 1));
+        assertEquals(1, cache.getEvictions());
+
+        // Budget de 800 octets : au plus 8 pages de 100 octets
+        CacheReponses petit = new CacheReponses(800, 100);
+        for (int i = 0; i < 10; i++) {
+            petit.placer("p" + i, 1, new byte[100]);
+        }
+        assertEquals(8, petit.getNombreEntrees());
+        assertEquals(800, petit.getOctets());
+        assertNull(petit.obtenir("p0", 1));
+
+        // Trop grande (plus d'un huitième du budget) : jamais gardée
+        petit.placer("grande", 1, new byte[101]);
+        assertNull(petit.obtenir("grande", 1));
+    }
+
+    @Test
+    void lecturesEtInsertionsConcurrentesGardentLeCompteDesOctets() throws InterruptedException {
+        CacheReponses cache = new CacheReponses(8000, 16);
+        List<Thread> fils = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int graine = t;
+            fils.add(new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    String cle = "p" + ((i * 7 + graine) % 40);
+                    long version = i / 500;
+                    if (cache.obtenir(cle, version) == null) {
+                        cache.placer(cle, version, new byte[100 + (i % 900)]);
+                    }
+                }
+            }));
+        }
+        fils.forEach(Thread::start);
+        for (Thread fil : fils) {
+            fil.join();
+        }
+        assertTrue(cache.getNombreEntrees() <= 16);
+        assertTrue(cache.getOctets() <= 8000);
+        // Chaque page retirée l'a été une seule fois : le compte retombe à zéro
+        for (int i = 0; i < 40; i++) {
+            cache.obtenir("p" + i, Long.MAX_VALUE);
+        }
+        assertEquals(0, cache.getNombreEntrees());
+        assertEquals(0, cache.getOctets());
+    }
+}
@@ -0,0 +1,34 @@
+package com.isitech.bibliotheque.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EcrivainOctetsTest {
+
+    @Test
+    void echappeHtmlEtEncodeUtf8() throws Exception {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        // Tampon minuscule pour exercer les vidages intermédiaires
+        EcrivainOctets ecrivain = new EcrivainOctets(sortie, 4);
+        ecrivain.ecrire(EcrivainOctets.fragment("<li>"));
+        ecrivain.ecrireHtml("Éric & <Moi> \"l'été\" 😀");
+        ecrivain.vider();
+
+        assertEquals("<li>Éric &amp; &lt;Moi&gt; &quot;l&#39;été&quot; 😀",
+            sortie.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void echappeJson() throws Exception {
+        ByteArrayOutputStream sortie = new ByteArrayOutputStream();
+        EcrivainOctets ecrivain = new EcrivainOctets(sortie, 64);
+        ecrivain.ecrireJson("a\"b\\c\nd€");
+        ecrivain.vider();
+
+        assertEquals("a\\\"b\\\\c\\u000ad€", sortie.toString(StandardCharsets.UTF_8));
+    }
+}